@@ -3,9 +3,13 @@ package org.jenkinsci.plugins.pipeline.maven.dao;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.function.LongConsumer;
 import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
 import org.jenkinsci.plugins.pipeline.maven.MavenDependency;
 
@@ -89,6 +93,25 @@ public abstract class AbstractPipelineMavenPluginDaoDecorator implements Pipelin
                 classifier);
     }
 
+    @Override
+    public void recordBuildGraph(
+            @NonNull String jobFullName,
+            int buildNumber,
+            @NonNull List<MavenDependency> dependencies,
+            @NonNull List<MavenArtifact> parentProjects,
+            @NonNull List<MavenArtifact> generatedArtifacts,
+            boolean ignoreUpstreamTriggers,
+            boolean skipDownstreamTriggers) {
+        delegate.recordBuildGraph(
+                jobFullName,
+                buildNumber,
+                dependencies,
+                parentProjects,
+                generatedArtifacts,
+                ignoreUpstreamTriggers,
+                skipDownstreamTriggers);
+    }
+
     @Override
     public void recordBuildUpstreamCause(
             String upstreamJobName, int upstreamBuildNumber, String downstreamJobName, int downstreamBuildNumber) {
@@ -108,6 +131,13 @@ public abstract class AbstractPipelineMavenPluginDaoDecorator implements Pipelin
         return delegate.getGeneratedArtifacts(jobFullName, buildNumber);
     }
 
+    @NonNull
+    @Override
+    public Map<String, List<MavenArtifact>> getGeneratedArtifacts(
+            @NonNull Map<String, Integer> buildNumbersByJobFullName) {
+        return delegate.getGeneratedArtifacts(buildNumbersByJobFullName);
+    }
+
     @Override
     public void renameJob(@NonNull String oldFullName, @NonNull String newFullName) {
         delegate.renameJob(oldFullName, newFullName);
@@ -123,6 +153,20 @@ public abstract class AbstractPipelineMavenPluginDaoDecorator implements Pipelin
         delegate.deleteBuild(jobFullName, buildNumber);
     }
 
+    @Override
+    public int pruneBuilds(int retainedBuildCount, int maxBuilds) {
+        return delegate.pruneBuilds(retainedBuildCount, maxBuilds);
+    }
+
+    /**
+     * {@link #importGraph(InputStream, LongConsumer)} is not delegated, the imported builds go through the write
+     * methods of the decorators
+     */
+    @Override
+    public long exportGraph(@NonNull OutputStream out, @NonNull LongConsumer progressListener) throws IOException {
+        return delegate.exportGraph(out, progressListener);
+    }
+
     @NonNull
     @Override
     public List<String> listDownstreamJobs(@NonNull String jobFullName, int buildNumber) {
@@ -136,6 +180,13 @@ public abstract class AbstractPipelineMavenPluginDaoDecorator implements Pipelin
         return delegate.listDownstreamJobsByArtifact(jobFullName, buildNumber);
     }
 
+    @NonNull
+    @Override
+    public Map<String, Map<MavenArtifact, SortedSet<String>>> listDownstreamJobsByArtifact(
+            @NonNull Map<String, Integer> buildNumbersByJobFullName) {
+        return delegate.listDownstreamJobsByArtifact(buildNumbersByJobFullName);
+    }
+
     @NonNull
     @Override
     public SortedSet<String> listDownstreamJobs(
@@ -148,6 +199,13 @@ public abstract class AbstractPipelineMavenPluginDaoDecorator implements Pipelin
         return delegate.listDownstreamJobs(groupId, artifactId, version, baseVersion, type, classifier);
     }
 
+    @NonNull
+    @Override
+    public Map<MavenArtifact, SortedSet<String>> listDownstreamJobsByArtifacts(
+            @NonNull Collection<MavenArtifact> mavenArtifacts) {
+        return delegate.listDownstreamJobsByArtifacts(mavenArtifacts);
+    }
+
     @NonNull
     @Override
     public Map<String, Integer> listUpstreamJobs(@NonNull String jobFullName, int buildNumber) {
@@ -176,6 +234,12 @@ public abstract class AbstractPipelineMavenPluginDaoDecorator implements Pipelin
         return delegate.toPrettyString();
     }
 
+    @NonNull
+    @Override
+    public Map<String, Long> countRows() {
+        return delegate.countRows();
+    }
+
     @Override
     public void updateBuildOnCompletion(
             @NonNull String jobFullName,
@@ -0,0 +1,452 @@
+package org.jenkinsci.plugins.pipeline.maven.dao;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.model.Result;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
+import org.jenkinsci.plugins.pipeline.maven.MavenDependency;
+
+/**
+ * Cache the results of {@link #getGeneratedArtifacts(String, int)}, {@link #listDownstreamJobsByArtifact(String, int)}
+ * and {@link #listUpstreamJobs(String, int)} by build, shared by all the callers (trigger listeners, reports...).
+ * The bulk variants {@link #getGeneratedArtifacts(Map)} and {@link #listDownstreamJobsByArtifact(Map)} share the same
+ * entries and only load the missing builds.
+ * <p>
+ * Entries are evicted after {@code CACHE_TTL_IN_MILLIS} and when the cache exceeds {@code CACHE_MAX_SIZE} entries,
+ * they are invalidated by the write methods:
+ * <ul>
+ *     <li>writes on a build invalidate the entries of this build,</li>
+ *     <li>downstream and upstream jobs are computed from the last successful build of each job, so writes on the last
+ *     successful build of a job and completions of successful builds invalidate all the downstream and upstream
+ *     entries. When the last successful build of a job is unknown, the write is assumed to be on it.</li>
+ * </ul>
+ * Cached values are shared and must not be modified.
+ */
+public class CachingPipelineMavenPluginDaoDecorator extends AbstractPipelineMavenPluginDaoDecorator {
+
+    private static final int CACHE_MAX_SIZE =
+            Integer.getInteger("org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.CACHE_MAX_SIZE", 1000);
+
+    private static final long CACHE_TTL_IN_MILLIS = Long.getLong(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.CACHE_TTL_IN_MILLIS", TimeUnit.MINUTES.toMillis(5));
+
+    private static final AtomicInteger GENERATED_ARTIFACTS_HITS = new AtomicInteger();
+    private static final AtomicInteger GENERATED_ARTIFACTS_MISSES = new AtomicInteger();
+
+    private static final AtomicInteger DOWNSTREAM_JOBS_HITS = new AtomicInteger();
+    private static final AtomicInteger DOWNSTREAM_JOBS_MISSES = new AtomicInteger();
+
+    private static final AtomicInteger UPSTREAM_JOBS_HITS = new AtomicInteger();
+    private static final AtomicInteger UPSTREAM_JOBS_MISSES = new AtomicInteger();
+
+    static {
+        MonitoringPipelineMavenPluginDaoDecorator.registerCacheStatsSupplier(() -> new CacheStats(
+                "cached getGeneratedArtifacts", GENERATED_ARTIFACTS_HITS.get(), GENERATED_ARTIFACTS_MISSES.get()));
+        MonitoringPipelineMavenPluginDaoDecorator.registerCacheStatsSupplier(() -> new CacheStats(
+                "cached listDownstreamJobsByArtifact", DOWNSTREAM_JOBS_HITS.get(), DOWNSTREAM_JOBS_MISSES.get()));
+        MonitoringPipelineMavenPluginDaoDecorator.registerCacheStatsSupplier(() -> new CacheStats(
+                "cached listUpstreamJobs", UPSTREAM_JOBS_HITS.get(), UPSTREAM_JOBS_MISSES.get()));
+    }
+
+    private final ExpiringCache<List<MavenArtifact>> generatedArtifacts;
+
+    private final ExpiringCache<Map<MavenArtifact, SortedSet<String>>> downstreamJobsByArtifact;
+
+    private final ExpiringCache<Map<String, Integer>> upstreamJobs;
+
+    /**
+     * Last successful build number by job full name, as reported by
+     * {@link #updateBuildOnCompletion(String, int, int, long, long)}
+     */
+    private final ConcurrentMap<String, Integer> lastSuccessfulBuildNumbers = new ConcurrentHashMap<>();
+
+    public CachingPipelineMavenPluginDaoDecorator(@NonNull PipelineMavenPluginDao delegate) {
+        this(delegate, CACHE_MAX_SIZE, CACHE_TTL_IN_MILLIS);
+    }
+
+    public CachingPipelineMavenPluginDaoDecorator(
+            @NonNull PipelineMavenPluginDao delegate, int maxSize, long ttlInMillis) {
+        super(delegate);
+        this.generatedArtifacts =
+                new ExpiringCache<>(maxSize, ttlInMillis, GENERATED_ARTIFACTS_HITS, GENERATED_ARTIFACTS_MISSES);
+        this.downstreamJobsByArtifact =
+                new ExpiringCache<>(maxSize, ttlInMillis, DOWNSTREAM_JOBS_HITS, DOWNSTREAM_JOBS_MISSES);
+        this.upstreamJobs = new ExpiringCache<>(maxSize, ttlInMillis, UPSTREAM_JOBS_HITS, UPSTREAM_JOBS_MISSES);
+    }
+
+    @NonNull
+    @Override
+    public List<MavenArtifact> getGeneratedArtifacts(@NonNull String jobFullName, int buildNumber) {
+        return generatedArtifacts.get(
+                getKey(jobFullName, buildNumber),
+                () -> Collections.unmodifiableList(super.getGeneratedArtifacts(jobFullName, buildNumber)));
+    }
+
+    @NonNull
+    @Override
+    public Map<String, List<MavenArtifact>> getGeneratedArtifacts(
+            @NonNull Map<String, Integer> buildNumbersByJobFullName) {
+        return generatedArtifacts.getAll(buildNumbersByJobFullName, builds -> {
+            Map<String, List<MavenArtifact>> values = new HashMap<>();
+            for (Map.Entry<String, List<MavenArtifact>> value : super.getGeneratedArtifacts(builds).entrySet()) {
+                values.put(value.getKey(), Collections.unmodifiableList(value.getValue()));
+            }
+            return values;
+        });
+    }
+
+    @NonNull
+    @Override
+    public Map<MavenArtifact, SortedSet<String>> listDownstreamJobsByArtifact(
+            @NonNull String jobFullName, int buildNumber) {
+        return downstreamJobsByArtifact.get(
+                getKey(jobFullName, buildNumber),
+                () -> unmodifiableDownstreamJobs(super.listDownstreamJobsByArtifact(jobFullName, buildNumber)));
+    }
+
+    @NonNull
+    @Override
+    public Map<String, Map<MavenArtifact, SortedSet<String>>> listDownstreamJobsByArtifact(
+            @NonNull Map<String, Integer> buildNumbersByJobFullName) {
+        return downstreamJobsByArtifact.getAll(buildNumbersByJobFullName, builds -> {
+            Map<String, Map<MavenArtifact, SortedSet<String>>> values = new HashMap<>();
+            for (Map.Entry<String, Map<MavenArtifact, SortedSet<String>>> value :
+                    super.listDownstreamJobsByArtifact(builds).entrySet()) {
+                values.put(value.getKey(), unmodifiableDownstreamJobs(value.getValue()));
+            }
+            return values;
+        });
+    }
+
+    @NonNull
+    @Override
+    public Map<String, Integer> listUpstreamJobs(@NonNull String jobFullName, int buildNumber) {
+        return upstreamJobs.get(
+                getKey(jobFullName, buildNumber),
+                () -> Collections.unmodifiableMap(super.listUpstreamJobs(jobFullName, buildNumber)));
+    }
+
+    @Override
+    public void recordDependency(
+            @NonNull String jobFullName,
+            int buildNumber,
+            @NonNull String groupId,
+            @NonNull String artifactId,
+            @NonNull String version,
+            @NonNull String type,
+            @NonNull String scope,
+            boolean ignoreUpstreamTriggers,
+            String classifier) {
+        super.recordDependency(
+                jobFullName,
+                buildNumber,
+                groupId,
+                artifactId,
+                version,
+                type,
+                scope,
+                ignoreUpstreamTriggers,
+                classifier);
+        invalidateDependencies(jobFullName, buildNumber);
+    }
+
+    @Override
+    public void recordParentProject(
+            @NonNull String jobFullName,
+            int buildNumber,
+            @NonNull String parentGroupId,
+            @NonNull String parentArtifactId,
+            @NonNull String parentVersion,
+            boolean ignoreUpstreamTriggers) {
+        super.recordParentProject(
+                jobFullName, buildNumber, parentGroupId, parentArtifactId, parentVersion, ignoreUpstreamTriggers);
+        invalidateDependencies(jobFullName, buildNumber);
+    }
+
+    @Override
+    public void recordGeneratedArtifact(
+            @NonNull String jobFullName,
+            int buildNumber,
+            @NonNull String groupId,
+            @NonNull String artifactId,
+            @NonNull String version,
+            @NonNull String type,
+            @NonNull String baseVersion,
+            String repositoryUrl,
+            boolean skipDownstreamTriggers,
+            String extension,
+            String classifier) {
+        super.recordGeneratedArtifact(
+                jobFullName,
+                buildNumber,
+                groupId,
+                artifactId,
+                version,
+                type,
+                baseVersion,
+                repositoryUrl,
+                skipDownstreamTriggers,
+                extension,
+                classifier);
+        invalidateGeneratedArtifacts(jobFullName, buildNumber);
+    }
+
+    @Override
+    public void recordBuildGraph(
+            @NonNull String jobFullName,
+            int buildNumber,
+            @NonNull List<MavenDependency> dependencies,
+            @NonNull List<MavenArtifact> parentProjects,
+            @NonNull List<MavenArtifact> generatedArtifacts,
+            boolean ignoreUpstreamTriggers,
+            boolean skipDownstreamTriggers) {
+        super.recordBuildGraph(
+                jobFullName,
+                buildNumber,
+                dependencies,
+                parentProjects,
+                generatedArtifacts,
+                ignoreUpstreamTriggers,
+                skipDownstreamTriggers);
+        invalidateDependencies(jobFullName, buildNumber);
+        invalidateGeneratedArtifacts(jobFullName, buildNumber);
+    }
+
+    @Override
+    public void renameJob(@NonNull String oldFullName, @NonNull String newFullName) {
+        super.renameJob(oldFullName, newFullName);
+        lastSuccessfulBuildNumbers.remove(oldFullName);
+        lastSuccessfulBuildNumbers.remove(newFullName);
+        invalidateAll();
+    }
+
+    @Override
+    public void deleteJob(@NonNull String jobFullName) {
+        super.deleteJob(jobFullName);
+        lastSuccessfulBuildNumbers.remove(jobFullName);
+        invalidateAll();
+    }
+
+    @Override
+    public void deleteBuild(@NonNull String jobFullName, int buildNumber) {
+        super.deleteBuild(jobFullName, buildNumber);
+        // the last successful build of the job may have changed
+        lastSuccessfulBuildNumbers.remove(jobFullName);
+        invalidateAll();
+    }
+
+    @Override
+    public int pruneBuilds(int retainedBuildCount, int maxBuilds) {
+        int count = super.pruneBuilds(retainedBuildCount, maxBuilds);
+        if (count > 0) {
+            invalidateAll();
+        }
+        return count;
+    }
+
+    @Override
+    public void updateBuildOnCompletion(
+            @NonNull String jobFullName,
+            int buildNumber,
+            int buildResultOrdinal,
+            long startTimeInMillis,
+            long durationInMillis) {
+        super.updateBuildOnCompletion(
+                jobFullName, buildNumber, buildResultOrdinal, startTimeInMillis, durationInMillis);
+        if (buildResultOrdinal == Result.SUCCESS.ordinal) {
+            lastSuccessfulBuildNumbers.merge(jobFullName, buildNumber, Math::max);
+            downstreamJobsByArtifact.clear();
+            upstreamJobs.clear();
+        }
+    }
+
+    @Override
+    public String toPrettyString() {
+        return super.toPrettyString() + "\r\n Shared cache: getGeneratedArtifacts=" + generatedArtifacts.size()
+                + " entries, listDownstreamJobsByArtifact=" + downstreamJobsByArtifact.size()
+                + " entries, listUpstreamJobs=" + upstreamJobs.size() + " entries";
+    }
+
+    /**
+     * The dependencies or parent projects of the given build have changed
+     */
+    private void invalidateDependencies(@NonNull String jobFullName, int buildNumber) {
+        upstreamJobs.remove(getKey(jobFullName, buildNumber));
+        if (isLastSuccessfulBuild(jobFullName, buildNumber)) {
+            downstreamJobsByArtifact.clear();
+        }
+    }
+
+    /**
+     * The generated artifacts of the given build have changed
+     */
+    private void invalidateGeneratedArtifacts(@NonNull String jobFullName, int buildNumber) {
+        String key = getKey(jobFullName, buildNumber);
+        generatedArtifacts.remove(key);
+        downstreamJobsByArtifact.remove(key);
+        if (isLastSuccessfulBuild(jobFullName, buildNumber)) {
+            upstreamJobs.clear();
+        }
+    }
+
+    private void invalidateAll() {
+        generatedArtifacts.clear();
+        downstreamJobsByArtifact.clear();
+        upstreamJobs.clear();
+    }
+
+    private boolean isLastSuccessfulBuild(@NonNull String jobFullName, int buildNumber) {
+        Integer lastSuccessfulBuildNumber = lastSuccessfulBuildNumbers.get(jobFullName);
+        return lastSuccessfulBuildNumber == null || lastSuccessfulBuildNumber == buildNumber;
+    }
+
+    private static String getKey(@NonNull String jobFullName, int buildNumber) {
+        return jobFullName + '#' + buildNumber;
+    }
+
+    /**
+     * The cached downstream jobs are shared, neither the map nor its sets can be modified
+     */
+    @NonNull
+    private static Map<MavenArtifact, SortedSet<String>> unmodifiableDownstreamJobs(
+            @NonNull Map<MavenArtifact, SortedSet<String>> downstreamJobsByArtifact) {
+        Map<MavenArtifact, SortedSet<String>> result = new HashMap<>();
+        for (Map.Entry<MavenArtifact, SortedSet<String>> entry : downstreamJobsByArtifact.entrySet()) {
+            result.put(entry.getKey(), Collections.unmodifiableSortedSet(entry.getValue()));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Bounded cache whose entries expire after a fixed delay. When the cache is full, the expired entries and then
+     * arbitrary entries are evicted.
+     */
+    private static class ExpiringCache<V> {
+
+        private final ConcurrentMap<String, Entry<V>> entries = new ConcurrentHashMap<>();
+
+        private final int maxSize;
+
+        private final long ttlInNanos;
+
+        private final AtomicInteger hits;
+
+        private final AtomicInteger misses;
+
+        /**
+         * Incremented by each invalidation so that a value loaded concurrently with an invalidation is not cached
+         */
+        private final AtomicLong generation = new AtomicLong();
+
+        ExpiringCache(int maxSize, long ttlInMillis, AtomicInteger hits, AtomicInteger misses) {
+            this.maxSize = maxSize;
+            this.ttlInNanos = TimeUnit.MILLISECONDS.toNanos(ttlInMillis);
+            this.hits = hits;
+            this.misses = misses;
+        }
+
+        V get(String key, Supplier<V> loader) {
+            long now = System.nanoTime();
+            Entry<V> entry = entries.get(key);
+            if (entry != null && now - entry.loadedAtInNanos < ttlInNanos) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            misses.incrementAndGet();
+            long loadGeneration = generation.get();
+            V value = loader.get();
+            if (maxSize > 0 && generation.get() == loadGeneration) {
+                put(key, value, now);
+            }
+            return value;
+        }
+
+        /**
+         * Bulk variant of {@link #get(String, Supplier)} keyed by build, the builds that are not cached are loaded by
+         * a single invocation of the given loader
+         */
+        Map<String, V> getAll(
+                Map<String, Integer> buildNumbersByJobFullName, Function<Map<String, Integer>, Map<String, V>> loader) {
+            long now = System.nanoTime();
+            Map<String, V> results = new HashMap<>();
+            Map<String, Integer> missingBuilds = new HashMap<>();
+            for (Map.Entry<String, Integer> build : buildNumbersByJobFullName.entrySet()) {
+                Entry<V> entry = entries.get(getKey(build.getKey(), build.getValue()));
+                if (entry != null && now - entry.loadedAtInNanos < ttlInNanos) {
+                    hits.incrementAndGet();
+                    results.put(build.getKey(), entry.value);
+                } else {
+                    misses.incrementAndGet();
+                    missingBuilds.put(build.getKey(), build.getValue());
+                }
+            }
+            if (missingBuilds.isEmpty()) {
+                return results;
+            }
+            long loadGeneration = generation.get();
+            Map<String, V> values = loader.apply(missingBuilds);
+            boolean cacheable = maxSize > 0 && generation.get() == loadGeneration;
+            for (Map.Entry<String, V> value : values.entrySet()) {
+                results.put(value.getKey(), value.getValue());
+                Integer buildNumber = missingBuilds.get(value.getKey());
+                if (cacheable && buildNumber != null) {
+                    put(getKey(value.getKey(), buildNumber), value.getValue(), now);
+                }
+            }
+            return results;
+        }
+
+        private void put(String key, V value, long now) {
+            if (entries.size() >= maxSize) {
+                evict(now);
+            }
+            entries.put(key, new Entry<>(value, now));
+        }
+
+        void remove(String key) {
+            generation.incrementAndGet();
+            entries.remove(key);
+        }
+
+        void clear() {
+            generation.incrementAndGet();
+            entries.clear();
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        private void evict(long now) {
+            entries.values().removeIf(entry -> now - entry.loadedAtInNanos >= ttlInNanos);
+            int toEvict = entries.size() - maxSize + Math.max(1, maxSize / 10);
+            Iterator<String> it = entries.keySet().iterator();
+            while (toEvict-- > 0 && it.hasNext()) {
+                it.next();
+                it.remove();
+            }
+        }
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long loadedAtInNanos;
+
+        Entry(V value, long loadedAtInNanos) {
+            this.value = value;
+            this.loadedAtInNanos = loadedAtInNanos;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.jenkinsci.plugins.pipeline.maven.dao;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latencies and errors of the invocations of one {@link PipelineMavenPluginDao} method, see
+ * {@link MonitoringPipelineMavenPluginDaoDecorator#getMethodStats()}.
+ */
+public class DaoMethodStats {
+
+    private final String name;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    private final AtomicLong errorCount = new AtomicLong();
+
+    public DaoMethodStats(String name) {
+        this.name = name;
+    }
+
+    void record(long durationInNanos, boolean failed) {
+        latencies.record(durationInNanos);
+        if (failed) {
+            errorCount.incrementAndGet();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getLatencies() {
+        return latencies;
+    }
+
+    public long getCount() {
+        return latencies.getCount();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+}
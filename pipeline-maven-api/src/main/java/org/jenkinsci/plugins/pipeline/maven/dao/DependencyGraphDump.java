@@ -0,0 +1,403 @@
+package org.jenkinsci.plugins.pipeline.maven.dao;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
+import net.sf.json.JSONObject;
+import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
+import org.jenkinsci.plugins.pipeline.maven.MavenDependency;
+
+/**
+ * Backend independent dump of the dependency graph, used to move the graph from a {@link PipelineMavenPluginDao} to
+ * another.
+ * <p>
+ * A dump is a gzipped stream of JSON lines: a header line holding the {@link #FORMAT} and the {@link #FORMAT_VERSION},
+ * then one line per build holding its result, its dependencies, its parent projects, its generated artifacts and its
+ * upstream causes, then a trailer line holding the number of builds. The builds of a job are written in the order of
+ * their number so that the last build and the last successful build are restored by the import. A dump without its
+ * trailer is truncated, the export failed before its end.
+ */
+public final class DependencyGraphDump {
+
+    public static final String FORMAT = "pipeline-maven-dependency-graph";
+
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Key of the number of builds in the trailer line
+     */
+    private static final String BUILD_COUNT = "buildCount";
+
+    /**
+     * The progress listeners are notified every {@code PROGRESS_INTERVAL} builds and at the end of the dump
+     */
+    public static final int PROGRESS_INTERVAL = 1000;
+
+    private DependencyGraphDump() {}
+
+    /**
+     * Import the builds of the given dump with the write methods of the given DAO, the graph is merged with the
+     * existing graph of the DAO
+     *
+     * @return number of imported builds
+     * @throws IOException if the stream is not a dump, if its format version is not supported or if it is truncated,
+     *                     the builds read before the error are imported
+     */
+    public static long importGraph(
+            @NonNull InputStream in, @NonNull PipelineMavenPluginDao dao, @NonNull LongConsumer progressListener)
+            throws IOException {
+        BufferedReader reader =
+                new BufferedReader(new InputStreamReader(new GZIPInputStream(in), StandardCharsets.UTF_8));
+        String header = reader.readLine();
+        if (header == null) {
+            throw new IOException("Empty dependency graph dump");
+        }
+        try {
+            JSONObject json = JSONObject.fromObject(header);
+            if (!FORMAT.equals(json.optString("format")) || json.optInt("version") != FORMAT_VERSION) {
+                throw new IOException("Unsupported dependency graph dump " + header + ", expected format " + FORMAT
+                        + " version " + FORMAT_VERSION);
+            }
+            long count = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                JSONObject json = JSONObject.fromObject(line);
+                if (json.has(BUILD_COUNT)) {
+                    if (json.getLong(BUILD_COUNT) != count) {
+                        throw new IOException("Corrupted dependency graph dump, " + count + " builds read but "
+                                + json.getLong(BUILD_COUNT) + " builds written");
+                    }
+                    progressListener.accept(count);
+                    return count;
+                }
+                Build.fromJson(json).importInto(dao);
+                count++;
+                if (count % PROGRESS_INTERVAL == 0) {
+                    progressListener.accept(count);
+                }
+            }
+            throw new IOException("Truncated dependency graph dump, trailer not found after " + count + " builds");
+        } catch (JSONException e) {
+            throw new IOException("Invalid dependency graph dump", e);
+        }
+    }
+
+    /**
+     * Gzipped JSON lines writer, the header is written on creation and the trailer by {@link #finish()}
+     */
+    public static class Writer implements Closeable {
+
+        private final AbortableGZIPOutputStream gzip;
+
+        private final BufferedWriter writer;
+
+        private final LongConsumer progressListener;
+
+        private long buildCount;
+
+        private boolean finished;
+
+        public Writer(@NonNull OutputStream out, @NonNull LongConsumer progressListener) throws IOException {
+            this.gzip = new AbortableGZIPOutputStream(out);
+            this.writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8));
+            this.progressListener = progressListener;
+            JSONObject header = new JSONObject();
+            header.put("format", FORMAT);
+            header.put("version", FORMAT_VERSION);
+            writeLine(header);
+        }
+
+        public void write(@NonNull Build build) throws IOException {
+            writeLine(build.toJson());
+            buildCount++;
+            if (buildCount % PROGRESS_INTERVAL == 0) {
+                progressListener.accept(buildCount);
+            }
+        }
+
+        public long getBuildCount() {
+            return buildCount;
+        }
+
+        private void writeLine(@NonNull JSONObject json) throws IOException {
+            writer.write(json.toString());
+            writer.write('\n');
+        }
+
+        /**
+         * Write the trailer, finish the gzip stream and close the underlying stream. Must be called once all the builds
+         * are written, the dump is not readable otherwise.
+         */
+        public void finish() throws IOException {
+            JSONObject trailer = new JSONObject();
+            trailer.put(BUILD_COUNT, buildCount);
+            writeLine(trailer);
+            writer.close();
+            finished = true;
+            progressListener.accept(buildCount);
+        }
+
+        /**
+         * Close the underlying stream without finishing the gzip stream if {@link #finish()} has not been called, so
+         * that the dump of a failed export is rejected by the import rather than read as a shorter graph
+         */
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                gzip.abort();
+            }
+        }
+    }
+
+    private static class AbortableGZIPOutputStream extends GZIPOutputStream {
+
+        AbortableGZIPOutputStream(@NonNull OutputStream out) throws IOException {
+            super(out);
+        }
+
+        /**
+         * Release the deflater and close the underlying stream without writing the pending data nor the gzip trailer
+         */
+        void abort() throws IOException {
+            def.end();
+            out.close();
+        }
+    }
+
+    /**
+     * A build of the dump, the flags that are recorded by artifact in the database
+     * ({@code ignoreUpstreamTriggers}, {@code skipDownstreamTriggers}) are kept by artifact
+     */
+    public static class Build {
+
+        private final String jobFullName;
+
+        private final int number;
+
+        /**
+         * {@code null} if the build is not completed
+         */
+        @Nullable
+        private Integer resultOrdinal;
+
+        private long startTimeInMillis;
+
+        private long durationInMillis;
+
+        private final JSONArray dependencies = new JSONArray();
+
+        private final JSONArray parentProjects = new JSONArray();
+
+        private final JSONArray generatedArtifacts = new JSONArray();
+
+        private final JSONArray upstreamCauses = new JSONArray();
+
+        public Build(@NonNull String jobFullName, int number) {
+            this.jobFullName = jobFullName;
+            this.number = number;
+        }
+
+        @NonNull
+        public String getJobFullName() {
+            return jobFullName;
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public Build result(int resultOrdinal, long startTimeInMillis, long durationInMillis) {
+            this.resultOrdinal = resultOrdinal;
+            this.startTimeInMillis = startTimeInMillis;
+            this.durationInMillis = durationInMillis;
+            return this;
+        }
+
+        public Build dependency(
+                @NonNull String groupId,
+                @NonNull String artifactId,
+                @NonNull String version,
+                @NonNull String type,
+                @Nullable String classifier,
+                @Nullable String scope,
+                boolean ignoreUpstreamTriggers) {
+            JSONObject dependency = artifact(groupId, artifactId, version, type, classifier);
+            put(dependency, "scope", scope);
+            dependency.put("ignoreUpstreamTriggers", ignoreUpstreamTriggers);
+            dependencies.add(dependency);
+            return this;
+        }
+
+        public Build parentProject(
+                @NonNull String groupId,
+                @NonNull String artifactId,
+                @NonNull String version,
+                boolean ignoreUpstreamTriggers) {
+            JSONObject parentProject = artifact(groupId, artifactId, version, "pom", null);
+            parentProject.put("ignoreUpstreamTriggers", ignoreUpstreamTriggers);
+            parentProjects.add(parentProject);
+            return this;
+        }
+
+        public Build generatedArtifact(
+                @NonNull String groupId,
+                @NonNull String artifactId,
+                @NonNull String baseVersion,
+                @NonNull String type,
+                @Nullable String classifier,
+                @Nullable String version,
+                @Nullable String extension,
+                @Nullable String repositoryUrl,
+                boolean skipDownstreamTriggers) {
+            JSONObject generatedArtifact = artifact(groupId, artifactId, baseVersion, type, classifier);
+            put(generatedArtifact, "expandedVersion", version);
+            put(generatedArtifact, "extension", extension);
+            put(generatedArtifact, "repositoryUrl", repositoryUrl);
+            generatedArtifact.put("skipDownstreamTriggers", skipDownstreamTriggers);
+            generatedArtifacts.add(generatedArtifact);
+            return this;
+        }
+
+        public Build upstreamCause(@NonNull String upstreamJobFullName, int upstreamBuildNumber) {
+            JSONObject upstreamCause = new JSONObject();
+            upstreamCause.put("job", upstreamJobFullName);
+            upstreamCause.put("number", upstreamBuildNumber);
+            upstreamCauses.add(upstreamCause);
+            return this;
+        }
+
+        /**
+         * Record the build with {@link PipelineMavenPluginDao#recordBuildGraph(String, int, List, List, List,
+         * boolean, boolean)}, once per value of the trigger flags, then record its result and its upstream causes
+         */
+        void importInto(@NonNull PipelineMavenPluginDao dao) {
+            for (boolean flag : new boolean[] {false, true}) {
+                List<MavenDependency> dependencies = new ArrayList<>();
+                for (Object o : this.dependencies) {
+                    JSONObject json = (JSONObject) o;
+                    if (json.optBoolean("ignoreUpstreamTriggers") == flag) {
+                        MavenDependency dependency = new MavenDependency();
+                        readArtifact(json, dependency);
+                        dependency.setScope(get(json, "scope"));
+                        dependencies.add(dependency);
+                    }
+                }
+                List<MavenArtifact> parentProjects = new ArrayList<>();
+                for (Object o : this.parentProjects) {
+                    JSONObject json = (JSONObject) o;
+                    if (json.optBoolean("ignoreUpstreamTriggers") == flag) {
+                        MavenArtifact parentProject = new MavenArtifact();
+                        readArtifact(json, parentProject);
+                        parentProjects.add(parentProject);
+                    }
+                }
+                List<MavenArtifact> generatedArtifacts = new ArrayList<>();
+                for (Object o : this.generatedArtifacts) {
+                    JSONObject json = (JSONObject) o;
+                    if (json.optBoolean("skipDownstreamTriggers") == flag) {
+                        MavenArtifact generatedArtifact = new MavenArtifact();
+                        readArtifact(json, generatedArtifact);
+                        generatedArtifact.setVersion(get(json, "expandedVersion"));
+                        generatedArtifact.setExtension(get(json, "extension"));
+                        generatedArtifact.setRepositoryUrl(get(json, "repositoryUrl"));
+                        generatedArtifacts.add(generatedArtifact);
+                    }
+                }
+                if (!dependencies.isEmpty() || !parentProjects.isEmpty() || !generatedArtifacts.isEmpty()) {
+                    dao.recordBuildGraph(
+                            jobFullName, number, dependencies, parentProjects, generatedArtifacts, flag, flag);
+                }
+            }
+            if (resultOrdinal != null) {
+                dao.updateBuildOnCompletion(jobFullName, number, resultOrdinal, startTimeInMillis, durationInMillis);
+            }
+            for (Object o : upstreamCauses) {
+                JSONObject json = (JSONObject) o;
+                dao.recordBuildUpstreamCause(json.getString("job"), json.getInt("number"), jobFullName, number);
+            }
+        }
+
+        @NonNull
+        JSONObject toJson() {
+            JSONObject json = new JSONObject();
+            json.put("job", jobFullName);
+            json.put("number", number);
+            if (resultOrdinal != null) {
+                json.put("result", resultOrdinal.intValue());
+                json.put("startTime", startTimeInMillis);
+                json.put("duration", durationInMillis);
+            }
+            json.put("dependencies", dependencies);
+            json.put("parentProjects", parentProjects);
+            json.put("generatedArtifacts", generatedArtifacts);
+            json.put("upstreamCauses", upstreamCauses);
+            return json;
+        }
+
+        @NonNull
+        static Build fromJson(@NonNull JSONObject json) {
+            Build build = new Build(json.getString("job"), json.getInt("number"));
+            if (json.has("result")) {
+                build.result(json.getInt("result"), json.getLong("startTime"), json.getLong("duration"));
+            }
+            build.dependencies.addAll(json.optJSONArray("dependencies"));
+            build.parentProjects.addAll(json.optJSONArray("parentProjects"));
+            build.generatedArtifacts.addAll(json.optJSONArray("generatedArtifacts"));
+            build.upstreamCauses.addAll(json.optJSONArray("upstreamCauses"));
+            return build;
+        }
+
+        @NonNull
+        private static JSONObject artifact(
+                String groupId, String artifactId, String version, String type, @Nullable String classifier) {
+            JSONObject json = new JSONObject();
+            json.put("groupId", groupId);
+            json.put("artifactId", artifactId);
+            json.put("version", version);
+            json.put("type", type);
+            put(json, "classifier", classifier);
+            return json;
+        }
+
+        private static void readArtifact(@NonNull JSONObject json, @NonNull MavenArtifact artifact) {
+            artifact.setGroupId(json.getString("groupId"));
+            artifact.setArtifactId(json.getString("artifactId"));
+            artifact.setBaseVersion(json.getString("version"));
+            artifact.setVersion(json.getString("version"));
+            artifact.setType(json.getString("type"));
+            artifact.setClassifier(get(json, "classifier"));
+        }
+
+        /**
+         * Absent keys stand for {@code null} values
+         */
+        private static void put(@NonNull JSONObject json, @NonNull String key, @CheckForNull String value) {
+            if (value != null) {
+                json.put(key, value);
+            }
+        }
+
+        @CheckForNull
+        private static String get(@NonNull JSONObject json, @NonNull String key) {
+            return json.has(key) ? json.getString(key) : null;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package org.jenkinsci.plugins.pipeline.maven.dao;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds.
+ * <p>
+ * Buckets are log-linear: each power of two is split in 8 linear sub-buckets, so a percentile is reported with a
+ * relative error below 12.5% whatever the order of magnitude of the durations.
+ * Recording a duration does not allocate and does not lock.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalInNanos = new AtomicLong();
+    private final AtomicLong maxInNanos = new AtomicLong();
+
+    public void record(long durationInNanos) {
+        long value = Math.max(0, durationInNanos);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        totalInNanos.addAndGet(value);
+        maxInNanos.accumulateAndGet(value, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getTotalInNanos() {
+        return totalInNanos.get();
+    }
+
+    public long getMaxInNanos() {
+        return maxInNanos.get();
+    }
+
+    /**
+     * @param percentile between 0 and 100, e.g. {@code 99} for the p99
+     * @return the upper bound of the bucket holding the given percentile, capped by the max recorded duration,
+     * {@code 0} if nothing was recorded
+     */
+    public long getValueAtPercentileInNanos(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total));
+        long max = maxInNanos.get();
+        long cumulated = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulated += buckets.get(i);
+            if (cumulated >= rank) {
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = index / SUB_BUCKET_COUNT - 1;
+        long lowerBound = ((long) (SUB_BUCKET_COUNT + index % SUB_BUCKET_COUNT)) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
@@ -6,9 +6,15 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import java.text.NumberFormat;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -28,6 +34,7 @@ public class MonitoringPipelineMavenPluginDaoDecorator extends AbstractPipelineM
     private final AtomicInteger findCount = new AtomicInteger();
     private final AtomicLong writeDurationInNanos = new AtomicLong();
     private final AtomicInteger writeCount = new AtomicInteger();
+    private final ConcurrentMap<String, DaoMethodStats> methodStats = new ConcurrentHashMap<>();
 
     public MonitoringPipelineMavenPluginDaoDecorator(@NonNull PipelineMavenPluginDao delegate) {
         super(delegate);
@@ -44,7 +51,7 @@ public class MonitoringPipelineMavenPluginDaoDecorator extends AbstractPipelineM
             @NonNull String scope,
             boolean ignoreUpstreamTriggers,
             String classifier) {
-        executeMonitored(() -> super.recordDependency(
+        executeMonitored("recordDependency", () -> super.recordDependency(
                 jobFullName,
                 buildNumber,
                 groupId,
@@ -64,7 +71,7 @@ public class MonitoringPipelineMavenPluginDaoDecorator extends AbstractPipelineM
             @NonNull String parentArtifactId,
             @NonNull String parentVersion,
             boolean ignoreUpstreamTriggers) {
-        executeMonitored(() -> super.recordParentProject(
+        executeMonitored("recordParentProject", () -> super.recordParentProject(
                 jobFullName, buildNumber, parentGroupId, parentArtifactId, parentVersion, ignoreUpstreamTriggers));
     }
 
@@ -81,7 +88,7 @@ public class MonitoringPipelineMavenPluginDaoDecorator extends AbstractPipelineM
             boolean skipDownstreamTriggers,
             String extension,
             String classifier) {
-        executeMonitored(() -> super.recordGeneratedArtifact(
+        executeMonitored("recordGeneratedArtifact", () -> super.recordGeneratedArtifact(
                 jobFullName,
                 buildNumber,
                 groupId,
@@ -95,52 +102,95 @@ public class MonitoringPipelineMavenPluginDaoDecorator extends AbstractPipelineM
                 classifier));
     }
 
+    @Override
+    public void recordBuildGraph(
+            @NonNull String jobFullName,
+            int buildNumber,
+            @NonNull List<MavenDependency> dependencies,
+            @NonNull List<MavenArtifact> parentProjects,
+            @NonNull List<MavenArtifact> generatedArtifacts,
+            boolean ignoreUpstreamTriggers,
+            boolean skipDownstreamTriggers) {
+        executeMonitored("recordBuildGraph", () -> super.recordBuildGraph(
+                jobFullName,
+                buildNumber,
+                dependencies,
+                parentProjects,
+                generatedArtifacts,
+                ignoreUpstreamTriggers,
+                skipDownstreamTriggers));
+    }
+
     @Override
     public void recordBuildUpstreamCause(
             String upstreamJobName, int upstreamBuildNumber, String downstreamJobName, int downstreamBuildNumber) {
-        executeMonitored(() -> super.recordBuildUpstreamCause(
+        executeMonitored("recordBuildUpstreamCause", () -> super.recordBuildUpstreamCause(
                 upstreamJobName, upstreamBuildNumber, downstreamJobName, downstreamBuildNumber));
     }
 
     @Override
     @NonNull
     public List<MavenDependency> listDependencies(@NonNull String jobFullName, int buildNumber) {
-        return executeMonitored(() -> super.listDependencies(jobFullName, buildNumber));
+        return executeMonitored("listDependencies", () -> super.listDependencies(jobFullName, buildNumber));
     }
 
     @Override
     @NonNull
     public List<MavenArtifact> getGeneratedArtifacts(@NonNull String jobFullName, int buildNumber) {
-        return executeMonitored(() -> super.getGeneratedArtifacts(jobFullName, buildNumber));
+        return executeMonitored(
+                "getGeneratedArtifacts", () -> super.getGeneratedArtifacts(jobFullName, buildNumber));
+    }
+
+    @NonNull
+    @Override
+    public Map<String, List<MavenArtifact>> getGeneratedArtifacts(
+            @NonNull Map<String, Integer> buildNumbersByJobFullName) {
+        return executeMonitored(
+                "getGeneratedArtifacts(bulk)", () -> super.getGeneratedArtifacts(buildNumbersByJobFullName));
     }
 
     @Override
     public void renameJob(@NonNull String oldFullName, @NonNull String newFullName) {
-        executeMonitored(() -> super.renameJob(oldFullName, newFullName));
+        executeMonitored("renameJob", () -> super.renameJob(oldFullName, newFullName));
     }
 
     @Override
     public void deleteJob(@NonNull String jobFullName) {
-        executeMonitored(() -> super.deleteJob(jobFullName));
+        executeMonitored("deleteJob", () -> super.deleteJob(jobFullName));
     }
 
     @Override
     public void deleteBuild(@NonNull String jobFullName, int buildNumber) {
-        executeMonitored(() -> super.deleteBuild(jobFullName, buildNumber));
+        executeMonitored("deleteBuild", () -> super.deleteBuild(jobFullName, buildNumber));
+    }
+
+    @Override
+    public int pruneBuilds(int retainedBuildCount, int maxBuilds) {
+        return executeMonitoredWrite("pruneBuilds", () -> super.pruneBuilds(retainedBuildCount, maxBuilds));
     }
 
     @Override
     @NonNull
     @Deprecated
     public List<String> listDownstreamJobs(@NonNull String jobFullName, int buildNumber) {
-        return executeMonitored(() -> super.listDownstreamJobs(jobFullName, buildNumber));
+        return executeMonitored("listDownstreamJobs", () -> super.listDownstreamJobs(jobFullName, buildNumber));
     }
 
     @NonNull
     @Override
     public Map<MavenArtifact, SortedSet<String>> listDownstreamJobsByArtifact(
             @NonNull String jobFullName, int buildNumber) {
-        return executeMonitored(() -> super.listDownstreamJobsByArtifact(jobFullName, buildNumber));
+        return executeMonitored(
+                "listDownstreamJobsByArtifact", () -> super.listDownstreamJobsByArtifact(jobFullName, buildNumber));
+    }
+
+    @NonNull
+    @Override
+    public Map<String, Map<MavenArtifact, SortedSet<String>>> listDownstreamJobsByArtifact(
+            @NonNull Map<String, Integer> buildNumbersByJobFullName) {
+        return executeMonitored(
+                "listDownstreamJobsByArtifact(bulk)",
+                () -> super.listDownstreamJobsByArtifact(buildNumbersByJobFullName));
     }
 
     @NonNull
@@ -148,24 +198,43 @@ public class MonitoringPipelineMavenPluginDaoDecorator extends AbstractPipelineM
     public SortedSet<String> listDownstreamJobs(
             String groupId, String artifactId, String version, String baseVersion, String type, String classifier) {
         return executeMonitored(
+                "listDownstreamJobs(gav)",
                 () -> super.listDownstreamJobs(groupId, artifactId, version, baseVersion, type, classifier));
     }
 
+    @NonNull
+    @Override
+    public Map<MavenArtifact, SortedSet<String>> listDownstreamJobsByArtifacts(
+            @NonNull Collection<MavenArtifact> mavenArtifacts) {
+        return executeMonitored(
+                "listDownstreamJobsByArtifacts", () -> super.listDownstreamJobsByArtifacts(mavenArtifacts));
+    }
+
     @Override
     @NonNull
     public Map<String, Integer> listUpstreamJobs(@NonNull String jobFullName, int buildNumber) {
-        return executeMonitored(() -> super.listUpstreamJobs(jobFullName, buildNumber));
+        return executeMonitored("listUpstreamJobs", () -> super.listUpstreamJobs(jobFullName, buildNumber));
     }
 
     @Override
     @NonNull
     public Map<String, Integer> listTransitiveUpstreamJobs(@NonNull String jobFullName, int buildNumber) {
-        return executeMonitored(() -> super.listTransitiveUpstreamJobs(jobFullName, buildNumber));
+        return executeMonitored(
+                "listTransitiveUpstreamJobs", () -> super.listTransitiveUpstreamJobs(jobFullName, buildNumber));
+    }
+
+    @Override
+    @NonNull
+    public Map<String, Integer> listTransitiveUpstreamJobs(
+            @NonNull String jobFullName, int buildNumber, UpstreamMemory upstreamMemory) {
+        return executeMonitored(
+                "listTransitiveUpstreamJobs(memory)",
+                () -> super.listTransitiveUpstreamJobs(jobFullName, buildNumber, upstreamMemory));
     }
 
     @Override
     public void cleanup() {
-        executeMonitored(super::cleanup);
+        executeMonitored("cleanup", super::cleanup);
     }
 
     @Override
@@ -175,10 +244,19 @@ public class MonitoringPipelineMavenPluginDaoDecorator extends AbstractPipelineM
             int buildResultOrdinal,
             long startTimeInMillis,
             long durationInMillis) {
-        executeMonitored(() -> super.updateBuildOnCompletion(
+        executeMonitored("updateBuildOnCompletion", () -> super.updateBuildOnCompletion(
                 jobFullName, buildNumber, buildResultOrdinal, startTimeInMillis, durationInMillis));
     }
 
+    /**
+     * Latencies and errors of each DAO method invoked so far, indexed by method name. The bulk variants of the
+     * methods are suffixed with {@code (bulk)}.
+     */
+    @NonNull
+    public SortedMap<String, DaoMethodStats> getMethodStats() {
+        return new TreeMap<>(methodStats);
+    }
+
     @Override
     public String toPrettyString() {
         StringBuilder builder =
@@ -192,6 +270,7 @@ public class MonitoringPipelineMavenPluginDaoDecorator extends AbstractPipelineM
                 .append(TimeUnit.NANOSECONDS.toMillis(writeDurationInNanos.get()))
                 .append(", count=")
                 .append(writeCount.get());
+        getMethodStats().values().forEach(stats -> builder.append("\r\n\t ").append(methodPrettyString(stats)));
         builder.append("\r\n Caches: ");
         CACHE_STATS_SUPPLIERS.forEach(s -> builder.append("\r\n\t ").append(cachePrettyString(s.get())));
         return builder.toString();
@@ -211,25 +290,70 @@ public class MonitoringPipelineMavenPluginDaoDecorator extends AbstractPipelineM
         return builder.toString();
     }
 
-    private void executeMonitored(CallableWithoutResult callable) {
+    private String methodPrettyString(DaoMethodStats stats) {
+        LatencyHistogram latencies = stats.getLatencies();
+        StringBuilder builder = new StringBuilder(stats.getName());
+        builder.append(": count=");
+        builder.append(stats.getCount());
+        builder.append(", errors=");
+        builder.append(stats.getErrorCount());
+        builder.append(", p50InMs=");
+        builder.append(nanosToMillisPrettyString(latencies.getValueAtPercentileInNanos(50)));
+        builder.append(", p90InMs=");
+        builder.append(nanosToMillisPrettyString(latencies.getValueAtPercentileInNanos(90)));
+        builder.append(", p99InMs=");
+        builder.append(nanosToMillisPrettyString(latencies.getValueAtPercentileInNanos(99)));
+        builder.append(", maxInMs=");
+        builder.append(nanosToMillisPrettyString(latencies.getMaxInNanos()));
+        return builder.toString();
+    }
+
+    private String nanosToMillisPrettyString(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+
+    private DaoMethodStats getMethodStats(String method) {
+        DaoMethodStats stats = methodStats.get(method);
+        return stats == null ? methodStats.computeIfAbsent(method, DaoMethodStats::new) : stats;
+    }
+
+    private void executeMonitored(String method, CallableWithoutResult callable) {
+        executeMonitoredWrite(method, () -> {
+            callable.call();
+            return null;
+        });
+    }
+
+    /**
+     * Monitor a write returning a result, counted with the writes rather than with the finds
+     */
+    private <V> V executeMonitoredWrite(String method, CallableWithResult<V> callable) {
         long nanosBefore = System.nanoTime();
+        boolean failed = true;
         try {
-            callable.call();
+            V result = callable.call();
+            failed = false;
+            return result;
         } finally {
-            long nanosAfter = System.nanoTime();
+            long durationInNanos = System.nanoTime() - nanosBefore;
             writeCount.incrementAndGet();
-            writeDurationInNanos.addAndGet(nanosAfter - nanosBefore);
+            writeDurationInNanos.addAndGet(durationInNanos);
+            getMethodStats(method).record(durationInNanos, failed);
         }
     }
 
-    private <V> V executeMonitored(CallableWithResult<V> callable) {
+    private <V> V executeMonitored(String method, CallableWithResult<V> callable) {
         long nanosBefore = System.nanoTime();
+        boolean failed = true;
         try {
-            return callable.call();
+            V result = callable.call();
+            failed = false;
+            return result;
         } finally {
-            long nanosAfter = System.nanoTime();
+            long durationInNanos = System.nanoTime() - nanosBefore;
             findCount.incrementAndGet();
-            findDurationInNanos.addAndGet(nanosAfter - nanosBefore);
+            findDurationInNanos.addAndGet(durationInNanos);
+            getMethodStats(method).record(durationInNanos, failed);
         }
     }
 
@@ -30,9 +30,16 @@ import hudson.model.Item;
 import hudson.model.Run;
 import hudson.util.FormValidation;
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.function.LongConsumer;
 import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
 import org.jenkinsci.plugins.pipeline.maven.MavenDependency;
 
@@ -111,6 +118,67 @@ public interface PipelineMavenPluginDao extends Closeable {
             String extension,
             String classifier);
 
+    /**
+     * Record in one go the dependencies, the parent projects and the generated artifacts of a build.
+     *
+     * Implementations should record the whole graph in a single transaction. The default implementation
+     * falls back on {@link #recordDependency(String, int, String, String, String, String, String, boolean, String)},
+     * {@link #recordParentProject(String, int, String, String, String, boolean)} and
+     * {@link #recordGeneratedArtifact(String, int, String, String, String, String, String, String, boolean, String, String)}.
+     *
+     * @param jobFullName            see {@link Item#getFullName()}
+     * @param buildNumber            see {@link Run#getNumber()}
+     * @param dependencies           Maven dependencies of the build, recorded with their {@link MavenDependency#getBaseVersion() base version}
+     * @param parentProjects         Maven parent projects of the poms processed by the build
+     * @param generatedArtifacts     Maven artifacts generated by the build
+     * @param ignoreUpstreamTriggers see PipelineGraphPublisher#isIgnoreUpstreamTriggers()
+     * @param skipDownstreamTriggers see PipelineGraphPublisher#isSkipDownstreamTriggers()
+     */
+    default void recordBuildGraph(
+            @NonNull String jobFullName,
+            int buildNumber,
+            @NonNull List<MavenDependency> dependencies,
+            @NonNull List<MavenArtifact> parentProjects,
+            @NonNull List<MavenArtifact> generatedArtifacts,
+            boolean ignoreUpstreamTriggers,
+            boolean skipDownstreamTriggers) {
+        for (MavenArtifact parentProject : parentProjects) {
+            recordParentProject(
+                    jobFullName,
+                    buildNumber,
+                    parentProject.getGroupId(),
+                    parentProject.getArtifactId(),
+                    parentProject.getVersion(),
+                    ignoreUpstreamTriggers);
+        }
+        for (MavenDependency dependency : dependencies) {
+            recordDependency(
+                    jobFullName,
+                    buildNumber,
+                    dependency.getGroupId(),
+                    dependency.getArtifactId(),
+                    dependency.getBaseVersion(),
+                    dependency.getType(),
+                    dependency.getScope(),
+                    ignoreUpstreamTriggers,
+                    dependency.getClassifier());
+        }
+        for (MavenArtifact artifact : generatedArtifacts) {
+            recordGeneratedArtifact(
+                    jobFullName,
+                    buildNumber,
+                    artifact.getGroupId(),
+                    artifact.getArtifactId(),
+                    artifact.getVersion(),
+                    artifact.getType(),
+                    artifact.getBaseVersion(),
+                    artifact.getRepositoryUrl(),
+                    skipDownstreamTriggers,
+                    artifact.getExtension(),
+                    artifact.getClassifier());
+        }
+    }
+
     /**
      * TODO add {@link MavenArtifact} as org.jenkinsci.plugins.pipeline.maven.cause.MavenDependencyUpstreamCause gives these details
      * @param upstreamJobName Job that triggered the build. See {@link Item#getFullName()}.
@@ -142,6 +210,26 @@ public interface PipelineMavenPluginDao extends Closeable {
     @NonNull
     List<MavenArtifact> getGeneratedArtifacts(@NonNull String jobFullName, int buildNumber);
 
+    /**
+     * Return the artifacts generated by each of the given builds. Equivalent to invoking
+     * {@link #getGeneratedArtifacts(String, int)} for each build but implementations should resolve all the builds
+     * in a single query.
+     *
+     * @param buildNumbersByJobFullName build number (see {@link Run#getNumber()}) by job full name (see
+     *                                  {@link Item#getFullName()})
+     * @return sorted list of generated maven artifacts by given job full name, empty for the builds without
+     * generated artifacts
+     */
+    @NonNull
+    default Map<String, List<MavenArtifact>> getGeneratedArtifacts(
+            @NonNull Map<String, Integer> buildNumbersByJobFullName) {
+        Map<String, List<MavenArtifact>> results = new HashMap<>();
+        for (Map.Entry<String, Integer> build : buildNumbersByJobFullName.entrySet()) {
+            results.put(build.getKey(), getGeneratedArtifacts(build.getKey(), build.getValue()));
+        }
+        return results;
+    }
+
     /**
      * Sync database when a job is renamed (see {@link hudson.model.listeners.ItemListener#onRenamed(Item, String, String)})
      *
@@ -167,6 +255,48 @@ public interface PipelineMavenPluginDao extends Closeable {
      */
     void deleteBuild(@NonNull String jobFullName, int buildNumber);
 
+    /**
+     * Delete the builds whose dependency graph is no longer used to trigger downstream or upstream pipelines: builds
+     * that are neither the last successful build of their job nor one of its {@code retainedBuildCount} most recent
+     * builds. Unlike {@link #deleteBuild(String, int)}, the builds still exist in Jenkins.
+     *
+     * @param retainedBuildCount number of most recent builds retained for each job, in addition to the last successful build
+     * @param maxBuilds          maximum number of builds deleted by this invocation, in a single transaction. Invoke
+     *                           repeatedly to prune the database in small transactions.
+     * @return number of deleted builds, {@code 0} when there is nothing left to prune
+     */
+    default int pruneBuilds(int retainedBuildCount, int maxBuilds) {
+        return 0;
+    }
+
+    /**
+     * Write the whole dependency graph as a {@link DependencyGraphDump}, to move it to another DAO with
+     * {@link #importGraph(InputStream, LongConsumer)}.
+     *
+     * @param out              stream receiving the gzipped dump, closed by this method
+     * @param progressListener notified with the number of exported builds
+     * @return number of exported builds
+     * @throws UnsupportedOperationException if the DAO doesn't support the export
+     */
+    default long exportGraph(@NonNull OutputStream out, @NonNull LongConsumer progressListener) throws IOException {
+        throw new UnsupportedOperationException(
+                getClass().getName() + " doesn't support the export of the dependency graph");
+    }
+
+    /**
+     * Merge the builds of the given {@link DependencyGraphDump} in the dependency graph. The default implementation
+     * records each build with {@link #recordBuildGraph(String, int, List, List, List, boolean, boolean)},
+     * {@link #updateBuildOnCompletion(String, int, int, long, long)} and
+     * {@link #recordBuildUpstreamCause(String, int, String, int)}.
+     *
+     * @param in               gzipped dump, not closed by this method
+     * @param progressListener notified with the number of imported builds
+     * @return number of imported builds
+     */
+    default long importGraph(@NonNull InputStream in, @NonNull LongConsumer progressListener) throws IOException {
+        return DependencyGraphDump.importGraph(in, this, progressListener);
+    }
+
     /**
      * List the downstream jobs who have a dependency on an artifact that has been generated by the given build
      * (build identified by the given {@code jobFullName}, {@code buildNumber}).
@@ -197,6 +327,25 @@ public interface PipelineMavenPluginDao extends Closeable {
     @NonNull
     Map<MavenArtifact, SortedSet<String>> listDownstreamJobsByArtifact(@NonNull String jobFullName, int buildNumber);
 
+    /**
+     * List the downstream jobs of each of the given builds. Equivalent to invoking
+     * {@link #listDownstreamJobsByArtifact(String, int)} for each build but implementations should resolve all the
+     * builds at once.
+     *
+     * @param buildNumbersByJobFullName build number (see {@link Run#getNumber()}) by job full name (see
+     *                                  {@link Item#getFullName()})
+     * @return list of job full names (see {@link Item#getFullName()}) by {@link MavenArtifact} by given job full name
+     */
+    @NonNull
+    default Map<String, Map<MavenArtifact, SortedSet<String>>> listDownstreamJobsByArtifact(
+            @NonNull Map<String, Integer> buildNumbersByJobFullName) {
+        Map<String, Map<MavenArtifact, SortedSet<String>>> results = new HashMap<>();
+        for (Map.Entry<String, Integer> build : buildNumbersByJobFullName.entrySet()) {
+            results.put(build.getKey(), listDownstreamJobsByArtifact(build.getKey(), build.getValue()));
+        }
+        return results;
+    }
+
     /**
      * List the downstream jobs who have a dependency on the given artifact.
      *
@@ -239,6 +388,34 @@ public interface PipelineMavenPluginDao extends Closeable {
             @NonNull String type,
             @Nullable String classifier);
 
+    /**
+     * List the downstream jobs who have a dependency on each of the given artifacts. Equivalent to invoking
+     * {@link #listDownstreamJobs(String, String, String, String, String, String)} for each artifact but
+     * implementations should resolve all the artifacts in a single query.
+     *
+     * @param mavenArtifacts Maven artifacts identified by their group ID, artifact ID, base version (version if the
+     *                       base version is {@code null}), type and classifier
+     * @return list of job full names (see {@link Item#getFullName()}) by given {@link MavenArtifact}, empty for the
+     * artifacts without downstream jobs
+     */
+    @NonNull
+    default Map<MavenArtifact, SortedSet<String>> listDownstreamJobsByArtifacts(
+            @NonNull Collection<MavenArtifact> mavenArtifacts) {
+        Map<MavenArtifact, SortedSet<String>> results = new HashMap<>();
+        for (MavenArtifact mavenArtifact : mavenArtifacts) {
+            results.put(
+                    mavenArtifact,
+                    listDownstreamJobs(
+                            mavenArtifact.getGroupId(),
+                            mavenArtifact.getArtifactId(),
+                            mavenArtifact.getVersion(),
+                            mavenArtifact.getBaseVersion(),
+                            mavenArtifact.getType(),
+                            mavenArtifact.getClassifier()));
+        }
+        return results;
+    }
+
     /**
      * List the upstream jobs who generate an artifact that the given build depends on
      * (build identified by the given {@code jobFullName}, {@code buildNumber})
@@ -293,6 +470,17 @@ public interface PipelineMavenPluginDao extends Closeable {
      */
     String toPrettyString();
 
+    /**
+     * Exact number of rows (or entries) by table, may scan the whole storage and should only be invoked on demand.
+     * The default implementation returns an empty map.
+     *
+     * @return number of rows by table name
+     */
+    @NonNull
+    default Map<String, Long> countRows() {
+        return Collections.emptyMap();
+    }
+
     String getDescription();
 
     /**
@@ -328,6 +516,10 @@ public interface PipelineMavenPluginDao extends Closeable {
 
             private String properties;
 
+            private String readReplicaJdbcUrl;
+
+            private String readReplicaCredentialsId;
+
             public String getJdbcUrl() {
                 return jdbcUrl;
             }
@@ -355,6 +547,31 @@ public interface PipelineMavenPluginDao extends Closeable {
                 return this;
             }
 
+            /**
+             * @return JDBC URL of the read replica used for the read-only queries, {@code null} to use the primary
+             * database for all the queries
+             */
+            public String getReadReplicaJdbcUrl() {
+                return readReplicaJdbcUrl;
+            }
+
+            public Config readReplicaJdbcUrl(String readReplicaJdbcUrl) {
+                this.readReplicaJdbcUrl = readReplicaJdbcUrl;
+                return this;
+            }
+
+            /**
+             * @return credentials of the read replica, {@code null} to use the credentials of the primary database
+             */
+            public String getReadReplicaCredentialsId() {
+                return readReplicaCredentialsId;
+            }
+
+            public Config readReplicaCredentialsId(String readReplicaCredentialsId) {
+                this.readReplicaCredentialsId = readReplicaCredentialsId;
+                return this;
+            }
+
             public Config() {
                 //
             }
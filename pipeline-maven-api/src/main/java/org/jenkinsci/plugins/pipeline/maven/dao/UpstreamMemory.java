@@ -1,7 +1,7 @@
 package org.jenkinsci.plugins.pipeline.maven.dao;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -9,7 +9,8 @@ import java.util.concurrent.atomic.AtomicInteger;
  * performance of PipelineMavenPluginDao.listTransitiveUpstreamJobs()
  *
  * This is no permanent cache, this instance is only used inside
- * DownstreamPipelineTriggerRunListener#onCompleted() as a local variable.
+ * DownstreamPipelineTriggerRunListener#onCompleted() as a local variable. It is thread safe as it is shared by the
+ * threads evaluating the downstream pipelines.
  *
  * @author Martin Aubele
  *
@@ -25,15 +26,19 @@ public class UpstreamMemory {
     }
 
     // remember the already known upstreams
-    private Map<String, Map<String, Integer>> upstreams = new HashMap<>();
+    private final Map<String, Map<String, Integer>> upstreams = new ConcurrentHashMap<>();
 
     public Map<String, Integer> listUpstreamJobs(PipelineMavenPluginDao dao, String jobFullName, int buildNumber) {
         String key = jobFullName + '#' + buildNumber;
-        if (upstreams.containsKey(key)) {
+        Map<String, Integer> result = upstreams.get(key);
+        if (result != null) {
             HITS.incrementAndGet();
-        } else {
-            MISSES.incrementAndGet();
+            return result;
         }
-        return upstreams.computeIfAbsent(key, k -> dao.listUpstreamJobs(jobFullName, buildNumber));
+        MISSES.incrementAndGet();
+        // don't hold the lock of the map during the query
+        result = dao.listUpstreamJobs(jobFullName, buildNumber);
+        Map<String, Integer> previous = upstreams.putIfAbsent(key, result);
+        return previous == null ? result : previous;
     }
 }
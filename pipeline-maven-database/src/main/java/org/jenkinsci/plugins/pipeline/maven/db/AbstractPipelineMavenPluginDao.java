@@ -42,6 +42,7 @@ import hudson.util.Secret;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.StringReader;
 import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
@@ -56,6 +57,9 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.sql.DataSource;
@@ -66,8 +70,15 @@ import org.h2.api.ErrorCode;
 import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
 import org.jenkinsci.plugins.pipeline.maven.MavenDependency;
 import org.jenkinsci.plugins.pipeline.maven.dao.*;
+import org.jenkinsci.plugins.pipeline.maven.db.migration.ChunkedMigrationStep;
 import org.jenkinsci.plugins.pipeline.maven.db.migration.MigrationStep;
 import org.jenkinsci.plugins.pipeline.maven.db.util.ClassUtils;
+import org.jenkinsci.plugins.pipeline.maven.db.util.DependencySet;
+import org.jenkinsci.plugins.pipeline.maven.db.util.GavHash;
+import org.jenkinsci.plugins.pipeline.maven.db.util.InMemoryDependencyGraph;
+import org.jenkinsci.plugins.pipeline.maven.db.util.IncrementalOrphanCleanup;
+import org.jenkinsci.plugins.pipeline.maven.db.util.PrimaryKeyCache;
+import org.jenkinsci.plugins.pipeline.maven.db.util.RecentlyWrittenJobs;
 import org.jenkinsci.plugins.pipeline.maven.db.util.RuntimeIoException;
 import org.jenkinsci.plugins.pipeline.maven.db.util.RuntimeSqlException;
 
@@ -78,13 +89,158 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
 
     private static final int OPTIMIZATION_MAX_RECURSION_DEPTH = Integer.getInteger(
             "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.OPTIMIZATION_MAX_RECURSION_DEPTH", 3);
+    private static final boolean OPTIMIZATION_RECURSIVE_QUERY_DISABLED = Boolean.getBoolean(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.OPTIMIZATION_RECURSIVE_QUERY_DISABLED");
+    private static final boolean OPTIMIZATION_IN_MEMORY_GRAPH_DISABLED = Boolean.getBoolean(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.OPTIMIZATION_IN_MEMORY_GRAPH_DISABLED");
+    private static final int PRIMARY_KEY_CACHE_MAX_SIZE = Integer.getInteger(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.PRIMARY_KEY_CACHE_MAX_SIZE", 10000);
+    private static final int CLEANUP_CHUNK_SIZE = Integer.getInteger(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.CLEANUP_CHUNK_SIZE", 1000);
+    private static final int CLEANUP_MAX_DELETED_ROWS = Integer.getInteger(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.CLEANUP_MAX_DELETED_ROWS", 100000);
+    private static final long CLEANUP_TIME_BUDGET_IN_MILLIS = Long.getLong(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.CLEANUP_TIME_BUDGET_IN_MILLIS", 30000);
+    private static final int BULK_QUERY_MAX_ARTIFACTS = Integer.getInteger(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.BULK_QUERY_MAX_ARTIFACTS", 100);
+    private static final int BULK_QUERY_MAX_BUILDS = Integer.getInteger(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.BULK_QUERY_MAX_BUILDS", 100);
+    private static final long ROW_COUNTS_REFRESH_INTERVAL_IN_MILLIS = Long.getLong(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.ROW_COUNTS_REFRESH_INTERVAL_IN_MILLIS", 300000);
+    private static final int EXPORT_PAGE_SIZE = Integer.getInteger(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.EXPORT_PAGE_SIZE", 500);
+    private static final long READ_REPLICA_READ_YOUR_WRITES_WINDOW_IN_MILLIS = Long.getLong(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.READ_REPLICA_READ_YOUR_WRITES_WINDOW_IN_MILLIS",
+            30000);
+    private static final int READ_REPLICA_READ_YOUR_WRITES_MAX_JOBS = Integer.getInteger(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.READ_REPLICA_READ_YOUR_WRITES_MAX_JOBS", 10000);
+
+    /**
+     * Insert the {@code JOB_DEPENDENCY_EDGE} rows between the last successful builds of the jobs, to be completed by
+     * the join on the consumed artifacts and a {@code where} clause
+     */
+    private static final String JOB_DEPENDENCY_EDGE_INSERT =
+            "insert into JOB_DEPENDENCY_EDGE (UPSTREAM_JOB_ID, DOWNSTREAM_JOB_ID, ARTIFACT_ID) \n"
+                    + "select distinct upstream_job.ID, downstream_job.ID, GENERATED_MAVEN_ARTIFACT.ARTIFACT_ID \n"
+                    + "from JENKINS_JOB as upstream_job \n"
+                    + "inner join JENKINS_BUILD as upstream_build on (upstream_build.JOB_ID = upstream_job.ID and upstream_build.NUMBER = upstream_job.LAST_SUCCESSFUL_BUILD_NUMBER) \n"
+                    + "inner join GENERATED_MAVEN_ARTIFACT on (GENERATED_MAVEN_ARTIFACT.BUILD_ID = upstream_build.ID and GENERATED_MAVEN_ARTIFACT.SKIP_DOWNSTREAM_TRIGGERS = false) \n";
+
+    private static final String JOB_DEPENDENCY_EDGE_MAVEN_DEPENDENCIES_JOIN =
+            "inner join DEPENDENCY_SET_MEMBER on (DEPENDENCY_SET_MEMBER.ARTIFACT_ID = GENERATED_MAVEN_ARTIFACT.ARTIFACT_ID and DEPENDENCY_SET_MEMBER.IGNORE_UPSTREAM_TRIGGERS = false) \n"
+                    + "inner join JENKINS_BUILD as downstream_build on downstream_build.DEPENDENCY_SET_ID = DEPENDENCY_SET_MEMBER.DEPENDENCY_SET_ID \n"
+                    + "inner join JENKINS_JOB as downstream_job on (downstream_job.ID = downstream_build.JOB_ID and downstream_job.LAST_SUCCESSFUL_BUILD_NUMBER = downstream_build.NUMBER) \n";
+
+    private static final String JOB_DEPENDENCY_EDGE_PARENT_PROJECTS_JOIN =
+            "inner join MAVEN_PARENT_PROJECT on (MAVEN_PARENT_PROJECT.ARTIFACT_ID = GENERATED_MAVEN_ARTIFACT.ARTIFACT_ID and MAVEN_PARENT_PROJECT.IGNORE_UPSTREAM_TRIGGERS = false) \n"
+                    + "inner join JENKINS_BUILD as downstream_build on downstream_build.ID = MAVEN_PARENT_PROJECT.BUILD_ID \n"
+                    + "inner join JENKINS_JOB as downstream_job on (downstream_job.ID = downstream_build.JOB_ID and downstream_job.LAST_SUCCESSFUL_BUILD_NUMBER = downstream_build.NUMBER) \n";
+
+    /**
+     * Tables reported by {@link #toPrettyString()} and counted by {@link #countRows()}
+     */
+    private static final List<String> TABLES = Arrays.asList(
+            "JENKINS_MASTER",
+            "MAVEN_ARTIFACT",
+            "JENKINS_JOB",
+            "JENKINS_BUILD",
+            "DEPENDENCY_SET",
+            "DEPENDENCY_SET_MEMBER",
+            "GENERATED_MAVEN_ARTIFACT",
+            "MAVEN_PARENT_PROJECT",
+            "JOB_DEPENDENCY_EDGE",
+            "JENKINS_BUILD_UPSTREAM_CAUSE");
+
+    private static final AtomicInteger ARTIFACT_PRIMARY_KEY_HITS = new AtomicInteger();
+    private static final AtomicInteger ARTIFACT_PRIMARY_KEY_MISSES = new AtomicInteger();
+
+    private static final AtomicInteger BUILD_PRIMARY_KEY_HITS = new AtomicInteger();
+    private static final AtomicInteger BUILD_PRIMARY_KEY_MISSES = new AtomicInteger();
+
+    static {
+        MonitoringPipelineMavenPluginDaoDecorator.registerCacheStatsSupplier(() -> new CacheStats(
+                "getOrCreateArtifactPrimaryKey", ARTIFACT_PRIMARY_KEY_HITS.get(), ARTIFACT_PRIMARY_KEY_MISSES.get()));
+        MonitoringPipelineMavenPluginDaoDecorator.registerCacheStatsSupplier(() -> new CacheStats(
+                "getOrCreateBuildPrimaryKey", BUILD_PRIMARY_KEY_HITS.get(), BUILD_PRIMARY_KEY_MISSES.get()));
+    }
+
     protected final Logger LOGGER = Logger.getLogger(getClass().getName());
 
     @NonNull
     private transient DataSource ds;
 
+    /**
+     * Read replica used by the read-only queries, {@code null} to use {@link #ds} for all the queries
+     */
+    @Nullable
+    private transient volatile DataSource readReplicaDs;
+
+    /**
+     * Jobs whose reads are kept on the primary database until their writes have been replicated
+     */
+    private final transient RecentlyWrittenJobs recentlyWrittenJobs = new RecentlyWrittenJobs(
+            READ_REPLICA_READ_YOUR_WRITES_WINDOW_IN_MILLIS, READ_REPLICA_READ_YOUR_WRITES_MAX_JOBS);
+
+    @Nullable
+    private transient volatile Long jenkinsMasterPrimaryKey;
+
+    /**
+     * {@code UNION} operator of the {@code WITH RECURSIVE} queries, {@code null} until the database has been checked,
+     * empty if the database does not support recursive queries
+     */
+    @Nullable
+    private transient volatile String recursiveQueryUnion;
+
+    /**
+     * {@code null} until the database has been checked, see {@link #isWindowFunctionSupported(DatabaseMetaData)}
+     */
+    @Nullable
+    private transient volatile Boolean windowFunctionSupported;
+
+    /**
+     * Artifact primary key by "groupId:artifactId:version:type:classifier"
+     */
+    private final transient PrimaryKeyCache<String> artifactPrimaryKeyCache =
+            new PrimaryKeyCache<>(PRIMARY_KEY_CACHE_MAX_SIZE);
+
+    /**
+     * Job primary key by {@link Item#getFullName()}
+     */
+    private final transient PrimaryKeyCache<String> jobPrimaryKeyCache =
+            new PrimaryKeyCache<>(PRIMARY_KEY_CACHE_MAX_SIZE);
+
+    /**
+     * Build primary key by "jobPrimaryKey#buildNumber"
+     */
+    private final transient PrimaryKeyCache<String> buildPrimaryKeyCache =
+            new PrimaryKeyCache<>(PRIMARY_KEY_CACHE_MAX_SIZE);
+
+    /**
+     * Dependency graph between the last successful builds of the jobs of this master, loaded on first use and
+     * refreshed job by job after each commit modifying the last successful build of a job
+     */
+    private final transient InMemoryDependencyGraph dependencyGraph = new InMemoryDependencyGraph();
+
+    /**
+     * See {@link #getApproximateRowCounts()}, {@code null} until first read
+     */
     @Nullable
-    private transient Long jenkinsMasterPrimaryKey;
+    private transient volatile Map<String, Long> approximateRowCounts;
+
+    private transient volatile long approximateRowCountsTimestamp;
+
+    /**
+     * Orphan rows deleted by {@link #cleanup()}, in this order as deleting dependency sets makes artifacts orphan
+     */
+    private final transient List<IncrementalOrphanCleanup> orphanCleanups = Arrays.asList(
+            new IncrementalOrphanCleanup(
+                    "DEPENDENCY_SET",
+                    "NOT EXISTS (SELECT 1 FROM JENKINS_BUILD WHERE JENKINS_BUILD.DEPENDENCY_SET_ID = DEPENDENCY_SET.ID)"),
+            new IncrementalOrphanCleanup(
+                    "MAVEN_ARTIFACT",
+                    "NOT EXISTS (SELECT 1 FROM DEPENDENCY_SET_MEMBER WHERE DEPENDENCY_SET_MEMBER.ARTIFACT_ID = MAVEN_ARTIFACT.ID)"
+                            + " AND NOT EXISTS (SELECT 1 FROM GENERATED_MAVEN_ARTIFACT WHERE GENERATED_MAVEN_ARTIFACT.ARTIFACT_ID = MAVEN_ARTIFACT.ID)"
+                            + " AND NOT EXISTS (SELECT 1 FROM MAVEN_PARENT_PROJECT WHERE MAVEN_PARENT_PROJECT.ARTIFACT_ID = MAVEN_ARTIFACT.ID)"));
 
     @SuppressFBWarnings("NP_NONNULL_FIELD_NOT_INITIALIZED_IN_CONSTRUCTOR")
     protected AbstractPipelineMavenPluginDao() {
@@ -202,10 +358,11 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 DataSource ds = new HikariDataSource(dsConfig);
 
                 try {
-                    dao = new MonitoringPipelineMavenPluginDaoDecorator(new CustomTypePipelineMavenPluginDaoDecorator(
-                            (PipelineMavenPluginDao) pipelineMavenPluginDaoClass
-                                    .getConstructor(DataSource.class)
-                                    .newInstance(ds)));
+                    AbstractPipelineMavenPluginDao jdbcDao = (AbstractPipelineMavenPluginDao)
+                            pipelineMavenPluginDaoClass.getConstructor(DataSource.class).newInstance(ds);
+                    jdbcDao.setReadReplicaDataSource(createReadReplicaDataSource(config, jdbcUserName, jdbcPassword));
+                    dao = new MonitoringPipelineMavenPluginDaoDecorator(new CachingPipelineMavenPluginDaoDecorator(
+                            new CustomTypePipelineMavenPluginDaoDecorator(jdbcDao)));
                 } catch (Exception e) {
                     throw new SQLException(
                             "Exception connecting to '" + jdbcUrl + "' with credentials '" + config.getCredentialsId()
@@ -220,6 +377,54 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
             return dao;
         }
 
+        /**
+         * @return the data source of the read replica, {@code null} if no read replica is configured or if it cannot
+         * be reached, all the queries then use the primary database
+         */
+        @Nullable
+        private DataSource createReadReplicaDataSource(Config config, String jdbcUserName, String jdbcPassword) {
+            String readReplicaJdbcUrl = config.getReadReplicaJdbcUrl();
+            if (readReplicaJdbcUrl == null || readReplicaJdbcUrl.isBlank()) {
+                return null;
+            }
+            try {
+                String credentialsId = config.getReadReplicaCredentialsId();
+                if (credentialsId != null && !credentialsId.isBlank()) {
+                    UsernamePasswordCredentials jdbcCredentials =
+                            (UsernamePasswordCredentials) CredentialsMatchers.firstOrNull(
+                                    CredentialsProvider.lookupCredentials(
+                                            UsernamePasswordCredentials.class,
+                                            Jenkins.get(),
+                                            ACL.SYSTEM,
+                                            Collections.EMPTY_LIST),
+                                    CredentialsMatchers.withId(credentialsId));
+                    if (jdbcCredentials == null) {
+                        throw new IllegalStateException("Credentials '" + credentialsId
+                                + "' defined for read replica JDBC URL '" + readReplicaJdbcUrl + "' NOT found");
+                    }
+                    jdbcUserName = jdbcCredentials.getUsername();
+                    jdbcPassword = Secret.toString(jdbcCredentials.getPassword());
+                }
+
+                HikariConfig dsConfig =
+                        createHikariConfig(config.getProperties(), readReplicaJdbcUrl, jdbcUserName, jdbcPassword);
+                dsConfig.setAutoCommit(false);
+                dsConfig.setReadOnly(true);
+
+                LOGGER.log(Level.INFO, "Connect to read replica {0} with username {1}", new Object[] {
+                    readReplicaJdbcUrl, jdbcUserName
+                });
+                return new HikariDataSource(dsConfig);
+            } catch (RuntimeException e) {
+                LOGGER.log(
+                        Level.WARNING,
+                        "Exception connecting to the read replica '" + readReplicaJdbcUrl
+                                + "', use the primary database for all the queries",
+                        e);
+                return null;
+            }
+        }
+
         @Override
         public FormValidation validateConfiguration(Config config) {
             String jdbcUrl = config.getJdbcUrl();
@@ -492,23 +697,24 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 new Object[] {
                     jobFullName, buildNumber, groupId, artifactId, version, type, scope, ignoreUpstreamTriggers
                 });
-        long buildPrimaryKey = getOrCreateBuildPrimaryKey(jobFullName, buildNumber);
-        long artifactPrimaryKey = getOrCreateArtifactPrimaryKey(groupId, artifactId, version, type, classifier);
-
-        try (Connection cnn = ds.getConnection()) {
-            cnn.setAutoCommit(false);
-            try (PreparedStatement stmt = cnn.prepareStatement(
-                    "INSERT INTO MAVEN_DEPENDENCY(ARTIFACT_ID, BUILD_ID, SCOPE, IGNORE_UPSTREAM_TRIGGERS) VALUES (?, ?, ?, ?)")) {
-                stmt.setLong(1, artifactPrimaryKey);
-                stmt.setLong(2, buildPrimaryKey);
-                stmt.setString(3, scope);
-                stmt.setBoolean(4, ignoreUpstreamTriggers);
-                stmt.execute();
-            }
-            cnn.commit();
-        } catch (SQLException e) {
-            throw new RuntimeSqlException(e);
-        }
+        // the dependencies of a build should be recorded at once with recordBuildGraph(), each call writes a new
+        // dependency set replacing the previous one of the build
+        MavenDependency dependency = new MavenDependency();
+        dependency.setGroupId(groupId);
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion(version);
+        dependency.setBaseVersion(version);
+        dependency.setType(type);
+        dependency.setScope(scope);
+        dependency.setClassifier(classifier);
+        recordBuildGraph(
+                jobFullName,
+                buildNumber,
+                Collections.singletonList(dependency),
+                Collections.emptyList(),
+                Collections.emptyList(),
+                ignoreUpstreamTriggers,
+                false);
     }
 
     @NonNull
@@ -516,10 +722,10 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
     public List<MavenDependency> listDependencies(@NonNull String jobFullName, int buildNumber) {
         LOGGER.log(Level.FINER, "listDependencies({0}, {1})", new Object[] {jobFullName, buildNumber});
         String dependenciesSql =
-                "SELECT DISTINCT MAVEN_ARTIFACT.group_id, MAVEN_ARTIFACT.artifact_id, MAVEN_ARTIFACT.version, MAVEN_ARTIFACT.type, MAVEN_ARTIFACT.classifier,  MAVEN_DEPENDENCY.scope "
+                "SELECT DISTINCT MAVEN_ARTIFACT.group_id, MAVEN_ARTIFACT.artifact_id, MAVEN_ARTIFACT.version, MAVEN_ARTIFACT.type, MAVEN_ARTIFACT.classifier,  DEPENDENCY_SET_MEMBER.scope "
                         + " FROM MAVEN_ARTIFACT "
-                        + " INNER JOIN MAVEN_DEPENDENCY ON MAVEN_ARTIFACT.ID = MAVEN_DEPENDENCY.ARTIFACT_ID"
-                        + " INNER JOIN JENKINS_BUILD ON MAVEN_DEPENDENCY.BUILD_ID = JENKINS_BUILD.ID "
+                        + " INNER JOIN DEPENDENCY_SET_MEMBER ON MAVEN_ARTIFACT.ID = DEPENDENCY_SET_MEMBER.ARTIFACT_ID"
+                        + " INNER JOIN JENKINS_BUILD ON DEPENDENCY_SET_MEMBER.DEPENDENCY_SET_ID = JENKINS_BUILD.DEPENDENCY_SET_ID "
                         + " INNER JOIN JENKINS_JOB ON JENKINS_BUILD.JOB_ID = JENKINS_JOB.ID "
                         + " WHERE "
                         + "   JENKINS_JOB.FULL_NAME = ? AND"
@@ -527,7 +733,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                         + "   JENKINS_BUILD.NUMBER = ? ";
 
         List<MavenDependency> results = new ArrayList<>();
-        try (Connection cnn = this.ds.getConnection()) {
+        try (Connection cnn = getReadConnection(jobFullName)) {
             try (PreparedStatement stmt = cnn.prepareStatement(dependenciesSql)) {
                 stmt.setString(1, jobFullName);
                 stmt.setLong(2, getJenkinsMasterPrimaryKey(cnn));
@@ -570,6 +776,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
         long parentArtifactPrimaryKey =
                 getOrCreateArtifactPrimaryKey(parentGroupId, parentArtifactId, parentVersion, "pom", null);
 
+        recentlyWrittenJobs.written(jobFullName);
         try (Connection cnn = ds.getConnection()) {
             cnn.setAutoCommit(false);
             try (PreparedStatement stmt = cnn.prepareStatement(
@@ -579,7 +786,9 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 stmt.setBoolean(3, ignoreUpstreamTriggers);
                 stmt.execute();
             }
+            Long jobPrimaryKey = refreshJobDependencyEdgesIfLastSuccessfulBuild(cnn, buildPrimaryKey);
             cnn.commit();
+            reloadDependencyGraph(cnn, jobPrimaryKey);
         } catch (SQLException e) {
             throw new RuntimeSqlException(e);
         }
@@ -615,6 +824,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
         long buildPrimaryKey = getOrCreateBuildPrimaryKey(jobFullName, buildNumber);
         long artifactPrimaryKey = getOrCreateArtifactPrimaryKey(groupId, artifactId, baseVersion, type, classifier);
 
+        recentlyWrittenJobs.written(jobFullName);
         try (Connection cnn = ds.getConnection()) {
             cnn.setAutoCommit(false);
             try (PreparedStatement stmt = cnn.prepareStatement(
@@ -627,12 +837,368 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 stmt.setBoolean(6, skipDownstreamTriggers);
                 stmt.execute();
             }
+            Long jobPrimaryKey = refreshJobDependencyEdgesIfLastSuccessfulBuild(cnn, buildPrimaryKey);
+            cnn.commit();
+            reloadDependencyGraph(cnn, jobPrimaryKey);
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
+        }
+    }
+
+    @Override
+    public void recordBuildGraph(
+            @NonNull String jobFullName,
+            int buildNumber,
+            @NonNull List<MavenDependency> dependencies,
+            @NonNull List<MavenArtifact> parentProjects,
+            @NonNull List<MavenArtifact> generatedArtifacts,
+            boolean ignoreUpstreamTriggers,
+            boolean skipDownstreamTriggers) {
+        LOGGER.log(
+                Level.FINE,
+                "recordBuildGraph({0}#{1}, dependencies:{2}, parentProjects:{3}, generatedArtifacts:{4}, ignoreUpstreamTriggers:{5}, skipDownstreamTriggers:{6})",
+                new Object[] {
+                    jobFullName,
+                    buildNumber,
+                    dependencies.size(),
+                    parentProjects.size(),
+                    generatedArtifacts.size(),
+                    ignoreUpstreamTriggers,
+                    skipDownstreamTriggers
+                });
+        long buildPrimaryKey = getOrCreateBuildPrimaryKey(jobFullName, buildNumber);
+
+        recentlyWrittenJobs.written(jobFullName);
+        try (Connection cnn = ds.getConnection()) {
+            cnn.setAutoCommit(false);
+            long artifactCacheGeneration = artifactPrimaryKeyCache.getGeneration();
+            // artifacts are often shared between the dependencies, the parent projects and the generated artifacts
+            Map<String, Long> artifactPrimaryKeys = new HashMap<>();
+            Long jobPrimaryKey;
+            try {
+                jobPrimaryKey = recordBuildGraph(
+                        cnn,
+                        buildPrimaryKey,
+                        artifactPrimaryKeys,
+                        dependencies,
+                        parentProjects,
+                        generatedArtifacts,
+                        ignoreUpstreamTriggers,
+                        skipDownstreamTriggers);
+            } catch (SQLException e) {
+                // integrity constraint violation, a cached artifact may have been deleted by a concurrent cleanup()
+                if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                    throw e;
+                }
+                LOGGER.log(
+                        Level.FINE,
+                        "Retry recordBuildGraph({0}#{1}) without the cached artifact primary keys: {2}",
+                        new Object[] {jobFullName, buildNumber, e.getMessage()});
+                cnn.rollback();
+                artifactPrimaryKeyCache.clear();
+                artifactCacheGeneration = artifactPrimaryKeyCache.getGeneration();
+                artifactPrimaryKeys.clear();
+                jobPrimaryKey = recordBuildGraph(
+                        cnn,
+                        buildPrimaryKey,
+                        artifactPrimaryKeys,
+                        dependencies,
+                        parentProjects,
+                        generatedArtifacts,
+                        ignoreUpstreamTriggers,
+                        skipDownstreamTriggers);
+            }
             cnn.commit();
+            // only share the primary keys once they are committed
+            for (Map.Entry<String, Long> artifactPrimaryKey : artifactPrimaryKeys.entrySet()) {
+                artifactPrimaryKeyCache.put(
+                        artifactPrimaryKey.getKey(), artifactPrimaryKey.getValue(), artifactCacheGeneration);
+            }
+            reloadDependencyGraph(cnn, jobPrimaryKey);
         } catch (SQLException e) {
             throw new RuntimeSqlException(e);
         }
     }
 
+    /**
+     * Record the graph of the build within the transaction of the given connection, the caller is responsible for
+     * committing.
+     *
+     * @return primary key of the job if its dependency edges have been recomputed, {@code null} otherwise
+     */
+    @Nullable
+    private Long recordBuildGraph(
+            @NonNull Connection cnn,
+            long buildPrimaryKey,
+            @NonNull Map<String, Long> artifactPrimaryKeys,
+            @NonNull List<MavenDependency> dependencies,
+            @NonNull List<MavenArtifact> parentProjects,
+            @NonNull List<MavenArtifact> generatedArtifacts,
+            boolean ignoreUpstreamTriggers,
+            boolean skipDownstreamTriggers)
+            throws SQLException {
+        try (PreparedStatement stmt = cnn.prepareStatement(
+                "INSERT INTO MAVEN_PARENT_PROJECT(ARTIFACT_ID, BUILD_ID, IGNORE_UPSTREAM_TRIGGERS) VALUES (?, ?, ?)")) {
+            for (MavenArtifact parentProject : parentProjects) {
+                stmt.setLong(
+                        1,
+                        getOrCreateArtifactPrimaryKey(
+                                cnn,
+                                artifactPrimaryKeys,
+                                parentProject.getGroupId(),
+                                parentProject.getArtifactId(),
+                                parentProject.getVersion(),
+                                "pom",
+                                null));
+                stmt.setLong(2, buildPrimaryKey);
+                stmt.setBoolean(3, ignoreUpstreamTriggers);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        DependencySet dependencySet = new DependencySet();
+        for (MavenDependency dependency : dependencies) {
+            dependencySet.add(
+                    getOrCreateArtifactPrimaryKey(
+                            cnn,
+                            artifactPrimaryKeys,
+                            dependency.getGroupId(),
+                            dependency.getArtifactId(),
+                            dependency.getBaseVersion(),
+                            dependency.getType(),
+                            dependency.getClassifier()),
+                    dependency.getScope(),
+                    ignoreUpstreamTriggers);
+        }
+        recordDependencySet(cnn, buildPrimaryKey, dependencySet);
+
+        try (PreparedStatement stmt = cnn.prepareStatement(
+                "INSERT INTO GENERATED_MAVEN_ARTIFACT(ARTIFACT_ID, BUILD_ID, VERSION, REPOSITORY_URL, EXTENSION, SKIP_DOWNSTREAM_TRIGGERS) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (MavenArtifact artifact : generatedArtifacts) {
+                stmt.setLong(
+                        1,
+                        getOrCreateArtifactPrimaryKey(
+                                cnn,
+                                artifactPrimaryKeys,
+                                artifact.getGroupId(),
+                                artifact.getArtifactId(),
+                                artifact.getBaseVersion(),
+                                artifact.getType(),
+                                artifact.getClassifier()));
+                stmt.setLong(2, buildPrimaryKey);
+                stmt.setString(3, artifact.getVersion());
+                stmt.setString(4, artifact.getRepositoryUrl());
+                stmt.setString(5, artifact.getExtension());
+                stmt.setBoolean(6, skipDownstreamTriggers);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        return refreshJobDependencyEdgesIfLastSuccessfulBuild(cnn, buildPrimaryKey);
+    }
+
+    /**
+     * Add the given dependencies to the dependency set of the build. The build references a new dependency set,
+     * shared with the other builds having the same dependencies, unless the given dependencies were already recorded.
+     * The previous dependency set of the build is deleted if no other build references it.
+     * The caller is responsible for committing.
+     */
+    protected void recordDependencySet(
+            @NonNull Connection cnn, long buildPrimaryKey, @NonNull DependencySet dependencies) throws SQLException {
+        Long previousDependencySetPrimaryKey = DependencySet.lockByBuild(cnn, buildPrimaryKey);
+        DependencySet buildDependencies;
+        if (previousDependencySetPrimaryKey == null) {
+            if (dependencies.isEmpty()) {
+                return;
+            }
+            buildDependencies = dependencies;
+        } else {
+            buildDependencies = DependencySet.load(cnn, previousDependencySetPrimaryKey);
+            if (!buildDependencies.addAll(dependencies)) {
+                // dependencies already recorded
+                return;
+            }
+        }
+        buildDependencies.assignToBuild(cnn, buildPrimaryKey);
+        if (previousDependencySetPrimaryKey != null) {
+            DependencySet.deleteIfUnreferenced(cnn, previousDependencySetPrimaryKey);
+        }
+    }
+
+    /**
+     * Recompute the {@code JOB_DEPENDENCY_EDGE} rows of the job of the given build if this build is the last
+     * successful build of its job. The caller is responsible for committing.
+     *
+     * @return primary key of the job if its edges have been recomputed, {@code null} otherwise
+     */
+    @Nullable
+    protected Long refreshJobDependencyEdgesIfLastSuccessfulBuild(@NonNull Connection cnn, long buildPrimaryKey)
+            throws SQLException {
+        Long jobPrimaryKey = null;
+        try (PreparedStatement stmt = cnn.prepareStatement("SELECT JENKINS_JOB.ID FROM JENKINS_BUILD "
+                + "INNER JOIN JENKINS_JOB ON (JENKINS_BUILD.JOB_ID = JENKINS_JOB.ID and JENKINS_BUILD.NUMBER = JENKINS_JOB.LAST_SUCCESSFUL_BUILD_NUMBER) "
+                + "WHERE JENKINS_BUILD.ID = ?")) {
+            stmt.setLong(1, buildPrimaryKey);
+            try (ResultSet rst = stmt.executeQuery()) {
+                if (rst.next()) {
+                    jobPrimaryKey = rst.getLong(1);
+                }
+            }
+        }
+        if (jobPrimaryKey != null) {
+            refreshJobDependencyEdges(cnn, jobPrimaryKey);
+        }
+        return jobPrimaryKey;
+    }
+
+    /**
+     * Recompute the {@code JOB_DEPENDENCY_EDGE} rows having the given job as upstream or as downstream job from the
+     * last successful builds of the jobs. The caller is responsible for committing.
+     */
+    protected void refreshJobDependencyEdges(@NonNull Connection cnn, long jobPrimaryKey) throws SQLException {
+        int deleted = 0;
+        for (String sql : Arrays.asList(
+                "DELETE FROM JOB_DEPENDENCY_EDGE WHERE UPSTREAM_JOB_ID = ?",
+                "DELETE FROM JOB_DEPENDENCY_EDGE WHERE DOWNSTREAM_JOB_ID = ?")) {
+            try (PreparedStatement stmt = cnn.prepareStatement(sql)) {
+                stmt.setLong(1, jobPrimaryKey);
+                deleted += stmt.executeUpdate();
+            }
+        }
+        int inserted = 0;
+        for (String consumedArtifactsJoin : Arrays.asList(
+                JOB_DEPENDENCY_EDGE_MAVEN_DEPENDENCIES_JOIN, JOB_DEPENDENCY_EDGE_PARENT_PROJECTS_JOIN)) {
+            // edges of the job as upstream job
+            try (PreparedStatement stmt = cnn.prepareStatement(
+                    JOB_DEPENDENCY_EDGE_INSERT + consumedArtifactsJoin + "where upstream_job.ID = ?")) {
+                stmt.setLong(1, jobPrimaryKey);
+                inserted += stmt.executeUpdate();
+            }
+            // edges of the job as downstream job, the edges to itself have already been inserted
+            try (PreparedStatement stmt = cnn.prepareStatement(JOB_DEPENDENCY_EDGE_INSERT + consumedArtifactsJoin
+                    + "where downstream_job.ID = ? and upstream_job.ID <> ?")) {
+                stmt.setLong(1, jobPrimaryKey);
+                stmt.setLong(2, jobPrimaryKey);
+                inserted += stmt.executeUpdate();
+            }
+        }
+        LOGGER.log(Level.FINER, "refreshJobDependencyEdges({0}): {1} deleted, {2} inserted", new Object[] {
+            jobPrimaryKey, deleted, inserted
+        });
+    }
+
+    /**
+     * Primary key of the given job if the given build is its last successful build, {@code null} otherwise
+     */
+    @Nullable
+    private Long getJobPrimaryKeyIfLastSuccessfulBuild(
+            @NonNull Connection cnn, @NonNull String jobFullName, int buildNumber) throws SQLException {
+        try (PreparedStatement stmt = cnn.prepareStatement(
+                "SELECT ID FROM JENKINS_JOB WHERE FULL_NAME = ? AND JENKINS_MASTER_ID = ? AND LAST_SUCCESSFUL_BUILD_NUMBER = ?")) {
+            stmt.setString(1, jobFullName);
+            stmt.setLong(2, getJenkinsMasterPrimaryKey(cnn));
+            stmt.setInt(3, buildNumber);
+            try (ResultSet rst = stmt.executeQuery()) {
+                return rst.next() ? rst.getLong(1) : null;
+            }
+        }
+    }
+
+    /**
+     * @return the in-memory dependency graph, loaded if needed, {@code null} if it is disabled or cannot be loaded
+     */
+    @Nullable
+    protected InMemoryDependencyGraph getDependencyGraph() {
+        if (OPTIMIZATION_IN_MEMORY_GRAPH_DISABLED) {
+            return null;
+        }
+        if (!dependencyGraph.isLoaded()) {
+            try (Connection cnn = ds.getConnection()) {
+                long startTimeInNanos = System.nanoTime();
+                dependencyGraph.load(cnn, getJenkinsMasterPrimaryKey(cnn));
+                LOGGER.log(Level.FINE, "In-memory dependency graph loaded in {0}ms: {1}", new Object[] {
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeInNanos),
+                    dependencyGraph.toPrettyString()
+                });
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Failure to load the in-memory dependency graph, fall back to SQL", e);
+                return null;
+            }
+        }
+        return dependencyGraph;
+    }
+
+    /**
+     * Reload the given job in the in-memory dependency graph once the modification of its last successful build has
+     * been committed. The graph is discarded, and loaded again on next use, if the job cannot be reloaded.
+     *
+     * @param jobPrimaryKey {@code null} if the last successful build of no job has been modified
+     */
+    private void reloadDependencyGraph(@NonNull Connection cnn, @Nullable Long jobPrimaryKey) {
+        if (jobPrimaryKey == null) {
+            return;
+        }
+        try {
+            dependencyGraph.reloadJob(cnn, jobPrimaryKey);
+        } catch (SQLException e) {
+            LOGGER.log(
+                    Level.WARNING, "Failure to reload job " + jobPrimaryKey + " in the in-memory dependency graph", e);
+            dependencyGraph.invalidate();
+        }
+    }
+
+    private long getOrCreateArtifactPrimaryKey(
+            @NonNull Connection cnn,
+            @NonNull Map<String, Long> artifactPrimaryKeys,
+            @NonNull String groupId,
+            @NonNull String artifactId,
+            @NonNull String version,
+            @NonNull String type,
+            @Nullable String classifier)
+            throws SQLException {
+        String key = getArtifactCacheKey(groupId, artifactId, version, type, classifier);
+        Long artifactPrimaryKey = artifactPrimaryKeys.get(key);
+        if (artifactPrimaryKey == null) {
+            artifactPrimaryKey = getCachedArtifactPrimaryKey(key);
+            if (artifactPrimaryKey == null) {
+                artifactPrimaryKey =
+                        getOrCreateArtifactPrimaryKey(cnn, groupId, artifactId, version, type, classifier);
+            }
+            artifactPrimaryKeys.put(key, artifactPrimaryKey);
+        }
+        return artifactPrimaryKey;
+    }
+
+    @Nullable
+    private Long getCachedArtifactPrimaryKey(String key) {
+        Long artifactPrimaryKey = artifactPrimaryKeyCache.get(key);
+        if (artifactPrimaryKey == null) {
+            ARTIFACT_PRIMARY_KEY_MISSES.incrementAndGet();
+        } else {
+            ARTIFACT_PRIMARY_KEY_HITS.incrementAndGet();
+        }
+        return artifactPrimaryKey;
+    }
+
+    private static String getArtifactCacheKey(
+            String groupId, String artifactId, String version, String type, String classifier) {
+        return groupId + ':' + artifactId + ':' + version + ':' + type + ':' + classifier;
+    }
+
+    private static String getArtifactCacheKey(@NonNull MavenArtifact mavenArtifact) {
+        return getArtifactCacheKey(
+                mavenArtifact.getGroupId(),
+                mavenArtifact.getArtifactId(),
+                getBaseVersion(mavenArtifact),
+                mavenArtifact.getType(),
+                mavenArtifact.getClassifier());
+    }
+
+    private static String getBuildCacheKey(long jobPrimaryKey, int buildNumber) {
+        return Long.toString(jobPrimaryKey) + '#' + buildNumber;
+    }
+
     @Override
     public void recordBuildUpstreamCause(
             String upstreamJobName, int upstreamBuildNumber, String downstreamJobName, int downstreamBuildNumber) {
@@ -640,6 +1206,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 Level.FINE,
                 "recordBuildUpstreamCause(upstreamBuild: {0}#{1}, downstreamBuild: {2}#{3})",
                 new Object[] {upstreamJobName, upstreamBuildNumber, downstreamJobName, downstreamBuildNumber});
+        recentlyWrittenJobs.written(downstreamJobName);
         try (Connection cnn = ds.getConnection()) {
             cnn.setAutoCommit(false);
             String sql =
@@ -671,6 +1238,8 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
     @Override
     public void renameJob(String oldFullName, String newFullName) {
         LOGGER.log(Level.FINER, "renameJob({0}, {1})", new Object[] {oldFullName, newFullName});
+        recentlyWrittenJobs.written(oldFullName);
+        recentlyWrittenJobs.written(newFullName);
         try (Connection cnn = ds.getConnection()) {
             cnn.setAutoCommit(false);
             try (PreparedStatement stmt = cnn.prepareStatement(
@@ -682,6 +1251,10 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 LOGGER.log(Level.FINE, "renameJob({0}, {1}): {2}", new Object[] {oldFullName, newFullName, count});
             }
             cnn.commit();
+            // build primary keys are indexed by job primary key and remain valid
+            jobPrimaryKeyCache.remove(oldFullName);
+            jobPrimaryKeyCache.remove(newFullName);
+            dependencyGraph.renameJob(oldFullName, newFullName);
         } catch (SQLException e) {
             throw new RuntimeSqlException(e);
         }
@@ -690,8 +1263,20 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
     @Override
     public void deleteJob(String jobFullName) {
         LOGGER.log(Level.FINER, "deleteJob({0})", new Object[] {jobFullName});
+        recentlyWrittenJobs.written(jobFullName);
         try (Connection cnn = ds.getConnection()) {
             cnn.setAutoCommit(false);
+            Long jobPrimaryKey = null;
+            try (PreparedStatement stmt =
+                    cnn.prepareStatement("SELECT ID FROM JENKINS_JOB WHERE FULL_NAME = ? AND JENKINS_MASTER_ID = ?")) {
+                stmt.setString(1, jobFullName);
+                stmt.setLong(2, getJenkinsMasterPrimaryKey(cnn));
+                try (ResultSet rst = stmt.executeQuery()) {
+                    if (rst.next()) {
+                        jobPrimaryKey = rst.getLong(1);
+                    }
+                }
+            }
             try (PreparedStatement stmt =
                     cnn.prepareStatement("DELETE FROM JENKINS_JOB WHERE FULL_NAME = ? AND JENKINS_MASTER_ID = ?")) {
                 stmt.setString(1, jobFullName);
@@ -700,6 +1285,12 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 LOGGER.log(Level.FINE, "deleteJob({0}): {1}", new Object[] {jobFullName, count});
             }
             cnn.commit();
+            jobPrimaryKeyCache.remove(jobFullName);
+            dependencyGraph.removeJob(jobFullName);
+            if (jobPrimaryKey != null) {
+                String buildCacheKeyPrefix = jobPrimaryKey + "#";
+                buildPrimaryKeyCache.removeIf(key -> key.startsWith(buildCacheKeyPrefix));
+            }
         } catch (SQLException e) {
             throw new RuntimeSqlException(e);
         }
@@ -708,6 +1299,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
     @Override
     public void deleteBuild(String jobFullName, int buildNumber) {
         LOGGER.log(Level.FINER, "deleteBuild({0}#{1})", new Object[] {jobFullName, buildNumber});
+        recentlyWrittenJobs.written(jobFullName);
         try (Connection cnn = ds.getConnection()) {
             cnn.setAutoCommit(false);
             Long jobPrimaryKey;
@@ -777,81 +1369,489 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 int count = stmt.executeUpdate();
                 LOGGER.log(Level.FINE, "deleteJob({0}#{1}): {2}", new Object[] {jobFullName, buildNumber, count});
             }
+            if (buildNumber == lastSuccessfulBuildNumber) {
+                refreshJobDependencyEdges(cnn, jobPrimaryKey);
+            }
             cnn.commit();
+            buildPrimaryKeyCache.remove(getBuildCacheKey(jobPrimaryKey, buildNumber));
+            if (buildNumber == lastSuccessfulBuildNumber) {
+                reloadDependencyGraph(cnn, jobPrimaryKey);
+            }
         } catch (SQLException e) {
             throw new RuntimeSqlException(e);
         }
     }
 
     @Override
-    public void cleanup() {
+    public int pruneBuilds(int retainedBuildCount, int maxBuilds) {
+        LOGGER.log(Level.FINER, "pruneBuilds({0}, {1})", new Object[] {retainedBuildCount, maxBuilds});
+        // the last completed build is always retained
+        int minRetainedBuildCount = Math.max(1, retainedBuildCount);
         try (Connection cnn = ds.getConnection()) {
             cnn.setAutoCommit(false);
-            String sql =
-                    "DELETE FROM MAVEN_ARTIFACT WHERE ID NOT IN (SELECT DISTINCT ARTIFACT_ID FROM MAVEN_DEPENDENCY UNION SELECT DISTINCT ARTIFACT_ID FROM GENERATED_MAVEN_ARTIFACT)";
-            try (Statement stmt = cnn.createStatement()) {
-                int count = stmt.executeUpdate(sql);
-                LOGGER.log(Level.FINE, "cleanup(): {0}", new Object[] {count});
+            List<Long> buildPrimaryKeys = new ArrayList<>();
+            List<String> buildCacheKeys = new ArrayList<>();
+            if (isWindowFunctionSupported()) {
+                findPrunedBuildsWithWindowFunction(
+                        cnn, minRetainedBuildCount, maxBuilds, buildPrimaryKeys, buildCacheKeys);
+            } else {
+                findPrunedBuildsByJob(cnn, minRetainedBuildCount, maxBuilds, buildPrimaryKeys, buildCacheKeys);
+            }
+            if (buildPrimaryKeys.isEmpty()) {
+                return 0;
+            }
+            // dependencies, parent projects, generated artifacts and upstream causes are deleted in cascade
+            try (PreparedStatement stmt = cnn.prepareStatement("DELETE FROM JENKINS_BUILD WHERE ID = ?")) {
+                for (Long buildPrimaryKey : buildPrimaryKeys) {
+                    stmt.setLong(1, buildPrimaryKey);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
             }
             cnn.commit();
+            buildCacheKeys.forEach(buildPrimaryKeyCache::remove);
+            LOGGER.log(Level.FINE, "pruneBuilds({0}, {1}): {2}", new Object[] {
+                retainedBuildCount, maxBuilds, buildPrimaryKeys.size()
+            });
+            return buildPrimaryKeys.size();
         } catch (SQLException e) {
             throw new RuntimeSqlException(e);
         }
     }
 
-    protected synchronized long getOrCreateBuildPrimaryKey(String jobFullName, int buildNumber) {
-        try (Connection cnn = ds.getConnection()) {
-            cnn.setAutoCommit(false);
+    /**
+     * Rank the completed builds of each job with {@code ROW_NUMBER()} rather than by subtracting build numbers, there
+     * are gaps between the numbers of the recorded builds. The last completed build is the first of its job and the
+     * builds still running are not ranked.
+     */
+    private void findPrunedBuildsWithWindowFunction(
+            @NonNull Connection cnn,
+            int minRetainedBuildCount,
+            int maxBuilds,
+            @NonNull List<Long> buildPrimaryKeys,
+            @NonNull List<String> buildCacheKeys)
+            throws SQLException {
+        try (PreparedStatement stmt = cnn.prepareStatement(
+                "SELECT RANKED_BUILD.ID, RANKED_BUILD.JOB_ID, RANKED_BUILD.NUMBER FROM ( "
+                        + "   SELECT JENKINS_BUILD.ID, JENKINS_BUILD.JOB_ID, JENKINS_BUILD.NUMBER, JENKINS_JOB.LAST_SUCCESSFUL_BUILD_NUMBER, "
+                        + "     ROW_NUMBER() OVER (PARTITION BY JENKINS_BUILD.JOB_ID ORDER BY JENKINS_BUILD.NUMBER DESC) AS BUILD_RANK "
+                        + "   FROM JENKINS_BUILD INNER JOIN JENKINS_JOB ON JENKINS_BUILD.JOB_ID = JENKINS_JOB.ID "
+                        + "   WHERE JENKINS_JOB.JENKINS_MASTER_ID = ? "
+                        + "     AND JENKINS_BUILD.NUMBER <= JENKINS_JOB.LAST_BUILD_NUMBER "
+                        + " ) AS RANKED_BUILD "
+                        + " WHERE RANKED_BUILD.BUILD_RANK > ? "
+                        + "   AND (RANKED_BUILD.LAST_SUCCESSFUL_BUILD_NUMBER IS NULL OR RANKED_BUILD.NUMBER <> RANKED_BUILD.LAST_SUCCESSFUL_BUILD_NUMBER) "
+                        + " ORDER BY RANKED_BUILD.ID")) {
+            stmt.setLong(1, getJenkinsMasterPrimaryKey(cnn));
+            stmt.setInt(2, minRetainedBuildCount);
+            stmt.setMaxRows(maxBuilds);
+            try (ResultSet rst = stmt.executeQuery()) {
+                while (rst.next()) {
+                    buildPrimaryKeys.add(rst.getLong(1));
+                    buildCacheKeys.add(getBuildCacheKey(rst.getLong(2), rst.getInt(3)));
+                }
+            }
+        }
+    }
 
-            Long jobPrimaryKey = null;
-            try (PreparedStatement stmt =
-                    cnn.prepareStatement("SELECT ID FROM JENKINS_JOB WHERE FULL_NAME = ? AND JENKINS_MASTER_ID = ?")) {
-                stmt.setString(1, jobFullName);
-                stmt.setLong(2, getJenkinsMasterPrimaryKey(cnn));
-                try (ResultSet rst = stmt.executeQuery()) {
-                    if (rst.next()) {
-                        jobPrimaryKey = rst.getLong(1);
+    /**
+     * Fallback of {@link #findPrunedBuildsWithWindowFunction(Connection, int, int, List, List)} for the databases
+     * without window functions: walk the completed builds of each job from the most recent one, with the
+     * {@code (JOB_ID, NUMBER)} index, and skip the retained ones
+     */
+    private void findPrunedBuildsByJob(
+            @NonNull Connection cnn,
+            int minRetainedBuildCount,
+            int maxBuilds,
+            @NonNull List<Long> buildPrimaryKeys,
+            @NonNull List<String> buildCacheKeys)
+            throws SQLException {
+        // [job primary key, last build number, last successful build number or -1]
+        List<long[]> jobs = new ArrayList<>();
+        try (PreparedStatement stmt = cnn.prepareStatement(
+                "SELECT ID, LAST_BUILD_NUMBER, LAST_SUCCESSFUL_BUILD_NUMBER FROM JENKINS_JOB WHERE JENKINS_MASTER_ID = ? ORDER BY ID")) {
+            stmt.setLong(1, getJenkinsMasterPrimaryKey(cnn));
+            try (ResultSet rst = stmt.executeQuery()) {
+                while (rst.next()) {
+                    long lastSuccessfulBuildNumber = rst.getLong(3);
+                    if (rst.wasNull()) {
+                        lastSuccessfulBuildNumber = -1;
                     }
+                    jobs.add(new long[] {rst.getLong(1), rst.getLong(2), lastSuccessfulBuildNumber});
                 }
             }
-            if (jobPrimaryKey == null) {
-                try (PreparedStatement stmt = cnn.prepareStatement(
-                        "INSERT INTO JENKINS_JOB(FULL_NAME, JENKINS_MASTER_ID) VALUES (?, ?)",
-                        Statement.RETURN_GENERATED_KEYS)) {
-                    stmt.setString(1, jobFullName);
-                    stmt.setLong(2, getJenkinsMasterPrimaryKey(cnn));
-                    stmt.execute();
-                    jobPrimaryKey = getGeneratedPrimaryKey(stmt, "ID");
+        }
+        try (PreparedStatement stmt = cnn.prepareStatement(
+                "SELECT ID, NUMBER FROM JENKINS_BUILD WHERE JOB_ID = ? AND NUMBER <= ? ORDER BY NUMBER DESC")) {
+            for (long[] job : jobs) {
+                if (buildPrimaryKeys.size() >= maxBuilds) {
+                    break;
                 }
-            }
-            Long buildPrimaryKey = null;
-            try (PreparedStatement stmt =
-                    cnn.prepareStatement("SELECT ID FROM JENKINS_BUILD WHERE JOB_ID=? AND NUMBER=?")) {
-                stmt.setLong(1, jobPrimaryKey);
-                stmt.setInt(2, buildNumber);
+                stmt.setLong(1, job[0]);
+                stmt.setLong(2, job[1]);
+                stmt.setMaxRows(minRetainedBuildCount + maxBuilds - buildPrimaryKeys.size());
                 try (ResultSet rst = stmt.executeQuery()) {
-                    if (rst.next()) {
-                        buildPrimaryKey = rst.getLong(1);
+                    int rank = 0;
+                    while (rst.next()) {
+                        rank++;
+                        int buildNumber = rst.getInt(2);
+                        if (rank > minRetainedBuildCount && buildNumber != job[2]) {
+                            buildPrimaryKeys.add(rst.getLong(1));
+                            buildCacheKeys.add(getBuildCacheKey(job[0], buildNumber));
+                        }
                     }
                 }
             }
+        }
+    }
+
+    private boolean isWindowFunctionSupported() {
+        Boolean supported = windowFunctionSupported;
+        if (supported == null) {
+            try (Connection cnn = ds.getConnection()) {
+                supported = isWindowFunctionSupported(cnn.getMetaData());
+            } catch (SQLException e) {
+                throw new RuntimeSqlException(e);
+            }
+            LOGGER.log(Level.FINE, "Window functions supported: {0}", supported);
+            windowFunctionSupported = supported;
+        }
+        return supported;
+    }
+
+    /**
+     * @return {@code true} if the database supports window functions such as {@code ROW_NUMBER() OVER (...)}
+     */
+    protected boolean isWindowFunctionSupported(@NonNull DatabaseMetaData metaData) throws SQLException {
+        return true;
+    }
 
-            if (buildPrimaryKey == null) {
+    /**
+     * Delete the orphan dependency sets and artifacts by chunks of {@code CLEANUP_CHUNK_SIZE} rows, each chunk in its
+     * own transaction, until the time budget ({@code CLEANUP_TIME_BUDGET_IN_MILLIS}) or the row budget
+     * ({@code CLEANUP_MAX_DELETED_ROWS}) is spent. The next invocation resumes where this one stopped.
+     */
+    @Override
+    public void cleanup() {
+        long deadlineInNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLEANUP_TIME_BUDGET_IN_MILLIS);
+        int deletedRows = 0;
+        try (Connection cnn = ds.getConnection()) {
+            cnn.setAutoCommit(false);
+            for (IncrementalOrphanCleanup orphanCleanup : orphanCleanups) {
+                while (deletedRows < CLEANUP_MAX_DELETED_ROWS && System.nanoTime() < deadlineInNanos) {
+                    int count = orphanCleanup.deleteNextChunk(cnn, CLEANUP_CHUNK_SIZE);
+                    if (count > 0) {
+                        // invalidate before the commit so that a primary key read concurrently isn't cached, and
+                        // after the commit to drop the primary keys cached while the deleted rows were still visible
+                        artifactPrimaryKeyCache.clear();
+                        cnn.commit();
+                        artifactPrimaryKeyCache.clear();
+                    } else {
+                        cnn.commit();
+                    }
+                    if (count < 0) {
+                        break;
+                    }
+                    deletedRows += count;
+                }
+            }
+            LOGGER.log(Level.FINE, "cleanup(): {0}", new Object[] {deletedRows});
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
+        }
+    }
+
+    /**
+     * Export the builds by pages of {@code EXPORT_PAGE_SIZE} builds sorted by job and by number, the dependencies,
+     * the parent projects, the generated artifacts and the upstream causes of a page being selected with one query each
+     */
+    @Override
+    public long exportGraph(@NonNull OutputStream out, @NonNull LongConsumer progressListener) throws IOException {
+        LOGGER.log(Level.FINE, "exportGraph()");
+        try (DependencyGraphDump.Writer writer = new DependencyGraphDump.Writer(out, progressListener);
+                Connection cnn = ds.getConnection()) {
+            long lastJobPrimaryKey = -1;
+            int lastBuildNumber = -1;
+            while (true) {
+                Map<Long, DependencyGraphDump.Build> builds = new LinkedHashMap<>();
                 try (PreparedStatement stmt = cnn.prepareStatement(
-                        "INSERT INTO JENKINS_BUILD(JOB_ID, NUMBER) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
-                    stmt.setLong(1, jobPrimaryKey);
-                    stmt.setInt(2, buildNumber);
-                    stmt.execute();
-                    buildPrimaryKey = getGeneratedPrimaryKey(stmt, "ID");
+                        "SELECT JENKINS_BUILD.ID, JENKINS_BUILD.JOB_ID, JENKINS_JOB.FULL_NAME, JENKINS_BUILD.NUMBER, JENKINS_BUILD.RESULT_ID, JENKINS_BUILD.START_TIME, JENKINS_BUILD.DURATION_IN_MILLIS "
+                                + " FROM JENKINS_BUILD INNER JOIN JENKINS_JOB ON JENKINS_BUILD.JOB_ID = JENKINS_JOB.ID "
+                                + " WHERE JENKINS_JOB.JENKINS_MASTER_ID = ? "
+                                + "   AND (JENKINS_BUILD.JOB_ID > ? OR (JENKINS_BUILD.JOB_ID = ? AND JENKINS_BUILD.NUMBER > ?)) "
+                                + " ORDER BY JENKINS_BUILD.JOB_ID, JENKINS_BUILD.NUMBER LIMIT " + EXPORT_PAGE_SIZE)) {
+                    stmt.setLong(1, getJenkinsMasterPrimaryKey(cnn));
+                    stmt.setLong(2, lastJobPrimaryKey);
+                    stmt.setLong(3, lastJobPrimaryKey);
+                    stmt.setInt(4, lastBuildNumber);
+                    try (ResultSet rst = stmt.executeQuery()) {
+                        while (rst.next()) {
+                            lastJobPrimaryKey = rst.getLong(2);
+                            lastBuildNumber = rst.getInt(4);
+                            DependencyGraphDump.Build build =
+                                    new DependencyGraphDump.Build(rst.getString(3), lastBuildNumber);
+                            int resultOrdinal = rst.getInt(5);
+                            if (!rst.wasNull()) {
+                                Timestamp startTime = rst.getTimestamp(6);
+                                build.result(
+                                        resultOrdinal, startTime == null ? 0 : startTime.getTime(), rst.getLong(7));
+                            }
+                            builds.put(rst.getLong(1), build);
+                        }
+                    }
+                }
+                if (builds.isEmpty()) {
+                    break;
+                }
+                exportPage(
+                        cnn,
+                        "SELECT JENKINS_BUILD.ID, MAVEN_ARTIFACT.GROUP_ID, MAVEN_ARTIFACT.ARTIFACT_ID, MAVEN_ARTIFACT.VERSION, MAVEN_ARTIFACT.TYPE, MAVEN_ARTIFACT.CLASSIFIER, DEPENDENCY_SET_MEMBER.SCOPE, DEPENDENCY_SET_MEMBER.IGNORE_UPSTREAM_TRIGGERS "
+                                + " FROM JENKINS_BUILD "
+                                + " INNER JOIN DEPENDENCY_SET_MEMBER ON JENKINS_BUILD.DEPENDENCY_SET_ID = DEPENDENCY_SET_MEMBER.DEPENDENCY_SET_ID "
+                                + " INNER JOIN MAVEN_ARTIFACT ON DEPENDENCY_SET_MEMBER.ARTIFACT_ID = MAVEN_ARTIFACT.ID "
+                                + " WHERE JENKINS_BUILD.ID IN ",
+                        builds,
+                        (build, rst) -> build.dependency(
+                                rst.getString(2),
+                                rst.getString(3),
+                                rst.getString(4),
+                                rst.getString(5),
+                                rst.getString(6),
+                                rst.getString(7),
+                                rst.getBoolean(8)));
+                exportPage(
+                        cnn,
+                        "SELECT MAVEN_PARENT_PROJECT.BUILD_ID, MAVEN_ARTIFACT.GROUP_ID, MAVEN_ARTIFACT.ARTIFACT_ID, MAVEN_ARTIFACT.VERSION, MAVEN_PARENT_PROJECT.IGNORE_UPSTREAM_TRIGGERS "
+                                + " FROM MAVEN_PARENT_PROJECT "
+                                + " INNER JOIN MAVEN_ARTIFACT ON MAVEN_PARENT_PROJECT.ARTIFACT_ID = MAVEN_ARTIFACT.ID "
+                                + " WHERE MAVEN_PARENT_PROJECT.BUILD_ID IN ",
+                        builds,
+                        (build, rst) -> build.parentProject(
+                                rst.getString(2), rst.getString(3), rst.getString(4), rst.getBoolean(5)));
+                exportPage(
+                        cnn,
+                        "SELECT GENERATED_MAVEN_ARTIFACT.BUILD_ID, MAVEN_ARTIFACT.GROUP_ID, MAVEN_ARTIFACT.ARTIFACT_ID, MAVEN_ARTIFACT.VERSION, MAVEN_ARTIFACT.TYPE, MAVEN_ARTIFACT.CLASSIFIER, "
+                                + "   GENERATED_MAVEN_ARTIFACT.VERSION, GENERATED_MAVEN_ARTIFACT.EXTENSION, GENERATED_MAVEN_ARTIFACT.REPOSITORY_URL, GENERATED_MAVEN_ARTIFACT.SKIP_DOWNSTREAM_TRIGGERS "
+                                + " FROM GENERATED_MAVEN_ARTIFACT "
+                                + " INNER JOIN MAVEN_ARTIFACT ON GENERATED_MAVEN_ARTIFACT.ARTIFACT_ID = MAVEN_ARTIFACT.ID "
+                                + " WHERE GENERATED_MAVEN_ARTIFACT.BUILD_ID IN ",
+                        builds,
+                        (build, rst) -> build.generatedArtifact(
+                                rst.getString(2),
+                                rst.getString(3),
+                                rst.getString(4),
+                                rst.getString(5),
+                                rst.getString(6),
+                                rst.getString(7),
+                                rst.getString(8),
+                                rst.getString(9),
+                                rst.getBoolean(10)));
+                exportPage(
+                        cnn,
+                        "SELECT JENKINS_BUILD_UPSTREAM_CAUSE.DOWNSTREAM_BUILD_ID, UPSTREAM_JOB.FULL_NAME, UPSTREAM_BUILD.NUMBER "
+                                + " FROM JENKINS_BUILD_UPSTREAM_CAUSE "
+                                + " INNER JOIN JENKINS_BUILD AS UPSTREAM_BUILD ON JENKINS_BUILD_UPSTREAM_CAUSE.UPSTREAM_BUILD_ID = UPSTREAM_BUILD.ID "
+                                + " INNER JOIN JENKINS_JOB AS UPSTREAM_JOB ON UPSTREAM_BUILD.JOB_ID = UPSTREAM_JOB.ID "
+                                + " WHERE JENKINS_BUILD_UPSTREAM_CAUSE.DOWNSTREAM_BUILD_ID IN ",
+                        builds,
+                        (build, rst) -> build.upstreamCause(rst.getString(2), rst.getInt(3)));
+                for (DependencyGraphDump.Build build : builds.values()) {
+                    writer.write(build);
                 }
             }
+            writer.finish();
+            LOGGER.log(Level.FINE, "exportGraph(): {0}", new Object[] {writer.getBuildCount()});
+            return writer.getBuildCount();
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
+        }
+    }
+
+    /**
+     * @param sql query whose first column is the primary key of the build, ending with {@code IN }
+     */
+    private void exportPage(
+            @NonNull Connection cnn,
+            @NonNull String sql,
+            @NonNull Map<Long, DependencyGraphDump.Build> builds,
+            @NonNull ExportedRowHandler rowHandler)
+            throws SQLException {
+        StringBuilder inClause = new StringBuilder("(");
+        for (int i = 0; i < builds.size(); i++) {
+            inClause.append(i == 0 ? "?" : ", ?");
+        }
+        inClause.append(")");
+        try (PreparedStatement stmt = cnn.prepareStatement(sql + inClause)) {
+            int idx = 1;
+            for (Long buildPrimaryKey : builds.keySet()) {
+                stmt.setLong(idx++, buildPrimaryKey);
+            }
+            try (ResultSet rst = stmt.executeQuery()) {
+                while (rst.next()) {
+                    rowHandler.handle(builds.get(rst.getLong(1)), rst);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ExportedRowHandler {
+        void handle(@NonNull DependencyGraphDump.Build build, @NonNull ResultSet rst) throws SQLException;
+    }
+
+    protected long getOrCreateBuildPrimaryKey(String jobFullName, int buildNumber) {
+        Long cachedJobPrimaryKey = jobPrimaryKeyCache.get(jobFullName);
+        if (cachedJobPrimaryKey != null) {
+            Long cachedBuildPrimaryKey = buildPrimaryKeyCache.get(getBuildCacheKey(cachedJobPrimaryKey, buildNumber));
+            if (cachedBuildPrimaryKey != null) {
+                BUILD_PRIMARY_KEY_HITS.incrementAndGet();
+                return cachedBuildPrimaryKey;
+            }
+        }
+        BUILD_PRIMARY_KEY_MISSES.incrementAndGet();
+
+        try (Connection cnn = ds.getConnection()) {
+            cnn.setAutoCommit(false);
+            long jobPrimaryKey = cachedJobPrimaryKey != null
+                    ? cachedJobPrimaryKey
+                    : getOrInsertPrimaryKey(
+                            cnn,
+                            "JENKINS_JOB",
+                            Arrays.asList("FULL_NAME", "JENKINS_MASTER_ID"),
+                            Arrays.asList(jobFullName, getJenkinsMasterPrimaryKey(cnn)),
+                            Collections.emptyList(),
+                            Collections.emptyList());
+            long buildPrimaryKey = getOrInsertPrimaryKey(
+                    cnn,
+                    "JENKINS_BUILD",
+                    Arrays.asList("JOB_ID", "NUMBER"),
+                    Arrays.asList(jobPrimaryKey, buildNumber),
+                    Collections.emptyList(),
+                    Collections.emptyList());
             cnn.commit();
+            jobPrimaryKeyCache.put(jobFullName, jobPrimaryKey);
+            buildPrimaryKeyCache.put(getBuildCacheKey(jobPrimaryKey, buildNumber), buildPrimaryKey);
             return buildPrimaryKey;
         } catch (SQLException e) {
             throw new RuntimeSqlException(e);
         }
     }
 
+    /**
+     * Return the primary key of the row of the given table matching the given unique key, inserting the row if it
+     * does not exist yet.
+     * <p>
+     * Concurrent callers don't need to be serialized: the insert relies on the unique index of the table through the
+     * dialect specific {@link #getInsertIfAbsentSql(String, List, List)}. The row is then selected with a locking
+     * read so that it is seen even if it has been concurrently inserted by another transaction after the snapshot
+     * of the current transaction (e.g. MySQL "REPEATABLE READ" isolation level). The transaction is left open.
+     *
+     * @param cnn          connection, the caller is responsible for committing the inserted row
+     * @param table        table with a unique index on the {@code keyColumns}
+     * @param keyColumns   columns of the unique index
+     * @param keyValues    values of the {@code keyColumns}
+     * @param otherColumns other columns to set when inserting the row
+     * @param otherValues  values of the {@code otherColumns}
+     * @return the primary key ("ID" column) of the row
+     */
+    protected long getOrInsertPrimaryKey(
+            @NonNull Connection cnn,
+            @NonNull String table,
+            @NonNull List<String> keyColumns,
+            @NonNull List<?> keyValues,
+            @NonNull List<String> otherColumns,
+            @NonNull List<?> otherValues)
+            throws SQLException {
+        Long primaryKey = selectPrimaryKey(cnn, table, keyColumns, keyValues, false);
+        if (primaryKey != null) {
+            return primaryKey;
+        }
+
+        List<?> values = getInsertIfAbsentParameters(keyValues, otherValues);
+        try (PreparedStatement stmt = cnn.prepareStatement(getInsertIfAbsentSql(table, keyColumns, otherColumns))) {
+            for (int i = 0; i < values.size(); i++) {
+                stmt.setObject(i + 1, values.get(i));
+            }
+            stmt.execute();
+        } catch (SQLException e) {
+            // integrity constraint violation, the row has been concurrently inserted
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+            LOGGER.log(Level.FINE, "Ignore concurrent insert in {0} of {1}: {2}", new Object[] {
+                table, keyValues, e.getMessage()
+            });
+        }
+
+        primaryKey = selectPrimaryKey(cnn, table, keyColumns, keyValues, true);
+        if (primaryKey == null) {
+            throw new IllegalStateException("No " + table + " record found after insert of " + keyValues);
+        }
+        return primaryKey;
+    }
+
+    @Nullable
+    private Long selectPrimaryKey(
+            @NonNull Connection cnn,
+            @NonNull String table,
+            @NonNull List<String> keyColumns,
+            @NonNull List<?> keyValues,
+            boolean forUpdate)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT ID FROM ").append(table).append(" WHERE ");
+        for (int i = 0; i < keyColumns.size(); i++) {
+            sql.append(i == 0 ? "" : " AND ").append(keyColumns.get(i)).append(" = ?");
+        }
+        if (forUpdate) {
+            sql.append(" FOR UPDATE");
+        }
+        try (PreparedStatement stmt = cnn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < keyValues.size(); i++) {
+                stmt.setObject(i + 1, keyValues.get(i));
+            }
+            try (ResultSet rst = stmt.executeQuery()) {
+                return rst.next() ? rst.getLong(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Dialect specific statement inserting a row unless a row with the same unique key already exists, in which
+     * case the statement must neither fail nor modify the existing row.
+     * <p>
+     * The parameters of the statement are bound with {@link #getInsertIfAbsentParameters(List, List)}.
+     *
+     * @param table        table with a unique index on the {@code keyColumns}
+     * @param keyColumns   columns of the unique index
+     * @param otherColumns other columns to set when inserting the row
+     * @see #getOrInsertPrimaryKey(Connection, String, List, List, List, List)
+     */
+    protected abstract String getInsertIfAbsentSql(
+            @NonNull String table, @NonNull List<String> keyColumns, @NonNull List<String> otherColumns);
+
+    /**
+     * Values of the parameters of the statement returned by {@link #getInsertIfAbsentSql(String, List, List)}, one
+     * per column by default, the {@code keyValues} first.
+     *
+     * @param keyValues   values of the key columns
+     * @param otherValues values of the other columns
+     */
+    @NonNull
+    protected List<?> getInsertIfAbsentParameters(@NonNull List<?> keyValues, @NonNull List<?> otherValues) {
+        List<Object> values = new ArrayList<>(keyValues);
+        values.addAll(otherValues);
+        return values;
+    }
+
+    /**
+     * Dialect specific query of the catalog statistics, read instead of scanning the tables with {@code count(*)}.
+     *
+     * @return query returning the upper case name and the approximate number of rows of the tables of the current
+     * schema
+     * @see #getApproximateRowCounts()
+     */
+    protected abstract String getApproximateRowCountsSql();
+
     protected Long getGeneratedPrimaryKey(PreparedStatement stmt, String column) throws SQLException {
         long jobPrimaryKey;
         try (ResultSet rst = stmt.getGeneratedKeys()) {
@@ -870,62 +1870,71 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
             @NonNull String version,
             @NonNull String type,
             @Nullable String classifier) {
+        String key = getArtifactCacheKey(groupId, artifactId, version, type, classifier);
+        Long cachedArtifactPrimaryKey = getCachedArtifactPrimaryKey(key);
+        if (cachedArtifactPrimaryKey != null) {
+            return cachedArtifactPrimaryKey;
+        }
+        long cacheGeneration = artifactPrimaryKeyCache.getGeneration();
         try (Connection cnn = ds.getConnection()) {
             cnn.setAutoCommit(false);
-            // get or create build record
-            Long artifactPrimaryKey = null;
-            if (classifier == null) {
-                // For an unknown reason, "where classifier = null" does not work as expected when "where classifier is
-                // null" does
-                try (PreparedStatement stmt = cnn.prepareStatement(
-                        "SELECT ID FROM MAVEN_ARTIFACT WHERE GROUP_ID = ? AND ARTIFACT_ID = ? AND VERSION = ? AND TYPE = ? AND CLASSIFIER is NULL")) {
-                    stmt.setString(1, groupId);
-                    stmt.setString(2, artifactId);
-                    stmt.setString(3, version);
-                    stmt.setString(4, type);
-
-                    try (ResultSet rst = stmt.executeQuery()) {
-                        if (rst.next()) {
-                            artifactPrimaryKey = rst.getLong(1);
-                        }
-                    }
-                }
-            } else {
-                try (PreparedStatement stmt = cnn.prepareStatement(
-                        "SELECT ID FROM MAVEN_ARTIFACT WHERE GROUP_ID = ? AND ARTIFACT_ID = ? AND VERSION = ? AND TYPE = ? AND CLASSIFIER = ?")) {
-                    stmt.setString(1, groupId);
-                    stmt.setString(2, artifactId);
-                    stmt.setString(3, version);
-                    stmt.setString(4, type);
-                    stmt.setString(5, classifier);
+            long artifactPrimaryKey =
+                    getOrCreateArtifactPrimaryKey(cnn, groupId, artifactId, version, type, classifier);
+            cnn.commit();
+            artifactPrimaryKeyCache.put(key, artifactPrimaryKey, cacheGeneration);
+            return artifactPrimaryKey;
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
+        }
+    }
 
-                    try (ResultSet rst = stmt.executeQuery()) {
-                        if (rst.next()) {
-                            artifactPrimaryKey = rst.getLong(1);
-                        }
+    /**
+     * Get or create the artifact record within the transaction of the given connection, the caller is responsible
+     * for committing.
+     */
+    protected long getOrCreateArtifactPrimaryKey(
+            @NonNull Connection cnn,
+            @NonNull String groupId,
+            @NonNull String artifactId,
+            @NonNull String version,
+            @NonNull String type,
+            @Nullable String classifier)
+            throws SQLException {
+        long gavHash = GavHash.of(groupId, artifactId, version, type, classifier);
+        Long artifactPrimaryKey = null;
+        try (PreparedStatement stmt = cnn.prepareStatement(
+                "SELECT ID, GROUP_ID, ARTIFACT_ID, VERSION, TYPE, CLASSIFIER FROM MAVEN_ARTIFACT WHERE GAV_HASH = ? ORDER BY ID")) {
+            stmt.setLong(1, gavHash);
+            try (ResultSet rst = stmt.executeQuery()) {
+                // different coordinates can share the same hash
+                while (artifactPrimaryKey == null && rst.next()) {
+                    if (groupId.equals(rst.getString(2))
+                            && artifactId.equals(rst.getString(3))
+                            && version.equals(rst.getString(4))
+                            && type.equals(rst.getString(5))
+                            && Objects.equals(classifier, rst.getString(6))) {
+                        artifactPrimaryKey = rst.getLong(1);
                     }
                 }
             }
+        }
 
-            if (artifactPrimaryKey == null) {
-                try (PreparedStatement stmt = cnn.prepareStatement(
-                        "INSERT INTO MAVEN_ARTIFACT(GROUP_ID, ARTIFACT_ID, VERSION, TYPE, CLASSIFIER) VALUES (?, ?, ?, ?, ?)",
-                        Statement.RETURN_GENERATED_KEYS)) {
-                    stmt.setString(1, groupId);
-                    stmt.setString(2, artifactId);
-                    stmt.setString(3, version);
-                    stmt.setString(4, type);
-                    stmt.setString(5, classifier);
+        if (artifactPrimaryKey == null) {
+            try (PreparedStatement stmt = cnn.prepareStatement(
+                    "INSERT INTO MAVEN_ARTIFACT(GROUP_ID, ARTIFACT_ID, VERSION, TYPE, CLASSIFIER, GAV_HASH) VALUES (?, ?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, groupId);
+                stmt.setString(2, artifactId);
+                stmt.setString(3, version);
+                stmt.setString(4, type);
+                stmt.setString(5, classifier);
+                stmt.setLong(6, gavHash);
 
-                    stmt.execute();
-                    artifactPrimaryKey = getGeneratedPrimaryKey(stmt, "ID");
-                }
+                stmt.execute();
+                artifactPrimaryKey = getGeneratedPrimaryKey(stmt, "ID");
             }
-            cnn.commit();
-            return artifactPrimaryKey;
-        } catch (SQLException e) {
-            throw new RuntimeSqlException(e);
         }
+        return artifactPrimaryKey;
     }
 
     protected synchronized void initializeDatabase() {
@@ -937,6 +1946,8 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                     Level.FINE, "Initialise database. Current schema version: {0}", new Object[] {initialSchemaVersion
                     });
 
+            ChunkedMigrationStep.resumeInterruptedSteps(cnn, getJenkinsDetails());
+
             NumberFormat numberFormat = new DecimalFormat("00");
             int idx = initialSchemaVersion;
             while (true) {
@@ -1059,18 +2070,16 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                     "MAVEN_ARTIFACT",
                     "JENKINS_JOB",
                     "JENKINS_BUILD",
-                    "MAVEN_DEPENDENCY",
+                    "DEPENDENCY_SET",
+                    "DEPENDENCY_SET_MEMBER",
                     "GENERATED_MAVEN_ARTIFACT",
-                    "MAVEN_PARENT_PROJECT");
+                    "MAVEN_PARENT_PROJECT",
+                    "JOB_DEPENDENCY_EDGE");
             for (String table : tables) {
                 try (Statement stmt = cnn.createStatement()) {
-                    try (ResultSet rst = stmt.executeQuery("SELECT count(*) FROM " + table)) {
-                        if (rst.next()) {
-                            int count = rst.getInt(1);
-                            LOGGER.log(Level.FINE, "Table {0}: {1} rows", new Object[] {table, count});
-                        } else {
-                            throw new IllegalStateException("Exception testing table '" + table + "'");
-                        }
+                    // read at most one row rather than scanning the table
+                    try (ResultSet rst = stmt.executeQuery("SELECT 1 FROM " + table + " LIMIT 1")) {
+                        LOGGER.log(Level.FINE, "Table {0}: empty: {1}", new Object[] {table, !rst.next()});
                     }
                 } catch (SQLException e) {
                     throw new RuntimeSqlException("Exception testing table '" + table + "' on " + cnn.toString(), e);
@@ -1097,6 +2106,83 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
     @Override
     public Map<MavenArtifact, SortedSet<String>> listDownstreamJobsByArtifact(
             @NonNull String jobFullName, int buildNumber) {
+        InMemoryDependencyGraph graph = getDependencyGraph();
+        Map<MavenArtifact, SortedSet<String>> results =
+                graph == null ? null : graph.listDownstreamJobsByArtifact(jobFullName, buildNumber);
+        if (results == null) {
+            results = listDownstreamJobsByArtifactBasedOnJobDependencyEdges(jobFullName, buildNumber);
+        }
+        if (results == null) {
+            results = listDownstreamJobsByArtifactBasedOnBuilds(jobFullName, buildNumber);
+        }
+
+        removeDownstreamJob(results, jobFullName);
+        return results;
+    }
+
+    @NonNull
+    @Override
+    public Map<String, Map<MavenArtifact, SortedSet<String>>> listDownstreamJobsByArtifact(
+            @NonNull Map<String, Integer> buildNumbersByJobFullName) {
+        Map<String, Map<MavenArtifact, SortedSet<String>>> results = new HashMap<>();
+        Map<String, Integer> remainingBuilds = new HashMap<>();
+        InMemoryDependencyGraph graph = getDependencyGraph();
+        for (Entry<String, Integer> build : buildNumbersByJobFullName.entrySet()) {
+            Map<MavenArtifact, SortedSet<String>> downstreamJobsByArtifact =
+                    graph == null ? null : graph.listDownstreamJobsByArtifact(build.getKey(), build.getValue());
+            if (downstreamJobsByArtifact == null) {
+                remainingBuilds.put(build.getKey(), build.getValue());
+            } else {
+                results.put(build.getKey(), downstreamJobsByArtifact);
+            }
+        }
+        if (!remainingBuilds.isEmpty()) {
+            results.putAll(listDownstreamJobsByArtifactBasedOnJobDependencyEdges(remainingBuilds));
+        }
+        for (Entry<String, Integer> build : remainingBuilds.entrySet()) {
+            if (!results.containsKey(build.getKey())) {
+                // not the last successful build of its job
+                results.put(
+                        build.getKey(), listDownstreamJobsByArtifactBasedOnBuilds(build.getKey(), build.getValue()));
+            }
+        }
+
+        for (Entry<String, Map<MavenArtifact, SortedSet<String>>> entry : results.entrySet()) {
+            removeDownstreamJob(entry.getValue(), entry.getKey());
+        }
+        return results;
+    }
+
+    /**
+     * JENKINS-50507 Don't return the passed job in case of pipelines consuming the artifacts they produce
+     */
+    private void removeDownstreamJob(
+            @NonNull Map<MavenArtifact, SortedSet<String>> downstreamJobsByArtifact, @NonNull String jobFullName) {
+        for (Iterator<Entry<MavenArtifact, SortedSet<String>>> it =
+                        downstreamJobsByArtifact.entrySet().iterator();
+                it.hasNext(); ) {
+            Entry<MavenArtifact, SortedSet<String>> entry = it.next();
+            MavenArtifact mavenArtifact = entry.getKey();
+            SortedSet<String> jobs = entry.getValue();
+            boolean removed = jobs.remove(jobFullName);
+            if (removed) {
+                LOGGER.log(Level.FINER, "Remove {0} from downstreamJobs of artifact {1}", new Object[] {
+                    jobFullName, mavenArtifact
+                });
+                if (jobs.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * List the downstream jobs of a build that is not the last successful build of its job, the
+     * {@code JOB_DEPENDENCY_EDGE} rows only describe the last successful builds
+     */
+    @NonNull
+    protected Map<MavenArtifact, SortedSet<String>> listDownstreamJobsByArtifactBasedOnBuilds(
+            @NonNull String jobFullName, int buildNumber) {
         Map<MavenArtifact, SortedSet<String>> downstreamJobsByArtifactBasedOnMavenDependencies =
                 listDownstreamJobsByArtifactBasedOnMavenDependencies(jobFullName, buildNumber);
         LOGGER.log(
@@ -1125,23 +2211,163 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
             jobFullName, buildNumber, results
         });
 
-        // JENKINS-50507 Don't return the passed job in case of pipelines consuming the artifacts they produce
-        for (Iterator<Entry<MavenArtifact, SortedSet<String>>> it =
-                        results.entrySet().iterator();
-                it.hasNext(); ) {
-            Entry<MavenArtifact, SortedSet<String>> entry = it.next();
-            MavenArtifact mavenArtifact = entry.getKey();
-            SortedSet<String> jobs = entry.getValue();
-            boolean removed = jobs.remove(jobFullName);
-            if (removed) {
-                LOGGER.log(Level.FINER, "Remove {0} from downstreamJobs of artifact {1}", new Object[] {
-                    jobFullName, mavenArtifact
-                });
-                if (jobs.isEmpty()) {
-                    it.remove();
+        return results;
+    }
+
+    /**
+     * List the downstream jobs of the given build with a lookup on the {@code JOB_DEPENDENCY_EDGE} rows of its job
+     *
+     * @return {@code null} if the given build is not the last successful build of its job
+     */
+    @Nullable
+    protected Map<MavenArtifact, SortedSet<String>> listDownstreamJobsByArtifactBasedOnJobDependencyEdges(
+            @NonNull String jobFullName, int buildNumber) {
+        LOGGER.log(Level.FINER, "listDownstreamJobsByArtifactBasedOnJobDependencyEdges({0}, {1})", new Object[] {
+            jobFullName, buildNumber
+        });
+
+        String sql = "select distinct downstream_job.full_name, \n "
+                + "   MAVEN_ARTIFACT.group_id, MAVEN_ARTIFACT.artifact_id, MAVEN_ARTIFACT.version as base_version, MAVEN_ARTIFACT.type, MAVEN_ARTIFACT.classifier, \n"
+                + "   GENERATED_MAVEN_ARTIFACT.version as version, GENERATED_MAVEN_ARTIFACT.extension \n"
+                + "from JOB_DEPENDENCY_EDGE \n"
+                + "inner join JENKINS_JOB as downstream_job on JOB_DEPENDENCY_EDGE.downstream_job_id = downstream_job.id \n"
+                + "inner join MAVEN_ARTIFACT on JOB_DEPENDENCY_EDGE.artifact_id = MAVEN_ARTIFACT.id \n"
+                + "inner join JENKINS_BUILD as upstream_build on (JOB_DEPENDENCY_EDGE.upstream_job_id = upstream_build.job_id and upstream_build.number = ?) \n"
+                + "inner join GENERATED_MAVEN_ARTIFACT on (upstream_build.id = GENERATED_MAVEN_ARTIFACT.build_id and JOB_DEPENDENCY_EDGE.artifact_id = GENERATED_MAVEN_ARTIFACT.artifact_id and GENERATED_MAVEN_ARTIFACT.skip_downstream_triggers = false) \n"
+                + "where JOB_DEPENDENCY_EDGE.upstream_job_id = ? and downstream_job.jenkins_master_id = ?";
+
+        Map<MavenArtifact, SortedSet<String>> results = new HashMap<>();
+        try (Connection cnn = getReadConnection(jobFullName)) {
+            Long jobPrimaryKey = getJobPrimaryKeyIfLastSuccessfulBuild(cnn, jobFullName, buildNumber);
+            if (jobPrimaryKey == null) {
+                return null;
+            }
+            try (PreparedStatement stmt = cnn.prepareStatement(sql)) {
+                stmt.setInt(1, buildNumber);
+                stmt.setLong(2, jobPrimaryKey);
+                stmt.setLong(3, getJenkinsMasterPrimaryKey(cnn));
+                try (ResultSet rst = stmt.executeQuery()) {
+                    while (rst.next()) {
+                        MavenArtifact artifact = new MavenArtifact();
+                        artifact.setGroupId(rst.getString("group_id"));
+                        artifact.setArtifactId(rst.getString("artifact_id"));
+                        artifact.setVersion(rst.getString("version"));
+                        artifact.setBaseVersion(rst.getString("base_version"));
+                        artifact.setType(rst.getString("type"));
+                        artifact.setClassifier(rst.getString("classifier"));
+                        artifact.setExtension(rst.getString("extension"));
+                        String downstreamJobFullName = rst.getString("full_name");
+
+                        results.computeIfAbsent(artifact, a -> new TreeSet<>()).add(downstreamJobFullName);
+                    }
                 }
             }
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
         }
+        LOGGER.log(
+                Level.FINE,
+                "listDownstreamJobsByArtifactBasedOnJobDependencyEdges({0}, {1}): {2}",
+                new Object[] {jobFullName, buildNumber, results});
+
+        return results;
+    }
+
+    /**
+     * Bulk variant of {@link #listDownstreamJobsByArtifactBasedOnJobDependencyEdges(String, int)}, two queries per
+     * chunk of {@code BULK_QUERY_MAX_BUILDS} builds
+     *
+     * @return downstream jobs by artifact by job full name, only for the given builds that are the last successful
+     * build of their job
+     */
+    @NonNull
+    protected Map<String, Map<MavenArtifact, SortedSet<String>>> listDownstreamJobsByArtifactBasedOnJobDependencyEdges(
+            @NonNull Map<String, Integer> buildNumbersByJobFullName) {
+        LOGGER.log(Level.FINER, "listDownstreamJobsByArtifactBasedOnJobDependencyEdges({0})", new Object[] {
+            buildNumbersByJobFullName
+        });
+
+        Map<String, Map<MavenArtifact, SortedSet<String>>> results = new HashMap<>();
+        List<Entry<String, Integer>> builds = new ArrayList<>(buildNumbersByJobFullName.entrySet());
+        try (Connection cnn = getReadConnection(buildNumbersByJobFullName.keySet())) {
+            long jenkinsMasterPrimaryKey = getJenkinsMasterPrimaryKey(cnn);
+            for (int fromIndex = 0; fromIndex < builds.size(); fromIndex += BULK_QUERY_MAX_BUILDS) {
+                List<Entry<String, Integer>> chunk =
+                        builds.subList(fromIndex, Math.min(fromIndex + BULK_QUERY_MAX_BUILDS, builds.size()));
+
+                // jobs whose given build is the last successful build
+                Map<Long, String> jobFullNamesByPrimaryKey = new HashMap<>();
+                StringBuilder jobsSql =
+                        new StringBuilder("SELECT ID, FULL_NAME FROM JENKINS_JOB WHERE JENKINS_MASTER_ID = ? AND (");
+                for (int i = 0; i < chunk.size(); i++) {
+                    jobsSql.append(i == 0 ? "" : " OR ").append("(FULL_NAME = ? AND LAST_SUCCESSFUL_BUILD_NUMBER = ?)");
+                }
+                jobsSql.append(")");
+                try (PreparedStatement stmt = cnn.prepareStatement(jobsSql.toString())) {
+                    int idx = 1;
+                    stmt.setLong(idx++, jenkinsMasterPrimaryKey);
+                    for (Entry<String, Integer> build : chunk) {
+                        stmt.setString(idx++, build.getKey());
+                        stmt.setInt(idx++, build.getValue());
+                    }
+                    try (ResultSet rst = stmt.executeQuery()) {
+                        while (rst.next()) {
+                            jobFullNamesByPrimaryKey.put(rst.getLong(1), rst.getString(2));
+                        }
+                    }
+                }
+                if (jobFullNamesByPrimaryKey.isEmpty()) {
+                    continue;
+                }
+                jobFullNamesByPrimaryKey.values().forEach(jobFullName -> results.put(jobFullName, new HashMap<>()));
+
+                StringBuilder sql = new StringBuilder(
+                        "select distinct JOB_DEPENDENCY_EDGE.upstream_job_id, downstream_job.full_name, \n "
+                                + "   MAVEN_ARTIFACT.group_id, MAVEN_ARTIFACT.artifact_id, MAVEN_ARTIFACT.version as base_version, MAVEN_ARTIFACT.type, MAVEN_ARTIFACT.classifier, \n"
+                                + "   GENERATED_MAVEN_ARTIFACT.version as version, GENERATED_MAVEN_ARTIFACT.extension \n"
+                                + "from JOB_DEPENDENCY_EDGE \n"
+                                + "inner join JENKINS_JOB as downstream_job on JOB_DEPENDENCY_EDGE.downstream_job_id = downstream_job.id \n"
+                                + "inner join MAVEN_ARTIFACT on JOB_DEPENDENCY_EDGE.artifact_id = MAVEN_ARTIFACT.id \n"
+                                + "inner join JENKINS_JOB as upstream_job on JOB_DEPENDENCY_EDGE.upstream_job_id = upstream_job.id \n"
+                                + "inner join JENKINS_BUILD as upstream_build on (upstream_job.id = upstream_build.job_id and upstream_build.number = upstream_job.last_successful_build_number) \n"
+                                + "inner join GENERATED_MAVEN_ARTIFACT on (upstream_build.id = GENERATED_MAVEN_ARTIFACT.build_id and JOB_DEPENDENCY_EDGE.artifact_id = GENERATED_MAVEN_ARTIFACT.artifact_id and GENERATED_MAVEN_ARTIFACT.skip_downstream_triggers = false) \n"
+                                + "where downstream_job.jenkins_master_id = ? and JOB_DEPENDENCY_EDGE.upstream_job_id in (");
+                for (int i = 0; i < jobFullNamesByPrimaryKey.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append(")");
+                try (PreparedStatement stmt = cnn.prepareStatement(sql.toString())) {
+                    int idx = 1;
+                    stmt.setLong(idx++, jenkinsMasterPrimaryKey);
+                    for (Long jobPrimaryKey : jobFullNamesByPrimaryKey.keySet()) {
+                        stmt.setLong(idx++, jobPrimaryKey);
+                    }
+                    try (ResultSet rst = stmt.executeQuery()) {
+                        while (rst.next()) {
+                            MavenArtifact artifact = new MavenArtifact();
+                            artifact.setGroupId(rst.getString("group_id"));
+                            artifact.setArtifactId(rst.getString("artifact_id"));
+                            artifact.setVersion(rst.getString("version"));
+                            artifact.setBaseVersion(rst.getString("base_version"));
+                            artifact.setType(rst.getString("type"));
+                            artifact.setClassifier(rst.getString("classifier"));
+                            artifact.setExtension(rst.getString("extension"));
+                            String upstreamJobFullName = jobFullNamesByPrimaryKey.get(rst.getLong("upstream_job_id"));
+                            String downstreamJobFullName = rst.getString("full_name");
+
+                            results.get(upstreamJobFullName)
+                                    .computeIfAbsent(artifact, a -> new TreeSet<>())
+                                    .add(downstreamJobFullName);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
+        }
+        LOGGER.log(Level.FINE, "listDownstreamJobsByArtifactBasedOnJobDependencyEdges({0}): {1}", new Object[] {
+            buildNumbersByJobFullName, results
+        });
 
         return results;
     }
@@ -1155,10 +2381,120 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
             @Nullable String baseVersion,
             @NonNull String type,
             @Nullable String classifier) {
+        InMemoryDependencyGraph graph = getDependencyGraph();
+        if (graph != null) {
+            return graph.listDownstreamJobs(
+                    groupId, artifactId, (baseVersion == null ? version : baseVersion), type, classifier);
+        }
         return listDownstreamPipelinesBasedOnMavenDependencies(
                 groupId, artifactId, (baseVersion == null ? version : baseVersion), type, classifier);
     }
 
+    @NonNull
+    @Override
+    public Map<MavenArtifact, SortedSet<String>> listDownstreamJobsByArtifacts(
+            @NonNull Collection<MavenArtifact> mavenArtifacts) {
+        InMemoryDependencyGraph graph = getDependencyGraph();
+        if (graph == null) {
+            return listDownstreamPipelinesBasedOnMavenDependencies(mavenArtifacts);
+        }
+        Map<MavenArtifact, SortedSet<String>> results = new HashMap<>();
+        for (MavenArtifact mavenArtifact : mavenArtifacts) {
+            results.put(
+                    mavenArtifact,
+                    graph.listDownstreamJobs(
+                            mavenArtifact.getGroupId(),
+                            mavenArtifact.getArtifactId(),
+                            getBaseVersion(mavenArtifact),
+                            mavenArtifact.getType(),
+                            mavenArtifact.getClassifier()));
+        }
+        return results;
+    }
+
+    /**
+     * Resolve the given artifacts by chunks of {@code BULK_QUERY_MAX_ARTIFACTS} artifacts per query, a single query
+     * for most of the releases
+     */
+    @NonNull
+    protected Map<MavenArtifact, SortedSet<String>> listDownstreamPipelinesBasedOnMavenDependencies(
+            @NonNull Collection<MavenArtifact> mavenArtifacts) {
+        LOGGER.log(Level.FINER, "listDownstreamPipelinesBasedOnMavenDependencies({0})", new Object[] {mavenArtifacts});
+        Map<MavenArtifact, SortedSet<String>> results = new HashMap<>();
+
+        // given artifacts by "groupId:artifactId:baseVersion:type:classifier", several artifacts can share the same
+        // base version
+        Map<String, List<MavenArtifact>> mavenArtifactsByKey = new LinkedHashMap<>();
+        for (MavenArtifact mavenArtifact : mavenArtifacts) {
+            results.put(mavenArtifact, new TreeSet<>());
+            mavenArtifactsByKey
+                    .computeIfAbsent(getArtifactCacheKey(mavenArtifact), key -> new ArrayList<>())
+                    .add(mavenArtifact);
+        }
+        List<MavenArtifact> distinctMavenArtifacts = new ArrayList<>();
+        mavenArtifactsByKey.values().forEach(artifacts -> distinctMavenArtifacts.add(artifacts.get(0)));
+
+        try (Connection cnn = getReadConnectionForAnyJob()) {
+            long jenkinsMasterPrimaryKey = getJenkinsMasterPrimaryKey(cnn);
+            for (int fromIndex = 0; fromIndex < distinctMavenArtifacts.size(); fromIndex += BULK_QUERY_MAX_ARTIFACTS) {
+                List<MavenArtifact> chunk = distinctMavenArtifacts.subList(
+                        fromIndex, Math.min(fromIndex + BULK_QUERY_MAX_ARTIFACTS, distinctMavenArtifacts.size()));
+                StringBuilder sql = new StringBuilder(
+                        "select distinct MAVEN_ARTIFACT.group_id, MAVEN_ARTIFACT.artifact_id, MAVEN_ARTIFACT.version, MAVEN_ARTIFACT.type, MAVEN_ARTIFACT.classifier, downstream_job.full_name \n"
+                                + "from MAVEN_ARTIFACT \n"
+                                + "inner join DEPENDENCY_SET_MEMBER on (DEPENDENCY_SET_MEMBER.artifact_id = MAVEN_ARTIFACT.id and DEPENDENCY_SET_MEMBER.ignore_upstream_triggers = false) \n"
+                                + "inner join JENKINS_BUILD as downstream_build on DEPENDENCY_SET_MEMBER.dependency_set_id = downstream_build.dependency_set_id \n"
+                                + "inner join JENKINS_JOB as downstream_job on (downstream_build.number = downstream_job.last_successful_build_number and downstream_build.job_id = downstream_job.id) \n"
+                                + "where downstream_job.jenkins_master_id = ? and MAVEN_ARTIFACT.gav_hash in (");
+                for (int i = 0; i < chunk.size(); i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append(")");
+
+                try (PreparedStatement stmt = cnn.prepareStatement(sql.toString())) {
+                    int idx = 1;
+                    stmt.setLong(idx++, jenkinsMasterPrimaryKey);
+                    for (MavenArtifact mavenArtifact : chunk) {
+                        stmt.setLong(
+                                idx++,
+                                GavHash.of(
+                                        mavenArtifact.getGroupId(),
+                                        mavenArtifact.getArtifactId(),
+                                        getBaseVersion(mavenArtifact),
+                                        mavenArtifact.getType(),
+                                        mavenArtifact.getClassifier()));
+                    }
+                    try (ResultSet rst = stmt.executeQuery()) {
+                        while (rst.next()) {
+                            // verify the coordinates, different coordinates can share the same hash
+                            String key = getArtifactCacheKey(
+                                    rst.getString(1),
+                                    rst.getString(2),
+                                    rst.getString(3),
+                                    rst.getString(4),
+                                    rst.getString(5));
+                            for (MavenArtifact mavenArtifact :
+                                    mavenArtifactsByKey.getOrDefault(key, Collections.emptyList())) {
+                                results.get(mavenArtifact).add(rst.getString(6));
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
+        }
+        LOGGER.log(Level.FINE, "listDownstreamPipelinesBasedOnMavenDependencies({0}): {1}", new Object[] {
+            mavenArtifacts, results
+        });
+        return results;
+    }
+
+    @NonNull
+    private static String getBaseVersion(@NonNull MavenArtifact mavenArtifact) {
+        return mavenArtifact.getBaseVersion() == null ? mavenArtifact.getVersion() : mavenArtifact.getBaseVersion();
+    }
+
     protected SortedSet<String> listDownstreamPipelinesBasedOnMavenDependencies(
             @NonNull String groupId,
             @NonNull String artifactId,
@@ -1170,10 +2506,11 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
         });
 
         String sql = "select distinct downstream_job.full_name \n" + "from MAVEN_ARTIFACT  \n"
-                + "inner join MAVEN_DEPENDENCY on (MAVEN_DEPENDENCY.artifact_id = MAVEN_ARTIFACT.id and MAVEN_DEPENDENCY.ignore_upstream_triggers = false) \n"
-                + "inner join JENKINS_BUILD as downstream_build on MAVEN_DEPENDENCY.build_id = downstream_build.id \n"
+                + "inner join DEPENDENCY_SET_MEMBER on (DEPENDENCY_SET_MEMBER.artifact_id = MAVEN_ARTIFACT.id and DEPENDENCY_SET_MEMBER.ignore_upstream_triggers = false) \n"
+                + "inner join JENKINS_BUILD as downstream_build on DEPENDENCY_SET_MEMBER.dependency_set_id = downstream_build.dependency_set_id \n"
                 + "inner join JENKINS_JOB as downstream_job on (downstream_build.number = downstream_job.last_successful_build_number and downstream_build.job_id = downstream_job.id) \n"
-                + "where MAVEN_ARTIFACT.group_id = ? "
+                + "where MAVEN_ARTIFACT.gav_hash = ? "
+                + "and MAVEN_ARTIFACT.group_id = ? "
                 + "and MAVEN_ARTIFACT.artifact_id = ? "
                 + "and MAVEN_ARTIFACT.version = ? "
                 + "and MAVEN_ARTIFACT.type = ? "
@@ -1182,15 +2519,16 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
 
         SortedSet<String> downstreamJobsFullNames = new TreeSet<>();
 
-        try (Connection cnn = ds.getConnection()) {
+        try (Connection cnn = getReadConnectionForAnyJob()) {
             try (PreparedStatement stmt = cnn.prepareStatement(sql)) {
-                stmt.setString(1, groupId);
-                stmt.setString(2, artifactId);
-                stmt.setString(3, version);
-                stmt.setString(4, type);
-                stmt.setString(5, classifier);
+                stmt.setLong(1, GavHash.of(groupId, artifactId, version, type, classifier));
+                stmt.setString(2, groupId);
+                stmt.setString(3, artifactId);
+                stmt.setString(4, version);
+                stmt.setString(5, type);
                 stmt.setString(6, classifier);
-                stmt.setLong(7, getJenkinsMasterPrimaryKey(cnn));
+                stmt.setString(7, classifier);
+                stmt.setLong(8, getJenkinsMasterPrimaryKey(cnn));
                 try (ResultSet rst = stmt.executeQuery()) {
                     while (rst.next()) {
                         downstreamJobsFullNames.add(rst.getString(1));
@@ -1216,8 +2554,8 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 + "inner join JENKINS_BUILD as upstream_build on upstream_job.id = upstream_build.job_id \n"
                 + "inner join GENERATED_MAVEN_ARTIFACT on (upstream_build.id = GENERATED_MAVEN_ARTIFACT.build_id and GENERATED_MAVEN_ARTIFACT.skip_downstream_triggers = false) \n"
                 + "inner join MAVEN_ARTIFACT on GENERATED_MAVEN_ARTIFACT.artifact_id = MAVEN_ARTIFACT.id \n"
-                + "inner join MAVEN_DEPENDENCY on (MAVEN_DEPENDENCY.artifact_id = MAVEN_ARTIFACT.id and MAVEN_DEPENDENCY.ignore_upstream_triggers = false) \n"
-                + "inner join JENKINS_BUILD as downstream_build on MAVEN_DEPENDENCY.build_id = downstream_build.id \n"
+                + "inner join DEPENDENCY_SET_MEMBER on (DEPENDENCY_SET_MEMBER.artifact_id = MAVEN_ARTIFACT.id and DEPENDENCY_SET_MEMBER.ignore_upstream_triggers = false) \n"
+                + "inner join JENKINS_BUILD as downstream_build on DEPENDENCY_SET_MEMBER.dependency_set_id = downstream_build.dependency_set_id \n"
                 + "inner join JENKINS_JOB as downstream_job on (downstream_build.number = downstream_job.last_successful_build_number and downstream_build.job_id = downstream_job.id) \n"
                 + "where upstream_job.full_name = ? and upstream_job.jenkins_master_id = ? and upstream_build.number = ? and downstream_job.jenkins_master_id = ?";
 
@@ -1226,7 +2564,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 Level.FINER, "sql: {0}, jobFullName:{1}, buildNumber: {2}", new Object[] {sql, jobFullName, buildNumber
                 });
 
-        try (Connection cnn = ds.getConnection()) {
+        try (Connection cnn = getReadConnection(jobFullName)) {
             try (PreparedStatement stmt = cnn.prepareStatement(sql)) {
                 stmt.setString(1, jobFullName);
                 stmt.setLong(2, getJenkinsMasterPrimaryKey(cnn));
@@ -1261,8 +2599,8 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 + "inner join JENKINS_BUILD as upstream_build on upstream_job.id = upstream_build.job_id \n"
                 + "inner join GENERATED_MAVEN_ARTIFACT on (upstream_build.id = GENERATED_MAVEN_ARTIFACT.build_id and GENERATED_MAVEN_ARTIFACT.skip_downstream_triggers = false) \n"
                 + "inner join MAVEN_ARTIFACT on GENERATED_MAVEN_ARTIFACT.artifact_id = MAVEN_ARTIFACT.id \n"
-                + "inner join MAVEN_DEPENDENCY on (MAVEN_DEPENDENCY.artifact_id = MAVEN_ARTIFACT.id and MAVEN_DEPENDENCY.ignore_upstream_triggers = false) \n"
-                + "inner join JENKINS_BUILD as downstream_build on MAVEN_DEPENDENCY.build_id = downstream_build.id \n"
+                + "inner join DEPENDENCY_SET_MEMBER on (DEPENDENCY_SET_MEMBER.artifact_id = MAVEN_ARTIFACT.id and DEPENDENCY_SET_MEMBER.ignore_upstream_triggers = false) \n"
+                + "inner join JENKINS_BUILD as downstream_build on DEPENDENCY_SET_MEMBER.dependency_set_id = downstream_build.dependency_set_id \n"
                 + "inner join JENKINS_JOB as downstream_job on (downstream_build.number = downstream_job.last_successful_build_number and downstream_build.job_id = downstream_job.id) \n"
                 + "where upstream_job.full_name = ? and upstream_job.jenkins_master_id = ? and upstream_build.number = ? and downstream_job.jenkins_master_id = ?";
 
@@ -1271,7 +2609,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 });
         Map<MavenArtifact, SortedSet<String>> results = new HashMap<>();
 
-        try (Connection cnn = ds.getConnection()) {
+        try (Connection cnn = getReadConnection(jobFullName)) {
             try (PreparedStatement stmt = cnn.prepareStatement(sql)) {
                 stmt.setString(1, jobFullName);
                 stmt.setLong(2, getJenkinsMasterPrimaryKey(cnn));
@@ -1323,7 +2661,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 Level.FINER, "sql: {0}, jobFullName:{1}, buildNumber: {2}", new Object[] {sql, jobFullName, buildNumber
                 });
 
-        try (Connection cnn = ds.getConnection()) {
+        try (Connection cnn = getReadConnection(jobFullName)) {
             try (PreparedStatement stmt = cnn.prepareStatement(sql)) {
                 stmt.setString(1, jobFullName);
                 stmt.setLong(2, getJenkinsMasterPrimaryKey(cnn));
@@ -1368,7 +2706,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
 
         Map<MavenArtifact, SortedSet<String>> results = new HashMap<>();
 
-        try (Connection cnn = ds.getConnection()) {
+        try (Connection cnn = getReadConnection(jobFullName)) {
             try (PreparedStatement stmt = cnn.prepareStatement(sql)) {
                 stmt.setString(1, jobFullName);
                 stmt.setLong(2, getJenkinsMasterPrimaryKey(cnn));
@@ -1404,8 +2742,15 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
     @NonNull
     @Override
     public Map<String, Integer> listUpstreamJobs(@NonNull String jobFullName, int buildNumber) {
-        Map<String, Integer> upstreamJobs = listUpstreamPipelinesBasedOnMavenDependencies(jobFullName, buildNumber);
-        upstreamJobs.putAll(listUpstreamPipelinesBasedOnParentProjectDependencies(jobFullName, buildNumber));
+        InMemoryDependencyGraph graph = getDependencyGraph();
+        Map<String, Integer> upstreamJobs = graph == null ? null : graph.listUpstreamJobs(jobFullName, buildNumber);
+        if (upstreamJobs == null) {
+            upstreamJobs = listUpstreamPipelinesBasedOnJobDependencyEdges(jobFullName, buildNumber);
+        }
+        if (upstreamJobs == null) {
+            upstreamJobs = listUpstreamPipelinesBasedOnMavenDependencies(jobFullName, buildNumber);
+            upstreamJobs.putAll(listUpstreamPipelinesBasedOnParentProjectDependencies(jobFullName, buildNumber));
+        }
 
         // JENKINS-50507 Don't return the passed job in case of pipelines consuming the artifacts they produce
         upstreamJobs.remove(jobFullName);
@@ -1413,6 +2758,49 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
         return upstreamJobs;
     }
 
+    /**
+     * List the upstream jobs of the given build with a lookup on the {@code JOB_DEPENDENCY_EDGE} rows of its job
+     *
+     * @return {@code null} if the given build is not the last successful build of its job
+     */
+    @Nullable
+    protected Map<String, Integer> listUpstreamPipelinesBasedOnJobDependencyEdges(
+            @NonNull String downstreamJobFullName, int downstreamBuildNumber) {
+        LOGGER.log(Level.FINER, "listUpstreamPipelinesBasedOnJobDependencyEdges({0}, {1})", new Object[] {
+            downstreamJobFullName, downstreamBuildNumber
+        });
+
+        String sql = "select distinct upstream_job.full_name, upstream_job.last_successful_build_number \n"
+                + "from JOB_DEPENDENCY_EDGE \n"
+                + "inner join JENKINS_JOB as upstream_job on JOB_DEPENDENCY_EDGE.upstream_job_id = upstream_job.id \n"
+                + "where JOB_DEPENDENCY_EDGE.downstream_job_id = ? and upstream_job.jenkins_master_id = ?";
+
+        Map<String, Integer> upstreamJobsFullNames = new HashMap<>();
+        try (Connection cnn = getReadConnection(downstreamJobFullName)) {
+            Long jobPrimaryKey =
+                    getJobPrimaryKeyIfLastSuccessfulBuild(cnn, downstreamJobFullName, downstreamBuildNumber);
+            if (jobPrimaryKey == null) {
+                return null;
+            }
+            try (PreparedStatement stmt = cnn.prepareStatement(sql)) {
+                stmt.setLong(1, jobPrimaryKey);
+                stmt.setLong(2, getJenkinsMasterPrimaryKey(cnn));
+                try (ResultSet rst = stmt.executeQuery()) {
+                    while (rst.next()) {
+                        upstreamJobsFullNames.put(rst.getString(1), rst.getInt(2));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
+        }
+        LOGGER.log(Level.FINE, "listUpstreamPipelinesBasedOnJobDependencyEdges({0}, {1}): {2}", new Object[] {
+            downstreamJobFullName, downstreamBuildNumber, upstreamJobsFullNames
+        });
+
+        return upstreamJobsFullNames;
+    }
+
     /**
      *
      * @param downstreamJobFullName
@@ -1433,7 +2821,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
         // I tried this out with Solution 4 of https://learnsql.com/blog/sql-join-only-first-row/ and it worked.
         //
         // ...
-        // inner join JENKINS_BUILD as downstream_build on (MAVEN_DEPENDENCY.build_id = downstream_build.id and
+        // inner join JENKINS_BUILD as downstream_build on (DEPENDENCY_SET_MEMBER.dependency_set_id = downstream_build.dependency_set_id and
         // downstream_build.job_id = (
         //  SELECT downstream_job.id FROM JENKINS_JOB as downstream_job
         //  WHERE downstream_job.full_name = ? and downstream_job.jenkins_master_id = ?
@@ -1447,7 +2835,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
         // The second query does not need the problematic join on JENKINS_BUILD and performs very well.
 
         Long jobPrimaryKey;
-        try (Connection cnn = ds.getConnection()) {
+        try (Connection cnn = getReadConnection(downstreamJobFullName)) {
             try (PreparedStatement stmt =
                     cnn.prepareStatement("SELECT ID FROM JENKINS_JOB WHERE FULL_NAME = ? AND JENKINS_MASTER_ID = ?")) {
                 stmt.setString(1, downstreamJobFullName);
@@ -1473,8 +2861,8 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                         + "inner join JENKINS_BUILD as upstream_build on (upstream_job.id = upstream_build.job_id and upstream_job.last_successful_build_number = upstream_build.number)\n"
                         + "inner join GENERATED_MAVEN_ARTIFACT on (upstream_build.id = GENERATED_MAVEN_ARTIFACT.build_id  and GENERATED_MAVEN_ARTIFACT.skip_downstream_triggers = false)\n"
                         + "inner join MAVEN_ARTIFACT on GENERATED_MAVEN_ARTIFACT.artifact_id = MAVEN_ARTIFACT.id\n"
-                        + "inner join MAVEN_DEPENDENCY on (MAVEN_DEPENDENCY.artifact_id = MAVEN_ARTIFACT.id and MAVEN_DEPENDENCY.ignore_upstream_triggers = false)\n"
-                        + "inner join JENKINS_BUILD as downstream_build on MAVEN_DEPENDENCY.build_id = downstream_build.id\n"
+                        + "inner join DEPENDENCY_SET_MEMBER on (DEPENDENCY_SET_MEMBER.artifact_id = MAVEN_ARTIFACT.id and DEPENDENCY_SET_MEMBER.ignore_upstream_triggers = false)\n"
+                        + "inner join JENKINS_BUILD as downstream_build on DEPENDENCY_SET_MEMBER.dependency_set_id = downstream_build.dependency_set_id\n"
                         + "where downstream_build.job_id = ? and downstream_build.number = ? and upstream_job.jenkins_master_id = ?";
 
         Map<String, Integer> upstreamJobsFullNames = new HashMap<>();
@@ -1482,7 +2870,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
             sql, downstreamJobFullName, downstreamBuildNumber
         });
 
-        try (Connection cnn = ds.getConnection()) {
+        try (Connection cnn = getReadConnection(downstreamJobFullName)) {
             try (PreparedStatement stmt = cnn.prepareStatement(sql)) {
                 stmt.setLong(1, jobPrimaryKey);
                 stmt.setInt(2, downstreamBuildNumber);
@@ -1524,7 +2912,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
             sql, downstreamJobFullName, downstreamBuildNumber
         });
 
-        try (Connection cnn = ds.getConnection()) {
+        try (Connection cnn = getReadConnection(downstreamJobFullName)) {
             try (PreparedStatement stmt = cnn.prepareStatement(sql)) {
                 stmt.setString(1, downstreamJobFullName);
                 stmt.setLong(2, getJenkinsMasterPrimaryKey(cnn));
@@ -1548,16 +2936,111 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
 
     @NonNull
     public Map<String, Integer> listTransitiveUpstreamJobs(@NonNull String jobFullName, int buildNumber) {
-        UpstreamMemory upstreamMemory = new UpstreamMemory();
-        return listTransitiveUpstreamJobs(jobFullName, buildNumber, new HashMap<>(), 0, upstreamMemory);
+        return listTransitiveUpstreamJobs(jobFullName, buildNumber, new UpstreamMemory());
     }
 
     @NonNull
     public Map<String, Integer> listTransitiveUpstreamJobs(
             @NonNull String jobFullName, int buildNumber, UpstreamMemory upstreamMemory) {
+        InMemoryDependencyGraph graph = getDependencyGraph();
+        if (graph != null) {
+            // same depth as the recursive query and the iterative evaluation
+            Map<String, Integer> transitiveUpstreamJobs =
+                    graph.listTransitiveUpstreamJobs(jobFullName, buildNumber, OPTIMIZATION_MAX_RECURSION_DEPTH + 1);
+            if (transitiveUpstreamJobs != null) {
+                return transitiveUpstreamJobs;
+            }
+        }
+        if (!OPTIMIZATION_RECURSIVE_QUERY_DISABLED && !getRecursiveQueryUnion().isEmpty()) {
+            try {
+                return listTransitiveUpstreamJobsWithRecursiveQuery(jobFullName, buildNumber);
+            } catch (RuntimeSqlException e) {
+                LOGGER.log(
+                        Level.WARNING,
+                        "Failure to list the transitive upstream jobs with a recursive query, "
+                                + "fall back to the iterative evaluation",
+                        e);
+                recursiveQueryUnion = "";
+            }
+        }
         return listTransitiveUpstreamJobs(jobFullName, buildNumber, new HashMap<>(), 0, upstreamMemory);
     }
 
+    /**
+     * Evaluate the transitive closure of the upstream jobs with a single {@code WITH RECURSIVE} query.
+     * <p>
+     * The traversal follows the same edges as {@link #listUpstreamJobs(String, int)} (Maven dependencies and parent
+     * projects produced by the last successful build of the upstream jobs) and stops at the same depth as the
+     * iterative evaluation. Cycles are bounded by this depth, the jobs reached by several paths are deduplicated by
+     * the {@code UNION} on the databases supporting it.
+     */
+    @NonNull
+    protected Map<String, Integer> listTransitiveUpstreamJobsWithRecursiveQuery(
+            @NonNull String jobFullName, int buildNumber) {
+        LOGGER.log(Level.FINER, "listTransitiveUpstreamJobsWithRecursiveQuery({0}, {1})", new Object[] {
+            jobFullName, buildNumber
+        });
+
+        String union = getRecursiveQueryUnion();
+        if (union.isEmpty()) {
+            throw new IllegalStateException("Recursive queries are not supported by " + getDatabaseDescription());
+        }
+        // the direct upstream jobs depend on the given build, the next levels on the last successful builds
+        // described by JOB_DEPENDENCY_EDGE
+        String directUpstreamJobsSql = "    SELECT upstream_job.ID, 1 FROM JENKINS_JOB AS downstream_job\n"
+                + "    INNER JOIN JENKINS_BUILD AS downstream_build ON (downstream_build.JOB_ID = downstream_job.ID and downstream_build.NUMBER = ?)\n"
+                + "    %s\n"
+                + "    INNER JOIN GENERATED_MAVEN_ARTIFACT ON (GENERATED_MAVEN_ARTIFACT.ARTIFACT_ID = consumed_artifact.ARTIFACT_ID and GENERATED_MAVEN_ARTIFACT.SKIP_DOWNSTREAM_TRIGGERS = false)\n"
+                + "    INNER JOIN JENKINS_BUILD AS upstream_build ON upstream_build.ID = GENERATED_MAVEN_ARTIFACT.BUILD_ID\n"
+                + "    INNER JOIN JENKINS_JOB AS upstream_job ON (upstream_job.ID = upstream_build.JOB_ID and upstream_job.LAST_SUCCESSFUL_BUILD_NUMBER = upstream_build.NUMBER)\n"
+                + "    WHERE downstream_job.FULL_NAME = ? and downstream_job.JENKINS_MASTER_ID = ? and upstream_job.JENKINS_MASTER_ID = ?\n";
+        String sql = "WITH RECURSIVE TRANSITIVE_UPSTREAM_JOB(JOB_ID, RECURSION_DEPTH) AS (\n"
+                + String.format(
+                        directUpstreamJobsSql,
+                        "INNER JOIN DEPENDENCY_SET_MEMBER AS consumed_artifact ON (consumed_artifact.DEPENDENCY_SET_ID = downstream_build.DEPENDENCY_SET_ID and consumed_artifact.IGNORE_UPSTREAM_TRIGGERS = false)")
+                + "    UNION\n"
+                + String.format(
+                        directUpstreamJobsSql,
+                        "INNER JOIN MAVEN_PARENT_PROJECT AS consumed_artifact ON (consumed_artifact.BUILD_ID = downstream_build.ID and consumed_artifact.IGNORE_UPSTREAM_TRIGGERS = false)")
+                + "    " + union + "\n"
+                + "    SELECT upstream_job.ID, TRANSITIVE_UPSTREAM_JOB.RECURSION_DEPTH + 1 FROM TRANSITIVE_UPSTREAM_JOB\n"
+                + "    INNER JOIN JOB_DEPENDENCY_EDGE ON JOB_DEPENDENCY_EDGE.DOWNSTREAM_JOB_ID = TRANSITIVE_UPSTREAM_JOB.JOB_ID\n"
+                + "    INNER JOIN JENKINS_JOB AS upstream_job ON upstream_job.ID = JOB_DEPENDENCY_EDGE.UPSTREAM_JOB_ID\n"
+                + "    WHERE TRANSITIVE_UPSTREAM_JOB.RECURSION_DEPTH <= ? and upstream_job.JENKINS_MASTER_ID = ?\n"
+                + ")\n"
+                + "SELECT DISTINCT JENKINS_JOB.FULL_NAME, JENKINS_JOB.LAST_SUCCESSFUL_BUILD_NUMBER FROM TRANSITIVE_UPSTREAM_JOB\n"
+                + "INNER JOIN JENKINS_JOB ON TRANSITIVE_UPSTREAM_JOB.JOB_ID = JENKINS_JOB.ID\n"
+                + "WHERE JENKINS_JOB.FULL_NAME <> ?";
+
+        Map<String, Integer> transitiveUpstreamBuilds = new HashMap<>();
+        try (Connection cnn = getReadConnection(jobFullName)) {
+            try (PreparedStatement stmt = cnn.prepareStatement(sql)) {
+                long jenkinsMasterPrimaryKey = getJenkinsMasterPrimaryKey(cnn);
+                int idx = 1;
+                for (int i = 0; i < 2; i++) {
+                    stmt.setInt(idx++, buildNumber);
+                    stmt.setString(idx++, jobFullName);
+                    stmt.setLong(idx++, jenkinsMasterPrimaryKey);
+                    stmt.setLong(idx++, jenkinsMasterPrimaryKey);
+                }
+                stmt.setInt(idx++, OPTIMIZATION_MAX_RECURSION_DEPTH);
+                stmt.setLong(idx++, jenkinsMasterPrimaryKey);
+                stmt.setString(idx, jobFullName);
+                try (ResultSet rst = stmt.executeQuery()) {
+                    while (rst.next()) {
+                        transitiveUpstreamBuilds.put(rst.getString(1), rst.getInt(2));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
+        }
+        LOGGER.log(Level.FINE, "listTransitiveUpstreamJobsWithRecursiveQuery({0}, {1}): {2}", new Object[] {
+            jobFullName, buildNumber, transitiveUpstreamBuilds
+        });
+        return transitiveUpstreamBuilds;
+    }
+
     private Map<String, Integer> listTransitiveUpstreamJobs(
             @NonNull String jobFullName,
             int buildNumber,
@@ -1577,7 +3060,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                             upstreamJobFullName,
                             upstreamBuildNumber,
                             transitiveUpstreamBuilds,
-                            recursionDepth++,
+                            recursionDepth + 1,
                             upstreamMemory);
                 }
             }
@@ -1585,6 +3068,41 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
         return transitiveUpstreamBuilds;
     }
 
+    /**
+     * @return {@code UNION} operator of the {@code WITH RECURSIVE} queries, empty if the database does not support
+     * recursive queries
+     */
+    @NonNull
+    private String getRecursiveQueryUnion() {
+        String union = recursiveQueryUnion;
+        if (union == null) {
+            try (Connection cnn = ds.getConnection()) {
+                DatabaseMetaData metaData = cnn.getMetaData();
+                if (!isRecursiveQuerySupported(metaData)) {
+                    union = "";
+                } else if ("H2".equals(metaData.getDatabaseProductName())) {
+                    // H2 only supports UNION ALL in recursive queries, duplicate paths are then only bounded by the
+                    // recursion depth
+                    union = "UNION ALL";
+                } else {
+                    union = "UNION";
+                }
+            } catch (SQLException e) {
+                throw new RuntimeSqlException(e);
+            }
+            LOGGER.log(Level.FINE, "Recursive queries union operator: \"{0}\"", union);
+            recursiveQueryUnion = union;
+        }
+        return union;
+    }
+
+    /**
+     * @return {@code true} if the database supports {@code WITH RECURSIVE} common table expressions
+     */
+    protected boolean isRecursiveQuerySupported(@NonNull DatabaseMetaData metaData) throws SQLException {
+        return true;
+    }
+
     /**
      * List the artifacts generated by the given build
      *
@@ -1608,7 +3126,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                         + "   UPSTREAM_BUILD.NUMBER = ? ";
 
         List<MavenArtifact> results = new ArrayList<>();
-        try (Connection cnn = this.ds.getConnection()) {
+        try (Connection cnn = getReadConnection(jobFullName)) {
             try (PreparedStatement stmt = cnn.prepareStatement(generatedArtifactsSql)) {
                 stmt.setString(1, jobFullName);
                 stmt.setLong(2, getJenkinsMasterPrimaryKey(cnn));
@@ -1646,9 +3164,83 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
         return results;
     }
 
+    /**
+     * Bulk variant of {@link #getGeneratedArtifacts(String, int)}, one query per chunk of
+     * {@code BULK_QUERY_MAX_BUILDS} builds
+     */
+    @NonNull
+    @Override
+    public Map<String, List<MavenArtifact>> getGeneratedArtifacts(
+            @NonNull Map<String, Integer> buildNumbersByJobFullName) {
+        LOGGER.log(Level.FINER, "getGeneratedArtifacts({0})", new Object[] {buildNumbersByJobFullName});
+
+        Map<String, List<MavenArtifact>> results = new HashMap<>();
+        List<Entry<String, Integer>> builds = new ArrayList<>(buildNumbersByJobFullName.entrySet());
+        builds.forEach(build -> results.put(build.getKey(), new ArrayList<>()));
+        try (Connection cnn = getReadConnection(buildNumbersByJobFullName.keySet())) {
+            long jenkinsMasterPrimaryKey = getJenkinsMasterPrimaryKey(cnn);
+            for (int fromIndex = 0; fromIndex < builds.size(); fromIndex += BULK_QUERY_MAX_BUILDS) {
+                List<Entry<String, Integer>> chunk =
+                        builds.subList(fromIndex, Math.min(fromIndex + BULK_QUERY_MAX_BUILDS, builds.size()));
+                StringBuilder generatedArtifactsSql = new StringBuilder(
+                        "SELECT DISTINCT UPSTREAM_JOB.FULL_NAME, UPSTREAM_BUILD.NUMBER, MAVEN_ARTIFACT.group_id, MAVEN_ARTIFACT.artifact_id, MAVEN_ARTIFACT.type, MAVEN_ARTIFACT.classifier, MAVEN_ARTIFACT.version as base_version, "
+                                + "GENERATED_MAVEN_ARTIFACT.version as version, GENERATED_MAVEN_ARTIFACT.repository_url, GENERATED_MAVEN_ARTIFACT.extension"
+                                + " FROM MAVEN_ARTIFACT "
+                                + " INNER JOIN GENERATED_MAVEN_ARTIFACT ON MAVEN_ARTIFACT.ID = GENERATED_MAVEN_ARTIFACT.ARTIFACT_ID"
+                                + " INNER JOIN JENKINS_BUILD AS UPSTREAM_BUILD ON GENERATED_MAVEN_ARTIFACT.BUILD_ID = UPSTREAM_BUILD.ID "
+                                + " INNER JOIN JENKINS_JOB AS UPSTREAM_JOB ON UPSTREAM_BUILD.JOB_ID = UPSTREAM_JOB.ID "
+                                + " WHERE "
+                                + "   UPSTREAM_JOB.JENKINS_MASTER_ID = ? AND (");
+                for (int i = 0; i < chunk.size(); i++) {
+                    generatedArtifactsSql
+                            .append(i == 0 ? "" : " OR ")
+                            .append("(UPSTREAM_JOB.FULL_NAME = ? AND UPSTREAM_BUILD.NUMBER = ?)");
+                }
+                generatedArtifactsSql.append(")");
+
+                try (PreparedStatement stmt = cnn.prepareStatement(generatedArtifactsSql.toString())) {
+                    int idx = 1;
+                    stmt.setLong(idx++, jenkinsMasterPrimaryKey);
+                    for (Entry<String, Integer> build : chunk) {
+                        stmt.setString(idx++, build.getKey());
+                        stmt.setInt(idx++, build.getValue());
+                    }
+                    try (ResultSet rst = stmt.executeQuery()) {
+                        while (rst.next()) {
+                            MavenArtifact artifact = new MavenArtifact();
+
+                            artifact.setGroupId(rst.getString("group_id"));
+                            artifact.setArtifactId(rst.getString("artifact_id"));
+                            artifact.setBaseVersion(rst.getString("base_version"));
+                            artifact.setType(rst.getString("type"));
+                            artifact.setClassifier(rst.getString("classifier"));
+
+                            String version = rst.getString("version");
+                            if (version == null || version.isEmpty()) {
+                                version = rst.getString("base_version");
+                            }
+                            artifact.setVersion(version);
+                            artifact.setRepositoryUrl(rst.getString("repository_url"));
+                            artifact.setExtension(rst.getString("extension"));
+                            artifact.setSnapshot(artifact.getVersion().endsWith("-SNAPSHOT"));
+
+                            results.computeIfAbsent(rst.getString(1), jobFullName -> new ArrayList<>()).add(artifact);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
+        }
+
+        results.values().forEach(Collections::sort);
+        return results;
+    }
+
     @NonNull
-    public synchronized Long getJenkinsMasterPrimaryKey(Connection cnn) throws SQLException {
-        if (this.jenkinsMasterPrimaryKey == null) {
+    public Long getJenkinsMasterPrimaryKey(Connection cnn) throws SQLException {
+        Long primaryKey = this.jenkinsMasterPrimaryKey;
+        if (primaryKey == null) {
             String jenkinsMasterLegacyInstanceId = getJenkinsDetails().getMasterLegacyInstanceId();
             String jenkinsMasterUrl = getJenkinsDetails().getMasterRootUrl();
 
@@ -1658,19 +3250,20 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 stmt.setString(1, jenkinsMasterLegacyInstanceId);
                 try (ResultSet rst = stmt.executeQuery()) {
                     if (rst.next()) {
-                        this.jenkinsMasterPrimaryKey = rst.getLong("ID");
+                        primaryKey = rst.getLong("ID");
                         jenkinsMasterUrlValueInDb = rst.getString("URL");
                     }
                 }
             }
-            if (this.jenkinsMasterPrimaryKey == null) { // NOT FOUND IN DB
-                try (PreparedStatement stmt = cnn.prepareStatement(
-                        "INSERT INTO JENKINS_MASTER(LEGACY_INSTANCE_ID, URL) values (?, ?)",
-                        Statement.RETURN_GENERATED_KEYS)) {
-                    stmt.setString(1, jenkinsMasterLegacyInstanceId);
-                    stmt.setString(2, jenkinsMasterUrl);
-                    stmt.execute();
-                    this.jenkinsMasterPrimaryKey = getGeneratedPrimaryKey(stmt, "ID");
+            if (primaryKey == null) { // NOT FOUND IN DB
+                try {
+                    primaryKey = getOrInsertPrimaryKey(
+                            cnn,
+                            "JENKINS_MASTER",
+                            Collections.singletonList("LEGACY_INSTANCE_ID"),
+                            Collections.singletonList(jenkinsMasterLegacyInstanceId),
+                            Collections.singletonList("URL"),
+                            Collections.singletonList(jenkinsMasterUrl));
                 } finally {
                     cnn.commit();
                 }
@@ -1683,19 +3276,21 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                     try (PreparedStatement stmt =
                             cnn.prepareStatement("UPDATE JENKINS_MASTER set URL = ? where ID = ?")) {
                         stmt.setString(1, jenkinsMasterUrl);
-                        stmt.setLong(2, this.jenkinsMasterPrimaryKey);
+                        stmt.setLong(2, primaryKey);
                         int count = stmt.executeUpdate();
                         if (count != 1) {
                             LOGGER.warning("Updated more/less than 1 JENKINS_MASTER.URL=" + jenkinsMasterUrl
-                                    + " for ID=" + this.jenkinsMasterPrimaryKey);
+                                    + " for ID=" + primaryKey);
                         }
                     } finally {
                         cnn.commit();
                     }
                 }
             }
+            // concurrent callers may resolve the primary key at the same time, they all get the same value
+            this.jenkinsMasterPrimaryKey = primaryKey;
         }
-        return this.jenkinsMasterPrimaryKey;
+        return primaryKey;
     }
 
     /**
@@ -1705,40 +3300,91 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
         return new MigrationStep.JenkinsDetails();
     }
 
+    /**
+     * Approximate number of rows by table from the catalog statistics, refreshed every
+     * {@code ROW_COUNTS_REFRESH_INTERVAL_IN_MILLIS}
+     *
+     * @return empty if the statistics can't be read
+     */
+    @NonNull
+    protected Map<String, Long> getApproximateRowCounts() {
+        Map<String, Long> approximateRowCounts = this.approximateRowCounts;
+        if (approximateRowCounts != null
+                && System.currentTimeMillis() - approximateRowCountsTimestamp < ROW_COUNTS_REFRESH_INTERVAL_IN_MILLIS) {
+            return approximateRowCounts;
+        }
+        approximateRowCounts = new HashMap<>();
+        try (Connection cnn = ds.getConnection()) {
+            try (Statement stmt = cnn.createStatement()) {
+                try (ResultSet rst = stmt.executeQuery(getApproximateRowCountsSql())) {
+                    while (rst.next()) {
+                        String table = rst.getString(1);
+                        long count = rst.getLong(2);
+                        // PostgreSQL reports -1 for the tables that have never been analyzed
+                        if (TABLES.contains(table) && count >= 0) {
+                            approximateRowCounts.put(table, count);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "SQLException reading the row counts from the catalog statistics", e);
+        }
+        this.approximateRowCounts = approximateRowCounts;
+        this.approximateRowCountsTimestamp = System.currentTimeMillis();
+        return approximateRowCounts;
+    }
+
+    /**
+     * Count the rows of each table with {@code count(*)}, scanning the tables
+     */
+    @NonNull
     @Override
-    public String toPrettyString() {
-        List<String> prettyStrings = new ArrayList<>();
+    public Map<String, Long> countRows() {
+        LOGGER.log(Level.FINE, "countRows()");
+        Map<String, Long> rowCounts = new LinkedHashMap<>();
         try (Connection cnn = ds.getConnection()) {
-            prettyStrings.add("JDBC URL: " + cnn.getMetaData().getURL());
-            List<String> tables = Arrays.asList(
-                    "JENKINS_MASTER",
-                    "MAVEN_ARTIFACT",
-                    "JENKINS_JOB",
-                    "JENKINS_BUILD",
-                    "MAVEN_DEPENDENCY",
-                    "GENERATED_MAVEN_ARTIFACT",
-                    "MAVEN_PARENT_PROJECT",
-                    "JENKINS_BUILD_UPSTREAM_CAUSE");
-            for (String table : tables) {
+            for (String table : TABLES) {
                 try (Statement stmt = cnn.createStatement()) {
                     try (ResultSet rst = stmt.executeQuery("SELECT count(*) FROM " + table)) {
-                        if (rst.next()) {
-                            int count = rst.getInt(1);
-                            prettyStrings.add("Table " + table + ": " + count + " rows");
-                        } else {
-                            prettyStrings.add("Table " + table
-                                    + ": #IllegalStateException 'select count(*)' didn't return any row#");
-                        }
+                        rst.next();
+                        rowCounts.put(table, rst.getLong(1));
                     }
-                } catch (SQLException e) {
-                    prettyStrings.add("Table " + table + ": " + e);
-                    LOGGER.log(Level.WARNING, "SQLException counting rows on " + table, e);
                 }
             }
+        } catch (SQLException e) {
+            throw new RuntimeSqlException(e);
+        }
+        return rowCounts;
+    }
+
+    /**
+     * The row counts are approximate, see {@link #getApproximateRowCounts()} and {@link #countRows()} for the exact
+     * counts
+     */
+    @Override
+    public String toPrettyString() {
+        List<String> prettyStrings = new ArrayList<>();
+        try (Connection cnn = ds.getConnection()) {
+            prettyStrings.add("JDBC URL: " + cnn.getMetaData().getURL());
         } catch (SQLException e) {
             prettyStrings.add("SQLException getting a connection to " + ds + ": " + e);
             LOGGER.log(Level.WARNING, "SQLException getting a connection to " + ds, e);
         }
+        Map<String, Long> approximateRowCounts = getApproximateRowCounts();
+        for (String table : TABLES) {
+            Long count = approximateRowCounts.get(table);
+            prettyStrings.add("Table " + table + ": " + (count == null ? "unknown number of" : "~" + count) + " rows");
+        }
+
+        for (IncrementalOrphanCleanup orphanCleanup : orphanCleanups) {
+            prettyStrings.add(orphanCleanup.toPrettyString());
+        }
+        prettyStrings.add(dependencyGraph.toPrettyString());
+        if (readReplicaDs != null) {
+            prettyStrings.add("Read replica: " + readReplicaDs + ", " + recentlyWrittenJobs.size()
+                    + " recently written jobs read from the primary database");
+        }
 
         StringBuilder result = new StringBuilder(
                 StringUtils.substringAfterLast(getClass().getName(), ".") + " - " + getDatabaseDescription());
@@ -1770,8 +3416,10 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                 new Object[] {jobFullName, buildNumber, buildResultOrdinal, startTimeInMillis, durationInMillis});
         long buildPrimaryKey = getOrCreateBuildPrimaryKey(jobFullName, buildNumber);
 
+        recentlyWrittenJobs.written(jobFullName);
         try (Connection cnn = ds.getConnection()) {
             cnn.setAutoCommit(false);
+            Long jobPrimaryKey = null;
             try (PreparedStatement stmt = cnn.prepareStatement("UPDATE JENKINS_BUILD "
                     + "SET RESULT_ID = ?, START_TIME = ?, DURATION_IN_MILLIS = ? " + "WHERE ID = ?")) {
                 stmt.setInt(1, buildResultOrdinal);
@@ -1803,6 +3451,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
                                         + ") for " + jobFullName + "#" + buildNumber);
                     }
                 }
+                jobPrimaryKey = refreshJobDependencyEdgesIfLastSuccessfulBuild(cnn, buildPrimaryKey);
             } else {
                 try (PreparedStatement stmt = cnn.prepareStatement(
                         "UPDATE JENKINS_JOB set LAST_BUILD_NUMBER = ? where FULL_NAME = ?  and JENKINS_MASTER_ID = ?")) {
@@ -1820,6 +3469,7 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
             }
 
             cnn.commit();
+            reloadDependencyGraph(cnn, jobPrimaryKey);
         } catch (SQLException e) {
             throw new RuntimeSqlException(
                     "Exception updating build " + jobFullName + "#" + buildNumber + " with result "
@@ -1833,8 +3483,74 @@ public abstract class AbstractPipelineMavenPluginDao implements PipelineMavenPlu
         return ds;
     }
 
+    /**
+     * Route the read-only queries to the given read replica, the writes, the migrations and the reads of the jobs
+     * written during the last {@code READ_REPLICA_READ_YOUR_WRITES_WINDOW_IN_MILLIS} stay on the primary database
+     *
+     * @param readReplicaDs {@code null} to use the primary database for all the queries
+     */
+    void setReadReplicaDataSource(@Nullable DataSource readReplicaDs) {
+        if (readReplicaDs != null) {
+            // the read-only queries need the primary key of this Jenkins master, created on the primary if missing
+            try (Connection cnn = ds.getConnection()) {
+                getJenkinsMasterPrimaryKey(cnn);
+            } catch (SQLException e) {
+                throw new RuntimeSqlException(e);
+            }
+        }
+        this.readReplicaDs = readReplicaDs;
+    }
+
+    /**
+     * @param jobFullName job read by the query, {@code null} if the query does not read a specific job
+     * @return a connection to the read replica unless the given job has been recently written
+     */
+    @NonNull
+    protected Connection getReadConnection(@Nullable String jobFullName) throws SQLException {
+        return getReadConnection(jobFullName == null ? Collections.emptyList() : Collections.singleton(jobFullName));
+    }
+
+    /**
+     * @param jobFullNames jobs read by the query
+     * @return a connection to the read replica unless one of the given jobs has been recently written, a connection
+     * to the primary database if the read replica is not reachable
+     */
+    @NonNull
+    protected Connection getReadConnection(@NonNull Collection<String> jobFullNames) throws SQLException {
+        return getReadConnection(recentlyWrittenJobs.isAnyRecentlyWritten(jobFullNames));
+    }
+
+    /**
+     * Variant of {@link #getReadConnection(Collection)} for the queries keyed by artifact, the jobs they read are only
+     * known from their results
+     *
+     * @return a connection to the read replica unless any job has been recently written
+     */
+    @NonNull
+    protected Connection getReadConnectionForAnyJob() throws SQLException {
+        return getReadConnection(recentlyWrittenJobs.isAnyJobRecentlyWritten());
+    }
+
+    @NonNull
+    private Connection getReadConnection(boolean recentlyWritten) throws SQLException {
+        DataSource readReplicaDs = this.readReplicaDs;
+        if (readReplicaDs == null || recentlyWritten) {
+            return ds.getConnection();
+        }
+        try {
+            return readReplicaDs.getConnection();
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failure to connect to the read replica, fall back to the primary database", e);
+            return ds.getConnection();
+        }
+    }
+
     @Override
     public void close() throws IOException {
+        if (this.readReplicaDs instanceof Closeable) {
+            Closeable closeable = (Closeable) this.readReplicaDs;
+            closeable.close();
+        }
         if (this.ds instanceof Closeable) {
             Closeable closeable = (Closeable) this.ds;
             closeable.close();
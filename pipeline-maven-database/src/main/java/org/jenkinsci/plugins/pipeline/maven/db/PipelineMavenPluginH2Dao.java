@@ -30,9 +30,12 @@ import hudson.Extension;
 import java.io.File;
 import java.io.IOException;
 import java.sql.Connection;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import javax.sql.DataSource;
 import jenkins.model.Jenkins;
@@ -85,32 +88,44 @@ public class PipelineMavenPluginH2Dao extends AbstractPipelineMavenPluginDao {
         return "h2";
     }
 
+    /**
+     * {@code INSERT ... SELECT ... WHERE NOT EXISTS}, unlike H2 {@code MERGE ... KEY(...)} an existing row is left
+     * untouched. The key values are bound a second time for the {@code NOT EXISTS} sub query.
+     */
+    @Override
+    protected String getInsertIfAbsentSql(
+            @NonNull String table, @NonNull List<String> keyColumns, @NonNull List<String> otherColumns) {
+        List<String> columns = new ArrayList<>(keyColumns);
+        columns.addAll(otherColumns);
+        return "INSERT INTO " + table + "(" + String.join(", ", columns) + ") SELECT "
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + " WHERE NOT EXISTS (SELECT ID FROM "
+                + table + " WHERE " + String.join(" = ? AND ", keyColumns) + " = ?)";
+    }
+
+    @NonNull
+    @Override
+    protected List<?> getInsertIfAbsentParameters(@NonNull List<?> keyValues, @NonNull List<?> otherValues) {
+        List<Object> values = new ArrayList<>(keyValues);
+        values.addAll(otherValues);
+        values.addAll(keyValues);
+        return values;
+    }
+
+    @Override
+    protected String getApproximateRowCountsSql() {
+        return "SELECT UPPER(TABLE_NAME), ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = CURRENT_SCHEMA";
+    }
+
     @Override
     public boolean isEnoughProductionGradeForTheWorkload() {
-        try (Connection cnn = getDataSource().getConnection()) {
-            try (Statement stmt = cnn.createStatement()) {
-                try (ResultSet rst = stmt.executeQuery("select count(*) from MAVEN_DEPENDENCY")) {
-                    rst.next();
-                    int count = rst.getInt(1);
-                    if (count > 100) {
-                        return false;
-                    }
-                }
-            }
-            try (Statement stmt = cnn.createStatement()) {
-                try (ResultSet rst = stmt.executeQuery("select count(*) from GENERATED_MAVEN_ARTIFACT")) {
-                    rst.next();
-                    int count = rst.getInt(1);
-                    if (count > 100) {
-                        return false;
-                    }
-                }
-            }
-            return true;
-        } catch (SQLException e) {
-            LOGGER.log(Level.INFO, "Exception counting rows", e);
+        // read the catalog statistics rather than scanning the tables at each startup
+        Map<String, Long> approximateRowCounts = getApproximateRowCounts();
+        if (approximateRowCounts.isEmpty()) {
+            LOGGER.log(Level.INFO, "No row counts available, H2 is considered not enough production grade");
             return false;
         }
+        return approximateRowCounts.getOrDefault("DEPENDENCY_SET_MEMBER", 0L) <= 100
+                && approximateRowCounts.getOrDefault("GENERATED_MAVEN_ARTIFACT", 0L) <= 100;
     }
 
     @Override
@@ -0,0 +1,971 @@
+package org.jenkinsci.plugins.pipeline.maven.db;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import hudson.Extension;
+import hudson.model.Result;
+import hudson.util.FormValidation;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
+import org.jenkinsci.plugins.pipeline.maven.MavenDependency;
+import org.jenkinsci.plugins.pipeline.maven.dao.CachingPipelineMavenPluginDaoDecorator;
+import org.jenkinsci.plugins.pipeline.maven.dao.CustomTypePipelineMavenPluginDaoDecorator;
+import org.jenkinsci.plugins.pipeline.maven.dao.DependencyGraphDump;
+import org.jenkinsci.plugins.pipeline.maven.dao.MonitoringPipelineMavenPluginDaoDecorator;
+import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginDao;
+import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginNullDao;
+import org.jenkinsci.plugins.pipeline.maven.dao.UpstreamMemory;
+
+/**
+ * Embedded storage of the dependency graph in an H2 {@link MVStore} file, without SQL engine and without external
+ * service.
+ * <p>
+ * The graph is stored in key-value maps designed for the lookups of the plugin rather than in normalized tables:
+ * <ul>
+ *     <li>{@code jobs}: last build number and last successful build number by job</li>
+ *     <li>{@code builds}, {@code dependencies}, {@code parentProjects}, {@code generatedArtifacts},
+ *     {@code upstreamCauses}: details of each build by build key ({@code jobFullName#buildNumber})</li>
+ *     <li>{@code dependencyConsumers}, {@code parentProjectConsumers}, {@code producers}: index of the last successful
+ *     build of each job by artifact, keyed by {@code artifact + job} so that the jobs of an artifact are listed with a
+ *     range scan and a job is added or removed without rewriting the whole list</li>
+ * </ul>
+ * Writes are serialized, reads are lock-free. Changes are persisted by the background writer of the store, at most
+ * one second after the write, and when the DAO is closed.
+ */
+@Extension
+public class PipelineMavenPluginMVStoreDao implements PipelineMavenPluginDao {
+
+    private static final Logger LOGGER = Logger.getLogger(PipelineMavenPluginMVStoreDao.class.getName());
+
+    private static final int OPTIMIZATION_MAX_RECURSION_DEPTH = Integer.getInteger(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.OPTIMIZATION_MAX_RECURSION_DEPTH", 3);
+
+    private static final String STORE_FILE_NAME = "pipeline-maven-graph.mv";
+
+    /**
+     * Separator of the fields of an encoded artifact, Maven coordinates don't contain control characters
+     */
+    private static final char FIELD_SEPARATOR = '\u001f';
+
+    /**
+     * Separator of the artifact and of the job in the keys of the artifact indexes
+     */
+    private static final char INDEX_KEY_SEPARATOR = '\u001e';
+
+    private static final String NULL_FIELD = "\u0000";
+
+    private static final int NO_BUILD = 0;
+
+    private static final long NO_RESULT = -1;
+
+    private MVStore store;
+
+    @Nullable
+    private String fileName;
+
+    /**
+     * {@code [lastBuildNumber, lastSuccessfulBuildNumber]} by job full name, {@link #NO_BUILD} if there is none
+     */
+    private MVMap<String, int[]> jobs;
+
+    /**
+     * {@code [resultOrdinal, startTimeInMillis, durationInMillis]} by build key, {@link #NO_RESULT} until the build is
+     * completed
+     */
+    private MVMap<String, long[]> builds;
+
+    /**
+     * Sorted encoded {@code groupId, artifactId, baseVersion, type, classifier, scope, ignoreUpstreamTriggers} by
+     * build key
+     */
+    private MVMap<String, String[]> dependencies;
+
+    /**
+     * Sorted encoded {@code groupId, artifactId, version, ignoreUpstreamTriggers} by build key
+     */
+    private MVMap<String, String[]> parentProjects;
+
+    /**
+     * Sorted encoded {@code groupId, artifactId, baseVersion, type, classifier, version, repositoryUrl, extension,
+     * skipDownstreamTriggers} by build key
+     */
+    private MVMap<String, String[]> generatedArtifacts;
+
+    /**
+     * Sorted upstream build keys by downstream build key
+     */
+    private MVMap<String, String[]> upstreamCauses;
+
+    /**
+     * Jobs whose last successful build depends on an artifact, without the dependencies ignoring upstream triggers
+     */
+    private MVMap<String, Boolean> dependencyConsumers;
+
+    /**
+     * Jobs whose last successful build has an artifact as parent project, without the parent projects ignoring
+     * upstream triggers
+     */
+    private MVMap<String, Boolean> parentProjectConsumers;
+
+    /**
+     * Jobs whose last successful build generated an artifact, without the artifacts skipping downstream triggers
+     */
+    private MVMap<String, Boolean> producers;
+
+    public PipelineMavenPluginMVStoreDao() {
+        super();
+    }
+
+    public PipelineMavenPluginMVStoreDao(@NonNull File file) {
+        this(new MVStore.Builder().fileName(file.getAbsolutePath()).compress().open());
+        this.fileName = file.getAbsolutePath();
+    }
+
+    /**
+     * @param store opened store, closed by {@link #close()}
+     */
+    public PipelineMavenPluginMVStoreDao(@NonNull MVStore store) {
+        this.store = store;
+        this.jobs = store.openMap("jobs");
+        this.builds = store.openMap("builds");
+        this.dependencies = store.openMap("dependencies");
+        this.parentProjects = store.openMap("parentProjects");
+        this.generatedArtifacts = store.openMap("generatedArtifacts");
+        this.upstreamCauses = store.openMap("upstreamCauses");
+        this.dependencyConsumers = store.openMap("dependencyConsumers");
+        this.parentProjectConsumers = store.openMap("parentProjectConsumers");
+        this.producers = store.openMap("producers");
+    }
+
+    @Override
+    public String getDescription() {
+        return Messages.dao_mvstore_description();
+    }
+
+    @Override
+    public Builder getBuilder() {
+        return new Builder() {
+            @Override
+            public PipelineMavenPluginDao build(Config config) {
+                File file = getStoreFile();
+                try {
+                    LOGGER.log(Level.INFO, "Open store {0}", new Object[] {file});
+                    return new MonitoringPipelineMavenPluginDaoDecorator(new CachingPipelineMavenPluginDaoDecorator(
+                            new CustomTypePipelineMavenPluginDaoDecorator(new PipelineMavenPluginMVStoreDao(file))));
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Exception opening store " + file + ", skip", e);
+                    return new PipelineMavenPluginNullDao();
+                }
+            }
+
+            @Override
+            public FormValidation validateConfiguration(Config config) {
+                // embedded store, the JDBC URL and the credentials are not used
+                return FormValidation.ok();
+            }
+        };
+    }
+
+    @NonNull
+    private static File getStoreFile() {
+        File storeRootDir = new File(Jenkins.get().getRootDir(), "jenkins-jobs");
+        if (!storeRootDir.exists()) {
+            boolean created = storeRootDir.mkdirs();
+            if (!created) {
+                throw new IllegalStateException("Failure to create store root dir " + storeRootDir);
+            }
+        }
+        return new File(storeRootDir, STORE_FILE_NAME);
+    }
+
+    @Override
+    public synchronized void recordDependency(
+            @NonNull String jobFullName,
+            int buildNumber,
+            @NonNull String groupId,
+            @NonNull String artifactId,
+            @NonNull String version,
+            @NonNull String type,
+            @NonNull String scope,
+            boolean ignoreUpstreamTriggers,
+            String classifier) {
+        LOGGER.log(
+                Level.FINE,
+                "recordDependency({0}#{1}, {2}:{3}:{4}:{5}, scope: {6}, ignoreUpstreamTriggers: {7})",
+                new Object[] {
+                    jobFullName, buildNumber, groupId, artifactId, version, type, scope, ignoreUpstreamTriggers
+                });
+        String buildKey = getOrCreateBuild(jobFullName, buildNumber);
+        boolean lastSuccessfulBuild = unindexIfLastSuccessfulBuild(jobFullName, buildNumber);
+        add(dependencies, buildKey, encode(
+                groupId,
+                artifactId,
+                version,
+                type,
+                classifier,
+                scope,
+                String.valueOf(ignoreUpstreamTriggers)));
+        if (lastSuccessfulBuild) {
+            index(jobFullName, buildNumber, true);
+        }
+    }
+
+    @Override
+    public synchronized void recordParentProject(
+            @NonNull String jobFullName,
+            int buildNumber,
+            @NonNull String parentGroupId,
+            @NonNull String parentArtifactId,
+            @NonNull String parentVersion,
+            boolean ignoreUpstreamTriggers) {
+        LOGGER.log(Level.FINE, "recordParentProject({0}#{1}, {2}:{3}:{4}, ignoreUpstreamTriggers: {5})", new Object[] {
+            jobFullName, buildNumber, parentGroupId, parentArtifactId, parentVersion, ignoreUpstreamTriggers
+        });
+        String buildKey = getOrCreateBuild(jobFullName, buildNumber);
+        boolean lastSuccessfulBuild = unindexIfLastSuccessfulBuild(jobFullName, buildNumber);
+        add(
+                parentProjects,
+                buildKey,
+                encode(parentGroupId, parentArtifactId, parentVersion, String.valueOf(ignoreUpstreamTriggers)));
+        if (lastSuccessfulBuild) {
+            index(jobFullName, buildNumber, true);
+        }
+    }
+
+    @Override
+    public synchronized void recordGeneratedArtifact(
+            @NonNull String jobFullName,
+            int buildNumber,
+            @NonNull String groupId,
+            @NonNull String artifactId,
+            @NonNull String version,
+            @NonNull String type,
+            @NonNull String baseVersion,
+            @Nullable String repositoryUrl,
+            boolean skipDownstreamTriggers,
+            String extension,
+            String classifier) {
+        LOGGER.log(
+                Level.FINE,
+                "recordGeneratedArtifact({0}#{1}, {2}:{3}:{4}:{5}, version: {6}, skipDownstreamTriggers: {7})",
+                new Object[] {
+                    jobFullName, buildNumber, groupId, artifactId, baseVersion, type, version, skipDownstreamTriggers
+                });
+        String buildKey = getOrCreateBuild(jobFullName, buildNumber);
+        boolean lastSuccessfulBuild = unindexIfLastSuccessfulBuild(jobFullName, buildNumber);
+        add(generatedArtifacts, buildKey, encode(
+                groupId,
+                artifactId,
+                baseVersion,
+                type,
+                classifier,
+                version,
+                repositoryUrl,
+                extension,
+                String.valueOf(skipDownstreamTriggers)));
+        if (lastSuccessfulBuild) {
+            index(jobFullName, buildNumber, true);
+        }
+    }
+
+    /**
+     * Write the dependencies, the parent projects and the generated artifacts of the build at once, the artifact
+     * indexes are updated once
+     */
+    @Override
+    public synchronized void recordBuildGraph(
+            @NonNull String jobFullName,
+            int buildNumber,
+            @NonNull List<MavenDependency> dependencies,
+            @NonNull List<MavenArtifact> parentProjects,
+            @NonNull List<MavenArtifact> generatedArtifacts,
+            boolean ignoreUpstreamTriggers,
+            boolean skipDownstreamTriggers) {
+        LOGGER.log(Level.FINE, "recordBuildGraph({0}#{1}, {2} dependencies, {3} parents, {4} generated)", new Object[] {
+            jobFullName, buildNumber, dependencies.size(), parentProjects.size(), generatedArtifacts.size()
+        });
+        String buildKey = getOrCreateBuild(jobFullName, buildNumber);
+        boolean lastSuccessfulBuild = unindexIfLastSuccessfulBuild(jobFullName, buildNumber);
+        List<String> encodedDependencies = new ArrayList<>();
+        for (MavenDependency dependency : dependencies) {
+            encodedDependencies.add(encode(
+                    dependency.getGroupId(),
+                    dependency.getArtifactId(),
+                    dependency.getBaseVersion(),
+                    dependency.getType(),
+                    dependency.getClassifier(),
+                    dependency.getScope(),
+                    String.valueOf(ignoreUpstreamTriggers)));
+        }
+        add(this.dependencies, buildKey, encodedDependencies);
+        List<String> encodedParentProjects = new ArrayList<>();
+        for (MavenArtifact parentProject : parentProjects) {
+            encodedParentProjects.add(encode(
+                    parentProject.getGroupId(),
+                    parentProject.getArtifactId(),
+                    parentProject.getVersion(),
+                    String.valueOf(ignoreUpstreamTriggers)));
+        }
+        add(this.parentProjects, buildKey, encodedParentProjects);
+        List<String> encodedGeneratedArtifacts = new ArrayList<>();
+        for (MavenArtifact artifact : generatedArtifacts) {
+            encodedGeneratedArtifacts.add(encode(
+                    artifact.getGroupId(),
+                    artifact.getArtifactId(),
+                    artifact.getBaseVersion(),
+                    artifact.getType(),
+                    artifact.getClassifier(),
+                    artifact.getVersion(),
+                    artifact.getRepositoryUrl(),
+                    artifact.getExtension(),
+                    String.valueOf(skipDownstreamTriggers)));
+        }
+        add(this.generatedArtifacts, buildKey, encodedGeneratedArtifacts);
+        if (lastSuccessfulBuild) {
+            index(jobFullName, buildNumber, true);
+        }
+    }
+
+    @Override
+    public synchronized void recordBuildUpstreamCause(
+            String upstreamJobName, int upstreamBuildNumber, String downstreamJobName, int downstreamBuildNumber) {
+        LOGGER.log(
+                Level.FINE,
+                "recordBuildUpstreamCause(upstreamBuild: {0}#{1}, downstreamBuild: {2}#{3})",
+                new Object[] {upstreamJobName, upstreamBuildNumber, downstreamJobName, downstreamBuildNumber});
+        String upstreamBuildKey = getOrCreateBuild(upstreamJobName, upstreamBuildNumber);
+        String downstreamBuildKey = getOrCreateBuild(downstreamJobName, downstreamBuildNumber);
+        add(upstreamCauses, downstreamBuildKey, upstreamBuildKey);
+    }
+
+    @NonNull
+    @Override
+    public List<MavenDependency> listDependencies(@NonNull String jobFullName, int buildNumber) {
+        List<MavenDependency> results = new ArrayList<>();
+        for (String[] fields : decodeAll(dependencies.get(getBuildKey(jobFullName, buildNumber)))) {
+            MavenDependency dependency = new MavenDependency();
+            dependency.setGroupId(fields[0]);
+            dependency.setArtifactId(fields[1]);
+            dependency.setVersion(fields[2]);
+            dependency.setSnapshot(dependency.getVersion().endsWith("-SNAPSHOT"));
+            dependency.setType(fields[3]);
+            dependency.setClassifier(fields[4]);
+            dependency.setScope(fields[5]);
+            if (!results.contains(dependency)) {
+                results.add(dependency);
+            }
+        }
+        Collections.sort(results);
+        return results;
+    }
+
+    @NonNull
+    @Override
+    public List<MavenArtifact> getGeneratedArtifacts(@NonNull String jobFullName, int buildNumber) {
+        List<MavenArtifact> results = new ArrayList<>();
+        for (String[] fields : decodeAll(generatedArtifacts.get(getBuildKey(jobFullName, buildNumber)))) {
+            MavenArtifact artifact = new MavenArtifact();
+            artifact.setGroupId(fields[0]);
+            artifact.setArtifactId(fields[1]);
+            artifact.setBaseVersion(fields[2]);
+            artifact.setType(fields[3]);
+            artifact.setClassifier(fields[4]);
+            String version = fields[5];
+            if (version == null || version.isEmpty()) {
+                version = fields[2];
+            }
+            artifact.setVersion(version);
+            artifact.setRepositoryUrl(fields[6]);
+            artifact.setExtension(fields[7]);
+            artifact.setSnapshot(artifact.getVersion().endsWith("-SNAPSHOT"));
+            if (!results.contains(artifact)) {
+                results.add(artifact);
+            }
+        }
+        Collections.sort(results);
+        return results;
+    }
+
+    @Override
+    public synchronized void renameJob(@NonNull String oldFullName, @NonNull String newFullName) {
+        LOGGER.log(Level.FINER, "renameJob({0}, {1})", new Object[] {oldFullName, newFullName});
+        int[] job = jobs.get(oldFullName);
+        if (job == null) {
+            LOGGER.log(Level.FINE, "No record found for job {0}", new Object[] {oldFullName});
+            return;
+        }
+        index(oldFullName, job[1], false);
+        for (String oldBuildKey : listBuildKeys(oldFullName)) {
+            String newBuildKey = getBuildKey(newFullName, getBuildNumber(oldBuildKey));
+            for (MVMap<String, ?> map : getBuildMaps()) {
+                move(map, oldBuildKey, newBuildKey);
+            }
+        }
+        jobs.remove(oldFullName);
+        jobs.put(newFullName, job);
+        index(newFullName, job[1], true);
+    }
+
+    @Override
+    public synchronized void deleteJob(@NonNull String jobFullName) {
+        LOGGER.log(Level.FINER, "deleteJob({0})", new Object[] {jobFullName});
+        int[] job = jobs.get(jobFullName);
+        if (job != null) {
+            index(jobFullName, job[1], false);
+        }
+        List<String> buildKeys = listBuildKeys(jobFullName);
+        for (String buildKey : buildKeys) {
+            removeBuild(buildKey);
+        }
+        jobs.remove(jobFullName);
+        LOGGER.log(Level.FINE, "deleteJob({0}): {1} builds", new Object[] {jobFullName, buildKeys.size()});
+    }
+
+    @Override
+    public synchronized void deleteBuild(@NonNull String jobFullName, int buildNumber) {
+        LOGGER.log(Level.FINER, "deleteBuild({0}#{1})", new Object[] {jobFullName, buildNumber});
+        int[] job = jobs.get(jobFullName);
+        if (job == null) {
+            LOGGER.log(Level.FINE, "No record found for job {0}", new Object[] {jobFullName});
+            return;
+        }
+        int lastBuildNumber = job[0];
+        int lastSuccessfulBuildNumber = job[1];
+        if (buildNumber == lastSuccessfulBuildNumber) {
+            index(jobFullName, lastSuccessfulBuildNumber, false);
+        }
+        removeBuild(getBuildKey(jobFullName, buildNumber));
+
+        if (buildNumber == lastBuildNumber || buildNumber == lastSuccessfulBuildNumber) {
+            int newLastBuildNumber = buildNumber == lastBuildNumber ? NO_BUILD : lastBuildNumber;
+            int newLastSuccessfulBuildNumber =
+                    buildNumber == lastSuccessfulBuildNumber ? NO_BUILD : lastSuccessfulBuildNumber;
+            for (String buildKey : listBuildKeys(jobFullName)) {
+                int currentBuildNumber = getBuildNumber(buildKey);
+                if (buildNumber == lastBuildNumber) {
+                    newLastBuildNumber = Math.max(newLastBuildNumber, currentBuildNumber);
+                }
+                if (buildNumber == lastSuccessfulBuildNumber
+                        && builds.get(buildKey)[0] == Result.SUCCESS.ordinal) {
+                    newLastSuccessfulBuildNumber = Math.max(newLastSuccessfulBuildNumber, currentBuildNumber);
+                }
+            }
+            jobs.put(jobFullName, new int[] {newLastBuildNumber, newLastSuccessfulBuildNumber});
+            if (buildNumber == lastSuccessfulBuildNumber) {
+                index(jobFullName, newLastSuccessfulBuildNumber, true);
+            }
+        }
+    }
+
+    @Override
+    public synchronized int pruneBuilds(int retainedBuildCount, int maxBuilds) {
+        LOGGER.log(Level.FINER, "pruneBuilds({0}, {1})", new Object[] {retainedBuildCount, maxBuilds});
+        // the last completed build is always retained
+        int minRetainedBuildCount = Math.max(1, retainedBuildCount);
+        int count = 0;
+        for (Entry<String, int[]> job : jobs.entrySet()) {
+            if (count >= maxBuilds) {
+                break;
+            }
+            int lastBuildNumber = job.getValue()[0];
+            int lastSuccessfulBuildNumber = job.getValue()[1];
+            // rank the completed builds rather than subtracting build numbers, there are gaps between the numbers
+            List<String> completedBuildKeys = new ArrayList<>();
+            for (String buildKey : listBuildKeys(job.getKey())) {
+                if (getBuildNumber(buildKey) <= lastBuildNumber) {
+                    completedBuildKeys.add(buildKey);
+                }
+            }
+            for (String buildKey :
+                    completedBuildKeys.subList(0, Math.max(0, completedBuildKeys.size() - minRetainedBuildCount))) {
+                int buildNumber = getBuildNumber(buildKey);
+                if (count >= maxBuilds) {
+                    break;
+                }
+                if (buildNumber != lastSuccessfulBuildNumber) {
+                    removeBuild(buildKey);
+                    count++;
+                }
+            }
+        }
+        LOGGER.log(Level.FINE, "pruneBuilds({0}, {1}): {2}", new Object[] {retainedBuildCount, maxBuilds, count});
+        return count;
+    }
+
+    @NonNull
+    @Override
+    @Deprecated
+    public List<String> listDownstreamJobs(@NonNull String jobFullName, int buildNumber) {
+        SortedSet<String> downstreamJobs = new TreeSet<>();
+        for (SortedSet<String> downstreamJobsOfArtifact :
+                listDownstreamJobsByArtifact(jobFullName, buildNumber).values()) {
+            downstreamJobs.addAll(downstreamJobsOfArtifact);
+        }
+        return new ArrayList<>(downstreamJobs);
+    }
+
+    @NonNull
+    @Override
+    public Map<MavenArtifact, SortedSet<String>> listDownstreamJobsByArtifact(
+            @NonNull String jobFullName, int buildNumber) {
+        Map<MavenArtifact, SortedSet<String>> results = new HashMap<>();
+        for (String[] fields : decodeAll(generatedArtifacts.get(getBuildKey(jobFullName, buildNumber)))) {
+            if (Boolean.parseBoolean(fields[8])) {
+                continue;
+            }
+            String artifactKey = encode(fields[0], fields[1], fields[2], fields[3], fields[4]);
+            SortedSet<String> downstreamJobs = listJobs(dependencyConsumers, artifactKey);
+            downstreamJobs.addAll(listJobs(parentProjectConsumers, artifactKey));
+            // JENKINS-50507 Don't return the passed job in case of pipelines consuming the artifacts they produce
+            downstreamJobs.remove(jobFullName);
+            if (downstreamJobs.isEmpty()) {
+                continue;
+            }
+            MavenArtifact artifact = new MavenArtifact();
+            artifact.setGroupId(fields[0]);
+            artifact.setArtifactId(fields[1]);
+            artifact.setBaseVersion(fields[2]);
+            artifact.setType(fields[3]);
+            artifact.setClassifier(fields[4]);
+            artifact.setVersion(fields[5]);
+            artifact.setExtension(fields[7]);
+            results.computeIfAbsent(artifact, a -> new TreeSet<>()).addAll(downstreamJobs);
+        }
+        LOGGER.log(Level.FINE, "listDownstreamJobsByArtifact({0}, {1}): {2}", new Object[] {
+            jobFullName, buildNumber, results
+        });
+        return results;
+    }
+
+    @NonNull
+    @Override
+    public SortedSet<String> listDownstreamJobs(
+            @NonNull String groupId,
+            @NonNull String artifactId,
+            @NonNull String version,
+            @Nullable String baseVersion,
+            @NonNull String type,
+            @Nullable String classifier) {
+        return listJobs(
+                dependencyConsumers,
+                encode(groupId, artifactId, baseVersion == null ? version : baseVersion, type, classifier));
+    }
+
+    @NonNull
+    @Override
+    public Map<String, Integer> listUpstreamJobs(@NonNull String jobFullName, int buildNumber) {
+        String buildKey = getBuildKey(jobFullName, buildNumber);
+        SortedSet<String> upstreamJobs = new TreeSet<>();
+        for (String[] fields : decodeAll(dependencies.get(buildKey))) {
+            if (!Boolean.parseBoolean(fields[6])) {
+                upstreamJobs.addAll(
+                        listJobs(producers, encode(fields[0], fields[1], fields[2], fields[3], fields[4])));
+            }
+        }
+        for (String[] fields : decodeAll(parentProjects.get(buildKey))) {
+            if (!Boolean.parseBoolean(fields[3])) {
+                upstreamJobs.addAll(listJobs(producers, encode(fields[0], fields[1], fields[2], "pom", null)));
+            }
+        }
+        // JENKINS-50507 Don't return the passed job in case of pipelines consuming the artifacts they produce
+        upstreamJobs.remove(jobFullName);
+
+        Map<String, Integer> results = new HashMap<>();
+        for (String upstreamJob : upstreamJobs) {
+            int[] job = jobs.get(upstreamJob);
+            if (job != null && job[1] != NO_BUILD) {
+                results.put(upstreamJob, job[1]);
+            }
+        }
+        LOGGER.log(Level.FINE, "listUpstreamJobs({0}, {1}): {2}", new Object[] {jobFullName, buildNumber, results});
+        return results;
+    }
+
+    @NonNull
+    @Override
+    public Map<String, Integer> listTransitiveUpstreamJobs(@NonNull String jobFullName, int buildNumber) {
+        return listTransitiveUpstreamJobs(jobFullName, buildNumber, new UpstreamMemory());
+    }
+
+    @NonNull
+    @Override
+    public Map<String, Integer> listTransitiveUpstreamJobs(
+            @NonNull String jobFullName, int buildNumber, UpstreamMemory upstreamMemory) {
+        return listTransitiveUpstreamJobs(jobFullName, buildNumber, new HashMap<>(), 0, upstreamMemory);
+    }
+
+    private Map<String, Integer> listTransitiveUpstreamJobs(
+            @NonNull String jobFullName,
+            int buildNumber,
+            Map<String, Integer> transitiveUpstreamBuilds,
+            int recursionDepth,
+            UpstreamMemory upstreamMemory) {
+        Map<String, Integer> upstreamBuilds = upstreamMemory.listUpstreamJobs(this, jobFullName, buildNumber);
+        for (Entry<String, Integer> upstreamBuild : upstreamBuilds.entrySet()) {
+            String upstreamJobFullName = upstreamBuild.getKey();
+            Integer upstreamBuildNumber = upstreamBuild.getValue();
+            if (!transitiveUpstreamBuilds.containsKey(upstreamJobFullName)) {
+                transitiveUpstreamBuilds.put(upstreamJobFullName, upstreamBuildNumber);
+                if (recursionDepth < OPTIMIZATION_MAX_RECURSION_DEPTH) {
+                    listTransitiveUpstreamJobs(
+                            upstreamJobFullName,
+                            upstreamBuildNumber,
+                            transitiveUpstreamBuilds,
+                            recursionDepth + 1,
+                            upstreamMemory);
+                }
+            }
+        }
+        return transitiveUpstreamBuilds;
+    }
+
+    /**
+     * Nothing to delete, artifacts are not stored apart from the builds. The store rewrites its sparse chunks in the
+     * background to reclaim disk space.
+     */
+    @Override
+    public void cleanup() {
+        store.commit();
+    }
+
+    /**
+     * Export the builds without locking the store, the builds being iterated over the snapshot of the build map taken
+     * at the beginning of the export
+     */
+    @Override
+    public long exportGraph(@NonNull OutputStream out, @NonNull LongConsumer progressListener) throws IOException {
+        LOGGER.log(Level.FINE, "exportGraph()");
+        try (DependencyGraphDump.Writer writer = new DependencyGraphDump.Writer(out, progressListener)) {
+            for (Entry<String, long[]> entry : builds.entrySet()) {
+                String buildKey = entry.getKey();
+                DependencyGraphDump.Build build = new DependencyGraphDump.Build(
+                        buildKey.substring(0, buildKey.lastIndexOf('#')), getBuildNumber(buildKey));
+                long[] result = entry.getValue();
+                if (result[0] != NO_RESULT) {
+                    build.result((int) result[0], result[1], result[2]);
+                }
+                for (String[] fields : decodeAll(dependencies.get(buildKey))) {
+                    build.dependency(
+                            fields[0],
+                            fields[1],
+                            fields[2],
+                            fields[3],
+                            fields[4],
+                            fields[5],
+                            Boolean.parseBoolean(fields[6]));
+                }
+                for (String[] fields : decodeAll(parentProjects.get(buildKey))) {
+                    build.parentProject(fields[0], fields[1], fields[2], Boolean.parseBoolean(fields[3]));
+                }
+                for (String[] fields : decodeAll(generatedArtifacts.get(buildKey))) {
+                    build.generatedArtifact(
+                            fields[0],
+                            fields[1],
+                            fields[2],
+                            fields[3],
+                            fields[4],
+                            fields[5],
+                            fields[7],
+                            fields[6],
+                            Boolean.parseBoolean(fields[8]));
+                }
+                String[] upstreamBuildKeys = upstreamCauses.get(buildKey);
+                if (upstreamBuildKeys != null) {
+                    for (String upstreamBuildKey : upstreamBuildKeys) {
+                        build.upstreamCause(
+                                upstreamBuildKey.substring(0, upstreamBuildKey.lastIndexOf('#')),
+                                getBuildNumber(upstreamBuildKey));
+                    }
+                }
+                writer.write(build);
+            }
+            writer.finish();
+            LOGGER.log(Level.FINE, "exportGraph(): {0}", new Object[] {writer.getBuildCount()});
+            return writer.getBuildCount();
+        }
+    }
+
+    @Override
+    public String toPrettyString() {
+        StringBuilder result = new StringBuilder(getClass().getSimpleName() + " - " + getDescription());
+        result.append("\r\n\t").append("File: ").append(fileName == null ? "in-memory" : fileName);
+        for (Entry<String, Long> entry : countRows().entrySet()) {
+            result.append("\r\n\t")
+                    .append("Map ")
+                    .append(entry.getKey())
+                    .append(": ")
+                    .append(entry.getValue())
+                    .append(" entries");
+        }
+        return result.toString();
+    }
+
+    /**
+     * The maps keep their size, counting is cheap
+     */
+    @NonNull
+    @Override
+    public Map<String, Long> countRows() {
+        Map<String, Long> rowCounts = new LinkedHashMap<>();
+        for (MVMap<String, ?> map : Arrays.asList(
+                jobs,
+                builds,
+                dependencies,
+                parentProjects,
+                generatedArtifacts,
+                upstreamCauses,
+                dependencyConsumers,
+                parentProjectConsumers,
+                producers)) {
+            rowCounts.put(map.getName(), map.sizeAsLong());
+        }
+        return rowCounts;
+    }
+
+    @Override
+    public synchronized void updateBuildOnCompletion(
+            @NonNull String jobFullName,
+            int buildNumber,
+            int buildResultOrdinal,
+            long startTimeInMillis,
+            long durationInMillis) {
+        LOGGER.log(
+                Level.FINE,
+                "updateBuildOnCompletion({0}, {1}, result: {2}, startTime): {3}, duration: {4}",
+                new Object[] {jobFullName, buildNumber, buildResultOrdinal, startTimeInMillis, durationInMillis});
+        String buildKey = getOrCreateBuild(jobFullName, buildNumber);
+        builds.put(buildKey, new long[] {buildResultOrdinal, startTimeInMillis, durationInMillis});
+
+        int[] job = jobs.get(jobFullName);
+        if (Result.SUCCESS.ordinal == buildResultOrdinal) {
+            if (job[1] != buildNumber) {
+                index(jobFullName, job[1], false);
+                index(jobFullName, buildNumber, true);
+            }
+            jobs.put(jobFullName, new int[] {buildNumber, buildNumber});
+        } else {
+            jobs.put(jobFullName, new int[] {buildNumber, job[1]});
+        }
+    }
+
+    /**
+     * The store scales with the number of jobs without external service
+     */
+    @Override
+    public boolean isEnoughProductionGradeForTheWorkload() {
+        return true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (store != null && !store.isClosed()) {
+            LOGGER.log(Level.INFO, "Close store {0}", new Object[] {fileName});
+            store.close();
+        }
+    }
+
+    /**
+     * @return the key of the build, created with its job if it doesn't exist yet
+     */
+    @NonNull
+    private String getOrCreateBuild(@NonNull String jobFullName, int buildNumber) {
+        String buildKey = getBuildKey(jobFullName, buildNumber);
+        jobs.putIfAbsent(jobFullName, new int[] {NO_BUILD, NO_BUILD});
+        builds.putIfAbsent(buildKey, new long[] {NO_RESULT, 0, 0});
+        return buildKey;
+    }
+
+    private void removeBuild(@NonNull String buildKey) {
+        for (MVMap<String, ?> map : getBuildMaps()) {
+            map.remove(buildKey);
+        }
+    }
+
+    @NonNull
+    private List<MVMap<String, ?>> getBuildMaps() {
+        return Arrays.asList(builds, dependencies, parentProjects, generatedArtifacts, upstreamCauses);
+    }
+
+    /**
+     * @return {@code true} if the given build is the last successful build of its job, its artifacts are then
+     * removed from the indexes and must be indexed again once the build is modified
+     */
+    private boolean unindexIfLastSuccessfulBuild(@NonNull String jobFullName, int buildNumber) {
+        int[] job = jobs.get(jobFullName);
+        if (job == null || job[1] != buildNumber) {
+            return false;
+        }
+        index(jobFullName, buildNumber, false);
+        return true;
+    }
+
+    /**
+     * Add or remove the artifacts of the given build to or from the indexes of the artifacts consumed and generated by
+     * the last successful builds. The caller must hold the lock.
+     */
+    private void index(@NonNull String jobFullName, int buildNumber, boolean add) {
+        if (buildNumber == NO_BUILD) {
+            return;
+        }
+        String buildKey = getBuildKey(jobFullName, buildNumber);
+        for (String[] fields : decodeAll(dependencies.get(buildKey))) {
+            if (!Boolean.parseBoolean(fields[6])) {
+                String artifactKey = encode(fields[0], fields[1], fields[2], fields[3], fields[4]);
+                updateIndex(dependencyConsumers, artifactKey, jobFullName, add);
+            }
+        }
+        for (String[] fields : decodeAll(parentProjects.get(buildKey))) {
+            if (!Boolean.parseBoolean(fields[3])) {
+                String artifactKey = encode(fields[0], fields[1], fields[2], "pom", null);
+                updateIndex(parentProjectConsumers, artifactKey, jobFullName, add);
+            }
+        }
+        for (String[] fields : decodeAll(generatedArtifacts.get(buildKey))) {
+            if (!Boolean.parseBoolean(fields[8])) {
+                String artifactKey = encode(fields[0], fields[1], fields[2], fields[3], fields[4]);
+                updateIndex(producers, artifactKey, jobFullName, add);
+            }
+        }
+    }
+
+    private static void updateIndex(
+            @NonNull MVMap<String, Boolean> index,
+            @NonNull String artifactKey,
+            @NonNull String jobFullName,
+            boolean add) {
+        String key = artifactKey + INDEX_KEY_SEPARATOR + jobFullName;
+        if (add) {
+            index.put(key, Boolean.TRUE);
+        } else {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * Range scan of the jobs of the given artifact
+     */
+    @NonNull
+    private static SortedSet<String> listJobs(@NonNull MVMap<String, Boolean> index, @NonNull String artifactKey) {
+        String prefix = artifactKey + INDEX_KEY_SEPARATOR;
+        SortedSet<String> jobs = new TreeSet<>();
+        for (Iterator<String> it = index.keyIterator(prefix); it.hasNext(); ) {
+            String key = it.next();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            jobs.add(key.substring(prefix.length()));
+        }
+        return jobs;
+    }
+
+    /**
+     * Range scan of the builds of the given job, sorted by build number
+     */
+    @NonNull
+    private List<String> listBuildKeys(@NonNull String jobFullName) {
+        String prefix = jobFullName + "#";
+        List<String> buildKeys = new ArrayList<>();
+        for (Iterator<String> it = builds.keyIterator(prefix); it.hasNext(); ) {
+            String key = it.next();
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            buildKeys.add(key);
+        }
+        return buildKeys;
+    }
+
+    /**
+     * Job full names can't contain {@code #}, the build number is padded so that the builds of a job are sorted by
+     * number
+     */
+    @NonNull
+    private static String getBuildKey(@NonNull String jobFullName, int buildNumber) {
+        return jobFullName + "#" + String.format("%010d", buildNumber);
+    }
+
+    private static int getBuildNumber(@NonNull String buildKey) {
+        return Integer.parseInt(buildKey.substring(buildKey.lastIndexOf('#') + 1));
+    }
+
+    private static <V> void move(@NonNull MVMap<String, V> map, @NonNull String oldKey, @NonNull String newKey) {
+        V value = map.remove(oldKey);
+        if (value != null) {
+            map.put(newKey, value);
+        }
+    }
+
+    private static void add(@NonNull MVMap<String, String[]> map, @NonNull String key, @NonNull String value) {
+        add(map, key, Collections.singletonList(value));
+    }
+
+    /**
+     * Add the given values to the sorted values of the given key, without duplicates
+     */
+    private static void add(
+            @NonNull MVMap<String, String[]> map, @NonNull String key, @NonNull List<String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        String[] currentValues = map.get(key);
+        SortedSet<String> newValues = new TreeSet<>(values);
+        if (currentValues != null) {
+            newValues.addAll(Arrays.asList(currentValues));
+        }
+        map.put(key, newValues.toArray(new String[0]));
+    }
+
+    @NonNull
+    static String encode(String... fields) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                result.append(FIELD_SEPARATOR);
+            }
+            result.append(fields[i] == null ? NULL_FIELD : fields[i]);
+        }
+        return result.toString();
+    }
+
+    @NonNull
+    static String[] decode(@NonNull String value) {
+        String[] fields = value.split(String.valueOf(FIELD_SEPARATOR), -1);
+        for (int i = 0; i < fields.length; i++) {
+            if (NULL_FIELD.equals(fields[i])) {
+                fields[i] = null;
+            }
+        }
+        return fields;
+    }
+
+    @NonNull
+    private static List<String[]> decodeAll(@Nullable String[] values) {
+        if (values == null) {
+            return Collections.emptyList();
+        }
+        List<String[]> result = new ArrayList<>(values.length);
+        for (String value : values) {
+            result.add(decode(value));
+        }
+        return result;
+    }
+}
@@ -33,7 +33,12 @@ import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import javax.sql.DataSource;
 import org.apache.commons.lang3.StringUtils;
 import org.jenkinsci.plugins.pipeline.maven.db.util.RuntimeSqlException;
@@ -78,6 +83,33 @@ public class PipelineMavenPluginMySqlDao extends AbstractPipelineMavenPluginDao
         }
     }
 
+    /**
+     * {@code WITH RECURSIVE} is supported since MySQL 8.0 and MariaDB 10.2, it is not supported by MySQL 5.7 and
+     * Amazon Aurora MySQL 5.6 / 5.7
+     *
+     * @param databaseProductName    see {@link DatabaseMetaData#getDatabaseProductName()}
+     * @param databaseProductVersion see {@link DatabaseMetaData#getDatabaseProductVersion()}
+     * @param databaseMajorVersion   see {@link DatabaseMetaData#getDatabaseMajorVersion()}
+     */
+    public static boolean isRecursiveQuerySupported(
+            @Nullable String databaseProductName, @Nullable String databaseProductVersion, int databaseMajorVersion) {
+        if ("MariaDB".equals(databaseProductName)
+                || (databaseProductVersion != null && databaseProductVersion.contains("MariaDB"))) {
+            String mariaDbVersion = extractMariaDbVersion(databaseProductVersion);
+            Matcher matcher = Pattern.compile("^(\\d+)\\.(\\d+)").matcher(StringUtils.defaultString(mariaDbVersion));
+            if (!matcher.find()) {
+                return false;
+            }
+            int major = Integer.parseInt(matcher.group(1));
+            int minor = Integer.parseInt(matcher.group(2));
+            return major > 10 || (major == 10 && minor >= 2);
+        } else if ("MySQL".equals(databaseProductName)) {
+            return databaseMajorVersion >= 8;
+        } else {
+            return true;
+        }
+    }
+
     public PipelineMavenPluginMySqlDao(@NonNull DataSource ds) {
         super(ds);
     }
@@ -87,6 +119,42 @@ public class PipelineMavenPluginMySqlDao extends AbstractPipelineMavenPluginDao
         return "mysql";
     }
 
+    /**
+     * MySQL {@code INSERT ... ON DUPLICATE KEY UPDATE} with a no-op update
+     */
+    @Override
+    protected String getInsertIfAbsentSql(
+            @NonNull String table, @NonNull List<String> keyColumns, @NonNull List<String> otherColumns) {
+        List<String> columns = new ArrayList<>(keyColumns);
+        columns.addAll(otherColumns);
+        return "INSERT INTO " + table + "(" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ") ON DUPLICATE KEY UPDATE ID = ID";
+    }
+
+    /**
+     * {@code TABLE_ROWS} is an estimate for InnoDB tables
+     */
+    @Override
+    protected String getApproximateRowCountsSql() {
+        return "SELECT UPPER(TABLE_NAME), TABLE_ROWS FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE()";
+    }
+
+    @Override
+    protected boolean isRecursiveQuerySupported(@NonNull DatabaseMetaData metaData) throws SQLException {
+        return isRecursiveQuerySupported(
+                metaData.getDatabaseProductName(),
+                metaData.getDatabaseProductVersion(),
+                metaData.getDatabaseMajorVersion());
+    }
+
+    /**
+     * Window functions came with the recursive queries in MySQL 8.0 and MariaDB 10.2
+     */
+    @Override
+    protected boolean isWindowFunctionSupported(@NonNull DatabaseMetaData metaData) throws SQLException {
+        return isRecursiveQuerySupported(metaData);
+    }
+
     @Override
     protected void handleDatabaseInitialisationException(SQLException e) {
         if (MysqlErrorNumbers.SQLSTATE_CONNJ_ILLEGAL_ARGUMENT.equals(e.getSQLState())) {
@@ -32,6 +32,9 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Level;
 import javax.sql.DataSource;
 import org.postgresql.util.PSQLState;
@@ -60,6 +63,26 @@ public class PipelineMavenPluginPostgreSqlDao extends AbstractPipelineMavenPlugi
         return "postgresql";
     }
 
+    /**
+     * PostgreSQL {@code INSERT ... ON CONFLICT DO NOTHING}
+     */
+    @Override
+    protected String getInsertIfAbsentSql(
+            @NonNull String table, @NonNull List<String> keyColumns, @NonNull List<String> otherColumns) {
+        List<String> columns = new ArrayList<>(keyColumns);
+        columns.addAll(otherColumns);
+        return "INSERT INTO " + table + "(" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ") ON CONFLICT DO NOTHING";
+    }
+
+    /**
+     * {@code reltuples} is updated by {@code VACUUM}, {@code ANALYZE} and {@code CREATE INDEX}
+     */
+    @Override
+    protected String getApproximateRowCountsSql() {
+        return "SELECT UPPER(c.relname), CAST(c.reltuples AS BIGINT) FROM pg_class c INNER JOIN pg_namespace n ON n.oid = c.relnamespace WHERE c.relkind = 'r' AND n.nspname = current_schema()";
+    }
+
     @Override
     protected void registerJdbcDriver() {
         try {
@@ -0,0 +1,148 @@
+package org.jenkinsci.plugins.pipeline.maven.db.migration;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Migration step processing the rows of a table by chunks in the order of their primary key. Each chunk is committed
+ * with the primary key of its last row, the high-water mark, so that an interrupted migration resumes after the last
+ * committed chunk rather than from the first row.
+ * <p>
+ * The high-water marks are stored in {@code MIGRATION_CHECKPOINT}: the row of a step is committed with the first chunk,
+ * together with the new schema version, and deleted with the last chunk. The steps still having a row are resumed by
+ * {@link #resumeInterruptedSteps(Connection, JenkinsDetails)} when the database is initialized.
+ */
+public abstract class ChunkedMigrationStep implements MigrationStep {
+
+    private static final Logger LOGGER = Logger.getLogger(ChunkedMigrationStep.class.getName());
+
+    protected static final int CHUNK_SIZE = Integer.getInteger(
+            "org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.MIGRATION_CHUNK_SIZE", 500);
+
+    /**
+     * The primary keys are positive, the first chunk starts after this high-water mark
+     */
+    private static final long INITIAL_HIGH_WATER_MARK = -1;
+
+    @Override
+    public void execute(@NonNull Connection cnn, @NonNull JenkinsDetails jenkinsDetails) throws SQLException {
+        createCheckpointTable(cnn);
+        String step = getClass().getName();
+        Long highWaterMark = findHighWaterMark(cnn, step);
+        if (highWaterMark == null) {
+            highWaterMark = INITIAL_HIGH_WATER_MARK;
+            try (PreparedStatement stmt =
+                    cnn.prepareStatement("INSERT INTO MIGRATION_CHECKPOINT(STEP, HIGH_WATER_MARK) VALUES (?, ?)")) {
+                stmt.setString(1, step);
+                stmt.setLong(2, highWaterMark);
+                stmt.execute();
+            }
+        } else {
+            LOGGER.log(Level.INFO, "Resume migration step {0} after row {1}", new Object[] {step, highWaterMark});
+        }
+
+        MigrationProgressMonitor.started(getClass().getSimpleName(), countRows(cnn, highWaterMark));
+        try {
+            while (true) {
+                Long chunkHighWaterMark = migrateChunk(cnn, jenkinsDetails, highWaterMark);
+                if (chunkHighWaterMark == null) {
+                    try (PreparedStatement stmt =
+                            cnn.prepareStatement("DELETE FROM MIGRATION_CHECKPOINT WHERE STEP = ?")) {
+                        stmt.setString(1, step);
+                        stmt.execute();
+                    }
+                    cnn.commit();
+                    break;
+                }
+                try (PreparedStatement stmt = cnn.prepareStatement(
+                        "UPDATE MIGRATION_CHECKPOINT SET HIGH_WATER_MARK = ? WHERE STEP = ?")) {
+                    stmt.setLong(1, chunkHighWaterMark);
+                    stmt.setString(2, step);
+                    stmt.execute();
+                }
+                cnn.commit();
+                highWaterMark = chunkHighWaterMark;
+                LOGGER.log(Level.FINE, "Migration step {0}: committed chunk up to row {1}", new Object[] {
+                    step, highWaterMark
+                });
+            }
+        } finally {
+            MigrationProgressMonitor.finished();
+        }
+    }
+
+    /**
+     * @return the number of rows remaining after the given high-water mark, used to report the progress
+     */
+    protected abstract long countRows(@NonNull Connection cnn, long highWaterMark) throws SQLException;
+
+    /**
+     * Migrate at most {@link #CHUNK_SIZE} rows after the given high-water mark, without committing, and report them
+     * with {@link MigrationProgressMonitor#progressed(long)}.
+     *
+     * @return the primary key of the last migrated row, {@code null} if there is no row left
+     */
+    @CheckForNull
+    protected abstract Long migrateChunk(
+            @NonNull Connection cnn, @NonNull JenkinsDetails jenkinsDetails, long highWaterMark) throws SQLException;
+
+    /**
+     * Resume the steps interrupted after the commit of their first chunk, their schema version being already
+     * committed they would not be executed again by the migration scripts
+     */
+    public static void resumeInterruptedSteps(@NonNull Connection cnn, @NonNull JenkinsDetails jenkinsDetails)
+            throws SQLException {
+        createCheckpointTable(cnn);
+        List<String> steps = new ArrayList<>();
+        try (Statement stmt = cnn.createStatement()) {
+            try (ResultSet rst = stmt.executeQuery("SELECT STEP FROM MIGRATION_CHECKPOINT ORDER BY STEP")) {
+                while (rst.next()) {
+                    steps.add(rst.getString(1));
+                }
+            }
+        }
+        cnn.commit();
+        for (String step : steps) {
+            ChunkedMigrationStep migrationStep;
+            try {
+                migrationStep = (ChunkedMigrationStep)
+                        Class.forName(step).getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                LOGGER.log(Level.WARNING, "Ignore unknown interrupted migration step " + step, e);
+                continue;
+            }
+            migrationStep.execute(cnn, jenkinsDetails);
+        }
+    }
+
+    /**
+     * {@code CREATE TABLE IF NOT EXISTS} is understood by H2, MySQL and PostgreSQL. The table is not created by the
+     * migration scripts because the steps of the older schema versions run before the scripts of the newer ones.
+     */
+    private static void createCheckpointTable(@NonNull Connection cnn) throws SQLException {
+        try (Statement stmt = cnn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS MIGRATION_CHECKPOINT "
+                    + "(STEP VARCHAR(255) NOT NULL PRIMARY KEY, HIGH_WATER_MARK BIGINT NOT NULL)");
+        }
+    }
+
+    @CheckForNull
+    private static Long findHighWaterMark(@NonNull Connection cnn, @NonNull String step) throws SQLException {
+        try (PreparedStatement stmt =
+                cnn.prepareStatement("SELECT HIGH_WATER_MARK FROM MIGRATION_CHECKPOINT WHERE STEP = ?")) {
+            stmt.setString(1, step);
+            try (ResultSet rst = stmt.executeQuery()) {
+                return rst.next() ? rst.getLong(1) : null;
+            }
+        }
+    }
+}
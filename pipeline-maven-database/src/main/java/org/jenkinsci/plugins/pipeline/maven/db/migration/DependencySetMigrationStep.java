@@ -0,0 +1,133 @@
+package org.jenkinsci.plugins.pipeline.maven.db.migration;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jenkinsci.plugins.pipeline.maven.db.util.DependencySet;
+
+/**
+ * Move the rows of {@code MAVEN_DEPENDENCY} to the content addressed {@code DEPENDENCY_SET} and
+ * {@code DEPENDENCY_SET_MEMBER} tables, builds with the same dependencies sharing the same dependency set.
+ * <p>
+ * Builds are processed by chunks of {@link #CHUNK_SIZE} in the order of their primary key so that the whole
+ * {@code MAVEN_DEPENDENCY} table is never loaded in memory. The rows of the migrated builds are deleted with their
+ * chunk so that {@code MAVEN_DEPENDENCY} is emptied one committed chunk at a time.
+ */
+public class DependencySetMigrationStep extends ChunkedMigrationStep {
+
+    private static final Logger LOGGER = Logger.getLogger(DependencySetMigrationStep.class.getName());
+
+    private static final int MAX_REMEMBERED_DEPENDENCY_SETS = 10_000;
+
+    /**
+     * Most builds of a job share the same dependencies, remember the dependency sets created so far
+     */
+    private final Map<DependencySet, Long> dependencySetPrimaryKeys = new HashMap<>();
+
+    private int buildCount;
+
+    private int dependencyCount;
+
+    private int dependencySetCount;
+
+    @Override
+    public void execute(@NonNull Connection cnn, @NonNull JenkinsDetails jenkinsDetails) throws SQLException {
+        LOGGER.info("Upgrade table MAVEN_DEPENDENCY to DEPENDENCY_SET...");
+        super.execute(cnn, jenkinsDetails);
+        LOGGER.info("Successfully upgraded table MAVEN_DEPENDENCY, " + buildCount + " builds and " + dependencyCount
+                + " dependencies migrated to " + dependencySetCount + " dependency sets");
+    }
+
+    @Override
+    protected long countRows(@NonNull Connection cnn, long highWaterMark) throws SQLException {
+        try (PreparedStatement stmt =
+                cnn.prepareStatement("SELECT COUNT(DISTINCT BUILD_ID) FROM MAVEN_DEPENDENCY WHERE BUILD_ID > ?")) {
+            stmt.setLong(1, highWaterMark);
+            try (ResultSet rst = stmt.executeQuery()) {
+                rst.next();
+                return rst.getLong(1);
+            }
+        }
+    }
+
+    @CheckForNull
+    @Override
+    protected Long migrateChunk(@NonNull Connection cnn, @NonNull JenkinsDetails jenkinsDetails, long highWaterMark)
+            throws SQLException {
+        List<Long> buildPrimaryKeys = new ArrayList<>(CHUNK_SIZE);
+        try (PreparedStatement stmt = cnn.prepareStatement(
+                "SELECT DISTINCT BUILD_ID FROM MAVEN_DEPENDENCY WHERE BUILD_ID > ? ORDER BY BUILD_ID LIMIT "
+                        + CHUNK_SIZE)) {
+            stmt.setLong(1, highWaterMark);
+            try (ResultSet rst = stmt.executeQuery()) {
+                while (rst.next()) {
+                    buildPrimaryKeys.add(rst.getLong(1));
+                }
+            }
+        }
+        if (buildPrimaryKeys.isEmpty()) {
+            return null;
+        }
+        long firstBuildPrimaryKey = buildPrimaryKeys.get(0);
+        long lastBuildPrimaryKey = buildPrimaryKeys.get(buildPrimaryKeys.size() - 1);
+
+        Map<Long, DependencySet> dependencySetsByBuild = new HashMap<>();
+        try (PreparedStatement stmt = cnn.prepareStatement(
+                "SELECT BUILD_ID, ARTIFACT_ID, SCOPE, IGNORE_UPSTREAM_TRIGGERS FROM MAVEN_DEPENDENCY WHERE BUILD_ID >= ? AND BUILD_ID <= ?")) {
+            stmt.setLong(1, firstBuildPrimaryKey);
+            stmt.setLong(2, lastBuildPrimaryKey);
+            try (ResultSet rst = stmt.executeQuery()) {
+                while (rst.next()) {
+                    dependencySetsByBuild
+                            .computeIfAbsent(rst.getLong(1), k -> new DependencySet())
+                            .add(rst.getLong(2), rst.getString(3), rst.getBoolean(4));
+                    dependencyCount++;
+                }
+            }
+        }
+
+        try (PreparedStatement stmt =
+                cnn.prepareStatement("UPDATE JENKINS_BUILD SET DEPENDENCY_SET_ID = ? WHERE ID = ?")) {
+            for (Map.Entry<Long, DependencySet> entry : dependencySetsByBuild.entrySet()) {
+                DependencySet dependencySet = entry.getValue();
+                Long dependencySetPrimaryKey = dependencySetPrimaryKeys.get(dependencySet);
+                if (dependencySetPrimaryKey == null) {
+                    if (dependencySetPrimaryKeys.size() >= MAX_REMEMBERED_DEPENDENCY_SETS) {
+                        dependencySetPrimaryKeys.clear();
+                    }
+                    dependencySetPrimaryKey = dependencySet.getOrCreatePrimaryKey(cnn);
+                    dependencySetPrimaryKeys.put(dependencySet, dependencySetPrimaryKey);
+                    dependencySetCount++;
+                }
+                stmt.setLong(1, dependencySetPrimaryKey);
+                stmt.setLong(2, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        // committed with the chunk, the table is emptied chunk by chunk rather than by one huge transaction
+        try (PreparedStatement stmt =
+                cnn.prepareStatement("DELETE FROM MAVEN_DEPENDENCY WHERE BUILD_ID >= ? AND BUILD_ID <= ?")) {
+            stmt.setLong(1, firstBuildPrimaryKey);
+            stmt.setLong(2, lastBuildPrimaryKey);
+            stmt.execute();
+        }
+
+        buildCount += buildPrimaryKeys.size();
+        MigrationProgressMonitor.progressed(buildPrimaryKeys.size());
+        LOGGER.log(Level.INFO, "#{0} builds migrated to {1} dependency sets...", new Object[] {
+            buildCount, dependencySetCount
+        });
+        return lastBuildPrimaryKey;
+    }
+}
@@ -0,0 +1,64 @@
+package org.jenkinsci.plugins.pipeline.maven.db.migration;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jenkinsci.plugins.pipeline.maven.db.util.GavHash;
+
+/**
+ * Populate the {@code MAVEN_ARTIFACT.GAV_HASH} column of the existing artifacts, see {@link GavHash}.
+ * <p>
+ * Artifacts are processed by pages of {@link #ARTIFACT_PAGE_SIZE} in the order of their primary key so that the
+ * whole {@code MAVEN_ARTIFACT} table is never loaded in memory.
+ */
+public class GavHashMigrationStep implements MigrationStep {
+
+    private static final Logger LOGGER = Logger.getLogger(GavHashMigrationStep.class.getName());
+
+    private static final int ARTIFACT_PAGE_SIZE = 1000;
+
+    @Override
+    public void execute(@NonNull Connection cnn, @NonNull JenkinsDetails jenkinsDetails) throws SQLException {
+        LOGGER.info("Upgrade table MAVEN_ARTIFACT with GAV_HASH...");
+
+        int artifactCount = 0;
+        long lastArtifactPrimaryKey = -1;
+        while (true) {
+            int pageSize = 0;
+            try (PreparedStatement selectStmt = cnn.prepareStatement(
+                            "SELECT ID, GROUP_ID, ARTIFACT_ID, VERSION, TYPE, CLASSIFIER FROM MAVEN_ARTIFACT WHERE ID > ? ORDER BY ID LIMIT "
+                                    + ARTIFACT_PAGE_SIZE);
+                    PreparedStatement updateStmt =
+                            cnn.prepareStatement("UPDATE MAVEN_ARTIFACT SET GAV_HASH = ? WHERE ID = ?")) {
+                selectStmt.setLong(1, lastArtifactPrimaryKey);
+                try (ResultSet rst = selectStmt.executeQuery()) {
+                    while (rst.next()) {
+                        lastArtifactPrimaryKey = rst.getLong(1);
+                        updateStmt.setLong(
+                                1,
+                                GavHash.of(
+                                        rst.getString(2),
+                                        rst.getString(3),
+                                        rst.getString(4),
+                                        rst.getString(5),
+                                        rst.getString(6)));
+                        updateStmt.setLong(2, lastArtifactPrimaryKey);
+                        updateStmt.addBatch();
+                        pageSize++;
+                    }
+                }
+                if (pageSize == 0) {
+                    break;
+                }
+                updateStmt.executeBatch();
+            }
+            artifactCount += pageSize;
+            LOGGER.log(Level.FINE, "#{0} artifacts hashed...", new Object[] {artifactCount});
+        }
+        LOGGER.info("Successfully upgraded table MAVEN_ARTIFACT, " + artifactCount + " artifacts hashed");
+    }
+}
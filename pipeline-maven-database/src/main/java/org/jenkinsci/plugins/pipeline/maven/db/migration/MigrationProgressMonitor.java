@@ -0,0 +1,60 @@
+package org.jenkinsci.plugins.pipeline.maven.db.migration;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.AdministrativeMonitor;
+import java.util.concurrent.atomic.AtomicLong;
+import org.jenkinsci.plugins.pipeline.maven.db.Messages;
+
+/**
+ * Displays the progress of the running {@link ChunkedMigrationStep}. The state is static because the migration steps
+ * run when the DAO is created, possibly before the extensions are loaded.
+ */
+@Extension
+public class MigrationProgressMonitor extends AdministrativeMonitor {
+
+    @CheckForNull
+    private static volatile String step;
+
+    private static volatile long rowCount;
+
+    private static final AtomicLong MIGRATED_ROW_COUNT = new AtomicLong();
+
+    static void started(@NonNull String step, long rowCount) {
+        MigrationProgressMonitor.rowCount = rowCount;
+        MIGRATED_ROW_COUNT.set(0);
+        MigrationProgressMonitor.step = step;
+    }
+
+    public static void progressed(long migratedRows) {
+        MIGRATED_ROW_COUNT.addAndGet(migratedRows);
+    }
+
+    static void finished() {
+        step = null;
+    }
+
+    @Override
+    public boolean isActivated() {
+        return step != null;
+    }
+
+    @Override
+    public String getDisplayName() {
+        return Messages.migration_progress_monitor_description();
+    }
+
+    @CheckForNull
+    public String getStep() {
+        return step;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getMigratedRowCount() {
+        return MIGRATED_ROW_COUNT.get();
+    }
+}
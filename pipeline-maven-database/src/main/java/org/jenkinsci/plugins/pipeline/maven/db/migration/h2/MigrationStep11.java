@@ -1,32 +1,81 @@
 package org.jenkinsci.plugins.pipeline.maven.db.migration.h2;
 
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import hudson.model.Cause;
 import hudson.model.Job;
 import hudson.model.Run;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jenkins.model.Jenkins;
-import org.jenkinsci.plugins.pipeline.maven.db.migration.MigrationStep;
+import org.jenkinsci.plugins.pipeline.maven.db.migration.ChunkedMigrationStep;
+import org.jenkinsci.plugins.pipeline.maven.db.migration.MigrationProgressMonitor;
 
-public class MigrationStep11 implements MigrationStep {
+/**
+ * Backfill {@code JENKINS_BUILD_UPSTREAM_CAUSE} from the causes of the builds. Loading a build reads its
+ * {@code build.xml}, the builds of a chunk are loaded in parallel by {@link #MIGRATION_THREADS} threads.
+ */
+public class MigrationStep11 extends ChunkedMigrationStep {
 
     private static final Logger LOGGER = Logger.getLogger(MigrationStep11.class.getName());
 
+    private static final int MIGRATION_THREADS =
+            Integer.getInteger("org.jenkinsci.plugins.pipeline.PipelineMavenPluginDao.MIGRATION_THREADS", 4);
+
+    private ExecutorService executorService;
+
+    private int buildCount;
+
+    private int buildCauseCount;
+
     @Override
     public void execute(@NonNull Connection cnn, @NonNull JenkinsDetails jenkinsDetails) throws SQLException {
-        int jobCount = 0;
-        int buildCauseCount = 0;
-
         LOGGER.info("Upgrade table JENKINS_BUILD_UPSTREAM_CAUSE...");
+        executorService = Executors.newFixedThreadPool(
+                MIGRATION_THREADS, new NamingThreadFactory(new DaemonThreadFactory(), getClass().getSimpleName()));
+        try {
+            super.execute(cnn, jenkinsDetails);
+        } finally {
+            executorService.shutdownNow();
+        }
+        LOGGER.info("Successfully upgraded table JENKINS_BUILD_UPSTREAM_CAUSE, " + buildCount + " builds scanned, "
+                + buildCauseCount + " job causes inserted");
+    }
+
+    @Override
+    protected long countRows(@NonNull Connection cnn, long highWaterMark) throws SQLException {
+        try (PreparedStatement stmt = cnn.prepareStatement("select count(*) from jenkins_build where id > ?")) {
+            stmt.setLong(1, highWaterMark);
+            try (ResultSet rst = stmt.executeQuery()) {
+                rst.next();
+                return rst.getLong(1);
+            }
+        }
+    }
+
+    @CheckForNull
+    @Override
+    protected Long migrateChunk(@NonNull Connection cnn, @NonNull JenkinsDetails jenkinsDetails, long highWaterMark)
+            throws SQLException {
         String select =
                 "select jenkins_job.full_name, jenkins_job.jenkins_master_id, jenkins_build.number, jenkins_build.id "
-                        + " from jenkins_build inner join jenkins_job on jenkins_build.job_id = jenkins_job.id order by jenkins_job.full_name, jenkins_build.number";
+                        + " from jenkins_build inner join jenkins_job on jenkins_build.job_id = jenkins_job.id "
+                        + " where jenkins_build.id > ? order by jenkins_build.id limit " + CHUNK_SIZE;
 
         String insert = " insert into JENKINS_BUILD_UPSTREAM_CAUSE (upstream_build_id, downstream_build_id) "
                 + " select upstream_build.id, ? "
@@ -36,59 +85,86 @@ public class MigrationStep11 implements MigrationStep {
                 + "   upstream_job.full_name = ? and"
                 + "   upstream_job.jenkins_master_id = ? and"
                 + "   upstream_build.number = ? ";
+
+        // [build primary key, jenkins master primary key]
+        List<long[]> builds = new ArrayList<>();
+        List<Future<List<Cause.UpstreamCause>>> upstreamCauses = new ArrayList<>();
+        try (PreparedStatement selectStmt = cnn.prepareStatement(select)) {
+            selectStmt.setLong(1, highWaterMark);
+            try (ResultSet rst = selectStmt.executeQuery()) {
+                while (rst.next()) {
+                    String jobFullName = rst.getString("full_name");
+                    int buildNumber = rst.getInt("number");
+                    builds.add(new long[] {rst.getLong("id"), rst.getLong("jenkins_master_id")});
+                    upstreamCauses.add(executorService.submit(() -> loadUpstreamCauses(jobFullName, buildNumber)));
+                }
+            }
+        }
+        if (builds.isEmpty()) {
+            return null;
+        }
+
         try (PreparedStatement insertStmt = cnn.prepareStatement(insert)) {
-            try (PreparedStatement selectStmt = cnn.prepareStatement(select)) {
-                try (ResultSet rst = selectStmt.executeQuery()) {
-                    while (rst.next()) {
-                        jobCount++;
-                        if ((jobCount < 100 && (jobCount % 10) == 0)
-                                || (jobCount < 500 && (jobCount % 20) == 0)
-                                || ((jobCount % 50) == 0)) {
-                            LOGGER.log(Level.INFO, "#" + jobCount + " - " + rst.getString("FULL_NAME") + "...");
-                        }
-
-                        String jobFullName = rst.getString("full_name");
-                        int buildNumber = rst.getInt("number");
-                        long buildId = rst.getLong("id");
-                        long jenkinsMasterId = rst.getLong("jenkins_master_id");
-
-                        try {
-                            Job<?, ?> pipeline = Jenkins.get().getItemByFullName(jobFullName, Job.class);
-                            if (pipeline == null) {
-                                continue;
-                            }
-                            Run<?, ?> build = pipeline.getBuildByNumber(buildNumber);
-                            if (build == null) {
-                                continue;
-                            }
-
-                            for (Cause cause : build.getCauses()) {
-                                if (cause instanceof Cause.UpstreamCause) {
-                                    Cause.UpstreamCause upstreamCause = (Cause.UpstreamCause) cause;
-                                    String upstreamJobFullName = upstreamCause.getUpstreamProject();
-                                    int upstreamJobNumber = upstreamCause.getUpstreamBuild();
-
-                                    insertStmt.setLong(1, buildId);
-                                    insertStmt.setString(2, upstreamJobFullName);
-                                    insertStmt.setLong(3, jenkinsMasterId);
-                                    insertStmt.setInt(4, upstreamJobNumber);
-                                    insertStmt.addBatch();
-                                    buildCauseCount++;
-                                }
-                            }
-                        } catch (RuntimeException e) {
-                            LOGGER.log(
-                                    Level.WARNING,
-                                    "Silently ignore exception migrating build " + jobFullName + "#" + buildNumber,
-                                    e);
-                        }
-                    }
-                    insertStmt.executeBatch();
+            for (int i = 0; i < builds.size(); i++) {
+                long buildId = builds.get(i)[0];
+                long jenkinsMasterId = builds.get(i)[1];
+                List<Cause.UpstreamCause> causes;
+                try {
+                    causes = upstreamCauses.get(i).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted migrating build " + buildId, e);
+                } catch (ExecutionException e) {
+                    throw new SQLException("Exception migrating build " + buildId, e.getCause());
+                }
+                for (Cause.UpstreamCause upstreamCause : causes) {
+                    insertStmt.setLong(1, buildId);
+                    insertStmt.setString(2, upstreamCause.getUpstreamProject());
+                    insertStmt.setLong(3, jenkinsMasterId);
+                    insertStmt.setInt(4, upstreamCause.getUpstreamBuild());
+                    insertStmt.addBatch();
+                    buildCauseCount++;
                 }
             }
+            insertStmt.executeBatch();
         }
-        LOGGER.info("Successfully upgraded table JENKINS_BUILD_UPSTREAM_CAUSE, " + jobCount + " jobs scanned, "
-                + buildCauseCount + " job causes inserted");
+        buildCount += builds.size();
+        MigrationProgressMonitor.progressed(builds.size());
+        LOGGER.log(Level.INFO, "#{0} builds scanned...", new Object[] {buildCount});
+        return builds.get(builds.size() - 1)[0];
+    }
+
+    /**
+     * Called by the threads of the {@link #executorService} that don't inherit the authentication of the migration,
+     * the build is loaded as {@code SYSTEM} to see all the jobs on a secured controller.
+     *
+     * @return the upstream causes of the build, empty if the build doesn't exist anymore or can't be loaded
+     */
+    @NonNull
+    private static List<Cause.UpstreamCause> loadUpstreamCauses(@NonNull String jobFullName, int buildNumber) {
+        List<Cause.UpstreamCause> result = new ArrayList<>();
+        try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+            Job<?, ?> pipeline = Jenkins.get().getItemByFullName(jobFullName, Job.class);
+            if (pipeline == null) {
+                LOGGER.log(Level.FINE, "Job {0} not found, skip the upstream causes of build #{1}", new Object[] {
+                    jobFullName, buildNumber
+                });
+                return result;
+            }
+            Run<?, ?> build = pipeline.getBuildByNumber(buildNumber);
+            if (build == null) {
+                return result;
+            }
+            for (Cause cause : build.getCauses()) {
+                if (cause instanceof Cause.UpstreamCause) {
+                    result.add((Cause.UpstreamCause) cause);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(
+                    Level.WARNING, "Silently ignore exception migrating build " + jobFullName + "#" + buildNumber, e);
+        }
+        return result;
     }
 
     protected void updateJenkinsJobRecord(@NonNull Connection cnn, long jenkinsJobPrimaryKey, int lastBuildNumber)
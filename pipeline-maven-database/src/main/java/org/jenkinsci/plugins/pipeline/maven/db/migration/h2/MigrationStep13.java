@@ -0,0 +1,5 @@
+package org.jenkinsci.plugins.pipeline.maven.db.migration.h2;
+
+import org.jenkinsci.plugins.pipeline.maven.db.migration.DependencySetMigrationStep;
+
+public class MigrationStep13 extends DependencySetMigrationStep {}
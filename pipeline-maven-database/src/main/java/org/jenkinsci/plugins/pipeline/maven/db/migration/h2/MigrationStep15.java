@@ -0,0 +1,5 @@
+package org.jenkinsci.plugins.pipeline.maven.db.migration.h2;
+
+import org.jenkinsci.plugins.pipeline.maven.db.migration.GavHashMigrationStep;
+
+public class MigrationStep15 extends GavHashMigrationStep {}
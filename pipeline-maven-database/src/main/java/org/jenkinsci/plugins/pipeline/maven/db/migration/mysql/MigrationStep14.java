@@ -0,0 +1,5 @@
+package org.jenkinsci.plugins.pipeline.maven.db.migration.mysql;
+
+import org.jenkinsci.plugins.pipeline.maven.db.migration.DependencySetMigrationStep;
+
+public class MigrationStep14 extends DependencySetMigrationStep {}
@@ -0,0 +1,5 @@
+package org.jenkinsci.plugins.pipeline.maven.db.migration.mysql;
+
+import org.jenkinsci.plugins.pipeline.maven.db.migration.GavHashMigrationStep;
+
+public class MigrationStep16 extends GavHashMigrationStep {}
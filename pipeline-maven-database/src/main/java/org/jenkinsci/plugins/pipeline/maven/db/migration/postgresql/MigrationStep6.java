@@ -0,0 +1,5 @@
+package org.jenkinsci.plugins.pipeline.maven.db.migration.postgresql;
+
+import org.jenkinsci.plugins.pipeline.maven.db.migration.DependencySetMigrationStep;
+
+public class MigrationStep6 extends DependencySetMigrationStep {}
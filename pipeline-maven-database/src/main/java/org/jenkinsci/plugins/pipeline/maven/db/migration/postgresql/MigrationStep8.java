@@ -0,0 +1,5 @@
+package org.jenkinsci.plugins.pipeline.maven.db.migration.postgresql;
+
+import org.jenkinsci.plugins.pipeline.maven.db.migration.GavHashMigrationStep;
+
+public class MigrationStep8 extends GavHashMigrationStep {}
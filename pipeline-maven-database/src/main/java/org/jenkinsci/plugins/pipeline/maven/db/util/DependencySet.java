@@ -0,0 +1,316 @@
+package org.jenkinsci.plugins.pipeline.maven.db.util;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Content addressed set of the dependencies of a build, stored in the {@code DEPENDENCY_SET} and
+ * {@code DEPENDENCY_SET_MEMBER} tables and referenced by {@code JENKINS_BUILD.DEPENDENCY_SET_ID}.
+ * <p>
+ * Builds with the same dependencies (artifact, scope, ignoreUpstreamTriggers) share the same {@code DEPENDENCY_SET}
+ * row, identified by the SHA-256 {@link #getHash() hash} of its members. A dependency set is immutable once created,
+ * recording an additional dependency on a build makes the build reference another dependency set.
+ */
+public class DependencySet {
+
+    private final SortedSet<Member> members = new TreeSet<>();
+
+    /**
+     * @return {@code true} if the dependency was not already a member of the set
+     */
+    public boolean add(long artifactPrimaryKey, @Nullable String scope, boolean ignoreUpstreamTriggers) {
+        return members.add(new Member(artifactPrimaryKey, scope, ignoreUpstreamTriggers));
+    }
+
+    public boolean addAll(@NonNull DependencySet other) {
+        return members.addAll(other.members);
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    public boolean isEmpty() {
+        return members.isEmpty();
+    }
+
+    @NonNull
+    public SortedSet<Member> getMembers() {
+        return Collections.unmodifiableSortedSet(members);
+    }
+
+    /**
+     * @return SHA-256 hash of the members of the set, independent of the order in which they have been added
+     */
+    @NonNull
+    public String getHash() {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Member member : members) {
+            String line = member.artifactPrimaryKey + ":" + member.scope + ":"
+                    + member.ignoreUpstreamTriggers + "\n";
+            digest.update(line.getBytes(StandardCharsets.UTF_8));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Load the dependency set referenced by the given build.
+     *
+     * @return {@code null} if no dependency set is referenced by the build
+     */
+    @CheckForNull
+    public static DependencySet loadByBuild(@NonNull Connection cnn, long buildPrimaryKey) throws SQLException {
+        Long dependencySetPrimaryKey = lockByBuild(cnn, buildPrimaryKey);
+        return dependencySetPrimaryKey == null ? null : load(cnn, dependencySetPrimaryKey);
+    }
+
+    /**
+     * Lock the given build to serialize the concurrent recordings of dependencies of the same build.
+     *
+     * @return primary key of the dependency set referenced by the build, {@code null} if none
+     */
+    @CheckForNull
+    public static Long lockByBuild(@NonNull Connection cnn, long buildPrimaryKey) throws SQLException {
+        try (PreparedStatement stmt =
+                cnn.prepareStatement("SELECT DEPENDENCY_SET_ID FROM JENKINS_BUILD WHERE ID = ? FOR UPDATE")) {
+            stmt.setLong(1, buildPrimaryKey);
+            try (ResultSet rst = stmt.executeQuery()) {
+                if (rst.next()) {
+                    long value = rst.getLong(1);
+                    return rst.wasNull() ? null : value;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Delete the given dependency set and its members if no build references it anymore. The caller is responsible
+     * for committing.
+     * <p>
+     * A build concurrently made to reference the dependency set makes the delete fail, the dependency set is then
+     * kept and will be deleted by the cleanup of the orphans if it becomes unreferenced.
+     *
+     * @return {@code true} if the dependency set has been deleted
+     */
+    public static boolean deleteIfUnreferenced(@NonNull Connection cnn, long dependencySetPrimaryKey)
+            throws SQLException {
+        Savepoint savepoint = cnn.setSavepoint();
+        try {
+            int count;
+            // DEPENDENCY_SET_MEMBER rows are deleted on cascade
+            try (PreparedStatement stmt = cnn.prepareStatement(
+                    "DELETE FROM DEPENDENCY_SET WHERE ID = ? AND NOT EXISTS (SELECT 1 FROM JENKINS_BUILD WHERE JENKINS_BUILD.DEPENDENCY_SET_ID = ?)")) {
+                stmt.setLong(1, dependencySetPrimaryKey);
+                stmt.setLong(2, dependencySetPrimaryKey);
+                count = stmt.executeUpdate();
+            }
+            cnn.releaseSavepoint(savepoint);
+            return count > 0;
+        } catch (SQLException e) {
+            // integrity constraint violation, the dependency set is referenced by a concurrent transaction
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+            cnn.rollback(savepoint);
+            return false;
+        }
+    }
+
+    @NonNull
+    public static DependencySet load(@NonNull Connection cnn, long dependencySetPrimaryKey) throws SQLException {
+        DependencySet dependencySet = new DependencySet();
+        try (PreparedStatement stmt = cnn.prepareStatement(
+                "SELECT ARTIFACT_ID, SCOPE, IGNORE_UPSTREAM_TRIGGERS FROM DEPENDENCY_SET_MEMBER WHERE DEPENDENCY_SET_ID = ?")) {
+            stmt.setLong(1, dependencySetPrimaryKey);
+            try (ResultSet rst = stmt.executeQuery()) {
+                while (rst.next()) {
+                    dependencySet.add(rst.getLong(1), rst.getString(2), rst.getBoolean(3));
+                }
+            }
+        }
+        return dependencySet;
+    }
+
+    /**
+     * Make the given build reference this dependency set, creating the dependency set if needed. The caller is
+     * responsible for committing.
+     */
+    public void assignToBuild(@NonNull Connection cnn, long buildPrimaryKey) throws SQLException {
+        long dependencySetPrimaryKey = getOrCreatePrimaryKey(cnn);
+        try (PreparedStatement stmt =
+                cnn.prepareStatement("UPDATE JENKINS_BUILD SET DEPENDENCY_SET_ID = ? WHERE ID = ?")) {
+            stmt.setLong(1, dependencySetPrimaryKey);
+            stmt.setLong(2, buildPrimaryKey);
+            stmt.execute();
+        }
+    }
+
+    /**
+     * Return the primary key of the {@code DEPENDENCY_SET} with the same hash, inserting the dependency set and its
+     * members if it does not exist yet. The caller is responsible for committing.
+     * <p>
+     * The dependency set and its members are inserted in the transaction of the caller so that a dependency set is
+     * never visible without its members. A concurrent insert of the same dependency set is detected thanks to the
+     * unique index on {@code DEPENDENCY_SET.HASH} and rolled back to a savepoint.
+     */
+    public long getOrCreatePrimaryKey(@NonNull Connection cnn) throws SQLException {
+        String hash = getHash();
+        Long primaryKey = selectPrimaryKey(cnn, hash, false);
+        if (primaryKey != null) {
+            return primaryKey;
+        }
+
+        Savepoint savepoint = cnn.setSavepoint();
+        try {
+            try (PreparedStatement stmt = cnn.prepareStatement(
+                    "INSERT INTO DEPENDENCY_SET(HASH, DEPENDENCY_COUNT) VALUES (?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setString(1, hash);
+                stmt.setInt(2, members.size());
+                stmt.execute();
+                // ID is the first column of DEPENDENCY_SET, PostgreSQL returns all the columns of the inserted row
+                try (ResultSet rst = stmt.getGeneratedKeys()) {
+                    if (!rst.next()) {
+                        throw new IllegalStateException("No primary key generated for dependency set " + hash);
+                    }
+                    primaryKey = rst.getLong(1);
+                }
+            }
+            try (PreparedStatement stmt = cnn.prepareStatement(
+                    "INSERT INTO DEPENDENCY_SET_MEMBER(DEPENDENCY_SET_ID, ARTIFACT_ID, SCOPE, IGNORE_UPSTREAM_TRIGGERS) VALUES (?, ?, ?, ?)")) {
+                for (Member member : members) {
+                    stmt.setLong(1, primaryKey);
+                    stmt.setLong(2, member.artifactPrimaryKey);
+                    stmt.setString(3, member.scope);
+                    stmt.setBoolean(4, member.ignoreUpstreamTriggers);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            cnn.releaseSavepoint(savepoint);
+            return primaryKey;
+        } catch (SQLException e) {
+            // integrity constraint violation, the dependency set has been concurrently inserted
+            if (e.getSQLState() == null || !e.getSQLState().startsWith("23")) {
+                throw e;
+            }
+            cnn.rollback(savepoint);
+        }
+
+        // locking read to see the row committed by the concurrent transaction (e.g. MySQL "REPEATABLE READ")
+        primaryKey = selectPrimaryKey(cnn, hash, true);
+        if (primaryKey == null) {
+            throw new IllegalStateException("No DEPENDENCY_SET record found after insert of " + hash);
+        }
+        return primaryKey;
+    }
+
+    @CheckForNull
+    private static Long selectPrimaryKey(@NonNull Connection cnn, @NonNull String hash, boolean forUpdate)
+            throws SQLException {
+        try (PreparedStatement stmt = cnn.prepareStatement(
+                "SELECT ID FROM DEPENDENCY_SET WHERE HASH = ?" + (forUpdate ? " FOR UPDATE" : ""))) {
+            stmt.setString(1, hash);
+            try (ResultSet rst = stmt.executeQuery()) {
+                return rst.next() ? rst.getLong(1) : null;
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return members.equals(((DependencySet) o).members);
+    }
+
+    @Override
+    public int hashCode() {
+        return members.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "DependencySet" + members;
+    }
+
+    public static final class Member implements Comparable<Member> {
+
+        private static final Comparator<Member> COMPARATOR = Comparator.comparingLong(Member::getArtifactPrimaryKey)
+                .thenComparing(Member::getScope, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(Member::isIgnoreUpstreamTriggers);
+
+        private final long artifactPrimaryKey;
+
+        @Nullable
+        private final String scope;
+
+        private final boolean ignoreUpstreamTriggers;
+
+        Member(long artifactPrimaryKey, @Nullable String scope, boolean ignoreUpstreamTriggers) {
+            this.artifactPrimaryKey = artifactPrimaryKey;
+            this.scope = scope;
+            this.ignoreUpstreamTriggers = ignoreUpstreamTriggers;
+        }
+
+        public long getArtifactPrimaryKey() {
+            return artifactPrimaryKey;
+        }
+
+        @Nullable
+        public String getScope() {
+            return scope;
+        }
+
+        public boolean isIgnoreUpstreamTriggers() {
+            return ignoreUpstreamTriggers;
+        }
+
+        @Override
+        public int compareTo(Member other) {
+            return COMPARATOR.compare(this, other);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Member member = (Member) o;
+            return artifactPrimaryKey == member.artifactPrimaryKey
+                    && ignoreUpstreamTriggers == member.ignoreUpstreamTriggers
+                    && Objects.equals(scope, member.scope);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(artifactPrimaryKey, scope, ignoreUpstreamTriggers);
+        }
+
+        @Override
+        public String toString() {
+            return artifactPrimaryKey + ":" + scope + ":" + ignoreUpstreamTriggers;
+        }
+    }
+}
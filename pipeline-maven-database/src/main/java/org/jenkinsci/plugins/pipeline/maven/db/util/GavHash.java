@@ -0,0 +1,40 @@
+package org.jenkinsci.plugins.pipeline.maven.db.util;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * 64-bit hash of the coordinates of a Maven artifact, stored in {@code MAVEN_ARTIFACT.GAV_HASH} so that an artifact
+ * is looked up with a point read on a fixed-width index rather than on its varchar coordinates.
+ * <p>
+ * Different coordinates may share the same hash, the coordinates of the rows matching a hash must be verified.
+ */
+public final class GavHash {
+
+    private GavHash() {}
+
+    /**
+     * @return the first 64 bits of the SHA-256 hash of the coordinates, a {@code null} classifier and an empty
+     * classifier having different hashes
+     */
+    public static long of(
+            @NonNull String groupId,
+            @NonNull String artifactId,
+            @NonNull String version,
+            @NonNull String type,
+            @Nullable String classifier) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        String coordinates = groupId + "\n" + artifactId + "\n" + version + "\n" + type
+                + (classifier == null ? "" : "\n" + classifier);
+        return ByteBuffer.wrap(digest.digest(coordinates.getBytes(StandardCharsets.UTF_8))).getLong();
+    }
+}
@@ -0,0 +1,727 @@
+package org.jenkinsci.plugins.pipeline.maven.db.util;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
+
+/**
+ * In-memory index of the dependency graph between the last successful builds of the jobs of a Jenkins master, used to
+ * answer the trigger evaluation queries without going to the database.
+ * <p>
+ * Jobs and artifacts are identified by dense {@code int} ids, the graph is stored as adjacency arrays: the artifacts
+ * generated and consumed (Maven dependencies and parent projects) by each job and, for each artifact, the sorted ids
+ * of the jobs producing and consuming it. Only the last successful build of each job is indexed, the queries return
+ * {@code null} for the other builds and the caller falls back to SQL.
+ * <p>
+ * The database remains the source of truth: the graph is loaded once with {@link #load(Connection, long)} and each
+ * job is then reloaded from the database with {@link #reloadJob(Connection, long)} after the transactions modifying
+ * it have been committed. Loads and reloads are serialized so that the last applied state of a job is the last
+ * committed one. After a failure, the graph is {@link #invalidate() invalidated} and loaded again on next use.
+ */
+public class InMemoryDependencyGraph {
+
+    private static final String JOBS_SQL = "SELECT ID, FULL_NAME, LAST_SUCCESSFUL_BUILD_NUMBER FROM JENKINS_JOB "
+            + "WHERE JENKINS_JOB.JENKINS_MASTER_ID = ? AND JENKINS_JOB.LAST_SUCCESSFUL_BUILD_NUMBER IS NOT NULL";
+
+    private static final String ARTIFACTS_SELECT =
+            "SELECT JENKINS_JOB.ID, MAVEN_ARTIFACT.GROUP_ID, MAVEN_ARTIFACT.ARTIFACT_ID, MAVEN_ARTIFACT.VERSION, MAVEN_ARTIFACT.TYPE, MAVEN_ARTIFACT.CLASSIFIER";
+
+    private static final String LAST_SUCCESSFUL_BUILD_JOIN = " FROM JENKINS_JOB "
+            + "INNER JOIN JENKINS_BUILD ON (JENKINS_BUILD.JOB_ID = JENKINS_JOB.ID AND JENKINS_BUILD.NUMBER = JENKINS_JOB.LAST_SUCCESSFUL_BUILD_NUMBER) ";
+
+    private static final String GENERATED_ARTIFACTS_SQL = ARTIFACTS_SELECT
+            + ", GENERATED_MAVEN_ARTIFACT.VERSION, GENERATED_MAVEN_ARTIFACT.EXTENSION"
+            + LAST_SUCCESSFUL_BUILD_JOIN
+            + "INNER JOIN GENERATED_MAVEN_ARTIFACT ON (GENERATED_MAVEN_ARTIFACT.BUILD_ID = JENKINS_BUILD.ID AND GENERATED_MAVEN_ARTIFACT.SKIP_DOWNSTREAM_TRIGGERS = false) "
+            + "INNER JOIN MAVEN_ARTIFACT ON MAVEN_ARTIFACT.ID = GENERATED_MAVEN_ARTIFACT.ARTIFACT_ID "
+            + "WHERE JENKINS_JOB.JENKINS_MASTER_ID = ?";
+
+    private static final String DEPENDENCIES_SQL = ARTIFACTS_SELECT
+            + LAST_SUCCESSFUL_BUILD_JOIN
+            + "INNER JOIN DEPENDENCY_SET_MEMBER ON (DEPENDENCY_SET_MEMBER.DEPENDENCY_SET_ID = JENKINS_BUILD.DEPENDENCY_SET_ID AND DEPENDENCY_SET_MEMBER.IGNORE_UPSTREAM_TRIGGERS = false) "
+            + "INNER JOIN MAVEN_ARTIFACT ON MAVEN_ARTIFACT.ID = DEPENDENCY_SET_MEMBER.ARTIFACT_ID "
+            + "WHERE JENKINS_JOB.JENKINS_MASTER_ID = ?";
+
+    private static final String PARENT_PROJECTS_SQL = ARTIFACTS_SELECT
+            + LAST_SUCCESSFUL_BUILD_JOIN
+            + "INNER JOIN MAVEN_PARENT_PROJECT ON (MAVEN_PARENT_PROJECT.BUILD_ID = JENKINS_BUILD.ID AND MAVEN_PARENT_PROJECT.IGNORE_UPSTREAM_TRIGGERS = false) "
+            + "INNER JOIN MAVEN_ARTIFACT ON MAVEN_ARTIFACT.ID = MAVEN_PARENT_PROJECT.ARTIFACT_ID "
+            + "WHERE JENKINS_JOB.JENKINS_MASTER_ID = ?";
+
+    private static final String JOB_FILTER = " AND JENKINS_JOB.ID = ?";
+
+    private static final int[] EMPTY = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean loaded;
+
+    private long jenkinsMasterPrimaryKey;
+
+    // jobs
+
+    private final Map<String, Integer> jobIdsByFullName = new HashMap<>();
+
+    private final Map<Long, Integer> jobIdsByPrimaryKey = new HashMap<>();
+
+    private final Deque<Integer> freeJobIds = new ArrayDeque<>();
+
+    private int jobCount;
+
+    private long[] jobPrimaryKeys = new long[16];
+
+    /**
+     * {@code null} for the free job ids
+     */
+    private String[] jobFullNames = new String[16];
+
+    private int[] lastSuccessfulBuildNumbers = new int[16];
+
+    /**
+     * Artifacts generated by the last successful build of each job, {@link #generatedVersions} and
+     * {@link #generatedExtensions} are the parallel arrays of the version and extension of each generated artifact
+     */
+    private int[][] generatedArtifacts = new int[16][];
+
+    private String[][] generatedVersions = new String[16][];
+
+    private String[][] generatedExtensions = new String[16][];
+
+    /**
+     * Sorted ids of the artifacts consumed as Maven dependencies by the last successful build of each job
+     */
+    private int[][] dependencies = new int[16][];
+
+    /**
+     * Sorted ids of the artifacts consumed as parent projects by the last successful build of each job
+     */
+    private int[][] parentProjects = new int[16][];
+
+    // artifacts
+
+    /**
+     * Artifact id by "groupId:artifactId:baseVersion:type:classifier"
+     */
+    private final Map<String, Integer> artifactIdsByKey = new HashMap<>();
+
+    /**
+     * Ids of the artifacts no longer generated nor consumed by any job, reused before growing the arrays
+     */
+    private final Deque<Integer> freeArtifactIds = new ArrayDeque<>();
+
+    private int artifactCount;
+
+    /**
+     * groupId, artifactId, baseVersion, type and classifier of each artifact, {@code null} for the free artifact ids
+     */
+    private String[][] artifactCoordinates = new String[16][];
+
+    /**
+     * Sorted ids of the jobs generating each artifact
+     */
+    private int[][] producers = new int[16][];
+
+    /**
+     * Sorted ids of the jobs consuming each artifact as Maven dependency
+     */
+    private int[][] dependencyConsumers = new int[16][];
+
+    /**
+     * Sorted ids of the jobs consuming each artifact as parent project
+     */
+    private int[][] parentProjectConsumers = new int[16][];
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Load the graph of the given Jenkins master from the database, does nothing if the graph is already loaded
+     */
+    public synchronized void load(@NonNull Connection cnn, long jenkinsMasterPrimaryKey) throws SQLException {
+        if (loaded) {
+            return;
+        }
+        Map<Long, JobSnapshot> jobs = selectJobs(cnn, jenkinsMasterPrimaryKey, null);
+        lock.writeLock().lock();
+        try {
+            clear();
+            this.jenkinsMasterPrimaryKey = jenkinsMasterPrimaryKey;
+            for (JobSnapshot job : jobs.values()) {
+                putJob(job);
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reload the given job from the database, to be invoked once the transaction modifying the last successful build
+     * of the job has been committed. Does nothing if the graph is not loaded.
+     */
+    public synchronized void reloadJob(@NonNull Connection cnn, long jobPrimaryKey) throws SQLException {
+        if (!loaded) {
+            return;
+        }
+        JobSnapshot job = selectJobs(cnn, jenkinsMasterPrimaryKey, jobPrimaryKey).get(jobPrimaryKey);
+        lock.writeLock().lock();
+        try {
+            if (job == null) {
+                Integer jobId = jobIdsByPrimaryKey.get(jobPrimaryKey);
+                if (jobId != null) {
+                    removeJob(jobId);
+                }
+            } else {
+                putJob(job);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public synchronized void removeJob(@NonNull String jobFullName) {
+        lock.writeLock().lock();
+        try {
+            Integer jobId = jobIdsByFullName.get(jobFullName);
+            if (jobId != null) {
+                removeJob(jobId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public synchronized void renameJob(@NonNull String oldFullName, @NonNull String newFullName) {
+        lock.writeLock().lock();
+        try {
+            Integer jobId = jobIdsByFullName.remove(oldFullName);
+            if (jobId != null) {
+                jobIdsByFullName.put(newFullName, jobId);
+                jobFullNames[jobId] = newFullName;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Discard the graph, it will be loaded again by the next invocation of {@link #load(Connection, long)}
+     */
+    public synchronized void invalidate() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the jobs consuming the artifacts generated by the given build, including the given job if it consumes
+     * its own artifacts, {@code null} if the given build is not the last successful build of its job
+     */
+    @Nullable
+    public Map<MavenArtifact, SortedSet<String>> listDownstreamJobsByArtifact(
+            @NonNull String jobFullName, int buildNumber) {
+        lock.readLock().lock();
+        try {
+            int jobId = getJobIdIfLastSuccessfulBuild(jobFullName, buildNumber);
+            if (jobId < 0) {
+                return null;
+            }
+            Map<MavenArtifact, SortedSet<String>> results = new HashMap<>();
+            int[] artifactIds = generatedArtifacts[jobId];
+            for (int i = 0; i < artifactIds.length; i++) {
+                int artifactId = artifactIds[i];
+                if (dependencyConsumers[artifactId].length == 0 && parentProjectConsumers[artifactId].length == 0) {
+                    continue;
+                }
+                String[] coordinates = artifactCoordinates[artifactId];
+                MavenArtifact artifact = new MavenArtifact();
+                artifact.setGroupId(coordinates[0]);
+                artifact.setArtifactId(coordinates[1]);
+                artifact.setBaseVersion(coordinates[2]);
+                artifact.setType(coordinates[3]);
+                artifact.setClassifier(coordinates[4]);
+                artifact.setVersion(generatedVersions[jobId][i]);
+                artifact.setExtension(generatedExtensions[jobId][i]);
+
+                SortedSet<String> downstreamJobs = results.computeIfAbsent(artifact, a -> new TreeSet<>());
+                addJobFullNames(dependencyConsumers[artifactId], downstreamJobs);
+                addJobFullNames(parentProjectConsumers[artifactId], downstreamJobs);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the jobs whose last successful build depends on the given artifact
+     */
+    @NonNull
+    public SortedSet<String> listDownstreamJobs(
+            @NonNull String groupId,
+            @NonNull String artifactId,
+            @NonNull String baseVersion,
+            @NonNull String type,
+            @Nullable String classifier) {
+        lock.readLock().lock();
+        try {
+            SortedSet<String> results = new TreeSet<>();
+            Integer id = artifactIdsByKey.get(getArtifactKey(groupId, artifactId, baseVersion, type, classifier));
+            if (id != null) {
+                addJobFullNames(dependencyConsumers[id], results);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the last successful build number of the jobs generating the artifacts consumed by the given build,
+     * {@code null} if the given build is not the last successful build of its job
+     */
+    @Nullable
+    public Map<String, Integer> listUpstreamJobs(@NonNull String jobFullName, int buildNumber) {
+        lock.readLock().lock();
+        try {
+            int jobId = getJobIdIfLastSuccessfulBuild(jobFullName, buildNumber);
+            if (jobId < 0) {
+                return null;
+            }
+            Map<String, Integer> results = new HashMap<>();
+            for (int upstreamJobId : getUpstreamJobIds(jobId)) {
+                results.put(jobFullNames[upstreamJobId], lastSuccessfulBuildNumbers[upstreamJobId]);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Breadth-first traversal of the upstream jobs of the given build, excluding the given job
+     *
+     * @param maxDepth the direct upstream jobs are at depth {@code 1}
+     * @return the last successful build number of the transitive upstream jobs, {@code null} if the given build is
+     * not the last successful build of its job
+     */
+    @Nullable
+    public Map<String, Integer> listTransitiveUpstreamJobs(@NonNull String jobFullName, int buildNumber, int maxDepth) {
+        lock.readLock().lock();
+        try {
+            int jobId = getJobIdIfLastSuccessfulBuild(jobFullName, buildNumber);
+            if (jobId < 0) {
+                return null;
+            }
+            boolean[] visited = new boolean[jobCount];
+            visited[jobId] = true;
+            Map<String, Integer> results = new LinkedHashMap<>();
+            int[] frontier = {jobId};
+            for (int depth = 1; depth <= maxDepth && frontier.length > 0; depth++) {
+                int[] nextFrontier = new int[16];
+                int nextFrontierSize = 0;
+                for (int downstreamJobId : frontier) {
+                    for (int upstreamJobId : getUpstreamJobIds(downstreamJobId)) {
+                        if (!visited[upstreamJobId]) {
+                            visited[upstreamJobId] = true;
+                            results.put(jobFullNames[upstreamJobId], lastSuccessfulBuildNumbers[upstreamJobId]);
+                            if (nextFrontierSize == nextFrontier.length) {
+                                nextFrontier = Arrays.copyOf(nextFrontier, nextFrontierSize * 2);
+                            }
+                            nextFrontier[nextFrontierSize++] = upstreamJobId;
+                        }
+                    }
+                }
+                frontier = Arrays.copyOf(nextFrontier, nextFrontierSize);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @NonNull
+    public String toPrettyString() {
+        lock.readLock().lock();
+        try {
+            if (!loaded) {
+                return "In-memory dependency graph: not loaded";
+            }
+            long edgeCount = 0;
+            for (int artifactId = 0; artifactId < artifactCount; artifactId++) {
+                edgeCount += (long) producers[artifactId].length
+                        * (dependencyConsumers[artifactId].length + parentProjectConsumers[artifactId].length);
+            }
+            return "In-memory dependency graph: " + jobIdsByFullName.size() + " jobs, " + artifactIdsByKey.size()
+                    + " artifacts, " + edgeCount + " job to job edges by artifact";
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return {@code -1} if the job is unknown or if the given build is not its last successful build
+     */
+    private int getJobIdIfLastSuccessfulBuild(@NonNull String jobFullName, int buildNumber) {
+        if (!loaded) {
+            return -1;
+        }
+        Integer jobId = jobIdsByFullName.get(jobFullName);
+        if (jobId == null || lastSuccessfulBuildNumbers[jobId] != buildNumber) {
+            return -1;
+        }
+        return jobId;
+    }
+
+    /**
+     * @return sorted ids of the jobs generating the artifacts consumed by the given job
+     */
+    @NonNull
+    private int[] getUpstreamJobIds(int jobId) {
+        int[] upstreamJobIds = EMPTY;
+        for (int[] consumedArtifacts : Arrays.asList(dependencies[jobId], parentProjects[jobId])) {
+            for (int artifactId : consumedArtifacts) {
+                for (int upstreamJobId : producers[artifactId]) {
+                    upstreamJobIds = insert(upstreamJobIds, upstreamJobId);
+                }
+            }
+        }
+        return upstreamJobIds;
+    }
+
+    private void addJobFullNames(@NonNull int[] jobIds, @NonNull SortedSet<String> jobFullNames) {
+        for (int jobId : jobIds) {
+            jobFullNames.add(this.jobFullNames[jobId]);
+        }
+    }
+
+    /**
+     * Insert or replace the given job, the caller must hold the write lock
+     */
+    private void putJob(@NonNull JobSnapshot job) {
+        Integer existingJobId = jobIdsByPrimaryKey.get(job.primaryKey);
+        int jobId;
+        if (existingJobId == null) {
+            jobId = allocateJobId();
+        } else {
+            jobId = existingJobId;
+            unlinkJob(jobId);
+            jobIdsByFullName.remove(jobFullNames[jobId]);
+        }
+        jobIdsByPrimaryKey.put(job.primaryKey, jobId);
+        jobIdsByFullName.put(job.fullName, jobId);
+        jobPrimaryKeys[jobId] = job.primaryKey;
+        jobFullNames[jobId] = job.fullName;
+        lastSuccessfulBuildNumbers[jobId] = job.lastSuccessfulBuildNumber;
+
+        int generatedCount = job.generatedArtifacts.size();
+        generatedArtifacts[jobId] = new int[generatedCount];
+        generatedVersions[jobId] = new String[generatedCount];
+        generatedExtensions[jobId] = new String[generatedCount];
+        for (int i = 0; i < generatedCount; i++) {
+            String[] row = job.generatedArtifacts.get(i);
+            int artifactId = getOrCreateArtifactId(row);
+            generatedArtifacts[jobId][i] = artifactId;
+            generatedVersions[jobId][i] = row[5];
+            generatedExtensions[jobId][i] = row[6];
+            producers[artifactId] = insert(producers[artifactId], jobId);
+        }
+        dependencies[jobId] = EMPTY;
+        for (String[] row : job.dependencies) {
+            int artifactId = getOrCreateArtifactId(row);
+            dependencies[jobId] = insert(dependencies[jobId], artifactId);
+            dependencyConsumers[artifactId] = insert(dependencyConsumers[artifactId], jobId);
+        }
+        parentProjects[jobId] = EMPTY;
+        for (String[] row : job.parentProjects) {
+            int artifactId = getOrCreateArtifactId(row);
+            parentProjects[jobId] = insert(parentProjects[jobId], artifactId);
+            parentProjectConsumers[artifactId] = insert(parentProjectConsumers[artifactId], jobId);
+        }
+    }
+
+    /**
+     * The caller must hold the write lock
+     */
+    private void removeJob(int jobId) {
+        unlinkJob(jobId);
+        jobIdsByFullName.remove(jobFullNames[jobId]);
+        jobIdsByPrimaryKey.remove(jobPrimaryKeys[jobId]);
+        jobFullNames[jobId] = null;
+        generatedArtifacts[jobId] = EMPTY;
+        generatedVersions[jobId] = new String[0];
+        generatedExtensions[jobId] = new String[0];
+        dependencies[jobId] = EMPTY;
+        parentProjects[jobId] = EMPTY;
+        freeJobIds.push(jobId);
+    }
+
+    /**
+     * Remove the given job from the adjacency arrays of the artifacts and free the artifacts no longer generated nor
+     * consumed by any job
+     */
+    private void unlinkJob(int jobId) {
+        for (int artifactId : generatedArtifacts[jobId]) {
+            producers[artifactId] = remove(producers[artifactId], jobId);
+            freeArtifactIdIfUnused(artifactId);
+        }
+        for (int artifactId : dependencies[jobId]) {
+            dependencyConsumers[artifactId] = remove(dependencyConsumers[artifactId], jobId);
+            freeArtifactIdIfUnused(artifactId);
+        }
+        for (int artifactId : parentProjects[jobId]) {
+            parentProjectConsumers[artifactId] = remove(parentProjectConsumers[artifactId], jobId);
+            freeArtifactIdIfUnused(artifactId);
+        }
+    }
+
+    private void freeArtifactIdIfUnused(int artifactId) {
+        if (artifactCoordinates[artifactId] == null
+                || producers[artifactId].length > 0
+                || dependencyConsumers[artifactId].length > 0
+                || parentProjectConsumers[artifactId].length > 0) {
+            return;
+        }
+        String[] coordinates = artifactCoordinates[artifactId];
+        artifactIdsByKey.remove(
+                getArtifactKey(coordinates[0], coordinates[1], coordinates[2], coordinates[3], coordinates[4]));
+        artifactCoordinates[artifactId] = null;
+        freeArtifactIds.push(artifactId);
+    }
+
+    private int allocateJobId() {
+        Integer freeJobId = freeJobIds.poll();
+        if (freeJobId != null) {
+            return freeJobId;
+        }
+        if (jobCount == jobFullNames.length) {
+            int capacity = jobCount * 2;
+            jobPrimaryKeys = Arrays.copyOf(jobPrimaryKeys, capacity);
+            jobFullNames = Arrays.copyOf(jobFullNames, capacity);
+            lastSuccessfulBuildNumbers = Arrays.copyOf(lastSuccessfulBuildNumbers, capacity);
+            generatedArtifacts = Arrays.copyOf(generatedArtifacts, capacity);
+            generatedVersions = Arrays.copyOf(generatedVersions, capacity);
+            generatedExtensions = Arrays.copyOf(generatedExtensions, capacity);
+            dependencies = Arrays.copyOf(dependencies, capacity);
+            parentProjects = Arrays.copyOf(parentProjects, capacity);
+        }
+        int jobId = jobCount++;
+        generatedArtifacts[jobId] = EMPTY;
+        dependencies[jobId] = EMPTY;
+        parentProjects[jobId] = EMPTY;
+        return jobId;
+    }
+
+    /**
+     * Artifacts are freed once no job generates nor consumes them, the caller must link the returned artifact to a
+     * job
+     */
+    private int getOrCreateArtifactId(@NonNull String[] row) {
+        String key = getArtifactKey(row[0], row[1], row[2], row[3], row[4]);
+        Integer artifactId = artifactIdsByKey.get(key);
+        if (artifactId != null) {
+            return artifactId;
+        }
+        Integer freeArtifactId = freeArtifactIds.poll();
+        int id;
+        if (freeArtifactId != null) {
+            id = freeArtifactId;
+        } else {
+            if (artifactCount == artifactCoordinates.length) {
+                int capacity = artifactCount * 2;
+                artifactCoordinates = Arrays.copyOf(artifactCoordinates, capacity);
+                producers = Arrays.copyOf(producers, capacity);
+                dependencyConsumers = Arrays.copyOf(dependencyConsumers, capacity);
+                parentProjectConsumers = Arrays.copyOf(parentProjectConsumers, capacity);
+            }
+            id = artifactCount++;
+        }
+        artifactCoordinates[id] = Arrays.copyOf(row, 5);
+        producers[id] = EMPTY;
+        dependencyConsumers[id] = EMPTY;
+        parentProjectConsumers[id] = EMPTY;
+        artifactIdsByKey.put(key, id);
+        return id;
+    }
+
+    private void clear() {
+        jobIdsByFullName.clear();
+        jobIdsByPrimaryKey.clear();
+        freeJobIds.clear();
+        jobCount = 0;
+        artifactIdsByKey.clear();
+        freeArtifactIds.clear();
+        artifactCount = 0;
+        Arrays.fill(jobFullNames, null);
+        Arrays.fill(artifactCoordinates, null);
+    }
+
+    @NonNull
+    private static String getArtifactKey(
+            String groupId, String artifactId, String baseVersion, String type, String classifier) {
+        return groupId + ':' + artifactId + ':' + baseVersion + ':' + type + ':' + classifier;
+    }
+
+    /**
+     * @return the given sorted array with the given value, the given array itself if it already contains the value
+     */
+    @NonNull
+    static int[] insert(@NonNull int[] sortedValues, int value) {
+        int idx = Arrays.binarySearch(sortedValues, value);
+        if (idx >= 0) {
+            return sortedValues;
+        }
+        int insertionPoint = -idx - 1;
+        int[] result = new int[sortedValues.length + 1];
+        System.arraycopy(sortedValues, 0, result, 0, insertionPoint);
+        result[insertionPoint] = value;
+        System.arraycopy(
+                sortedValues, insertionPoint, result, insertionPoint + 1, sortedValues.length - insertionPoint);
+        return result;
+    }
+
+    /**
+     * @return the given sorted array without the given value, the given array itself if it doesn't contain the value
+     */
+    @NonNull
+    static int[] remove(@NonNull int[] sortedValues, int value) {
+        int idx = Arrays.binarySearch(sortedValues, value);
+        if (idx < 0) {
+            return sortedValues;
+        }
+        int[] result = new int[sortedValues.length - 1];
+        System.arraycopy(sortedValues, 0, result, 0, idx);
+        System.arraycopy(sortedValues, idx + 1, result, idx, sortedValues.length - idx - 1);
+        return result;
+    }
+
+    /**
+     * @param jobPrimaryKey {@code null} to select all the jobs of the master
+     */
+    @NonNull
+    private static Map<Long, JobSnapshot> selectJobs(
+            @NonNull Connection cnn, long jenkinsMasterPrimaryKey, @Nullable Long jobPrimaryKey) throws SQLException {
+        String jobFilter = jobPrimaryKey == null ? "" : JOB_FILTER;
+        Map<Long, JobSnapshot> jobs = new HashMap<>();
+        try (PreparedStatement stmt =
+                prepareStatement(cnn, JOBS_SQL + jobFilter, jenkinsMasterPrimaryKey, jobPrimaryKey)) {
+            try (ResultSet rst = stmt.executeQuery()) {
+                while (rst.next()) {
+                    JobSnapshot job = new JobSnapshot(rst.getLong(1), rst.getString(2), rst.getInt(3));
+                    jobs.put(job.primaryKey, job);
+                }
+            }
+        }
+        selectArtifacts(
+                cnn,
+                GENERATED_ARTIFACTS_SQL + jobFilter,
+                jenkinsMasterPrimaryKey,
+                jobPrimaryKey,
+                7,
+                jobs,
+                job -> job.generatedArtifacts);
+        selectArtifacts(
+                cnn,
+                DEPENDENCIES_SQL + jobFilter,
+                jenkinsMasterPrimaryKey,
+                jobPrimaryKey,
+                5,
+                jobs,
+                job -> job.dependencies);
+        selectArtifacts(
+                cnn,
+                PARENT_PROJECTS_SQL + jobFilter,
+                jenkinsMasterPrimaryKey,
+                jobPrimaryKey,
+                5,
+                jobs,
+                job -> job.parentProjects);
+        return jobs;
+    }
+
+    /**
+     * @param columnCount number of selected columns after the job primary key
+     * @param artifacts   list of the job snapshot receiving the selected artifacts
+     */
+    private static void selectArtifacts(
+            @NonNull Connection cnn,
+            @NonNull String sql,
+            long jenkinsMasterPrimaryKey,
+            @Nullable Long jobPrimaryKey,
+            int columnCount,
+            @NonNull Map<Long, JobSnapshot> jobs,
+            @NonNull Function<JobSnapshot, List<String[]>> artifacts)
+            throws SQLException {
+        try (PreparedStatement stmt = prepareStatement(cnn, sql, jenkinsMasterPrimaryKey, jobPrimaryKey)) {
+            stmt.setFetchSize(1000);
+            try (ResultSet rst = stmt.executeQuery()) {
+                while (rst.next()) {
+                    JobSnapshot job = jobs.get(rst.getLong(1));
+                    if (job == null) {
+                        // job created or modified after the selection of the jobs, it will be reloaded
+                        continue;
+                    }
+                    String[] row = new String[columnCount];
+                    for (int i = 0; i < columnCount; i++) {
+                        row[i] = rst.getString(i + 2);
+                    }
+                    artifacts.apply(job).add(row);
+                }
+            }
+        }
+    }
+
+    @NonNull
+    private static PreparedStatement prepareStatement(
+            @NonNull Connection cnn, @NonNull String sql, long jenkinsMasterPrimaryKey, @Nullable Long jobPrimaryKey)
+            throws SQLException {
+        PreparedStatement stmt = cnn.prepareStatement(sql);
+        stmt.setLong(1, jenkinsMasterPrimaryKey);
+        if (jobPrimaryKey != null) {
+            stmt.setLong(2, jobPrimaryKey);
+        }
+        return stmt;
+    }
+
+    /**
+     * Last successful build of a job as selected from the database, artifacts are described by their groupId,
+     * artifactId, baseVersion, type and classifier followed, for the generated artifacts, by their version and
+     * extension
+     */
+    private static class JobSnapshot {
+        final long primaryKey;
+        final String fullName;
+        final int lastSuccessfulBuildNumber;
+        final List<String[]> generatedArtifacts = new ArrayList<>();
+        final List<String[]> dependencies = new ArrayList<>();
+        final List<String[]> parentProjects = new ArrayList<>();
+
+        JobSnapshot(long primaryKey, String fullName, int lastSuccessfulBuildNumber) {
+            this.primaryKey = primaryKey;
+            this.fullName = fullName;
+            this.lastSuccessfulBuildNumber = lastSuccessfulBuildNumber;
+        }
+    }
+}
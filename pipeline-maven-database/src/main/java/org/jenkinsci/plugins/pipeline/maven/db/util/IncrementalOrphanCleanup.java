@@ -0,0 +1,99 @@
+package org.jenkinsci.plugins.pipeline.maven.db.util;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delete the orphan rows of a table by chunks of primary keys (keyset pagination) rather than with a single
+ * {@code DELETE ... WHERE ID NOT IN (...)} statement that scans and locks the whole table.
+ * <p>
+ * Each chunk is an anti-join restricted to a range of primary keys and is committed by the caller, the position in
+ * the table is remembered between invocations so that a cleanup interrupted by its time or row budget resumes where
+ * it stopped.
+ */
+public class IncrementalOrphanCleanup {
+
+    private final String table;
+
+    private final String orphanCondition;
+
+    /**
+     * Greatest primary key of the rows scanned by the current pass, {@code 0} at the beginning of a pass
+     */
+    private final AtomicLong cursor = new AtomicLong();
+
+    private final AtomicLong scannedCount = new AtomicLong();
+
+    private final AtomicLong deletedCount = new AtomicLong();
+
+    private final AtomicLong completedPassCount = new AtomicLong();
+
+    /**
+     * @param table           table to cleanup, its primary key must be the {@code ID} column
+     * @param orphanCondition SQL condition identifying the orphan rows of the table, e.g. {@code NOT EXISTS (...)}
+     */
+    public IncrementalOrphanCleanup(@NonNull String table, @NonNull String orphanCondition) {
+        this.table = table;
+        this.orphanCondition = orphanCondition;
+    }
+
+    /**
+     * Delete the orphan rows among the next {@code chunkSize} rows of the table. The caller is responsible for
+     * committing.
+     *
+     * @return number of deleted rows, {@code -1} when the end of the table has been reached and the next invocation
+     * starts a new pass
+     */
+    public int deleteNextChunk(@NonNull Connection cnn, int chunkSize) throws SQLException {
+        long lowerBound = cursor.get();
+        long upperBound = lowerBound;
+        int rowCount = 0;
+        try (PreparedStatement stmt =
+                cnn.prepareStatement("SELECT ID FROM " + table + " WHERE ID > ? ORDER BY ID")) {
+            stmt.setLong(1, lowerBound);
+            stmt.setMaxRows(chunkSize);
+            stmt.setFetchSize(chunkSize);
+            try (ResultSet rst = stmt.executeQuery()) {
+                while (rst.next()) {
+                    upperBound = rst.getLong(1);
+                    rowCount++;
+                }
+            }
+        }
+        if (rowCount == 0) {
+            cursor.set(0);
+            completedPassCount.incrementAndGet();
+            return -1;
+        }
+
+        int count;
+        try (PreparedStatement stmt = cnn.prepareStatement(
+                "DELETE FROM " + table + " WHERE ID > ? AND ID <= ? AND " + orphanCondition)) {
+            stmt.setLong(1, lowerBound);
+            stmt.setLong(2, upperBound);
+            count = stmt.executeUpdate();
+        }
+        cursor.set(upperBound);
+        scannedCount.addAndGet(rowCount);
+        deletedCount.addAndGet(count);
+        return count;
+    }
+
+    public long getDeletedCount() {
+        return deletedCount.get();
+    }
+
+    public long getCompletedPassCount() {
+        return completedPassCount.get();
+    }
+
+    @NonNull
+    public String toPrettyString() {
+        return "Cleanup " + table + ": cursor=" + cursor.get() + ", scanned=" + scannedCount.get() + ", deleted="
+                + deletedCount.get() + ", completedPasses=" + completedPassCount.get();
+    }
+}
@@ -0,0 +1,95 @@
+package org.jenkinsci.plugins.pipeline.maven.db.util;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Bounded and thread safe cache of database primary keys.
+ * <p>
+ * When the cache is full, arbitrary entries are evicted to make room for the new ones: primary keys are cheap to
+ * resolve again from the database so there is no need for a strict LRU policy.
+ * <p>
+ * A primary key read before an invalidation of the cache may be stale: it is only cached by
+ * {@link #put(Object, long, long)} if the cache has not been cleared since the given {@link #getGeneration()}.
+ *
+ * @param <K> type of the natural key
+ */
+public class PrimaryKeyCache<K> {
+
+    private final ConcurrentMap<K, Long> primaryKeys = new ConcurrentHashMap<>();
+
+    private final int maxSize;
+
+    /**
+     * Incremented by each {@link #clear()}
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    public PrimaryKeyCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @CheckForNull
+    public Long get(@NonNull K key) {
+        return primaryKeys.get(key);
+    }
+
+    public void put(@NonNull K key, long primaryKey) {
+        if (maxSize <= 0) {
+            return;
+        }
+        if (primaryKeys.size() >= maxSize) {
+            evict();
+        }
+        primaryKeys.put(key, primaryKey);
+    }
+
+    /**
+     * Cache the given primary key unless the cache has been cleared since it has been read from the database.
+     *
+     * @param loadGeneration {@link #getGeneration()} before reading the primary key from the database
+     */
+    public void put(@NonNull K key, long primaryKey, long loadGeneration) {
+        if (generation.get() == loadGeneration) {
+            put(key, primaryKey);
+        }
+    }
+
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    public void remove(@NonNull K key) {
+        primaryKeys.remove(key);
+    }
+
+    public void removeIf(@NonNull Predicate<K> predicate) {
+        primaryKeys.keySet().removeIf(predicate);
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        primaryKeys.clear();
+    }
+
+    public int size() {
+        return primaryKeys.size();
+    }
+
+    /**
+     * Evict about 10% of the entries to amortize the cost of the eviction.
+     */
+    private void evict() {
+        int toEvict = Math.max(1, maxSize / 10);
+        Iterator<K> it = primaryKeys.keySet().iterator();
+        while (toEvict-- > 0 && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
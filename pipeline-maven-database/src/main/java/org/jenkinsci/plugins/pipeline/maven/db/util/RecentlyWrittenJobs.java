@@ -0,0 +1,102 @@
+package org.jenkinsci.plugins.pipeline.maven.db.util;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded and thread safe record of the jobs written during the last {@code windowInMillis}, used to read the writes
+ * of a job from the primary database while they may not have been replicated to the read replica yet.
+ * <p>
+ * When more than {@code maxSize} jobs have been written during the window, individual jobs are no longer tracked and
+ * all the jobs are considered recently written until the end of the window.
+ */
+public class RecentlyWrittenJobs {
+
+    private final ConcurrentMap<String, Long> writeTimesInNanos = new ConcurrentHashMap<>();
+
+    private final long windowInNanos;
+
+    private final int maxSize;
+
+    private volatile long allWrittenUntilInNanos;
+
+    private volatile boolean allWritten;
+
+    public RecentlyWrittenJobs(long windowInMillis, int maxSize) {
+        this.windowInNanos = TimeUnit.MILLISECONDS.toNanos(windowInMillis);
+        this.maxSize = maxSize;
+    }
+
+    public void written(@NonNull String jobFullName) {
+        if (windowInNanos <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        writeTimesInNanos.put(jobFullName, now);
+        if (writeTimesInNanos.size() > maxSize) {
+            writeTimesInNanos.values().removeIf(writeTimeInNanos -> now - writeTimeInNanos >= windowInNanos);
+            if (writeTimesInNanos.size() > maxSize) {
+                allWrittenUntilInNanos = now + windowInNanos;
+                allWritten = true;
+                writeTimesInNanos.clear();
+            }
+        }
+    }
+
+    public boolean isRecentlyWritten(@NonNull String jobFullName) {
+        if (windowInNanos <= 0) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (allWritten) {
+            if (now - allWrittenUntilInNanos < 0) {
+                return true;
+            }
+            allWritten = false;
+        }
+        Long writeTimeInNanos = writeTimesInNanos.get(jobFullName);
+        if (writeTimeInNanos == null) {
+            return false;
+        } else if (now - writeTimeInNanos < windowInNanos) {
+            return true;
+        } else {
+            writeTimesInNanos.remove(jobFullName, writeTimeInNanos);
+            return false;
+        }
+    }
+
+    public boolean isAnyRecentlyWritten(@NonNull Collection<String> jobFullNames) {
+        for (String jobFullName : jobFullNames) {
+            if (isRecentlyWritten(jobFullName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if any job has been written during the window, for the queries whose jobs are only known
+     * from their results
+     */
+    public boolean isAnyJobRecentlyWritten() {
+        if (windowInNanos <= 0) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (allWritten) {
+            if (now - allWrittenUntilInNanos < 0) {
+                return true;
+            }
+            allWritten = false;
+        }
+        writeTimesInNanos.values().removeIf(writeTimeInNanos -> now - writeTimeInNanos >= windowInNanos);
+        return !writeTimesInNanos.isEmpty();
+    }
+
+    public int size() {
+        return writeTimesInNanos.size();
+    }
+}
@@ -0,0 +1,35 @@
+CREATE TABLE DEPENDENCY_SET
+(
+  ID integer AUTO_INCREMENT PRIMARY KEY NOT NULL,
+  HASH varchar(64) NOT NULL,
+  DEPENDENCY_COUNT integer NOT NULL
+);
+CREATE UNIQUE INDEX IDX_DEPENDENCY_SET_HASH ON DEPENDENCY_SET (HASH);
+
+CREATE TABLE DEPENDENCY_SET_MEMBER
+(
+  DEPENDENCY_SET_ID integer NOT NULL,
+  ARTIFACT_ID integer NOT NULL,
+  SCOPE varchar(20),
+  IGNORE_UPSTREAM_TRIGGERS BOOLEAN DEFAULT FALSE,
+  ID integer AUTO_INCREMENT PRIMARY KEY NOT NULL,
+  CONSTRAINT DEPENDENCY_SET_MEMBER_SET_ID_FK FOREIGN KEY (DEPENDENCY_SET_ID) REFERENCES DEPENDENCY_SET (ID) ON DELETE CASCADE,
+  CONSTRAINT DEPENDENCY_SET_MEMBER_ARTIFACT_ID_FK FOREIGN KEY (ARTIFACT_ID) REFERENCES MAVEN_ARTIFACT (ID) ON DELETE CASCADE
+);
+CREATE INDEX IDX_DEPENDENCY_SET_MEMBER_ARTIFACT ON DEPENDENCY_SET_MEMBER (ARTIFACT_ID);
+CREATE INDEX IDX_DEPENDENCY_SET_MEMBER_SET ON DEPENDENCY_SET_MEMBER (DEPENDENCY_SET_ID);
+
+ALTER TABLE JENKINS_BUILD ADD COLUMN DEPENDENCY_SET_ID integer;
+ALTER TABLE JENKINS_BUILD ADD CONSTRAINT JENKINS_BUILD_DEPENDENCY_SET_ID_FK FOREIGN KEY (DEPENDENCY_SET_ID) REFERENCES DEPENDENCY_SET (ID);
+CREATE INDEX IDX_JENKINS_BUILD_DEPENDENCY_SET ON JENKINS_BUILD (DEPENDENCY_SET_ID);
+
+CREATE OR REPLACE VIEW JOB_DEPENDENCIES as
+  select
+    JENKINS_JOB.FULL_NAME as JOB_FULL_NAME, JENKINS_BUILD.NUMBER AS BUILD_NUMBER,
+    DEPENDENCY_SET_MEMBER.SCOPE, DEPENDENCY_SET_MEMBER.IGNORE_UPSTREAM_TRIGGERS,
+    MAVEN_ARTIFACT.GROUP_ID, MAVEN_ARTIFACT.ARTIFACT_ID, MAVEN_ARTIFACT.VERSION, MAVEN_ARTIFACT.TYPE, MAVEN_ARTIFACT.CLASSIFIER, MAVEN_ARTIFACT.ID
+  from MAVEN_ARTIFACT inner join DEPENDENCY_SET_MEMBER on MAVEN_ARTIFACT.ID = DEPENDENCY_SET_MEMBER.ARTIFACT_ID
+    inner join JENKINS_BUILD on DEPENDENCY_SET_MEMBER.DEPENDENCY_SET_ID = JENKINS_BUILD.DEPENDENCY_SET_ID
+    inner join JENKINS_JOB on JENKINS_BUILD.JOB_ID = JENKINS_JOB.ID;
+
+UPDATE VERSION SET VERSION = 14;
@@ -0,0 +1,31 @@
+CREATE TABLE JOB_DEPENDENCY_EDGE
+(
+  ID integer AUTO_INCREMENT PRIMARY KEY NOT NULL,
+  UPSTREAM_JOB_ID integer NOT NULL,
+  DOWNSTREAM_JOB_ID integer NOT NULL,
+  ARTIFACT_ID integer NOT NULL,
+  CONSTRAINT JOB_DEPENDENCY_EDGE_UPSTREAM_JOB_ID_FK FOREIGN KEY (UPSTREAM_JOB_ID) REFERENCES JENKINS_JOB (ID) ON DELETE CASCADE,
+  CONSTRAINT JOB_DEPENDENCY_EDGE_DOWNSTREAM_JOB_ID_FK FOREIGN KEY (DOWNSTREAM_JOB_ID) REFERENCES JENKINS_JOB (ID) ON DELETE CASCADE,
+  CONSTRAINT JOB_DEPENDENCY_EDGE_ARTIFACT_ID_FK FOREIGN KEY (ARTIFACT_ID) REFERENCES MAVEN_ARTIFACT (ID) ON DELETE CASCADE
+);
+CREATE INDEX IDX_JOB_DEPENDENCY_EDGE_UPSTREAM ON JOB_DEPENDENCY_EDGE (UPSTREAM_JOB_ID);
+CREATE INDEX IDX_JOB_DEPENDENCY_EDGE_DOWNSTREAM ON JOB_DEPENDENCY_EDGE (DOWNSTREAM_JOB_ID);
+
+INSERT INTO JOB_DEPENDENCY_EDGE (UPSTREAM_JOB_ID, DOWNSTREAM_JOB_ID, ARTIFACT_ID)
+  select upstream_job.ID, downstream_job.ID, GENERATED_MAVEN_ARTIFACT.ARTIFACT_ID
+  from JENKINS_JOB as upstream_job
+  inner join JENKINS_BUILD as upstream_build on (upstream_build.JOB_ID = upstream_job.ID and upstream_build.NUMBER = upstream_job.LAST_SUCCESSFUL_BUILD_NUMBER)
+  inner join GENERATED_MAVEN_ARTIFACT on (GENERATED_MAVEN_ARTIFACT.BUILD_ID = upstream_build.ID and GENERATED_MAVEN_ARTIFACT.SKIP_DOWNSTREAM_TRIGGERS = false)
+  inner join DEPENDENCY_SET_MEMBER on (DEPENDENCY_SET_MEMBER.ARTIFACT_ID = GENERATED_MAVEN_ARTIFACT.ARTIFACT_ID and DEPENDENCY_SET_MEMBER.IGNORE_UPSTREAM_TRIGGERS = false)
+  inner join JENKINS_BUILD as downstream_build on downstream_build.DEPENDENCY_SET_ID = DEPENDENCY_SET_MEMBER.DEPENDENCY_SET_ID
+  inner join JENKINS_JOB as downstream_job on (downstream_job.ID = downstream_build.JOB_ID and downstream_job.LAST_SUCCESSFUL_BUILD_NUMBER = downstream_build.NUMBER)
+  union
+  select upstream_job.ID, downstream_job.ID, GENERATED_MAVEN_ARTIFACT.ARTIFACT_ID
+  from JENKINS_JOB as upstream_job
+  inner join JENKINS_BUILD as upstream_build on (upstream_build.JOB_ID = upstream_job.ID and upstream_build.NUMBER = upstream_job.LAST_SUCCESSFUL_BUILD_NUMBER)
+  inner join GENERATED_MAVEN_ARTIFACT on (GENERATED_MAVEN_ARTIFACT.BUILD_ID = upstream_build.ID and GENERATED_MAVEN_ARTIFACT.SKIP_DOWNSTREAM_TRIGGERS = false)
+  inner join MAVEN_PARENT_PROJECT on (MAVEN_PARENT_PROJECT.ARTIFACT_ID = GENERATED_MAVEN_ARTIFACT.ARTIFACT_ID and MAVEN_PARENT_PROJECT.IGNORE_UPSTREAM_TRIGGERS = false)
+  inner join JENKINS_BUILD as downstream_build on downstream_build.ID = MAVEN_PARENT_PROJECT.BUILD_ID
+  inner join JENKINS_JOB as downstream_job on (downstream_job.ID = downstream_build.JOB_ID and downstream_job.LAST_SUCCESSFUL_BUILD_NUMBER = downstream_build.NUMBER);
+
+UPDATE VERSION SET VERSION = 15;
@@ -0,0 +1,5 @@
+ALTER TABLE MAVEN_ARTIFACT ADD GAV_HASH BIGINT DEFAULT NULL;
+CREATE INDEX IDX_MAVEN_ARTIFACT_GAV_HASH ON MAVEN_ARTIFACT (GAV_HASH);
+DROP INDEX IDX_MAVEN_ARTIFACT on MAVEN_ARTIFACT;
+
+UPDATE VERSION SET VERSION = 16;
@@ -0,0 +1,19 @@
+CREATE INDEX IDX_DEPENDENCY_SET_MEMBER_ARTIFACT_COVERING ON DEPENDENCY_SET_MEMBER (ARTIFACT_ID, IGNORE_UPSTREAM_TRIGGERS, DEPENDENCY_SET_ID);
+DROP INDEX IDX_DEPENDENCY_SET_MEMBER_ARTIFACT on DEPENDENCY_SET_MEMBER;
+
+CREATE INDEX IDX_GENERATED_BUILD_COVERING ON GENERATED_MAVEN_ARTIFACT (BUILD_ID, SKIP_DOWNSTREAM_TRIGGERS, ARTIFACT_ID);
+DROP INDEX IDX_GENERATED_BUILD on GENERATED_MAVEN_ARTIFACT;
+
+CREATE INDEX IDX_PARENT_ARTIFACT_COVERING ON MAVEN_PARENT_PROJECT (ARTIFACT_ID, IGNORE_UPSTREAM_TRIGGERS, BUILD_ID);
+DROP INDEX IDX_PARENT_ARTIFACT on MAVEN_PARENT_PROJECT;
+
+CREATE INDEX IDX_JENKINS_BUILD_DEPENDENCY_SET_COVERING ON JENKINS_BUILD (DEPENDENCY_SET_ID, JOB_ID, NUMBER);
+DROP INDEX IDX_JENKINS_BUILD_DEPENDENCY_SET on JENKINS_BUILD;
+
+CREATE INDEX IDX_JOB_DEPENDENCY_EDGE_UPSTREAM_COVERING ON JOB_DEPENDENCY_EDGE (UPSTREAM_JOB_ID, DOWNSTREAM_JOB_ID, ARTIFACT_ID);
+DROP INDEX IDX_JOB_DEPENDENCY_EDGE_UPSTREAM on JOB_DEPENDENCY_EDGE;
+
+CREATE INDEX IDX_JOB_DEPENDENCY_EDGE_DOWNSTREAM_COVERING ON JOB_DEPENDENCY_EDGE (DOWNSTREAM_JOB_ID, UPSTREAM_JOB_ID, ARTIFACT_ID);
+DROP INDEX IDX_JOB_DEPENDENCY_EDGE_DOWNSTREAM on JOB_DEPENDENCY_EDGE;
+
+UPDATE VERSION SET VERSION = 17;
@@ -0,0 +1,5 @@
+ALTER TABLE MAVEN_ARTIFACT ADD GAV_HASH BIGINT DEFAULT NULL;
+CREATE INDEX IF NOT EXISTS IDX_MAVEN_ARTIFACT_GAV_HASH ON MAVEN_ARTIFACT (GAV_HASH);
+DROP INDEX IF EXISTS IDX_MAVEN_ARTIFACT;
+
+UPDATE VERSION SET VERSION = 8;
@@ -25,18 +25,36 @@
 package org.jenkinsci.plugins.pipeline.maven.db;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.model.Result;
 import java.io.Closeable;
 import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcConnectionPool;
 import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
 import org.jenkinsci.plugins.pipeline.maven.MavenDependency;
+import org.jenkinsci.plugins.pipeline.maven.db.migration.DependencySetMigrationStep;
+import org.jenkinsci.plugins.pipeline.maven.db.migration.GavHashMigrationStep;
+import org.jenkinsci.plugins.pipeline.maven.db.migration.MigrationStep;
+import org.jenkinsci.plugins.pipeline.maven.db.util.GavHash;
+import org.jenkinsci.plugins.pipeline.maven.db.util.InMemoryDependencyGraph;
+import org.jenkinsci.plugins.pipeline.maven.db.util.IncrementalOrphanCleanup;
 import org.jenkinsci.plugins.pipeline.maven.db.util.SqlTestsUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -48,6 +66,12 @@ import org.jvnet.hudson.test.Issue;
  */
 public abstract class PipelineMavenPluginDaoAbstractTest {
 
+    /**
+     * Dependencies of the builds, one row per dependency of each build
+     */
+    protected static final String BUILD_DEPENDENCIES_QUERY =
+            "select * from JENKINS_BUILD inner join DEPENDENCY_SET_MEMBER on JENKINS_BUILD.DEPENDENCY_SET_ID = DEPENDENCY_SET_MEMBER.DEPENDENCY_SET_ID";
+
     protected DataSource ds;
 
     protected AbstractPipelineMavenPluginDao dao;
@@ -60,6 +84,7 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
                 "JENKINS_MASTER",
                 "JENKINS_JOB",
                 "JENKINS_BUILD",
+                "DEPENDENCY_SET",
                 "MAVEN_ARTIFACT",
                 "MAVEN_DEPENDENCY",
                 "GENERATED_MAVEN_ARTIFACT");
@@ -128,6 +153,85 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(1);
     }
 
+    @Test
+    public void getOrInsertPrimaryKey_does_not_duplicate_rows() throws Exception {
+
+        long buildPrimaryKey = dao.getOrCreateBuildPrimaryKey("my-pipeline", 1);
+
+        try (Connection cnn = ds.getConnection()) {
+            cnn.setAutoCommit(false);
+            long masterPrimaryKey = dao.getJenkinsMasterPrimaryKey(cnn);
+            // simulate a concurrent insert of the same job
+            for (int i = 0; i < 2; i++) {
+                try (PreparedStatement stmt = cnn.prepareStatement(dao.getInsertIfAbsentSql(
+                        "JENKINS_JOB", List.of("FULL_NAME", "JENKINS_MASTER_ID"), List.of()))) {
+                    List<?> values =
+                            dao.getInsertIfAbsentParameters(List.of("my-pipeline", masterPrimaryKey), List.of());
+                    for (int j = 0; j < values.size(); j++) {
+                        stmt.setObject(j + 1, values.get(j));
+                    }
+                    stmt.execute();
+                }
+            }
+            long primaryKey = dao.getOrInsertPrimaryKey(
+                    cnn,
+                    "JENKINS_JOB",
+                    List.of("FULL_NAME", "JENKINS_MASTER_ID"),
+                    List.of("my-pipeline", masterPrimaryKey),
+                    List.of(),
+                    List.of());
+            cnn.commit();
+            assertThat(primaryKey).isPositive();
+        }
+        assertThat(buildPrimaryKey).isPositive();
+
+        assertThat(SqlTestsUtils.countRows("select * from JENKINS_JOB", ds)).isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows("select * from JENKINS_MASTER", ds)).isEqualTo(1);
+    }
+
+    @Test
+    public void getOrInsertPrimaryKey_does_not_update_nor_commit() throws Exception {
+
+        try (Connection cnn = ds.getConnection()) {
+            cnn.setAutoCommit(false);
+            long masterPrimaryKey = dao.getJenkinsMasterPrimaryKey(cnn);
+            String legacyInstanceId = dao.getJenkinsDetails().getMasterLegacyInstanceId();
+            String url = dao.getJenkinsDetails().getMasterRootUrl();
+
+            long primaryKey = dao.getOrInsertPrimaryKey(
+                    cnn,
+                    "JENKINS_MASTER",
+                    List.of("LEGACY_INSTANCE_ID"),
+                    List.of(legacyInstanceId),
+                    List.of("URL"),
+                    List.of("https://another-url.example.com/"));
+            assertThat(primaryKey).isEqualTo(masterPrimaryKey);
+            try (PreparedStatement stmt = cnn.prepareStatement(
+                    dao.getInsertIfAbsentSql("JENKINS_MASTER", List.of("LEGACY_INSTANCE_ID"), List.of("URL")))) {
+                List<?> values = dao.getInsertIfAbsentParameters(
+                        List.of(legacyInstanceId), List.of("https://another-url.example.com/"));
+                for (int i = 0; i < values.size(); i++) {
+                    stmt.setObject(i + 1, values.get(i));
+                }
+                stmt.execute();
+            }
+
+            dao.getOrInsertPrimaryKey(
+                    cnn,
+                    "JENKINS_JOB",
+                    List.of("FULL_NAME", "JENKINS_MASTER_ID"),
+                    List.of("my-pipeline", masterPrimaryKey),
+                    List.of(),
+                    List.of());
+            cnn.rollback();
+
+            assertThat(SqlTestsUtils.countRows("select * from JENKINS_MASTER where URL='" + url + "'", ds))
+                    .isEqualTo(1);
+        }
+        assertThat(SqlTestsUtils.countRows("select * from JENKINS_JOB", ds)).isEqualTo(0);
+    }
+
     @Test
     public void create_job_and_2_builds() throws Exception {
 
@@ -194,13 +298,12 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
                 ds,
                 System.out);
         SqlTestsUtils.dump("select * from MAVEN_ARTIFACT", ds, System.out);
-        SqlTestsUtils.dump("select * from MAVEN_DEPENDENCY", ds, System.out);
+        SqlTestsUtils.dump(BUILD_DEPENDENCIES_QUERY, ds, System.out);
 
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(1);
 
         assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(1);
-        assertThat(SqlTestsUtils.countRows("select * from MAVEN_DEPENDENCY", ds))
-                .isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows(BUILD_DEPENDENCIES_QUERY, ds)).isEqualTo(1);
 
         List<MavenDependency> mavenDependencies = dao.listDependencies("my-pipeline", 1);
         assertThat(mavenDependencies).hasSize(1);
@@ -245,7 +348,7 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
                 ds,
                 System.out);
         SqlTestsUtils.dump("select * from MAVEN_ARTIFACT", ds, System.out);
-        SqlTestsUtils.dump("select * from MAVEN_DEPENDENCY", ds, System.out);
+        SqlTestsUtils.dump(BUILD_DEPENDENCIES_QUERY, ds, System.out);
 
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_JOB", ds)).isEqualTo(1);
 
@@ -255,8 +358,7 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(1);
 
         assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(1);
-        assertThat(SqlTestsUtils.countRows("select * from MAVEN_DEPENDENCY", ds))
-                .isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows(BUILD_DEPENDENCIES_QUERY, ds)).isEqualTo(1);
     }
 
     @Test
@@ -272,15 +374,14 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
                 ds,
                 System.out);
         SqlTestsUtils.dump("select * from MAVEN_ARTIFACT", ds, System.out);
-        SqlTestsUtils.dump("select * from MAVEN_DEPENDENCY", ds, System.out);
+        SqlTestsUtils.dump(BUILD_DEPENDENCIES_QUERY, ds, System.out);
 
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_JOB", ds)).isEqualTo(0);
 
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(0);
 
         assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(2);
-        assertThat(SqlTestsUtils.countRows("select * from MAVEN_DEPENDENCY", ds))
-                .isEqualTo(0);
+        assertThat(SqlTestsUtils.countRows(BUILD_DEPENDENCIES_QUERY, ds)).isEqualTo(0);
     }
 
     @Test
@@ -298,15 +399,394 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
                 ds,
                 System.out);
         SqlTestsUtils.dump("select * from MAVEN_ARTIFACT", ds, System.out);
-        SqlTestsUtils.dump("select * from MAVEN_DEPENDENCY", ds, System.out);
+        SqlTestsUtils.dump(BUILD_DEPENDENCIES_QUERY, ds, System.out);
 
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_JOB", ds)).isEqualTo(1);
 
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(1);
 
         assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(2);
-        assertThat(SqlTestsUtils.countRows("select * from MAVEN_DEPENDENCY", ds))
-                .isEqualTo(2);
+        assertThat(SqlTestsUtils.countRows(BUILD_DEPENDENCIES_QUERY, ds)).isEqualTo(2);
+    }
+
+    @Test
+    public void record_after_delete_job_and_cleanup() throws Exception {
+
+        dao.recordDependency("my-pipeline", 1, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+
+        dao.deleteJob("my-pipeline");
+        dao.cleanup();
+
+        assertThat(SqlTestsUtils.countRows("select * from JENKINS_JOB", ds)).isEqualTo(0);
+        assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(0);
+
+        // the primary keys cached by the first record must have been invalidated
+        dao.recordDependency("my-pipeline", 1, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+
+        assertThat(SqlTestsUtils.countRows("select * from JENKINS_JOB", ds)).isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows(BUILD_DEPENDENCIES_QUERY, ds)).isEqualTo(1);
+    }
+
+    @Test
+    public void record_after_delete_build() throws Exception {
+
+        dao.recordDependency("my-pipeline", 1, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+        dao.recordDependency("my-pipeline", 2, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+
+        dao.deleteBuild("my-pipeline", 2);
+
+        dao.recordDependency("my-pipeline", 2, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", "compile", false, null);
+
+        assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(2);
+        assertThat(SqlTestsUtils.countRows(BUILD_DEPENDENCIES_QUERY, ds)).isEqualTo(2);
+        assertThat(dao.listDependencies("my-pipeline", 2))
+                .extracting(MavenDependency::getArtifactId)
+                .containsExactly("core");
+    }
+
+    @Test
+    public void builds_with_the_same_dependencies_share_the_same_dependency_set() throws Exception {
+
+        for (int buildNumber = 1; buildNumber <= 3; buildNumber++) {
+            dao.recordDependency(
+                    "my-pipeline", buildNumber, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+            dao.recordDependency(
+                    "my-pipeline", buildNumber, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", "test", false, null);
+        }
+        dao.recordDependency("my-pipeline", 4, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+
+        SqlTestsUtils.dump("select * from DEPENDENCY_SET", ds, System.out);
+        SqlTestsUtils.dump(BUILD_DEPENDENCIES_QUERY, ds, System.out);
+
+        // {h2, core} is shared by builds #1 to #3, {h2} by build #4
+        assertThat(SqlTestsUtils.countRows("select * from DEPENDENCY_SET", ds)).isEqualTo(2);
+        assertThat(SqlTestsUtils.countRows("select * from DEPENDENCY_SET_MEMBER", ds)).isEqualTo(3);
+        assertThat(SqlTestsUtils.countRows(BUILD_DEPENDENCIES_QUERY, ds)).isEqualTo(7);
+
+        assertThat(dao.listDependencies("my-pipeline", 2))
+                .extracting(MavenDependency::getArtifactId, MavenDependency::getScope)
+                .containsExactlyInAnyOrder(tuple("h2", "compile"), tuple("core", "test"));
+        assertThat(dao.listDependencies("my-pipeline", 4))
+                .extracting(MavenDependency::getArtifactId, MavenDependency::getScope)
+                .containsExactly(tuple("h2", "compile"));
+
+        dao.deleteBuild("my-pipeline", 4);
+        dao.cleanup();
+
+        assertThat(SqlTestsUtils.countRows("select * from DEPENDENCY_SET", ds)).isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(2);
+    }
+
+    @Test
+    public void incremental_orphan_cleanup_resumes_where_it_stopped() throws Exception {
+
+        dao.recordDependency("my-pipeline", 1, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+        for (int i = 1; i <= 5; i++) {
+            dao.getOrCreateArtifactPrimaryKey("com.mycompany", "orphan-" + i, "1.0-SNAPSHOT", "jar", null);
+        }
+
+        IncrementalOrphanCleanup orphanCleanup = new IncrementalOrphanCleanup(
+                "MAVEN_ARTIFACT",
+                "NOT EXISTS (SELECT 1 FROM DEPENDENCY_SET_MEMBER WHERE DEPENDENCY_SET_MEMBER.ARTIFACT_ID = MAVEN_ARTIFACT.ID)");
+        try (Connection cnn = ds.getConnection()) {
+            cnn.setAutoCommit(false);
+            // h2 and orphan-1
+            assertThat(orphanCleanup.deleteNextChunk(cnn, 2)).isEqualTo(1);
+            cnn.commit();
+            assertThat(orphanCleanup.deleteNextChunk(cnn, 2)).isEqualTo(2);
+            cnn.commit();
+            assertThat(orphanCleanup.deleteNextChunk(cnn, 2)).isEqualTo(2);
+            cnn.commit();
+            // end of the table, the next chunk starts a new pass
+            assertThat(orphanCleanup.deleteNextChunk(cnn, 2)).isEqualTo(-1);
+            assertThat(orphanCleanup.deleteNextChunk(cnn, 2)).isZero();
+            cnn.commit();
+        }
+
+        assertThat(orphanCleanup.getDeletedCount()).isEqualTo(5);
+        assertThat(orphanCleanup.getCompletedPassCount()).isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(1);
+        assertThat(dao.listDependencies("my-pipeline", 1)).hasSize(1);
+    }
+
+    @Test
+    public void cleanup_keeps_parent_projects() throws Exception {
+
+        dao.recordParentProject(
+                "my-pipeline", 1, "org.springframework.boot", "spring-boot-starter-parent", "1.5.4.RELEASE", false);
+        dao.recordDependency("my-pipeline", 1, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+        dao.deleteBuild("my-pipeline", 1);
+        dao.recordParentProject(
+                "my-pipeline", 2, "org.springframework.boot", "spring-boot-starter-parent", "1.5.4.RELEASE", false);
+
+        dao.cleanup();
+
+        assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows("select * from MAVEN_PARENT_PROJECT", ds)).isEqualTo(1);
+        assertThat(dao.toPrettyString()).contains("Cleanup MAVEN_ARTIFACT");
+    }
+
+    @Test
+    public void count_rows() throws Exception {
+
+        dao.recordDependency("my-pipeline", 1, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+        dao.recordDependency("my-pipeline", 2, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+
+        assertThat(dao.countRows())
+                .containsEntry("JENKINS_JOB", 1L)
+                .containsEntry("JENKINS_BUILD", 2L)
+                .containsEntry("MAVEN_ARTIFACT", 1L);
+        assertThat(dao.toPrettyString()).contains("Table JENKINS_BUILD: ");
+    }
+
+    @Test
+    public void prune_builds_retains_last_and_last_successful_builds() throws Exception {
+
+        for (int buildNumber = 1; buildNumber <= 5; buildNumber++) {
+            dao.recordDependency(
+                    "my-pipeline", buildNumber, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+            int result = buildNumber == 2 ? Result.SUCCESS.ordinal : Result.FAILURE.ordinal;
+            dao.updateBuildOnCompletion("my-pipeline", buildNumber, result, System.currentTimeMillis() - 100, 11);
+        }
+
+        assertThat(dao.pruneBuilds(2, 1)).isEqualTo(1);
+        assertThat(dao.pruneBuilds(2, 10)).isEqualTo(1);
+        assertThat(dao.pruneBuilds(2, 10)).isEqualTo(0);
+
+        SqlTestsUtils.dump("select * from JENKINS_BUILD", ds, System.out);
+
+        // builds #4 and #5 are the last builds, build #2 is the last successful build
+        assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(3);
+        assertThat(dao.listDependencies("my-pipeline", 1)).isEmpty();
+        assertThat(dao.listDependencies("my-pipeline", 2)).hasSize(1);
+        assertThat(dao.listDependencies("my-pipeline", 5)).hasSize(1);
+
+        // a pruned build is recorded again if needed
+        dao.recordDependency("my-pipeline", 3, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+        assertThat(dao.listDependencies("my-pipeline", 3)).hasSize(1);
+    }
+
+    @Test
+    public void prune_builds_ranks_the_builds_when_there_are_gaps_between_the_build_numbers() throws Exception {
+
+        for (int buildNumber : new int[] {1, 3, 5, 8, 10}) {
+            dao.recordDependency(
+                    "my-pipeline", buildNumber, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+            int result = buildNumber == 3 ? Result.SUCCESS.ordinal : Result.FAILURE.ordinal;
+            dao.updateBuildOnCompletion("my-pipeline", buildNumber, result, System.currentTimeMillis() - 100, 11);
+        }
+        // build #11 is still running
+        dao.recordDependency("my-pipeline", 11, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+
+        // builds #8 and #10 are the 2 most recent completed builds, build #3 is the last successful build
+        assertThat(dao.pruneBuilds(2, 10)).isEqualTo(2);
+        assertThat(dao.pruneBuilds(2, 10)).isEqualTo(0);
+
+        SqlTestsUtils.dump("select * from JENKINS_BUILD", ds, System.out);
+
+        assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(4);
+        assertThat(dao.listDependencies("my-pipeline", 1)).isEmpty();
+        assertThat(dao.listDependencies("my-pipeline", 3)).hasSize(1);
+        assertThat(dao.listDependencies("my-pipeline", 5)).isEmpty();
+        assertThat(dao.listDependencies("my-pipeline", 8)).hasSize(1);
+        assertThat(dao.listDependencies("my-pipeline", 10)).hasSize(1);
+        assertThat(dao.listDependencies("my-pipeline", 11)).hasSize(1);
+    }
+
+    @Test
+    public void job_dependency_edges_follow_the_last_successful_builds() throws Exception {
+
+        dao.recordGeneratedArtifact(
+                "pipeline-framework",
+                1,
+                "com.mycompany",
+                "framework",
+                "1.0-SNAPSHOT",
+                "jar",
+                "1.0-SNAPSHOT",
+                null,
+                false,
+                "jar",
+                null);
+        dao.updateBuildOnCompletion(
+                "pipeline-framework", 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+
+        dao.recordDependency(
+                "pipeline-core", 1, "com.mycompany", "framework", "1.0-SNAPSHOT", "jar", "compile", false, null);
+        dao.updateBuildOnCompletion("pipeline-core", 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+
+        SqlTestsUtils.dump("select * from JOB_DEPENDENCY_EDGE", ds, System.out);
+        assertThat(SqlTestsUtils.countRows("select * from JOB_DEPENDENCY_EDGE", ds)).isEqualTo(1);
+        assertThat(dao.listDownstreamJobsByArtifact("pipeline-framework", 1).values())
+                .containsExactly(new TreeSet<>(List.of("pipeline-core")));
+        assertThat(dao.listUpstreamJobs("pipeline-core", 1)).isEqualTo(Map.of("pipeline-framework", 1));
+
+        // the last successful build of pipeline-core no longer depends on pipeline-framework
+        dao.recordDependency("pipeline-core", 2, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+        dao.updateBuildOnCompletion("pipeline-core", 2, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+
+        assertThat(SqlTestsUtils.countRows("select * from JOB_DEPENDENCY_EDGE", ds)).isEqualTo(0);
+        assertThat(dao.listDownstreamJobsByArtifact("pipeline-framework", 1)).isEmpty();
+        assertThat(dao.listUpstreamJobs("pipeline-core", 2)).isEmpty();
+        // not the last successful build, evaluated on the builds
+        assertThat(dao.listUpstreamJobs("pipeline-core", 1)).isEqualTo(Map.of("pipeline-framework", 1));
+
+        // build #1 becomes the last successful build again
+        dao.deleteBuild("pipeline-core", 2);
+
+        assertThat(SqlTestsUtils.countRows("select * from JOB_DEPENDENCY_EDGE", ds)).isEqualTo(1);
+        assertThat(dao.listUpstreamJobs("pipeline-core", 1)).isEqualTo(Map.of("pipeline-framework", 1));
+
+        dao.deleteJob("pipeline-framework");
+
+        assertThat(SqlTestsUtils.countRows("select * from JOB_DEPENDENCY_EDGE", ds)).isEqualTo(0);
+    }
+
+    @Test
+    public void migrate_maven_dependencies_to_dependency_sets() throws Exception {
+
+        long build1PrimaryKey = dao.getOrCreateBuildPrimaryKey("my-pipeline", 1);
+        long build2PrimaryKey = dao.getOrCreateBuildPrimaryKey("my-pipeline", 2);
+        long h2PrimaryKey = dao.getOrCreateArtifactPrimaryKey("com.h2database", "h2", "1.4.196", "jar", null);
+        long corePrimaryKey = dao.getOrCreateArtifactPrimaryKey("com.mycompany", "core", "1.0-SNAPSHOT", "jar", null);
+
+        try (Connection cnn = ds.getConnection()) {
+            cnn.setAutoCommit(false);
+            try (PreparedStatement stmt = cnn.prepareStatement(
+                    "INSERT INTO MAVEN_DEPENDENCY(ARTIFACT_ID, BUILD_ID, SCOPE, IGNORE_UPSTREAM_TRIGGERS) VALUES (?, ?, ?, ?)")) {
+                for (long buildPrimaryKey : new long[] {build1PrimaryKey, build2PrimaryKey}) {
+                    stmt.setLong(1, h2PrimaryKey);
+                    stmt.setLong(2, buildPrimaryKey);
+                    stmt.setString(3, "compile");
+                    stmt.setBoolean(4, false);
+                    stmt.addBatch();
+                    stmt.setLong(1, corePrimaryKey);
+                    stmt.setLong(2, buildPrimaryKey);
+                    stmt.setString(3, "test");
+                    stmt.setBoolean(4, true);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            new DependencySetMigrationStep().execute(cnn, new MigrationStep.JenkinsDetails());
+            cnn.commit();
+        }
+
+        assertThat(SqlTestsUtils.countRows("select * from MAVEN_DEPENDENCY", ds)).isEqualTo(0);
+        assertThat(SqlTestsUtils.countRows("select * from MIGRATION_CHECKPOINT", ds)).isEqualTo(0);
+        assertThat(SqlTestsUtils.countRows("select * from DEPENDENCY_SET", ds)).isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows(BUILD_DEPENDENCIES_QUERY, ds)).isEqualTo(4);
+        assertThat(dao.listDependencies("my-pipeline", 2))
+                .extracting(MavenDependency::getArtifactId, MavenDependency::getScope)
+                .containsExactlyInAnyOrder(tuple("h2", "compile"), tuple("core", "test"));
+    }
+
+    @Test
+    public void verify_the_coordinates_of_the_artifacts_sharing_a_gav_hash() throws Exception {
+        try (Connection cnn = ds.getConnection()) {
+            cnn.setAutoCommit(false);
+            long h2PrimaryKey = dao.getOrCreateArtifactPrimaryKey(cnn, "com.h2database", "h2", "1.4.196", "jar", null);
+            // another artifact colliding with the hash of com.mycompany:core:1.0-SNAPSHOT:jar
+            try (PreparedStatement stmt = cnn.prepareStatement(
+                    "INSERT INTO MAVEN_ARTIFACT(GROUP_ID, ARTIFACT_ID, VERSION, TYPE, CLASSIFIER, GAV_HASH) VALUES (?, ?, ?, ?, ?, ?)")) {
+                stmt.setString(1, "com.mycompany");
+                stmt.setString(2, "core");
+                stmt.setString(3, "1.0-SNAPSHOT");
+                stmt.setString(4, "jar");
+                stmt.setString(5, "tests");
+                stmt.setLong(6, GavHash.of("com.mycompany", "core", "1.0-SNAPSHOT", "jar", null));
+                stmt.execute();
+            }
+            long corePrimaryKey =
+                    dao.getOrCreateArtifactPrimaryKey(cnn, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", null);
+            cnn.commit();
+
+            assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(3);
+            assertThat(dao.getOrCreateArtifactPrimaryKey(cnn, "com.h2database", "h2", "1.4.196", "jar", null))
+                    .isEqualTo(h2PrimaryKey);
+            assertThat(dao.getOrCreateArtifactPrimaryKey(cnn, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", null))
+                    .isEqualTo(corePrimaryKey);
+            assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(3);
+        }
+    }
+
+    @Test
+    public void migrate_maven_artifacts_to_gav_hash() throws Exception {
+        try (Connection cnn = ds.getConnection()) {
+            cnn.setAutoCommit(false);
+            try (PreparedStatement stmt = cnn.prepareStatement(
+                    "INSERT INTO MAVEN_ARTIFACT(GROUP_ID, ARTIFACT_ID, VERSION, TYPE, CLASSIFIER) VALUES (?, ?, ?, ?, ?)")) {
+                for (String classifier : new String[] {null, "tests"}) {
+                    stmt.setString(1, "com.mycompany");
+                    stmt.setString(2, "core");
+                    stmt.setString(3, "1.0-SNAPSHOT");
+                    stmt.setString(4, "jar");
+                    stmt.setString(5, classifier);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            new GavHashMigrationStep().execute(cnn, new MigrationStep.JenkinsDetails());
+            cnn.commit();
+
+            assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT where GAV_HASH is null", ds))
+                    .isEqualTo(0);
+            dao.getOrCreateArtifactPrimaryKey(cnn, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", null);
+            dao.getOrCreateArtifactPrimaryKey(cnn, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", "tests");
+            cnn.commit();
+            assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void lookups_by_artifact_and_by_build_use_the_covering_indexes() throws Exception {
+        // H2, including its PostgreSQL and MySQL compatibility modes running the migrations of these databases
+        assumeTrue(ds instanceof JdbcConnectionPool, "EXPLAIN output of H2");
+
+        for (int i = 1; i <= 20; i++) {
+            dao.recordDependency(
+                    "pipeline-" + i, 1, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", "compile", false, null);
+            dao.recordParentProject("pipeline-" + i, 1, "com.mycompany", "parent", "1.0-SNAPSHOT", false);
+            dao.recordGeneratedArtifact(
+                    "pipeline-" + i,
+                    1,
+                    "com.mycompany",
+                    "module-" + i,
+                    "1.0-SNAPSHOT",
+                    "jar",
+                    "1.0-SNAPSHOT",
+                    null,
+                    false,
+                    "jar",
+                    null);
+            dao.updateBuildOnCompletion(
+                    "pipeline-" + i, 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+        }
+
+        assertThat(SqlTestsUtils.explain("select ID from MAVEN_ARTIFACT where GAV_HASH = 1", ds))
+                .containsIgnoringCase("IDX_MAVEN_ARTIFACT_GAV_HASH");
+        assertThat(SqlTestsUtils.explain(
+                        "select DEPENDENCY_SET_ID from DEPENDENCY_SET_MEMBER where ARTIFACT_ID = 1 and IGNORE_UPSTREAM_TRIGGERS = false",
+                        ds))
+                .containsIgnoringCase("IDX_DEPENDENCY_SET_MEMBER_ARTIFACT_COVERING");
+        assertThat(SqlTestsUtils.explain(
+                        "select BUILD_ID from MAVEN_PARENT_PROJECT where ARTIFACT_ID = 1 and IGNORE_UPSTREAM_TRIGGERS = false",
+                        ds))
+                .containsIgnoringCase("IDX_PARENT_ARTIFACT_COVERING");
+        assertThat(SqlTestsUtils.explain(
+                        "select ARTIFACT_ID from GENERATED_MAVEN_ARTIFACT where BUILD_ID = 1 and SKIP_DOWNSTREAM_TRIGGERS = false",
+                        ds))
+                .containsIgnoringCase("IDX_GENERATED_BUILD_COVERING");
+        assertThat(SqlTestsUtils.explain("select JOB_ID, NUMBER from JENKINS_BUILD where DEPENDENCY_SET_ID = 1", ds))
+                .containsIgnoringCase("IDX_JENKINS_BUILD_DEPENDENCY_SET_COVERING");
+        assertThat(SqlTestsUtils.explain(
+                        "select DOWNSTREAM_JOB_ID, ARTIFACT_ID from JOB_DEPENDENCY_EDGE where UPSTREAM_JOB_ID = 1", ds))
+                .containsIgnoringCase("IDX_JOB_DEPENDENCY_EDGE_UPSTREAM_COVERING");
+        assertThat(SqlTestsUtils.explain(
+                        "select UPSTREAM_JOB_ID, ARTIFACT_ID from JOB_DEPENDENCY_EDGE where DOWNSTREAM_JOB_ID = 1", ds))
+                .containsIgnoringCase("IDX_JOB_DEPENDENCY_EDGE_DOWNSTREAM_COVERING");
     }
 
     @Test
@@ -320,7 +800,7 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
                 ds,
                 System.out);
         SqlTestsUtils.dump("select * from MAVEN_ARTIFACT", ds, System.out);
-        SqlTestsUtils.dump("select * from MAVEN_DEPENDENCY", ds, System.out);
+        SqlTestsUtils.dump(BUILD_DEPENDENCIES_QUERY, ds, System.out);
 
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_JOB", ds)).isEqualTo(1);
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_JOB where full_name='my-new-pipeline'", ds))
@@ -329,8 +809,7 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(1);
 
         assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(1);
-        assertThat(SqlTestsUtils.countRows("select * from MAVEN_DEPENDENCY", ds))
-                .isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows(BUILD_DEPENDENCIES_QUERY, ds)).isEqualTo(1);
     }
 
     @Test
@@ -398,15 +877,100 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(1);
 
         assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(2);
-        assertThat(SqlTestsUtils.countRows("select * from MAVEN_DEPENDENCY", ds))
-                .isEqualTo(2);
+        assertThat(SqlTestsUtils.countRows(BUILD_DEPENDENCIES_QUERY, ds)).isEqualTo(2);
 
         SqlTestsUtils.dump(
                 "select * from JENKINS_BUILD LEFT OUTER JOIN JENKINS_JOB ON JENKINS_BUILD.JOB_ID = JENKINS_JOB.ID",
                 ds,
                 System.out);
         SqlTestsUtils.dump("select * from MAVEN_ARTIFACT", ds, System.out);
-        SqlTestsUtils.dump("select * from MAVEN_DEPENDENCY", ds, System.out);
+        SqlTestsUtils.dump(BUILD_DEPENDENCIES_QUERY, ds, System.out);
+    }
+
+    @Test
+    public void record_build_graph() throws Exception {
+
+        MavenDependency h2 = new MavenDependency();
+        h2.setGroupId("com.h2database");
+        h2.setArtifactId("h2");
+        h2.setVersion("1.4.196");
+        h2.setBaseVersion("1.4.196");
+        h2.setType("jar");
+        h2.setScope("compile");
+
+        MavenDependency core = new MavenDependency();
+        core.setGroupId("com.mycompany");
+        core.setArtifactId("core");
+        core.setVersion("1.0-20170808.155524-66");
+        core.setBaseVersion("1.0-SNAPSHOT");
+        core.setType("jar");
+        core.setScope("test");
+
+        MavenArtifact parent = new MavenArtifact();
+        parent.setGroupId("com.mycompany");
+        parent.setArtifactId("parent");
+        parent.setVersion("1.0-SNAPSHOT");
+        parent.setBaseVersion("1.0-SNAPSHOT");
+        parent.setType("pom");
+
+        MavenArtifact war = new MavenArtifact();
+        war.setGroupId("com.mycompany");
+        war.setArtifactId("web");
+        war.setVersion("1.0-20170808.155524-66");
+        war.setBaseVersion("1.0-SNAPSHOT");
+        war.setType("war");
+        war.setExtension("war");
+        war.setRepositoryUrl("https://nexus.mycompany.com/content/repositories/snapshots/");
+
+        dao.recordBuildGraph("my-pipeline", 1, List.of(h2, core), List.of(parent), List.of(war), false, true);
+
+        SqlTestsUtils.dump("select * from MAVEN_ARTIFACT", ds, System.out);
+        SqlTestsUtils.dump(BUILD_DEPENDENCIES_QUERY, ds, System.out);
+        SqlTestsUtils.dump("select * from GENERATED_MAVEN_ARTIFACT", ds, System.out);
+
+        assertThat(SqlTestsUtils.countRows("select * from JENKINS_JOB", ds)).isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(4);
+        assertThat(SqlTestsUtils.countRows(BUILD_DEPENDENCIES_QUERY, ds)).isEqualTo(2);
+        assertThat(SqlTestsUtils.countRows("select * from MAVEN_PARENT_PROJECT", ds))
+                .isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows(
+                        "select * from GENERATED_MAVEN_ARTIFACT where SKIP_DOWNSTREAM_TRIGGERS = true", ds))
+                .isEqualTo(1);
+
+        List<MavenDependency> dependencies = dao.listDependencies("my-pipeline", 1);
+        assertThat(dependencies)
+                .extracting(MavenDependency::getArtifactId, MavenDependency::getVersion, MavenDependency::getScope)
+                .containsExactlyInAnyOrder(
+                        tuple("h2", "1.4.196", "compile"),
+                        tuple("core", "1.0-SNAPSHOT", "test"));
+
+        List<MavenArtifact> generatedArtifacts = dao.getGeneratedArtifacts("my-pipeline", 1);
+        assertThat(generatedArtifacts).hasSize(1);
+        assertThat(generatedArtifacts.get(0).getBaseVersion()).isEqualTo("1.0-SNAPSHOT");
+        assertThat(generatedArtifacts.get(0).getVersion()).isEqualTo("1.0-20170808.155524-66");
+        assertThat(generatedArtifacts.get(0).getType()).isEqualTo("war");
+    }
+
+    @Test
+    public void record_build_graph_after_the_deletion_of_a_cached_artifact() throws Exception {
+
+        MavenArtifact parent = new MavenArtifact();
+        parent.setGroupId("com.mycompany");
+        parent.setArtifactId("parent");
+        parent.setVersion("1.0-SNAPSHOT");
+        parent.setBaseVersion("1.0-SNAPSHOT");
+        parent.setType("pom");
+
+        dao.recordBuildGraph("my-pipeline", 1, List.of(), List.of(parent), List.of(), false, false);
+        // delete the artifact behind the back of the primary key cache, like a concurrent cleanup
+        SqlTestsUtils.silentlyDeleteTableRows(ds, "MAVEN_PARENT_PROJECT", "MAVEN_ARTIFACT");
+
+        dao.recordBuildGraph("my-pipeline", 2, List.of(), List.of(parent), List.of(), false, false);
+
+        assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(1);
+        assertThat(SqlTestsUtils.countRows("select * from MAVEN_PARENT_PROJECT", ds))
+                .isEqualTo(1);
     }
 
     @Test
@@ -422,15 +986,31 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
                 ds,
                 System.out);
         SqlTestsUtils.dump("select * from MAVEN_ARTIFACT", ds, System.out);
-        SqlTestsUtils.dump("select * from MAVEN_DEPENDENCY", ds, System.out);
+        SqlTestsUtils.dump(BUILD_DEPENDENCIES_QUERY, ds, System.out);
 
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_JOB", ds)).isEqualTo(1);
 
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(2);
 
         assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(2);
-        assertThat(SqlTestsUtils.countRows("select * from MAVEN_DEPENDENCY", ds))
-                .isEqualTo(4);
+        assertThat(SqlTestsUtils.countRows(BUILD_DEPENDENCIES_QUERY, ds)).isEqualTo(4);
+    }
+
+    @Test
+    public void record_dependencies_one_by_one_does_not_leave_orphan_dependency_sets() throws Exception {
+
+        dao.recordDependency("my-pipeline", 1, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+        dao.recordDependency("my-pipeline", 2, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+        dao.recordDependency("my-pipeline", 1, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", "compile", false, null);
+        dao.recordDependency("my-pipeline", 1, "com.mycompany", "api", "1.0-SNAPSHOT", "jar", "compile", false, null);
+
+        SqlTestsUtils.dump("select * from DEPENDENCY_SET", ds, System.out);
+
+        // the dependency set of build #2 is still referenced, the intermediate one of build #1 is deleted
+        assertThat(SqlTestsUtils.countRows("select * from DEPENDENCY_SET", ds)).isEqualTo(2);
+        assertThat(SqlTestsUtils.countRows("select * from DEPENDENCY_SET_MEMBER", ds)).isEqualTo(4);
+        assertThat(dao.listDependencies("my-pipeline", 1)).hasSize(3);
+        assertThat(dao.listDependencies("my-pipeline", 2)).hasSize(1);
     }
 
     @Test
@@ -448,15 +1028,14 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
                 ds,
                 System.out);
         SqlTestsUtils.dump("select * from MAVEN_ARTIFACT", ds, System.out);
-        SqlTestsUtils.dump("select * from MAVEN_DEPENDENCY", ds, System.out);
+        SqlTestsUtils.dump(BUILD_DEPENDENCIES_QUERY, ds, System.out);
 
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_JOB", ds)).isEqualTo(2);
 
         assertThat(SqlTestsUtils.countRows("select * from JENKINS_BUILD", ds)).isEqualTo(2);
 
         assertThat(SqlTestsUtils.countRows("select * from MAVEN_ARTIFACT", ds)).isEqualTo(2);
-        assertThat(SqlTestsUtils.countRows("select * from MAVEN_DEPENDENCY", ds))
-                .isEqualTo(4);
+        assertThat(SqlTestsUtils.countRows(BUILD_DEPENDENCIES_QUERY, ds)).isEqualTo(4);
     }
 
     @Deprecated
@@ -984,6 +1563,151 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
         assertThat(downstreamJobs).isEmpty();
     }
 
+    @Test
+    public void listDownstreamJobsByArtifacts_resolves_all_the_artifacts_at_once() {
+        dao.recordDependency(
+                "my-downstream-pipeline-1",
+                1,
+                "com.mycompany",
+                "dependency-1",
+                "1.0-SNAPSHOT",
+                "jar",
+                "compile",
+                false,
+                null);
+        dao.recordDependency(
+                "my-downstream-pipeline-1",
+                1,
+                "com.mycompany",
+                "dependency-2",
+                "1.0-SNAPSHOT",
+                "jar",
+                "compile",
+                false,
+                "tests");
+        dao.updateBuildOnCompletion(
+                "my-downstream-pipeline-1", 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 1111, 5);
+
+        dao.recordDependency(
+                "my-downstream-pipeline-2",
+                1,
+                "com.mycompany",
+                "dependency-1",
+                "1.0-SNAPSHOT",
+                "jar",
+                "compile",
+                false,
+                null);
+        dao.updateBuildOnCompletion(
+                "my-downstream-pipeline-2", 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 2222, 22);
+
+        MavenArtifact dependency1 = new MavenArtifact("com.mycompany:dependency-1:jar:1.0-20180318.225603-3");
+        dependency1.setBaseVersion("1.0-SNAPSHOT");
+        MavenArtifact dependency1Snapshot = new MavenArtifact("com.mycompany:dependency-1:jar:1.0-SNAPSHOT");
+        MavenArtifact dependency2 = new MavenArtifact("com.mycompany:dependency-2:jar:1.0-SNAPSHOT");
+        MavenArtifact dependency2Tests = new MavenArtifact("com.mycompany:dependency-2:jar:1.0-SNAPSHOT");
+        dependency2Tests.setClassifier("tests");
+        MavenArtifact unknown = new MavenArtifact("com.mycompany:unknown:jar:1.0-SNAPSHOT");
+        List<MavenArtifact> artifacts =
+                List.of(dependency1, dependency1Snapshot, dependency2, dependency2Tests, unknown);
+
+        Map<MavenArtifact, SortedSet<String>> downstreamJobsByArtifact =
+                dao.listDownstreamPipelinesBasedOnMavenDependencies(artifacts);
+
+        assertThat(dao.listDownstreamJobsByArtifacts(artifacts)).isEqualTo(downstreamJobsByArtifact);
+        assertThat(downstreamJobsByArtifact).containsOnlyKeys(artifacts);
+        assertThat(downstreamJobsByArtifact.get(dependency1))
+                .containsExactly("my-downstream-pipeline-1", "my-downstream-pipeline-2");
+        assertThat(downstreamJobsByArtifact.get(dependency1Snapshot))
+                .containsExactly("my-downstream-pipeline-1", "my-downstream-pipeline-2");
+        assertThat(downstreamJobsByArtifact.get(dependency2)).isEmpty();
+        assertThat(downstreamJobsByArtifact.get(dependency2Tests)).containsExactly("my-downstream-pipeline-1");
+        assertThat(downstreamJobsByArtifact.get(unknown)).isEmpty();
+        for (MavenArtifact artifact : artifacts) {
+            assertThat(downstreamJobsByArtifact.get(artifact))
+                    .isEqualTo(dao.listDownstreamPipelinesBasedOnMavenDependencies(
+                            artifact.getGroupId(),
+                            artifact.getArtifactId(),
+                            artifact.getBaseVersion() == null ? artifact.getVersion() : artifact.getBaseVersion(),
+                            artifact.getType(),
+                            artifact.getClassifier()));
+        }
+    }
+
+    @Test
+    public void bulk_reads_by_build_match_the_reads_of_each_build() {
+        dao.recordGeneratedArtifact(
+                "pipeline-parent",
+                1,
+                "com.mycompany",
+                "parent",
+                "1.0-SNAPSHOT",
+                "pom",
+                "1.0-SNAPSHOT",
+                null,
+                false,
+                "pom",
+                null);
+        dao.updateBuildOnCompletion("pipeline-parent", 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+
+        dao.recordParentProject("pipeline-core", 1, "com.mycompany", "parent", "1.0-SNAPSHOT", false);
+        dao.recordGeneratedArtifact(
+                "pipeline-core",
+                1,
+                "com.mycompany",
+                "core",
+                "1.0-SNAPSHOT",
+                "jar",
+                "1.0-SNAPSHOT",
+                null,
+                false,
+                "jar",
+                null);
+        dao.updateBuildOnCompletion("pipeline-core", 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+        // build #2 of pipeline-core is running
+        dao.recordParentProject("pipeline-core", 2, "com.mycompany", "parent", "1.0-SNAPSHOT", false);
+        dao.recordGeneratedArtifact(
+                "pipeline-core",
+                2,
+                "com.mycompany",
+                "core",
+                "1.0-SNAPSHOT",
+                "jar",
+                "1.0-SNAPSHOT",
+                null,
+                false,
+                "jar",
+                null);
+
+        dao.recordDependency(
+                "pipeline-service", 1, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", "compile", false, null);
+        dao.updateBuildOnCompletion(
+                "pipeline-service", 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+
+        Map<String, Integer> builds =
+                Map.of("pipeline-parent", 1, "pipeline-core", 2, "pipeline-service", 1, "unknown-pipeline", 1);
+
+        Map<String, List<MavenArtifact>> generatedArtifacts = dao.getGeneratedArtifacts(builds);
+        Map<String, Map<MavenArtifact, SortedSet<String>>> downstreamJobs = dao.listDownstreamJobsByArtifact(builds);
+
+        assertThat(generatedArtifacts).containsOnlyKeys(builds.keySet());
+        assertThat(downstreamJobs).containsOnlyKeys(builds.keySet());
+        assertThat(downstreamJobs.get("pipeline-parent")).isNotEmpty();
+        assertThat(downstreamJobs.get("pipeline-core")).isNotEmpty();
+        for (Map.Entry<String, Integer> build : builds.entrySet()) {
+            assertThat(generatedArtifacts.get(build.getKey()))
+                    .isEqualTo(dao.getGeneratedArtifacts(build.getKey(), build.getValue()));
+            assertThat(downstreamJobs.get(build.getKey()))
+                    .isEqualTo(dao.listDownstreamJobsByArtifact(build.getKey(), build.getValue()));
+        }
+        // only the last successful builds are resolved with the job dependency edges
+        assertThat(dao.listDownstreamJobsByArtifactBasedOnJobDependencyEdges(builds))
+                .containsOnlyKeys("pipeline-parent", "pipeline-service")
+                .containsEntry(
+                        "pipeline-parent",
+                        dao.listDownstreamJobsByArtifactBasedOnJobDependencyEdges("pipeline-parent", 1));
+    }
+
     @Deprecated
     @Test
     public void listDownstreamJobs_upstream_pom_triggers_downstream_pipelines() {
@@ -2248,6 +2972,197 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
                 .contains("pipeline-framework", "pipeline-core1");
     }
 
+    @Test
+    public void list_transitive_upstream_jobs_is_bounded_and_terminates_on_cycles() {
+
+        // job-0 <- job-1 <- ... <- job-6 <- job-0
+        for (int i = 0; i < 7; i++) {
+            dao.getOrCreateBuildPrimaryKey("job-" + i, 1);
+            dao.recordDependency(
+                    "job-" + i,
+                    1,
+                    "com.mycompany",
+                    "artifact-" + ((i + 6) % 7),
+                    "1.0-SNAPSHOT",
+                    "jar",
+                    "compile",
+                    false,
+                    null);
+            dao.recordGeneratedArtifact(
+                    "job-" + i,
+                    1,
+                    "com.mycompany",
+                    "artifact-" + i,
+                    "1.0-SNAPSHOT",
+                    "jar",
+                    "1.0-SNAPSHOT",
+                    null,
+                    false,
+                    "jar",
+                    null);
+            dao.updateBuildOnCompletion("job-" + i, 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+        }
+
+        // OPTIMIZATION_MAX_RECURSION_DEPTH=3, 4 levels of upstream jobs
+        Map<String, Integer> expected = Map.of("job-5", 1, "job-4", 1, "job-3", 1, "job-2", 1);
+        assertThat(dao.listTransitiveUpstreamJobsWithRecursiveQuery("job-6", 1)).isEqualTo(expected);
+        assertThat(dao.listTransitiveUpstreamJobs("job-6", 1)).isEqualTo(expected);
+
+        // close a shorter cycle: job-0 <- job-1 <- job-2 <- job-0
+        dao.recordDependency("job-0", 1, "com.mycompany", "artifact-2", "1.0-SNAPSHOT", "jar", "compile", false, null);
+        assertThat(dao.listTransitiveUpstreamJobsWithRecursiveQuery("job-2", 1))
+                .containsOnlyKeys("job-1", "job-0", "job-6", "job-5");
+    }
+
+    @Test
+    public void in_memory_dependency_graph_matches_the_database() throws Exception {
+
+        // pipeline-parent <- pipeline-framework <- pipeline-core <- pipeline-service
+        dao.recordGeneratedArtifact(
+                "pipeline-parent",
+                1,
+                "com.mycompany",
+                "parent",
+                "1.0-SNAPSHOT",
+                "pom",
+                "1.0-SNAPSHOT",
+                null,
+                false,
+                "pom",
+                null);
+        dao.updateBuildOnCompletion("pipeline-parent", 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+
+        dao.recordParentProject("pipeline-framework", 1, "com.mycompany", "parent", "1.0-SNAPSHOT", false);
+        dao.recordGeneratedArtifact(
+                "pipeline-framework",
+                1,
+                "com.mycompany",
+                "framework",
+                "1.0-SNAPSHOT",
+                "jar",
+                "1.0-SNAPSHOT",
+                null,
+                false,
+                "jar",
+                null);
+        dao.updateBuildOnCompletion(
+                "pipeline-framework", 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+
+        dao.recordDependency(
+                "pipeline-core", 1, "com.mycompany", "framework", "1.0-SNAPSHOT", "jar", "compile", false, null);
+        dao.recordGeneratedArtifact(
+                "pipeline-core",
+                1,
+                "com.mycompany",
+                "core",
+                "1.0-SNAPSHOT",
+                "jar",
+                "1.0-20180304.184830-1",
+                "https://nexus.mycompany.com/content/repositories/snapshots/",
+                false,
+                "jar",
+                null);
+        dao.updateBuildOnCompletion("pipeline-core", 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+
+        dao.recordDependency(
+                "pipeline-service", 1, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", "compile", false, null);
+        dao.updateBuildOnCompletion(
+                "pipeline-service", 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+
+        InMemoryDependencyGraph graph = dao.getDependencyGraph();
+        assertThat(graph).isNotNull();
+        assertThat(graph.listDownstreamJobsByArtifact("pipeline-core", 1))
+                .isEqualTo(dao.listDownstreamJobsByArtifactBasedOnBuilds("pipeline-core", 1));
+        assertThat(graph.listDownstreamJobsByArtifact("pipeline-parent", 1))
+                .isEqualTo(dao.listDownstreamJobsByArtifactBasedOnBuilds("pipeline-parent", 1));
+        assertThat(graph.listUpstreamJobs("pipeline-framework", 1)).isEqualTo(Map.of("pipeline-parent", 1));
+        assertThat(graph.listDownstreamJobs("com.mycompany", "framework", "1.0-SNAPSHOT", "jar", null))
+                .containsExactly("pipeline-core");
+        assertThat(dao.listTransitiveUpstreamJobs("pipeline-service", 1))
+                .isEqualTo(dao.listTransitiveUpstreamJobsWithRecursiveQuery("pipeline-service", 1))
+                .containsOnlyKeys("pipeline-core", "pipeline-framework", "pipeline-parent");
+        // not the last successful build
+        assertThat(graph.listUpstreamJobs("pipeline-core", 2)).isNull();
+
+        // updated incrementally: the last successful build of pipeline-core no longer depends on pipeline-framework
+        dao.recordDependency("pipeline-core", 2, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+        dao.recordGeneratedArtifact(
+                "pipeline-core",
+                2,
+                "com.mycompany",
+                "core",
+                "1.0-SNAPSHOT",
+                "jar",
+                "1.0-20180304.184830-2",
+                "https://nexus.mycompany.com/content/repositories/snapshots/",
+                false,
+                "jar",
+                null);
+        dao.updateBuildOnCompletion("pipeline-core", 2, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+        dao.renameJob("pipeline-service", "pipeline-service-renamed");
+
+        assertThat(graph.listDownstreamJobs("com.mycompany", "framework", "1.0-SNAPSHOT", "jar", null)).isEmpty();
+        assertThat(graph.listUpstreamJobs("pipeline-service-renamed", 1)).isEqualTo(Map.of("pipeline-core", 2));
+        assertThat(graph.listDownstreamJobsByArtifact("pipeline-core", 2))
+                .isEqualTo(dao.listDownstreamJobsByArtifactBasedOnBuilds("pipeline-core", 2));
+        assertThat(graph.listTransitiveUpstreamJobs("pipeline-service-renamed", 1, 4))
+                .isEqualTo(Map.of("pipeline-core", 2));
+
+        dao.deleteJob("pipeline-parent");
+        assertThat(graph.listUpstreamJobs("pipeline-framework", 1)).isEmpty();
+
+        // a graph loaded from the database is identical to the graph updated incrementally
+        AbstractPipelineMavenPluginDao otherDao = before_newAbstractPipelineMavenPluginDao(ds);
+        InMemoryDependencyGraph loadedGraph = otherDao.getDependencyGraph();
+        assertThat(loadedGraph).isNotNull();
+        assertThat(loadedGraph.toPrettyString()).isEqualTo(graph.toPrettyString());
+        for (String jobFullName : List.of("pipeline-framework", "pipeline-core", "pipeline-service-renamed")) {
+            int buildNumber = jobFullName.equals("pipeline-core") ? 2 : 1;
+            assertThat(loadedGraph.listUpstreamJobs(jobFullName, buildNumber))
+                    .isEqualTo(graph.listUpstreamJobs(jobFullName, buildNumber));
+            assertThat(loadedGraph.listDownstreamJobsByArtifact(jobFullName, buildNumber))
+                    .isEqualTo(graph.listDownstreamJobsByArtifact(jobFullName, buildNumber));
+        }
+    }
+
+    @Test
+    public void in_memory_dependency_graph_frees_the_artifacts_no_longer_used() {
+
+        InMemoryDependencyGraph graph = dao.getDependencyGraph();
+        assertThat(graph).isNotNull();
+
+        for (int buildNumber = 1; buildNumber <= 3; buildNumber++) {
+            String version = "1." + buildNumber + "-SNAPSHOT";
+            dao.recordDependency(
+                    "pipeline-core", buildNumber, "com.h2database", "h2", version, "jar", "compile", false, null);
+            dao.recordGeneratedArtifact(
+                    "pipeline-core",
+                    buildNumber,
+                    "com.mycompany",
+                    "core",
+                    version,
+                    "jar",
+                    version,
+                    null,
+                    false,
+                    "jar",
+                    null);
+            dao.updateBuildOnCompletion(
+                    "pipeline-core", buildNumber, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+        }
+
+        // only the artifacts of the last successful build are kept
+        assertThat(graph.toPrettyString()).contains(" 1 jobs, 2 artifacts,");
+        assertThat(graph.listDownstreamJobs("com.h2database", "h2", "1.1-SNAPSHOT", "jar", null)).isEmpty();
+        assertThat(graph.listDownstreamJobs("com.h2database", "h2", "1.3-SNAPSHOT", "jar", null))
+                .containsExactly("pipeline-core");
+        AbstractPipelineMavenPluginDao otherDao = before_newAbstractPipelineMavenPluginDao(ds);
+        assertThat(otherDao.getDependencyGraph().toPrettyString()).isEqualTo(graph.toPrettyString());
+
+        dao.deleteJob("pipeline-core");
+        assertThat(graph.toPrettyString()).contains(" 0 jobs, 0 artifacts,");
+    }
+
     @Deprecated
     @Test
     public void list_downstream_jobs_with_failed_last_build() {
@@ -2385,4 +3300,49 @@ public abstract class PipelineMavenPluginDaoAbstractTest {
             assertThat(downstreamJobsByArtifact).hasSize(1);
         }
     }
+
+    @Test
+    public void read_replica_serves_the_reads_except_for_recently_written_jobs() throws Exception {
+        dao.recordDependency("my-pipeline", 1, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+
+        DataSource readReplica = mock(DataSource.class);
+        when(readReplica.getConnection()).thenAnswer(invocation -> ds.getConnection());
+        dao.setReadReplicaDataSource(readReplica);
+
+        assertThat(dao.listDependencies("my-other-pipeline", 1)).isEmpty();
+        verify(readReplica, times(1)).getConnection();
+
+        // read-your-writes: the dependency recorded above must be visible even if the replica lags behind
+        assertThat(dao.listDependencies("my-pipeline", 1))
+                .extracting(MavenDependency::getArtifactId)
+                .containsExactly("h2");
+        verify(readReplica, times(1)).getConnection();
+    }
+
+    @Test
+    public void read_replica_does_not_serve_the_reads_by_artifact_after_a_recent_write() throws Exception {
+        dao.recordDependency("my-pipeline", 1, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+        dao.updateBuildOnCompletion("my-pipeline", 1, Result.SUCCESS.ordinal, System.currentTimeMillis() - 100, 11);
+
+        DataSource readReplica = mock(DataSource.class);
+        when(readReplica.getConnection()).thenAnswer(invocation -> ds.getConnection());
+        dao.setReadReplicaDataSource(readReplica);
+
+        // the downstream jobs are only known from the result of the query
+        assertThat(dao.listDownstreamPipelinesBasedOnMavenDependencies("com.h2database", "h2", "1.4.196", "jar", null))
+                .containsExactly("my-pipeline");
+        verify(readReplica, never()).getConnection();
+    }
+
+    @Test
+    public void unreachable_read_replica_falls_back_to_the_primary_database() throws Exception {
+        dao.recordDependency("my-pipeline", 1, "com.h2database", "h2", "1.4.196", "jar", "compile", false, null);
+
+        DataSource readReplica = mock(DataSource.class);
+        when(readReplica.getConnection()).thenThrow(new SQLException("replica is down"));
+        dao.setReadReplicaDataSource(readReplica);
+
+        assertThat(dao.listDependencies("my-other-pipeline", 1)).isEmpty();
+        verify(readReplica, times(1)).getConnection();
+    }
 }
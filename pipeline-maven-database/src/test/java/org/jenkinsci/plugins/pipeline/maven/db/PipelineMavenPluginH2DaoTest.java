@@ -24,15 +24,23 @@
 
 package org.jenkinsci.plugins.pipeline.maven.db;
 
+import edu.umd.cs.findbugs.annotations.NonNull;
+import java.sql.DatabaseMetaData;
 import javax.sql.DataSource;
 import org.h2.jdbcx.JdbcConnectionPool;
 import org.jenkinsci.plugins.pipeline.maven.db.migration.MigrationStep;
+import org.junit.jupiter.api.Test;
 
 /**
  * @author <a href="mailto:cleclerc@cloudbees.com">Cyrille Le Clerc</a>
  */
 public class PipelineMavenPluginH2DaoTest extends PipelineMavenPluginDaoAbstractTest {
 
+    /**
+     * {@code false} to test the fallbacks of the databases without window functions such as MySQL 5.7
+     */
+    private boolean windowFunctionSupported = true;
+
     @Override
     public DataSource before_newDataSource() {
         return JdbcConnectionPool.create("jdbc:h2:mem:", "sa", "");
@@ -41,6 +49,11 @@ public class PipelineMavenPluginH2DaoTest extends PipelineMavenPluginDaoAbstract
     @Override
     public AbstractPipelineMavenPluginDao before_newAbstractPipelineMavenPluginDao(DataSource ds) {
         return new PipelineMavenPluginH2Dao(ds) {
+            @Override
+            protected boolean isWindowFunctionSupported(@NonNull DatabaseMetaData metaData) {
+                return windowFunctionSupported;
+            }
+
             @Override
             protected MigrationStep.JenkinsDetails getJenkinsDetails() {
                 return new MigrationStep.JenkinsDetails() {
@@ -57,4 +70,16 @@ public class PipelineMavenPluginH2DaoTest extends PipelineMavenPluginDaoAbstract
             }
         };
     }
+
+    @Test
+    public void prune_builds_retains_last_and_last_successful_builds_without_window_function() throws Exception {
+        windowFunctionSupported = false;
+        prune_builds_retains_last_and_last_successful_builds();
+    }
+
+    @Test
+    public void prune_builds_ranks_the_builds_without_window_function() throws Exception {
+        windowFunctionSupported = false;
+        prune_builds_ranks_the_builds_when_there_are_gaps_between_the_build_numbers();
+    }
 }
@@ -0,0 +1,393 @@
+package org.jenkinsci.plugins.pipeline.maven.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+
+import hudson.model.Result;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.h2.mvstore.MVStore;
+import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
+import org.jenkinsci.plugins.pipeline.maven.MavenDependency;
+import org.jenkinsci.plugins.pipeline.maven.dao.DependencyGraphDump;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PipelineMavenPluginMVStoreDaoTest {
+
+    private PipelineMavenPluginMVStoreDao dao;
+
+    @BeforeEach
+    public void before() {
+        dao = new PipelineMavenPluginMVStoreDao(MVStore.open(null));
+    }
+
+    @AfterEach
+    public void after() throws IOException {
+        dao.close();
+    }
+
+    @Test
+    public void encoding_distinguishes_null_and_empty_fields() {
+        assertThat(PipelineMavenPluginMVStoreDao.decode(PipelineMavenPluginMVStoreDao.encode("a", null, "", "b")))
+                .containsExactly("a", null, "", "b");
+        assertThat(PipelineMavenPluginMVStoreDao.encode("a", null))
+                .isNotEqualTo(PipelineMavenPluginMVStoreDao.encode("a", ""));
+    }
+
+    @Test
+    public void record_dependencies_and_generated_artifacts() {
+        dao.recordDependency("my-pipeline", 1, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", "compile", false, null);
+        dao.recordDependency("my-pipeline", 1, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", "compile", false, null);
+        dao.recordDependency("my-pipeline", 1, "junit", "junit", "4.13", "jar", "test", false, null);
+        dao.recordGeneratedArtifact(
+                "my-pipeline",
+                1,
+                "com.mycompany",
+                "service",
+                "1.0-20170808.155524-66",
+                "war",
+                "1.0-SNAPSHOT",
+                "https://repo.example.com",
+                false,
+                "war",
+                null);
+
+        List<MavenDependency> dependencies = dao.listDependencies("my-pipeline", 1);
+        assertThat(dependencies).hasSize(2);
+        assertThat(dependencies.get(0).getId()).isEqualTo("com.mycompany:core:jar:1.0-SNAPSHOT");
+        assertThat(dependencies.get(0).getScope()).isEqualTo("compile");
+        assertThat(dependencies.get(1).getId()).isEqualTo("junit:junit:jar:4.13");
+
+        List<MavenArtifact> generatedArtifacts = dao.getGeneratedArtifacts("my-pipeline", 1);
+        assertThat(generatedArtifacts).hasSize(1);
+        assertThat(generatedArtifacts.get(0).getVersion()).isEqualTo("1.0-20170808.155524-66");
+        assertThat(generatedArtifacts.get(0).getBaseVersion()).isEqualTo("1.0-SNAPSHOT");
+        assertThat(generatedArtifacts.get(0).getRepositoryUrl()).isEqualTo("https://repo.example.com");
+        assertThat(generatedArtifacts.get(0).getClassifier()).isNull();
+
+        assertThat(dao.listDependencies("my-pipeline", 2)).isEmpty();
+        assertThat(dao.getGeneratedArtifacts("another-pipeline", 1)).isEmpty();
+    }
+
+    @Test
+    public void downstream_and_upstream_jobs_follow_the_last_successful_builds() {
+        recordUpstreamBuild("my-upstream-pipeline", 1, "1.0-SNAPSHOT");
+        recordDownstreamBuild("my-downstream-pipeline-1", 1, "1.0-SNAPSHOT", Result.SUCCESS);
+        recordDownstreamBuild("my-downstream-pipeline-2", 1, "1.0-SNAPSHOT", Result.SUCCESS);
+
+        Map<MavenArtifact, SortedSet<String>> downstreamJobsByArtifact =
+                dao.listDownstreamJobsByArtifact("my-upstream-pipeline", 1);
+        assertThat(downstreamJobsByArtifact).hasSize(1);
+        assertThat(downstreamJobsByArtifact.get(core("1.0-SNAPSHOT")))
+                .containsExactly("my-downstream-pipeline-1", "my-downstream-pipeline-2");
+        assertThat(dao.listDownstreamJobs("com.mycompany", "core", "1.0-SNAPSHOT", null, "jar"))
+                .containsExactly("my-downstream-pipeline-1", "my-downstream-pipeline-2");
+        assertThat(dao.listUpstreamJobs("my-downstream-pipeline-1", 1))
+                .containsExactly(entry("my-upstream-pipeline", 1));
+
+        // the failed build doesn't replace the last successful build
+        recordDownstreamBuild("my-downstream-pipeline-1", 2, "1.1-SNAPSHOT", Result.FAILURE);
+        assertThat(dao.listDownstreamJobs("com.mycompany", "core", "1.0-SNAPSHOT", null, "jar"))
+                .containsExactly("my-downstream-pipeline-1", "my-downstream-pipeline-2");
+
+        recordDownstreamBuild("my-downstream-pipeline-1", 3, "1.1-SNAPSHOT", Result.SUCCESS);
+        assertThat(dao.listDownstreamJobs("com.mycompany", "core", "1.0-SNAPSHOT", null, "jar"))
+                .containsExactly("my-downstream-pipeline-2");
+        assertThat(dao.listDownstreamJobs("com.mycompany", "core", "1.1-SNAPSHOT", null, "jar"))
+                .containsExactly("my-downstream-pipeline-1");
+        assertThat(dao.listUpstreamJobs("my-downstream-pipeline-1", 3)).isEmpty();
+
+        recordUpstreamBuild("my-upstream-pipeline", 2, "1.1-SNAPSHOT");
+        assertThat(dao.listUpstreamJobs("my-downstream-pipeline-1", 3))
+                .containsExactly(entry("my-upstream-pipeline", 2));
+        assertThat(dao.listUpstreamJobs("my-downstream-pipeline-2", 1)).isEmpty();
+        assertThat(dao.listDownstreamJobsByArtifact("my-upstream-pipeline", 2).get(core("1.1-SNAPSHOT")))
+                .containsExactly("my-downstream-pipeline-1");
+    }
+
+    @Test
+    public void dependencies_recorded_after_completion_of_the_last_successful_build_are_indexed() {
+        dao.updateBuildOnCompletion("my-downstream-pipeline", 1, Result.SUCCESS.ordinal, 0, 1);
+        dao.recordDependency(
+                "my-downstream-pipeline", 1, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", "compile", false, null);
+
+        assertThat(dao.listDownstreamJobs("com.mycompany", "core", "1.0-SNAPSHOT", null, "jar"))
+                .containsExactly("my-downstream-pipeline");
+    }
+
+    @Test
+    public void ignore_upstream_triggers_and_skip_downstream_triggers() {
+        dao.recordGeneratedArtifact(
+                "my-upstream-pipeline",
+                1,
+                "com.mycompany",
+                "core",
+                "1.0-SNAPSHOT",
+                "jar",
+                "1.0-SNAPSHOT",
+                null,
+                true,
+                "jar",
+                null);
+        dao.updateBuildOnCompletion("my-upstream-pipeline", 1, Result.SUCCESS.ordinal, 0, 1);
+        recordDownstreamBuild("my-downstream-pipeline-1", 1, "1.0-SNAPSHOT", Result.SUCCESS);
+        dao.recordDependency(
+                "my-downstream-pipeline-2", 1, "com.mycompany", "core", "1.0-SNAPSHOT", "jar", "compile", true, null);
+        dao.updateBuildOnCompletion("my-downstream-pipeline-2", 1, Result.SUCCESS.ordinal, 0, 1);
+
+        assertThat(dao.listDownstreamJobsByArtifact("my-upstream-pipeline", 1)).isEmpty();
+        assertThat(dao.listUpstreamJobs("my-downstream-pipeline-1", 1)).isEmpty();
+        assertThat(dao.listDownstreamJobs("com.mycompany", "core", "1.0-SNAPSHOT", null, "jar"))
+                .containsExactly("my-downstream-pipeline-1");
+    }
+
+    @Test
+    public void parent_projects_and_transitive_upstream_jobs() {
+        dao.recordGeneratedArtifact(
+                "my-parent-pipeline",
+                1,
+                "com.mycompany",
+                "parent",
+                "1.0-SNAPSHOT",
+                "pom",
+                "1.0-SNAPSHOT",
+                null,
+                false,
+                "pom",
+                null);
+        dao.updateBuildOnCompletion("my-parent-pipeline", 1, Result.SUCCESS.ordinal, 0, 1);
+        dao.recordParentProject("my-upstream-pipeline", 1, "com.mycompany", "parent", "1.0-SNAPSHOT", false);
+        recordUpstreamBuild("my-upstream-pipeline", 1, "1.0-SNAPSHOT");
+        recordDownstreamBuild("my-downstream-pipeline", 1, "1.0-SNAPSHOT", Result.SUCCESS);
+
+        assertThat(dao.listDownstreamJobsByArtifact("my-parent-pipeline", 1)).containsOnlyKeys(parent());
+        assertThat(dao.listUpstreamJobs("my-upstream-pipeline", 1)).containsExactly(entry("my-parent-pipeline", 1));
+        assertThat(dao.listTransitiveUpstreamJobs("my-downstream-pipeline", 1))
+                .containsOnly(entry("my-upstream-pipeline", 1), entry("my-parent-pipeline", 1));
+    }
+
+    @Test
+    public void rename_and_delete_jobs_and_builds() {
+        recordUpstreamBuild("my-upstream-pipeline", 1, "1.0-SNAPSHOT");
+        recordDownstreamBuild("my-downstream-pipeline", 1, "1.0-SNAPSHOT", Result.SUCCESS);
+        recordDownstreamBuild("my-downstream-pipeline", 2, "1.0-SNAPSHOT", Result.SUCCESS);
+
+        dao.renameJob("my-downstream-pipeline", "my-renamed-pipeline");
+        assertThat(dao.listDownstreamJobs("com.mycompany", "core", "1.0-SNAPSHOT", null, "jar"))
+                .containsExactly("my-renamed-pipeline");
+        assertThat(dao.listDependencies("my-renamed-pipeline", 1)).hasSize(1);
+        assertThat(dao.listDependencies("my-downstream-pipeline", 1)).isEmpty();
+
+        // the previous successful build becomes the last successful build
+        dao.deleteBuild("my-renamed-pipeline", 2);
+        assertThat(dao.listUpstreamJobs("my-renamed-pipeline", 1)).containsExactly(entry("my-upstream-pipeline", 1));
+        assertThat(dao.listDownstreamJobs("com.mycompany", "core", "1.0-SNAPSHOT", null, "jar"))
+                .containsExactly("my-renamed-pipeline");
+
+        dao.deleteJob("my-renamed-pipeline");
+        assertThat(dao.listDownstreamJobs("com.mycompany", "core", "1.0-SNAPSHOT", null, "jar"))
+                .isEmpty();
+        assertThat(dao.listDependencies("my-renamed-pipeline", 1)).isEmpty();
+    }
+
+    @Test
+    public void prune_builds_retains_last_and_last_successful_builds() {
+        recordDownstreamBuild("my-pipeline", 1, "1.0-SNAPSHOT", Result.SUCCESS);
+        for (int buildNumber = 2; buildNumber <= 5; buildNumber++) {
+            recordDownstreamBuild("my-pipeline", buildNumber, "1.0-SNAPSHOT", Result.FAILURE);
+        }
+
+        assertThat(dao.pruneBuilds(1, 2)).isEqualTo(2);
+        assertThat(dao.pruneBuilds(1, 2)).isEqualTo(1);
+        assertThat(dao.pruneBuilds(1, 2)).isZero();
+
+        assertThat(dao.listDependencies("my-pipeline", 1)).hasSize(1);
+        assertThat(dao.listDependencies("my-pipeline", 4)).isEmpty();
+        assertThat(dao.listDependencies("my-pipeline", 5)).hasSize(1);
+        assertThat(dao.listDownstreamJobs("com.mycompany", "core", "1.0-SNAPSHOT", null, "jar"))
+                .containsExactly("my-pipeline");
+    }
+
+    @Test
+    public void prune_builds_ranks_the_builds_when_there_are_gaps_between_the_build_numbers() {
+        for (int buildNumber : new int[] {1, 3, 5, 8, 10}) {
+            Result result = buildNumber == 3 ? Result.SUCCESS : Result.FAILURE;
+            recordDownstreamBuild("my-pipeline", buildNumber, "1.0-SNAPSHOT", result);
+        }
+
+        // builds #8 and #10 are the 2 most recent builds, build #3 is the last successful build
+        assertThat(dao.pruneBuilds(2, 10)).isEqualTo(2);
+        assertThat(dao.pruneBuilds(2, 10)).isZero();
+
+        assertThat(dao.listDependencies("my-pipeline", 1)).isEmpty();
+        assertThat(dao.listDependencies("my-pipeline", 3)).hasSize(1);
+        assertThat(dao.listDependencies("my-pipeline", 5)).isEmpty();
+        assertThat(dao.listDependencies("my-pipeline", 8)).hasSize(1);
+        assertThat(dao.listDependencies("my-pipeline", 10)).hasSize(1);
+    }
+
+    @Test
+    public void graph_is_persisted_in_the_store_file(@TempDir File tempDir) throws IOException {
+        File file = new File(tempDir, "pipeline-maven-graph.mv");
+        MavenDependency dependency = new MavenDependency();
+        dependency.setGroupId("com.mycompany");
+        dependency.setArtifactId("core");
+        dependency.setBaseVersion("1.0-SNAPSHOT");
+        dependency.setVersion("1.0-SNAPSHOT");
+        dependency.setType("jar");
+        dependency.setScope("compile");
+        try (PipelineMavenPluginMVStoreDao fileDao = new PipelineMavenPluginMVStoreDao(file)) {
+            fileDao.recordBuildGraph(
+                    "my-downstream-pipeline",
+                    1,
+                    Collections.singletonList(dependency),
+                    Collections.emptyList(),
+                    Collections.emptyList(),
+                    false,
+                    false);
+            fileDao.updateBuildOnCompletion("my-downstream-pipeline", 1, Result.SUCCESS.ordinal, 0, 1);
+        }
+
+        try (PipelineMavenPluginMVStoreDao fileDao = new PipelineMavenPluginMVStoreDao(file)) {
+            assertThat(fileDao.listDownstreamJobs("com.mycompany", "core", "1.0-SNAPSHOT", null, "jar"))
+                    .containsExactly("my-downstream-pipeline");
+            assertThat(fileDao.toPrettyString()).contains(file.getAbsolutePath(), "Map jobs: 1 entries");
+        }
+    }
+
+    @Test
+    public void export_and_import_the_graph() throws IOException {
+        recordUpstreamBuild("my-upstream-pipeline", 1, "1.0-SNAPSHOT");
+        recordDownstreamBuild("my-downstream-pipeline", 1, "1.0-SNAPSHOT", Result.SUCCESS);
+        recordDownstreamBuild("my-downstream-pipeline", 2, "1.0-SNAPSHOT", Result.FAILURE);
+        dao.recordDependency("my-downstream-pipeline", 2, "junit", "junit", "4.13", "jar", "test", true, null);
+        dao.recordParentProject("my-downstream-pipeline", 2, "com.mycompany", "parent", "1.0-SNAPSHOT", false);
+        dao.recordBuildUpstreamCause("my-upstream-pipeline", 1, "my-downstream-pipeline", 2);
+
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        List<Long> progress = new ArrayList<>();
+        assertThat(dao.exportGraph(dump, progress::add)).isEqualTo(3);
+        assertThat(progress).containsExactly(3L);
+
+        try (PipelineMavenPluginMVStoreDao importDao = new PipelineMavenPluginMVStoreDao(MVStore.open(null))) {
+            assertThat(importDao.importGraph(new ByteArrayInputStream(dump.toByteArray()), count -> {}))
+                    .isEqualTo(3);
+
+            assertThat(importDao.listDependencies("my-downstream-pipeline", 2))
+                    .isEqualTo(dao.listDependencies("my-downstream-pipeline", 2));
+            assertThat(importDao.getGeneratedArtifacts("my-upstream-pipeline", 1))
+                    .isEqualTo(dao.getGeneratedArtifacts("my-upstream-pipeline", 1));
+            assertThat(importDao.listDownstreamJobs("com.mycompany", "core", "1.0-SNAPSHOT", null, "jar"))
+                    .containsExactly("my-downstream-pipeline");
+            assertThat(importDao.listDownstreamJobs("junit", "junit", "4.13", null, "jar")).isEmpty();
+            assertThat(importDao.listUpstreamJobs("my-downstream-pipeline", 1))
+                    .containsExactly(entry("my-upstream-pipeline", 1));
+
+            ByteArrayOutputStream reexportedDump = new ByteArrayOutputStream();
+            importDao.exportGraph(reexportedDump, count -> {});
+            assertThat(gunzip(reexportedDump.toByteArray())).isEqualTo(gunzip(dump.toByteArray()));
+        }
+    }
+
+    @Test
+    public void import_rejects_unknown_dumps() {
+        assertThatThrownBy(() -> dao.importGraph(new ByteArrayInputStream(gzip("{\"format\":\"foo\"}\n")), c -> {}))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void import_rejects_truncated_dumps() throws IOException {
+        recordUpstreamBuild("my-upstream-pipeline", 1, "1.0-SNAPSHOT");
+        recordDownstreamBuild("my-downstream-pipeline", 1, "1.0-SNAPSHOT", Result.SUCCESS);
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        dao.exportGraph(dump, count -> {});
+        String lines = gunzip(dump.toByteArray());
+        assertThat(lines).endsWith("{\"buildCount\":2}\n");
+
+        try (PipelineMavenPluginMVStoreDao importDao = new PipelineMavenPluginMVStoreDao(MVStore.open(null))) {
+            byte[] withoutTrailer = gzip(lines.substring(0, lines.lastIndexOf("{\"buildCount\"")));
+            assertThatThrownBy(() -> importDao.importGraph(new ByteArrayInputStream(withoutTrailer), c -> {}))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("Truncated");
+            byte[] wrongCount = gzip(lines.replace("{\"buildCount\":2}", "{\"buildCount\":3}"));
+            assertThatThrownBy(() -> importDao.importGraph(new ByteArrayInputStream(wrongCount), c -> {}))
+                    .isInstanceOf(IOException.class)
+                    .hasMessageContaining("Corrupted");
+        }
+    }
+
+    @Test
+    public void import_rejects_the_dump_of_a_failed_export() throws IOException {
+        ByteArrayOutputStream dump = new ByteArrayOutputStream();
+        try (DependencyGraphDump.Writer writer = new DependencyGraphDump.Writer(dump, count -> {})) {
+            writer.write(new DependencyGraphDump.Build("my-pipeline", 1));
+            // the export fails before finish()
+        }
+
+        assertThatThrownBy(() -> dao.importGraph(new ByteArrayInputStream(dump.toByteArray()), c -> {}))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] gzip(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    private void recordUpstreamBuild(String jobFullName, int buildNumber, String version) {
+        dao.recordGeneratedArtifact(
+                jobFullName, buildNumber, "com.mycompany", "core", version, "jar", version, null, false, "jar", null);
+        dao.updateBuildOnCompletion(jobFullName, buildNumber, Result.SUCCESS.ordinal, 0, 1);
+    }
+
+    private void recordDownstreamBuild(String jobFullName, int buildNumber, String version, Result result) {
+        dao.recordDependency(jobFullName, buildNumber, "com.mycompany", "core", version, "jar", "compile", false, null);
+        dao.updateBuildOnCompletion(jobFullName, buildNumber, result.ordinal, 0, 1);
+    }
+
+    private static MavenArtifact core(String version) {
+        MavenArtifact artifact = new MavenArtifact();
+        artifact.setGroupId("com.mycompany");
+        artifact.setArtifactId("core");
+        artifact.setBaseVersion(version);
+        artifact.setVersion(version);
+        artifact.setType("jar");
+        artifact.setExtension("jar");
+        return artifact;
+    }
+
+    private static MavenArtifact parent() {
+        MavenArtifact artifact = new MavenArtifact();
+        artifact.setGroupId("com.mycompany");
+        artifact.setArtifactId("parent");
+        artifact.setBaseVersion("1.0-SNAPSHOT");
+        artifact.setVersion("1.0-SNAPSHOT");
+        artifact.setType("pom");
+        artifact.setExtension("pom");
+        return artifact;
+    }
+}
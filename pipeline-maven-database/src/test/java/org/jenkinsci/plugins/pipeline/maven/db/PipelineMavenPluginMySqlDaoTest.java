@@ -78,4 +78,14 @@ public class PipelineMavenPluginMySqlDaoTest extends PipelineMavenPluginDaoAbstr
                 PipelineMavenPluginMySqlDao.extractMariaDbVersion("5.5.5-10.3.11-MariaDB-1:10.3.11+maria~bionic");
         assertThat(actual).isEqualTo("10.3.11");
     }
+
+    @Test
+    public void test_recursive_query_support() {
+        assertThat(PipelineMavenPluginMySqlDao.isRecursiveQuerySupported("MySQL", "8.0.13", 8)).isTrue();
+        assertThat(PipelineMavenPluginMySqlDao.isRecursiveQuerySupported("MySQL", "5.7.25", 5)).isFalse();
+        assertThat(PipelineMavenPluginMySqlDao.isRecursiveQuerySupported("MySQL", "5.5.5-10.2.20-MariaDB", 5)).isTrue();
+        assertThat(PipelineMavenPluginMySqlDao.isRecursiveQuerySupported("MySQL", "5.5.5-10.1.38-MariaDB", 5))
+                .isFalse();
+        assertThat(PipelineMavenPluginMySqlDao.isRecursiveQuerySupported("MariaDB", "11.4.2-MariaDB", 11)).isTrue();
+    }
 }
@@ -0,0 +1,121 @@
+package org.jenkinsci.plugins.pipeline.maven.db.migration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ChunkedMigrationStepTest {
+
+    private static final int ROW_COUNT = 1200;
+
+    private JdbcConnectionPool ds;
+
+    @BeforeEach
+    public void before() throws SQLException {
+        ds = JdbcConnectionPool.create("jdbc:h2:mem:", "sa", "");
+        try (Connection cnn = ds.getConnection();
+                Statement stmt = cnn.createStatement()) {
+            stmt.execute("CREATE TABLE SOURCE_ROW (ID BIGINT PRIMARY KEY)");
+            stmt.execute("CREATE TABLE TARGET_ROW (ID BIGINT PRIMARY KEY)");
+            stmt.execute("INSERT INTO SOURCE_ROW SELECT X FROM SYSTEM_RANGE(1, " + ROW_COUNT + ")");
+        }
+        CopyStep.failingChunk = -1;
+    }
+
+    @AfterEach
+    public void after() {
+        ds.dispose();
+    }
+
+    @Test
+    public void migrate_all_the_rows_by_chunks() throws SQLException {
+        try (Connection cnn = ds.getConnection()) {
+            cnn.setAutoCommit(false);
+            new CopyStep().execute(cnn, new MigrationStep.JenkinsDetails());
+
+            assertThat(count(cnn, "TARGET_ROW")).isEqualTo(ROW_COUNT);
+            assertThat(count(cnn, "MIGRATION_CHECKPOINT")).isZero();
+        }
+    }
+
+    @Test
+    public void interrupted_migration_resumes_after_the_last_committed_chunk() throws SQLException {
+        try (Connection cnn = ds.getConnection()) {
+            cnn.setAutoCommit(false);
+            CopyStep.failingChunk = 2;
+            assertThatThrownBy(() -> new CopyStep().execute(cnn, new MigrationStep.JenkinsDetails()))
+                    .isInstanceOf(SQLException.class);
+            cnn.rollback();
+
+            assertThat(count(cnn, "TARGET_ROW")).isEqualTo(2 * ChunkedMigrationStep.CHUNK_SIZE);
+            assertThat(count(cnn, "MIGRATION_CHECKPOINT")).isEqualTo(1);
+
+            CopyStep.failingChunk = -1;
+            ChunkedMigrationStep.resumeInterruptedSteps(cnn, new MigrationStep.JenkinsDetails());
+
+            assertThat(count(cnn, "TARGET_ROW")).isEqualTo(ROW_COUNT);
+            assertThat(count(cnn, "MIGRATION_CHECKPOINT")).isZero();
+        }
+    }
+
+    private static long count(Connection cnn, String table) throws SQLException {
+        try (Statement stmt = cnn.createStatement();
+                ResultSet rst = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rst.next();
+            return rst.getLong(1);
+        }
+    }
+
+    /**
+     * Copies {@code SOURCE_ROW} to {@code TARGET_ROW}, the insert fails on duplicate rows
+     */
+    public static class CopyStep extends ChunkedMigrationStep {
+
+        static int failingChunk;
+
+        private int chunk;
+
+        @Override
+        protected long countRows(Connection cnn, long highWaterMark) throws SQLException {
+            try (PreparedStatement stmt = cnn.prepareStatement("SELECT COUNT(*) FROM SOURCE_ROW WHERE ID > ?")) {
+                stmt.setLong(1, highWaterMark);
+                try (ResultSet rst = stmt.executeQuery()) {
+                    rst.next();
+                    return rst.getLong(1);
+                }
+            }
+        }
+
+        @Override
+        protected Long migrateChunk(Connection cnn, JenkinsDetails jenkinsDetails, long highWaterMark)
+                throws SQLException {
+            if (chunk++ == failingChunk) {
+                throw new SQLException("Simulated crash");
+            }
+            Long lastId = null;
+            try (PreparedStatement selectStmt = cnn.prepareStatement(
+                            "SELECT ID FROM SOURCE_ROW WHERE ID > ? ORDER BY ID LIMIT " + CHUNK_SIZE);
+                    PreparedStatement insertStmt = cnn.prepareStatement("INSERT INTO TARGET_ROW(ID) VALUES (?)")) {
+                selectStmt.setLong(1, highWaterMark);
+                try (ResultSet rst = selectStmt.executeQuery()) {
+                    while (rst.next()) {
+                        lastId = rst.getLong(1);
+                        insertStmt.setLong(1, lastId);
+                        insertStmt.addBatch();
+                    }
+                }
+                insertStmt.executeBatch();
+            }
+            return lastId;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.jenkinsci.plugins.pipeline.maven.db.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class DependencySetTest {
+
+    @Test
+    public void hash_should_not_depend_on_insertion_order() {
+        DependencySet first = new DependencySet();
+        first.add(1, "compile", false);
+        first.add(2, "test", false);
+        DependencySet second = new DependencySet();
+        second.add(2, "test", false);
+        second.add(1, "compile", false);
+
+        assertThat(second).isEqualTo(first);
+        assertThat(second.getHash()).isEqualTo(first.getHash()).hasSize(64);
+    }
+
+    @Test
+    public void hash_should_depend_on_scope_and_ignore_upstream_triggers() {
+        DependencySet compile = new DependencySet();
+        compile.add(1, "compile", false);
+        DependencySet test = new DependencySet();
+        test.add(1, "test", false);
+        DependencySet ignored = new DependencySet();
+        ignored.add(1, "compile", true);
+        DependencySet noScope = new DependencySet();
+        noScope.add(1, null, false);
+
+        assertThat(compile.getHash())
+                .isNotEqualTo(test.getHash())
+                .isNotEqualTo(ignored.getHash())
+                .isNotEqualTo(noScope.getHash());
+    }
+
+    @Test
+    public void add_all_should_report_new_members() {
+        DependencySet dependencies = new DependencySet();
+        dependencies.add(1, "compile", false);
+        DependencySet sameDependencies = new DependencySet();
+        sameDependencies.add(1, "compile", false);
+        DependencySet otherDependencies = new DependencySet();
+        otherDependencies.add(2, "compile", false);
+
+        assertThat(dependencies.addAll(sameDependencies)).isFalse();
+        assertThat(dependencies.addAll(otherDependencies)).isTrue();
+        assertThat(dependencies.size()).isEqualTo(2);
+    }
+}
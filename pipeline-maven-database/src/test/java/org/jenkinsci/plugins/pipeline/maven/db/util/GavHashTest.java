@@ -0,0 +1,26 @@
+package org.jenkinsci.plugins.pipeline.maven.db.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class GavHashTest {
+
+    @Test
+    public void hash_should_be_stable() {
+        assertThat(GavHash.of("com.mycompany", "core", "1.0-SNAPSHOT", "jar", null))
+                .isEqualTo(GavHash.of("com.mycompany", "core", "1.0-SNAPSHOT", "jar", null));
+    }
+
+    @Test
+    public void hash_should_depend_on_each_coordinate() {
+        long hash = GavHash.of("com.mycompany", "core", "1.0-SNAPSHOT", "jar", null);
+
+        assertThat(GavHash.of("com.mycompany.core", "core", "1.0-SNAPSHOT", "jar", null)).isNotEqualTo(hash);
+        assertThat(GavHash.of("com.mycompany", "api", "1.0-SNAPSHOT", "jar", null)).isNotEqualTo(hash);
+        assertThat(GavHash.of("com.mycompany", "core", "1.1-SNAPSHOT", "jar", null)).isNotEqualTo(hash);
+        assertThat(GavHash.of("com.mycompany", "core", "1.0-SNAPSHOT", "war", null)).isNotEqualTo(hash);
+        assertThat(GavHash.of("com.mycompany", "core", "1.0-SNAPSHOT", "jar", "tests")).isNotEqualTo(hash);
+        assertThat(GavHash.of("com.mycompany", "core", "1.0-SNAPSHOT", "jar", "")).isNotEqualTo(hash);
+    }
+}
@@ -0,0 +1,63 @@
+package org.jenkinsci.plugins.pipeline.maven.db.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class PrimaryKeyCacheTest {
+
+    @Test
+    public void should_return_cached_primary_key() {
+        PrimaryKeyCache<String> cache = new PrimaryKeyCache<>(10);
+        cache.put("a", 1L);
+
+        assertThat(cache.get("a")).isEqualTo(1L);
+        assertThat(cache.get("b")).isNull();
+    }
+
+    @Test
+    public void should_be_bounded() {
+        PrimaryKeyCache<Integer> cache = new PrimaryKeyCache<>(100);
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, i);
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(100);
+        assertThat(cache.get(999)).isEqualTo(999L);
+    }
+
+    @Test
+    public void should_invalidate_entries() {
+        PrimaryKeyCache<String> cache = new PrimaryKeyCache<>(10);
+        cache.put("1#1", 1L);
+        cache.put("1#2", 2L);
+        cache.put("2#1", 3L);
+
+        cache.remove("2#1");
+        assertThat(cache.get("2#1")).isNull();
+
+        cache.removeIf(key -> key.startsWith("1#"));
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    public void should_not_cache_primary_key_read_before_clear() {
+        PrimaryKeyCache<String> cache = new PrimaryKeyCache<>(10);
+        long generation = cache.getGeneration();
+        cache.clear();
+        cache.put("a", 1L, generation);
+
+        assertThat(cache.get("a")).isNull();
+
+        cache.put("a", 1L, cache.getGeneration());
+        assertThat(cache.get("a")).isEqualTo(1L);
+    }
+
+    @Test
+    public void should_not_cache_when_disabled() {
+        PrimaryKeyCache<String> cache = new PrimaryKeyCache<>(0);
+        cache.put("a", 1L);
+
+        assertThat(cache.get("a")).isNull();
+    }
+}
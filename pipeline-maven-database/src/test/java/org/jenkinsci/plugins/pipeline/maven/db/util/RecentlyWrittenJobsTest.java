@@ -0,0 +1,52 @@
+package org.jenkinsci.plugins.pipeline.maven.db.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class RecentlyWrittenJobsTest {
+
+    @Test
+    public void should_track_written_jobs() {
+        RecentlyWrittenJobs recentlyWrittenJobs = new RecentlyWrittenJobs(60_000, 10);
+        recentlyWrittenJobs.written("a");
+
+        assertThat(recentlyWrittenJobs.isRecentlyWritten("a")).isTrue();
+        assertThat(recentlyWrittenJobs.isRecentlyWritten("b")).isFalse();
+        assertThat(recentlyWrittenJobs.isAnyRecentlyWritten(List.of("b", "a"))).isTrue();
+        assertThat(recentlyWrittenJobs.isAnyRecentlyWritten(List.of("b", "c"))).isFalse();
+        assertThat(recentlyWrittenJobs.isAnyJobRecentlyWritten()).isTrue();
+    }
+
+    @Test
+    public void should_forget_writes_after_the_window() throws Exception {
+        RecentlyWrittenJobs recentlyWrittenJobs = new RecentlyWrittenJobs(1, 10);
+        recentlyWrittenJobs.written("a");
+        Thread.sleep(10);
+
+        assertThat(recentlyWrittenJobs.isRecentlyWritten("a")).isFalse();
+        assertThat(recentlyWrittenJobs.size()).isZero();
+        assertThat(recentlyWrittenJobs.isAnyJobRecentlyWritten()).isFalse();
+    }
+
+    @Test
+    public void should_consider_all_jobs_written_when_full() {
+        RecentlyWrittenJobs recentlyWrittenJobs = new RecentlyWrittenJobs(60_000, 10);
+        for (int i = 0; i < 11; i++) {
+            recentlyWrittenJobs.written("job-" + i);
+        }
+
+        assertThat(recentlyWrittenJobs.size()).isLessThanOrEqualTo(10);
+        assertThat(recentlyWrittenJobs.isRecentlyWritten("job-0")).isTrue();
+        assertThat(recentlyWrittenJobs.isRecentlyWritten("never-written")).isTrue();
+    }
+
+    @Test
+    public void should_not_track_writes_when_disabled() {
+        RecentlyWrittenJobs recentlyWrittenJobs = new RecentlyWrittenJobs(0, 10);
+        recentlyWrittenJobs.written("a");
+
+        assertThat(recentlyWrittenJobs.isRecentlyWritten("a")).isFalse();
+    }
+}
@@ -81,6 +81,24 @@ public class SqlTestsUtils {
         }
     }
 
+    /**
+     * @return the execution plan of the given query as returned by the {@code EXPLAIN} command of H2, one line per row
+     */
+    @NonNull
+    public static String explain(@NonNull String sql, @NonNull DataSource ds) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Connection cnn = ds.getConnection()) {
+            try (Statement stmt = cnn.createStatement()) {
+                try (ResultSet rst = stmt.executeQuery("EXPLAIN " + sql)) {
+                    while (rst.next()) {
+                        plan.append(rst.getString(1)).append("\n");
+                    }
+                }
+            }
+        }
+        return plan.toString();
+    }
+
     public static void silentlyDeleteTableRows(DataSource ds, String... tables) {
         for (String table : tables) {
             try (Connection cnn = ds.getConnection()) {
@@ -33,18 +33,28 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import hudson.Extension;
 import hudson.ExtensionList;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
 import hudson.init.Terminator;
+import hudson.model.Computer;
 import hudson.model.Result;
 import hudson.security.ACL;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jenkins.model.GlobalConfiguration;
@@ -55,11 +65,17 @@ import net.sf.json.JSONObject;
 import org.jenkinsci.Symbol;
 import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginDao;
 import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginNullDao;
+import org.jenkinsci.plugins.pipeline.maven.listeners.DownstreamPipelineTriggerRunListener;
+import org.jenkinsci.plugins.pipeline.maven.service.DependencyGraphWriteBehindQueue;
+import org.jenkinsci.plugins.pipeline.maven.service.DownstreamTriggerQueue;
 import org.jenkinsci.plugins.pipeline.maven.service.PipelineTriggerService;
 import org.kohsuke.stapler.DataBoundConstructor;
 import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.HttpResponses;
 import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
 import org.kohsuke.stapler.verb.POST;
 
 /**
@@ -73,10 +89,50 @@ public class GlobalPipelineMavenConfig extends GlobalConfiguration {
 
     private transient volatile PipelineMavenPluginDao dao;
 
+    /**
+     * Serializes the creation of the {@link #dao}. The monitor of {@code this} is not held while the DAO is created,
+     * that is while the database is migrated, so that the synchronized accessors don't wait for the migration.
+     */
+    private final transient Object daoCreationLock = new Object();
+
+    /**
+     * Incremented by {@link #closeDatasource()}, a DAO created with the configuration of a previous generation is
+     * discarded. Guarded by {@code this}.
+     */
+    private transient long daoConfigGeneration;
+
+    /**
+     * Creation of the {@link #dao} in the background, see {@link #warmUpDao()}.
+     */
+    @CheckForNull
+    private transient volatile CompletableFuture<PipelineMavenPluginDao> daoWarmUp;
+
+    private final transient Object daoWarmUpLock = new Object();
+
     private transient PipelineTriggerService pipelineTriggerService;
 
+    private transient DependencyGraphWriteBehindQueue dependencyGraphWriteBehindQueue;
+
+    private transient DownstreamTriggerQueue downstreamTriggerQueue;
+
     private boolean globalTraceability = false;
 
+    private boolean asynchronousGraphPersistence = false;
+
+    private boolean asynchronousDownstreamTriggering = false;
+
+    /**
+     * Window during which the asynchronous trigger requests are coalesced to evaluate and trigger the downstream
+     * pipelines of a burst of upstream builds once. {@code 0} to process each upstream build on its own.
+     */
+    private int downstreamTriggerCoalescingWindowInSeconds = 0;
+
+    /**
+     * Number of most recent builds of each job for which the dependency graph is retained, in addition to the last
+     * successful build. {@code 0} to retain the graph of all the builds.
+     */
+    private int graphRetentionBuildCount = 0;
+
     private boolean triggerDownstreamUponResultSuccess = true;
     private boolean triggerDownstreamUponResultUnstable;
     private boolean triggerDownstreamUponResultFailure;
@@ -86,6 +142,8 @@ public class GlobalPipelineMavenConfig extends GlobalConfiguration {
     private String jdbcUrl;
     private String jdbcCredentialsId;
     private String properties;
+    private String readReplicaJdbcUrl;
+    private String readReplicaJdbcCredentialsId;
 
     private String daoClass;
 
@@ -140,6 +198,42 @@ public class GlobalPipelineMavenConfig extends GlobalConfiguration {
         this.globalTraceability = globalTraceability;
     }
 
+    public boolean isAsynchronousGraphPersistence() {
+        return asynchronousGraphPersistence;
+    }
+
+    @DataBoundSetter
+    public void setAsynchronousGraphPersistence(boolean asynchronousGraphPersistence) {
+        this.asynchronousGraphPersistence = asynchronousGraphPersistence;
+    }
+
+    public boolean isAsynchronousDownstreamTriggering() {
+        return asynchronousDownstreamTriggering;
+    }
+
+    @DataBoundSetter
+    public void setAsynchronousDownstreamTriggering(boolean asynchronousDownstreamTriggering) {
+        this.asynchronousDownstreamTriggering = asynchronousDownstreamTriggering;
+    }
+
+    public int getDownstreamTriggerCoalescingWindowInSeconds() {
+        return downstreamTriggerCoalescingWindowInSeconds;
+    }
+
+    @DataBoundSetter
+    public void setDownstreamTriggerCoalescingWindowInSeconds(int downstreamTriggerCoalescingWindowInSeconds) {
+        this.downstreamTriggerCoalescingWindowInSeconds = Math.max(0, downstreamTriggerCoalescingWindowInSeconds);
+    }
+
+    public int getGraphRetentionBuildCount() {
+        return graphRetentionBuildCount;
+    }
+
+    @DataBoundSetter
+    public void setGraphRetentionBuildCount(int graphRetentionBuildCount) {
+        this.graphRetentionBuildCount = Math.max(0, graphRetentionBuildCount);
+    }
+
     public boolean isTriggerDownstreamUponResultSuccess() {
         return triggerDownstreamUponResultSuccess;
     }
@@ -223,6 +317,30 @@ public class GlobalPipelineMavenConfig extends GlobalConfiguration {
         this.jdbcCredentialsId = jdbcCredentialsId;
     }
 
+    public synchronized String getReadReplicaJdbcUrl() {
+        return readReplicaJdbcUrl;
+    }
+
+    @DataBoundSetter
+    public synchronized void setReadReplicaJdbcUrl(String readReplicaJdbcUrl) {
+        if (!Objects.equals(readReplicaJdbcUrl, this.readReplicaJdbcUrl)) {
+            closeDatasource();
+        }
+        this.readReplicaJdbcUrl = readReplicaJdbcUrl;
+    }
+
+    public synchronized String getReadReplicaJdbcCredentialsId() {
+        return readReplicaJdbcCredentialsId;
+    }
+
+    @DataBoundSetter
+    public synchronized void setReadReplicaJdbcCredentialsId(String readReplicaJdbcCredentialsId) {
+        if (!Objects.equals(readReplicaJdbcCredentialsId, this.readReplicaJdbcCredentialsId)) {
+            closeDatasource();
+        }
+        this.readReplicaJdbcCredentialsId = readReplicaJdbcCredentialsId;
+    }
+
     @Override
     public boolean configure(StaplerRequest2 req, JSONObject json) throws FormException {
         if (!json.getString("daoClass").equals(daoClass)) {
@@ -233,37 +351,150 @@ public class GlobalPipelineMavenConfig extends GlobalConfiguration {
         // stapler oddity, empty lists coming from the HTTP request are not set on bean by  "req.bindJSON(this, json)"
         this.publisherOptions = req.bindJSONToList(MavenPublisher.class, json.get("publisherOptions"));
         save();
+        if (dao == null) {
+            warmUpDao();
+        }
         return true;
     }
 
     public String getDaoPrettyString() {
-        return dao != null ? dao.toPrettyString() : "Dao Not Ready yet";
+        String prettyString =
+                dao != null ? dao.toPrettyString() : isDaoWarmingUp() ? "Dao warming up" : "Dao Not Ready yet";
+        DependencyGraphWriteBehindQueue queue = this.dependencyGraphWriteBehindQueue;
+        if (queue != null) {
+            prettyString += "\r\n " + queue.toPrettyString();
+        }
+        DownstreamTriggerQueue triggerQueue = this.downstreamTriggerQueue;
+        if (triggerQueue != null) {
+            prettyString += "\r\n " + triggerQueue.toPrettyString();
+        }
+        return prettyString;
     }
 
+    /**
+     * Lock free once the DAO is created. The first call creates the DAO, connecting to the database and migrating its
+     * schema, see {@link #awaitDao(long)} to not wait for the DAO indefinitely.
+     */
     @NonNull
-    public synchronized PipelineMavenPluginDao getDao() {
+    public PipelineMavenPluginDao getDao() {
+        PipelineMavenPluginDao dao = this.dao;
         if (dao != null) {
             return dao;
         }
-        Jenkins j = Jenkins.getInstanceOrNull();
-        if (j == null) {
-            throw new IllegalStateException("Request to get DAO whilst Jenkins is shutting down or starting up");
-        } else if (j.isTerminating()) {
-            throw new IllegalStateException("Request to get DAO whilst Jenkins is terminating");
+        return createDao();
+    }
+
+    @NonNull
+    private PipelineMavenPluginDao createDao() {
+        synchronized (daoCreationLock) {
+            while (true) {
+                PipelineMavenPluginDao dao = this.dao;
+                if (dao != null) {
+                    return dao;
+                }
+                Jenkins j = Jenkins.getInstanceOrNull();
+                if (j == null) {
+                    throw new IllegalStateException(
+                            "Request to get DAO whilst Jenkins is shutting down or starting up");
+                } else if (j.isTerminating()) {
+                    throw new IllegalStateException("Request to get DAO whilst Jenkins is terminating");
+                }
+                Optional<PipelineMavenPluginDao> optionalPipelineMavenPluginDao;
+                PipelineMavenPluginDao.Builder.Config config;
+                long generation;
+                synchronized (this) {
+                    optionalPipelineMavenPluginDao = findDaoFromExtension(getDaoClass());
+                    config = new PipelineMavenPluginDao.Builder.Config()
+                            .credentialsId(jdbcCredentialsId)
+                            .jdbcUrl(jdbcUrl)
+                            .properties(properties)
+                            .readReplicaJdbcUrl(readReplicaJdbcUrl)
+                            .readReplicaCredentialsId(readReplicaJdbcCredentialsId);
+                    generation = daoConfigGeneration;
+                }
+                if (optionalPipelineMavenPluginDao.isPresent()) {
+                    dao = optionalPipelineMavenPluginDao.get().getBuilder().build(config);
+                } else {
+                    LOGGER.info("cannot configure any dao so use the default null values one");
+                    dao = new PipelineMavenPluginNullDao();
+                }
+                synchronized (this) {
+                    if (generation == daoConfigGeneration) {
+                        this.dao = dao;
+                        return dao;
+                    }
+                }
+                LOGGER.log(Level.FINE, "Configuration changed while creating the DAO, create it again");
+                try {
+                    dao.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Exception closing the DAO", e);
+                }
+            }
         }
-        Optional<PipelineMavenPluginDao> optionalPipelineMavenPluginDao = findDaoFromExtension(getDaoClass());
-        if (optionalPipelineMavenPluginDao.isPresent()) {
-            PipelineMavenPluginDao.Builder.Config config = new PipelineMavenPluginDao.Builder.Config()
-                    .credentialsId(jdbcCredentialsId)
-                    .jdbcUrl(jdbcUrl)
-                    .properties(properties);
-            this.dao = optionalPipelineMavenPluginDao.get().getBuilder().build(config);
-        } else {
-            LOGGER.info("cannot configure any dao so use the default null values one");
-            this.dao = new PipelineMavenPluginNullDao();
+    }
+
+    /**
+     * Create the DAO in the background if it is not created yet
+     *
+     * @return the DAO, completed once the database is migrated
+     */
+    @NonNull
+    public CompletableFuture<PipelineMavenPluginDao> warmUpDao() {
+        PipelineMavenPluginDao dao = this.dao;
+        if (dao != null) {
+            return CompletableFuture.completedFuture(dao);
+        }
+        synchronized (daoWarmUpLock) {
+            CompletableFuture<PipelineMavenPluginDao> daoWarmUp = this.daoWarmUp;
+            // retry after a failure, the database may be available now
+            if (daoWarmUp == null || daoWarmUp.isDone()) {
+                LOGGER.log(Level.FINE, "Warm up the DAO in the background");
+                daoWarmUp = CompletableFuture.supplyAsync(this::getDao, Computer.threadPoolForRemoting);
+                this.daoWarmUp = daoWarmUp;
+            }
+            return daoWarmUp;
         }
+    }
 
-        return dao;
+    /**
+     * @return {@code true} if the DAO is being created in the background
+     */
+    public boolean isDaoWarmingUp() {
+        CompletableFuture<PipelineMavenPluginDao> daoWarmUp = this.daoWarmUp;
+        return dao == null && daoWarmUp != null && !daoWarmUp.isDone();
+    }
+
+    /**
+     * Wait for the DAO being created in the background, for the callers that can skip their use of the DAO rather
+     * than block while the database is migrated
+     *
+     * @return the DAO, {@code null} if it is still warming up after the given timeout
+     */
+    @CheckForNull
+    public PipelineMavenPluginDao awaitDao(long timeoutInMillis) throws InterruptedException {
+        PipelineMavenPluginDao dao = this.dao;
+        if (dao != null) {
+            return dao;
+        }
+        try {
+            return warmUpDao().get(timeoutInMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Exception creating the DAO", e.getCause());
+        }
+    }
+
+    /**
+     * Connect to the database and migrate it at startup rather than in the first build using it
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void warmUpDaoOnStartup() {
+        GlobalPipelineMavenConfig config = get();
+        if (config != null) {
+            config.warmUpDao();
+        }
     }
 
     @NonNull
@@ -274,6 +505,42 @@ public class GlobalPipelineMavenConfig extends GlobalConfiguration {
         return pipelineTriggerService;
     }
 
+    @NonNull
+    public synchronized DependencyGraphWriteBehindQueue getDependencyGraphWriteBehindQueue() {
+        if (dependencyGraphWriteBehindQueue == null) {
+            dependencyGraphWriteBehindQueue = new DependencyGraphWriteBehindQueue(
+                    this::getDao,
+                    new File(Jenkins.get().getRootDir(), DependencyGraphWriteBehindQueue.SPOOL_DIRECTORY_NAME));
+        }
+        return dependencyGraphWriteBehindQueue;
+    }
+
+    @NonNull
+    public synchronized DownstreamTriggerQueue getDownstreamTriggerQueue() {
+        if (downstreamTriggerQueue == null) {
+            downstreamTriggerQueue = new DownstreamTriggerQueue(
+                    requests -> ExtensionList.lookupSingleton(DownstreamPipelineTriggerRunListener.class)
+                            .processTriggerRequests(requests),
+                    new File(Jenkins.get().getRootDir(), DownstreamTriggerQueue.JOURNAL_DIRECTORY_NAME),
+                    () -> TimeUnit.SECONDS.toMillis(getDownstreamTriggerCoalescingWindowInSeconds()));
+        }
+        return downstreamTriggerQueue;
+    }
+
+    /**
+     * Wait for the dependency graphs of the given build still queued for persistence, if any.
+     *
+     * @return {@code false} if the timeout elapsed before the graphs have been written
+     */
+    public boolean awaitPendingGraphWrites(@NonNull String jobFullName, int buildNumber, long timeoutInMillis)
+            throws InterruptedException {
+        DependencyGraphWriteBehindQueue queue;
+        synchronized (this) {
+            queue = this.dependencyGraphWriteBehindQueue;
+        }
+        return queue == null || queue.awaitPendingWrites(jobFullName, buildNumber, timeoutInMillis);
+    }
+
     @NonNull
     public Set<Result> getTriggerDownstreamBuildsResultsCriteria() {
         Set<Result> result = new HashSet<>(5);
@@ -303,6 +570,10 @@ public class GlobalPipelineMavenConfig extends GlobalConfiguration {
                                 UsernamePasswordCredentials.class, Jenkins.get(), ACL.SYSTEM, Collections.EMPTY_LIST));
     }
 
+    public ListBoxModel doFillReadReplicaJdbcCredentialsIdItems() {
+        return doFillJdbcCredentialsIdItems();
+    }
+
     @POST
     public FormValidation doValidateJdbcConnection(
             @QueryParameter String jdbcUrl,
@@ -330,8 +601,67 @@ public class GlobalPipelineMavenConfig extends GlobalConfiguration {
         }
     }
 
+    /**
+     * Exact row counts, the diagnostics only report the approximate counts of the catalog statistics
+     */
+    @POST
+    public FormValidation doCountDatabaseRows() {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        try {
+            Map<String, Long> rowCounts = getDao().countRows();
+            if (rowCounts.isEmpty()) {
+                return FormValidation.ok("No row count available");
+            }
+            List<String> result = new ArrayList<>();
+            for (Map.Entry<String, Long> rowCount : rowCounts.entrySet()) {
+                result.add(rowCount.getKey() + ": " + rowCount.getValue() + " rows");
+            }
+            return FormValidation.ok(String.join(", ", result));
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Exception counting the rows of the database", e);
+            return FormValidation.error(e, "Exception counting the rows of the database");
+        }
+    }
+
+    /**
+     * Download the dependency graph as a dump to be imported with {@link #doImportDependencyGraph(StaplerRequest2)}
+     */
+    public void doExportDependencyGraph(StaplerResponse2 rsp) throws IOException {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        rsp.setContentType("application/gzip");
+        rsp.setHeader("Content-Disposition", "attachment; filename=pipeline-maven-dependency-graph.ndjson.gz");
+        getDao().exportGraph(rsp.getOutputStream(), exportedBuilds -> LOGGER.log(
+                Level.INFO, "Exported {0} builds of the dependency graph", new Object[] {exportedBuilds}));
+    }
+
+    /**
+     * Merge the dump posted as request body into the dependency graph
+     */
+    @POST
+    public HttpResponse doImportDependencyGraph(StaplerRequest2 req) throws IOException {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        long count = getDao().importGraph(req.getInputStream(), importedBuilds -> LOGGER.log(
+                Level.INFO, "Imported {0} builds of the dependency graph", new Object[] {importedBuilds}));
+        return HttpResponses.text("Imported " + count + " builds");
+    }
+
+    @Terminator
+    public synchronized void stopDependencyGraphWriteBehindQueue() {
+        if (dependencyGraphWriteBehindQueue != null) {
+            dependencyGraphWriteBehindQueue.stop();
+        }
+    }
+
+    @Terminator
+    public synchronized void stopDownstreamTriggerQueue() {
+        if (downstreamTriggerQueue != null) {
+            downstreamTriggerQueue.stop();
+        }
+    }
+
     @Terminator
     public synchronized void closeDatasource() {
+        daoConfigGeneration++;
         if (dao != null) {
             try {
                 dao.close();
@@ -0,0 +1,29 @@
+package org.jenkinsci.plugins.pipeline.maven.cli;
+
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.pipeline.maven.GlobalPipelineMavenConfig;
+
+/**
+ * Writes the dependency graph of the configured database to the standard output, to be imported in another database
+ * with {@link ImportPipelineMavenDependencyGraphCommand}.
+ */
+@Extension
+public class ExportPipelineMavenDependencyGraphCommand extends CLICommand {
+
+    @Override
+    public String getShortDescription() {
+        return "Exports the Maven dependency graph of the pipelines as a gzipped dump on the standard output";
+    }
+
+    @Override
+    protected int run() throws Exception {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        GlobalPipelineMavenConfig.get()
+                .getDao()
+                .exportGraph(stdout, exportedBuilds -> stderr.println("Exported " + exportedBuilds + " builds"));
+        stdout.flush();
+        return 0;
+    }
+}
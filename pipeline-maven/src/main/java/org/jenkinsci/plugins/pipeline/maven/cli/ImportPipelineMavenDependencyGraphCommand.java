@@ -0,0 +1,29 @@
+package org.jenkinsci.plugins.pipeline.maven.cli;
+
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.pipeline.maven.GlobalPipelineMavenConfig;
+
+/**
+ * Reads a dump written by {@link ExportPipelineMavenDependencyGraphCommand} from the standard input and merges it
+ * into the dependency graph of the configured database.
+ */
+@Extension
+public class ImportPipelineMavenDependencyGraphCommand extends CLICommand {
+
+    @Override
+    public String getShortDescription() {
+        return "Imports a Maven dependency graph dump of the pipelines from the standard input";
+    }
+
+    @Override
+    protected int run() throws Exception {
+        Jenkins.get().checkPermission(Jenkins.ADMINISTER);
+        long count = GlobalPipelineMavenConfig.get()
+                .getDao()
+                .importGraph(stdin, importedBuilds -> stderr.println("Imported " + importedBuilds + " builds"));
+        stdout.println("Imported " + count + " builds");
+        return 0;
+    }
+}
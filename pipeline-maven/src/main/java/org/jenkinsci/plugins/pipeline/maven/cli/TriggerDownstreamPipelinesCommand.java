@@ -39,6 +39,9 @@ public class TriggerDownstreamPipelinesCommand extends CLICommand {
     @Option(name = "--type", aliases = "-t", usage = "Artifact type", required = true)
     public String type;
 
+    @Option(name = "--classifier", aliases = "-c", usage = "Artifact classifier")
+    public String classifier;
+
     @Override
     public String getShortDescription() {
         return "Triggers the downstream pipelines of the given Maven artifact based on their Maven dependencies";
@@ -57,6 +60,7 @@ public class TriggerDownstreamPipelinesCommand extends CLICommand {
                 baseVersion,
                 version,
                 type,
+                classifier,
                 cause,
                 new ServiceLoggerImpl(this.stdout, this.stderr, null));
         stdout.println(triggeredPipelines);
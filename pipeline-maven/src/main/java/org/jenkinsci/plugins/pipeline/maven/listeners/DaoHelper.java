@@ -9,13 +9,19 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jenkinsci.plugins.pipeline.maven.GlobalPipelineMavenConfig;
 import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
 import org.jenkinsci.plugins.pipeline.maven.dao.CacheStats;
+import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginDao;
 
+/**
+ * Memory of the DAO lookups done while evaluating the downstream pipelines of a completed build, thread safe to be
+ * shared by the threads evaluating the downstream pipelines concurrently.
+ */
 public class DaoHelper {
 
     private static final Logger LOGGER = Logger.getLogger(DownstreamPipelineTriggerRunListener.class.getName());
@@ -36,15 +42,54 @@ public class DaoHelper {
     private GlobalPipelineMavenConfig globalPipelineMavenConfig;
 
     // Memory for generatedArtifacts - the key is jobFullName#buildNumber
-    private Map<String, List<MavenArtifact>> generatedArtifactsCache = new HashMap<>();
+    private final Map<String, List<MavenArtifact>> generatedArtifactsCache = new ConcurrentHashMap<>();
 
-    private Map<String, Map<MavenArtifact, SortedSet<String>>> downstreamJobsByArtifact = new HashMap<>();
+    private final Map<String, Map<MavenArtifact, SortedSet<String>>> downstreamJobsByArtifact =
+            new ConcurrentHashMap<>();
 
     public DaoHelper(GlobalPipelineMavenConfig globalPipelineMavenConfig) {
         super();
         this.globalPipelineMavenConfig = globalPipelineMavenConfig;
     }
 
+    /**
+     * Load at once the generated artifacts and the downstream jobs of the given builds that are not yet in memory,
+     * rather than one query per build in {@link #getGeneratedArtifacts(String, int)} and
+     * {@link #listDownstreamJobsByArtifact(String, int)}.
+     *
+     * @param buildNumbersByJobFullName build number (see {@link Run#getNumber()}) by job full name (see
+     *                                  {@link Item#getFullName()})
+     */
+    void prefetch(@NonNull Map<String, Integer> buildNumbersByJobFullName) {
+        Map<String, Integer> missingBuilds = new HashMap<>();
+        for (Map.Entry<String, Integer> build : buildNumbersByJobFullName.entrySet()) {
+            String key = build.getKey() + '#' + build.getValue();
+            if (!generatedArtifactsCache.containsKey(key) || !downstreamJobsByArtifact.containsKey(key)) {
+                missingBuilds.put(build.getKey(), build.getValue());
+            }
+        }
+        if (missingBuilds.isEmpty()) {
+            return;
+        }
+        LOGGER.log(Level.FINER, "prefetch {0}", new Object[] {missingBuilds});
+
+        PipelineMavenPluginDao dao = globalPipelineMavenConfig.getDao();
+        Map<String, List<MavenArtifact>> generatedArtifacts = dao.getGeneratedArtifacts(missingBuilds);
+        Map<String, Map<MavenArtifact, SortedSet<String>>> downstreamJobs =
+                dao.listDownstreamJobsByArtifact(missingBuilds);
+        for (Map.Entry<String, Integer> build : missingBuilds.entrySet()) {
+            String key = build.getKey() + '#' + build.getValue();
+            if (generatedArtifacts.containsKey(build.getKey())) {
+                generatedArtifactsCache.put(key, generatedArtifacts.get(build.getKey()));
+                GET_GENERATED_ARTIFACTS_MISSES.incrementAndGet();
+            }
+            if (downstreamJobs.containsKey(build.getKey())) {
+                downstreamJobsByArtifact.put(key, downstreamJobs.get(build.getKey()));
+                LIST_DOWNSTREAM_JOBS_MISSES.incrementAndGet();
+            }
+        }
+    }
+
     /**
      * Return the artifacts generated by the given build.
      *
@@ -60,17 +105,19 @@ public class DaoHelper {
             jobFullName, buildNumber, generatedArtifactsCache.size()
         });
 
-        if (generatedArtifactsCache.containsKey(key)) {
+        List<MavenArtifact> generatedArtifacts = generatedArtifactsCache.get(key);
+        if (generatedArtifacts != null) {
             LOGGER.log(
                     Level.FINER, "cache hit for getGeneratedArtifacts {0} {1}", new Object[] {jobFullName, buildNumber
                     });
             GET_GENERATED_ARTIFACTS_HITS.incrementAndGet();
-        } else {
-            GET_GENERATED_ARTIFACTS_MISSES.incrementAndGet();
+            return generatedArtifacts;
         }
-
-        return generatedArtifactsCache.computeIfAbsent(
-                key, k -> globalPipelineMavenConfig.getDao().getGeneratedArtifacts(jobFullName, buildNumber));
+        GET_GENERATED_ARTIFACTS_MISSES.incrementAndGet();
+        // don't hold the lock of the map during the query, concurrent misses on the same key query the DAO twice
+        generatedArtifacts = globalPipelineMavenConfig.getDao().getGeneratedArtifacts(jobFullName, buildNumber);
+        List<MavenArtifact> previous = generatedArtifactsCache.putIfAbsent(key, generatedArtifacts);
+        return previous == null ? generatedArtifacts : previous;
     }
 
     /**
@@ -89,15 +136,17 @@ public class DaoHelper {
      */
     Map<MavenArtifact, SortedSet<String>> listDownstreamJobsByArtifact(String jobFullName, int buildNumber) {
         String key = jobFullName + '#' + buildNumber;
-        if (downstreamJobsByArtifact.containsKey(key)) {
+        Map<MavenArtifact, SortedSet<String>> downstreamJobs = downstreamJobsByArtifact.get(key);
+        if (downstreamJobs != null) {
             LOGGER.log(Level.FINER, "cache hit for listDownstreamJobsByArtifact {0} {1}", new Object[] {
                 jobFullName, buildNumber
             });
             LIST_DOWNSTREAM_JOBS_HITS.incrementAndGet();
-        } else {
-            LIST_DOWNSTREAM_JOBS_MISSES.incrementAndGet();
+            return downstreamJobs;
         }
-        return downstreamJobsByArtifact.computeIfAbsent(
-                key, k -> globalPipelineMavenConfig.getDao().listDownstreamJobsByArtifact(jobFullName, buildNumber));
+        LIST_DOWNSTREAM_JOBS_MISSES.incrementAndGet();
+        downstreamJobs = globalPipelineMavenConfig.getDao().listDownstreamJobsByArtifact(jobFullName, buildNumber);
+        Map<MavenArtifact, SortedSet<String>> previous = downstreamJobsByArtifact.putIfAbsent(key, downstreamJobs);
+        return previous == null ? downstreamJobs : previous;
     }
 }
@@ -1,20 +1,35 @@
 package org.jenkinsci.plugins.pipeline.maven.listeners;
 
 import com.google.common.annotations.VisibleForTesting;
+import edu.umd.cs.findbugs.annotations.CheckForNull;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import hudson.Extension;
+import hudson.console.HyperlinkNote;
 import hudson.console.ModelHyperlinkNote;
 import hudson.model.Cause;
 import hudson.model.CauseAction;
+import hudson.model.Item;
 import hudson.model.Job;
 import hudson.model.Queue;
 import hudson.model.Queue.Task;
 import hudson.model.Run;
 import hudson.model.TaskListener;
+import hudson.model.User;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import hudson.util.StreamTaskListener;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -22,6 +37,11 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -30,13 +50,16 @@ import jenkins.model.Jenkins;
 import jenkins.model.ParameterizedJobMixIn;
 import org.jenkinsci.plugins.pipeline.maven.GlobalPipelineMavenConfig;
 import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
+import org.jenkinsci.plugins.pipeline.maven.Messages;
 import org.jenkinsci.plugins.pipeline.maven.cause.MavenDependencyAbstractCause;
 import org.jenkinsci.plugins.pipeline.maven.cause.MavenDependencyCause;
 import org.jenkinsci.plugins.pipeline.maven.cause.MavenDependencyCauseHelper;
 import org.jenkinsci.plugins.pipeline.maven.cause.MavenDependencyUpstreamCause;
 import org.jenkinsci.plugins.pipeline.maven.cause.OtherMavenDependencyCause;
 import org.jenkinsci.plugins.pipeline.maven.dao.UpstreamMemory;
+import org.jenkinsci.plugins.pipeline.maven.service.DownstreamTriggerQueue;
 import org.jenkinsci.plugins.pipeline.maven.trigger.WorkflowJobDependencyTrigger;
+import org.springframework.security.core.Authentication;
 
 /**
  * Trigger downstream pipelines.
@@ -48,24 +71,50 @@ public class DownstreamPipelineTriggerRunListener extends AbstractWorkflowRunLis
 
     private static final Logger LOGGER = Logger.getLogger(DownstreamPipelineTriggerRunListener.class.getName());
 
+    private static final long PENDING_GRAPH_WRITES_TIMEOUT_IN_MILLIS = Long.getLong(
+            DownstreamPipelineTriggerRunListener.class.getName() + ".PENDING_GRAPH_WRITES_TIMEOUT_IN_MILLIS", 60_000);
+
+    /**
+     * Number of threads evaluating concurrently the candidate downstream pipelines of the completed builds, 1 to
+     * evaluate them in the thread of the completed build
+     */
+    private static final int ELIGIBILITY_THREADS =
+            Integer.getInteger(DownstreamPipelineTriggerRunListener.class.getName() + ".ELIGIBILITY_THREADS", 4);
+
+    /**
+     * Shared by the completed builds, the idle threads are released
+     */
+    @CheckForNull
+    private static final ExecutorService ELIGIBILITY_EXECUTOR = createEligibilityExecutor();
+
     private GlobalPipelineMavenConfig globalPipelineMavenConfig;
 
+    /**
+     * {@code null} to evaluate the candidate downstream pipelines in the thread of the completed build
+     */
+    @CheckForNull
+    private final ExecutorService eligibilityExecutor;
+
     public DownstreamPipelineTriggerRunListener() {
         this(GlobalPipelineMavenConfig.get());
     }
 
     @VisibleForTesting
     DownstreamPipelineTriggerRunListener(GlobalPipelineMavenConfig globalPipelineMavenConfig) {
+        this(globalPipelineMavenConfig, ELIGIBILITY_EXECUTOR);
+    }
+
+    @VisibleForTesting
+    DownstreamPipelineTriggerRunListener(
+            GlobalPipelineMavenConfig globalPipelineMavenConfig, @CheckForNull ExecutorService eligibilityExecutor) {
         this.globalPipelineMavenConfig = globalPipelineMavenConfig;
+        this.eligibilityExecutor = eligibilityExecutor;
     }
 
     @Override
     public void onCompleted(Run<?, ?> upstreamBuild, @NonNull TaskListener listener) {
         LOGGER.log(Level.FINER, "onCompleted({0})", new Object[] {upstreamBuild});
 
-        UpstreamMemory upstreamMemory = new UpstreamMemory();
-        DaoHelper daoHelper = new DaoHelper(globalPipelineMavenConfig);
-
         if (!shouldRun(upstreamBuild, listener)) {
             LOGGER.log(
                     Level.FINE,
@@ -74,6 +123,260 @@ public class DownstreamPipelineTriggerRunListener extends AbstractWorkflowRunLis
             return;
         }
 
+        if (globalPipelineMavenConfig.isAsynchronousDownstreamTriggering()) {
+            DownstreamTriggerQueue.TriggerRequest request = new DownstreamTriggerQueue.TriggerRequest(
+                    upstreamBuild.getParent().getFullName(),
+                    upstreamBuild.getNumber(),
+                    String.valueOf(upstreamBuild.getResult()),
+                    Jenkins.getAuthentication2().getName());
+            if (globalPipelineMavenConfig.getDownstreamTriggerQueue().enqueue(request)) {
+                listener.getLogger()
+                        .println("[withMaven] downstreamPipelineTriggerRunListener - Downstream pipelines triggering "
+                                + "queued, see "
+                                + HyperlinkNote.encodeTo(
+                                        "/" + upstreamBuild.getUrl() + DownstreamPipelineTriggersAction.URL_NAME,
+                                        Messages.report_downstream_triggers_description()));
+                return;
+            }
+            listener.getLogger()
+                    .println("[withMaven] downstreamPipelineTriggerRunListener - Downstream trigger queue full, "
+                            + "trigger the downstream pipelines synchronously");
+        }
+
+        triggerDownstreamPipelines(upstreamBuild, listener);
+    }
+
+    /**
+     * Process a request queued by {@link #onCompleted(Run, TaskListener)} with the authentication of the upstream
+     * build, the decisions are written in the log of the {@link DownstreamPipelineTriggersAction} of the upstream
+     * build.
+     */
+    public void processTriggerRequest(@NonNull DownstreamTriggerQueue.TriggerRequest request) {
+        Run<?, ?> upstreamBuild = getUpstreamBuild(request);
+        if (upstreamBuild == null) {
+            LOGGER.log(Level.INFO, "Skip {0}, upstream build not found", new Object[] {request});
+            return;
+        }
+        processTriggerRequest(request, upstreamBuild);
+    }
+
+    /**
+     * Process the requests queued during a coalescing window of the {@link DownstreamTriggerQueue}: the downstream
+     * pipelines of each upstream build are evaluated with the authentication of the upstream build, then each
+     * downstream pipeline is triggered once with a {@link MavenDependencyUpstreamCause} per upstream build.
+     * <p>
+     * The evaluation of an upstream build is written in the log of its {@link DownstreamPipelineTriggersAction}, the
+     * triggering decisions are written in the log of all the upstream builds.
+     */
+    public void processTriggerRequests(@NonNull List<DownstreamTriggerQueue.TriggerRequest> requests) {
+        Map<DownstreamTriggerQueue.TriggerRequest, Run<?, ?>> upstreamBuilds = new LinkedHashMap<>();
+        for (DownstreamTriggerQueue.TriggerRequest request : requests) {
+            Run<?, ?> upstreamBuild = getUpstreamBuild(request);
+            if (upstreamBuild == null) {
+                LOGGER.log(Level.INFO, "Skip {0}, upstream build not found", new Object[] {request});
+            } else {
+                upstreamBuilds.put(request, upstreamBuild);
+            }
+        }
+        if (upstreamBuilds.size() <= 1) {
+            for (Map.Entry<DownstreamTriggerQueue.TriggerRequest, Run<?, ?>> entry : upstreamBuilds.entrySet()) {
+                processTriggerRequest(entry.getKey(), entry.getValue());
+            }
+            return;
+        }
+
+        // share the graph lookups between the upstream builds
+        UpstreamMemory upstreamMemory = new UpstreamMemory();
+        DaoHelper daoHelper = new DaoHelper(globalPipelineMavenConfig);
+
+        long startTimeInNanos = System.nanoTime();
+        List<Evaluation> evaluations = new ArrayList<>();
+        for (Map.Entry<DownstreamTriggerQueue.TriggerRequest, Run<?, ?>> entry : upstreamBuilds.entrySet()) {
+            DownstreamTriggerQueue.TriggerRequest request = entry.getKey();
+            File logFile = DownstreamPipelineTriggersAction.getLogFile(entry.getValue());
+            try (StreamTaskListener listener = new StreamTaskListener(logFile, true, StandardCharsets.UTF_8)) {
+                listener.getLogger()
+                        .println("[withMaven] downstreamPipelineTriggerRunListener - Process " + request
+                                + " queued for "
+                                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - request.getEnqueuedAtInNanos())
+                                + " ms, coalesced with " + (upstreamBuilds.size() - 1) + " other upstream builds");
+                Authentication authentication = getAuthentication(request.getAuthenticationName());
+                try (ACLContext ignored = ACL.as2(authentication)) {
+                    Evaluation evaluation =
+                            evaluateDownstreamPipelines(entry.getValue(), listener, daoHelper, upstreamMemory);
+                    if (evaluation != null) {
+                        evaluation.authentication = authentication;
+                        evaluations.add(evaluation);
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failure to write the downstream pipelines triggering log " + logFile, e);
+            }
+        }
+        long evaluationEndTimeInNanos = System.nanoTime();
+
+        ByteArrayOutputStream decisions = new ByteArrayOutputStream();
+        StreamTaskListener decisionsListener = new StreamTaskListener(decisions, StandardCharsets.UTF_8);
+        int triggeredCount = triggerCoalescedDownstreamPipelines(evaluations, upstreamMemory, decisionsListener);
+        long endTimeInNanos = System.nanoTime();
+        decisionsListener
+                .getLogger()
+                .println("[withMaven] downstreamPipelineTriggerRunListener - " + upstreamBuilds.size()
+                        + " coalesced upstream builds completed in "
+                        + TimeUnit.NANOSECONDS.toMillis(endTimeInNanos - startTimeInNanos)
+                        + " ms (evaluating the downstream pipelines: "
+                        + TimeUnit.NANOSECONDS.toMillis(evaluationEndTimeInNanos - startTimeInNanos)
+                        + " ms, triggering " + triggeredCount + " downstream pipelines: "
+                        + TimeUnit.NANOSECONDS.toMillis(endTimeInNanos - evaluationEndTimeInNanos) + " ms)");
+        decisionsListener.getLogger().flush();
+
+        for (Run<?, ?> upstreamBuild : upstreamBuilds.values()) {
+            File logFile = DownstreamPipelineTriggersAction.getLogFile(upstreamBuild);
+            try {
+                Files.write(
+                        logFile.toPath(),
+                        decisions.toByteArray(),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failure to write the downstream pipelines triggering log " + logFile, e);
+            }
+            addDownstreamPipelineTriggersAction(upstreamBuild);
+        }
+    }
+
+    private void processTriggerRequest(
+            @NonNull DownstreamTriggerQueue.TriggerRequest request, @NonNull Run<?, ?> upstreamBuild) {
+        File logFile = DownstreamPipelineTriggersAction.getLogFile(upstreamBuild);
+        try (StreamTaskListener listener = new StreamTaskListener(logFile, true, StandardCharsets.UTF_8)) {
+            listener.getLogger()
+                    .println("[withMaven] downstreamPipelineTriggerRunListener - Process " + request + " queued for "
+                            + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - request.getEnqueuedAtInNanos())
+                            + " ms");
+            try (ACLContext ignored = ACL.as2(getAuthentication(request.getAuthenticationName()))) {
+                triggerDownstreamPipelines(upstreamBuild, listener);
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failure to write the downstream pipelines triggering log " + logFile, e);
+        }
+
+        addDownstreamPipelineTriggersAction(upstreamBuild);
+    }
+
+    private static void addDownstreamPipelineTriggersAction(@NonNull Run<?, ?> upstreamBuild) {
+        try {
+            upstreamBuild.addOrReplaceAction(new DownstreamPipelineTriggersAction());
+            upstreamBuild.save();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failure to update build " + upstreamBuild.getFullDisplayName(), e);
+        }
+    }
+
+    @CheckForNull
+    private static Run<?, ?> getUpstreamBuild(@NonNull DownstreamTriggerQueue.TriggerRequest request) {
+        // the permissions have been checked when the build completed
+        try (ACLContext ignored = ACL.as2(ACL.SYSTEM2)) {
+            Job<?, ?> upstreamPipeline =
+                    Jenkins.get().getItemByFullName(request.getUpstreamJobFullName(), Job.class);
+            return upstreamPipeline == null
+                    ? null
+                    : upstreamPipeline.getBuildByNumber(request.getUpstreamBuildNumber());
+        }
+    }
+
+    /**
+     * Resolve the authentication recorded by {@link #onCompleted(Run, TaskListener)}, anonymous if the user no longer
+     * exists or can't be impersonated. Anonymous usually doesn't see the downstream pipelines, the fallback is logged
+     * as it silently skips their triggers.
+     */
+    @NonNull
+    private static Authentication getAuthentication(@NonNull String authenticationName) {
+        if (ACL.SYSTEM_USERNAME.equals(authenticationName)) {
+            return ACL.SYSTEM2;
+        }
+        if (ACL.ANONYMOUS_USERNAME.equals(authenticationName)) {
+            return Jenkins.ANONYMOUS2;
+        }
+        User user = User.getById(authenticationName, false);
+        if (user == null) {
+            LOGGER.log(
+                    Level.WARNING,
+                    "User {0} of the queued downstream pipelines triggering not found, use anonymous",
+                    authenticationName);
+            return Jenkins.ANONYMOUS2;
+        }
+        try {
+            return user.impersonate2();
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failure to impersonate " + authenticationName + ", use anonymous", e);
+            return Jenkins.ANONYMOUS2;
+        }
+    }
+
+    private void triggerDownstreamPipelines(Run<?, ?> upstreamBuild, @NonNull TaskListener listener) {
+        long startTimeInNanos = System.nanoTime();
+        Evaluation evaluation = evaluateDownstreamPipelines(
+                upstreamBuild, listener, new DaoHelper(globalPipelineMavenConfig), new UpstreamMemory());
+        if (evaluation == null) {
+            return;
+        }
+        long evaluationEndTimeInNanos = System.nanoTime();
+
+        // note: we could verify that the upstreamBuild.getCauses().getOmittedPipelineFullNames are listed in
+        // jobsToTrigger
+
+        // trigger the pipelines
+        for (Map.Entry<String, Set<MavenArtifact>> entry : evaluation.jobsToTrigger.entrySet()) {
+            String downstreamJobFullName = entry.getKey();
+            Job downstreamJob = Jenkins.get().getItemByFullName(downstreamJobFullName, Job.class);
+            if (downstreamJob == null) {
+                listener.getLogger()
+                        .println("[withMaven] downstreamPipelineTriggerRunListener - Illegal state: "
+                                + downstreamJobFullName + " not resolved");
+                continue;
+            }
+
+            // See jenkins.triggers.ReverseBuildTrigger.RunListenerImpl.onCompleted(Run, TaskListener)
+            MavenDependencyUpstreamCause cause = new MavenDependencyUpstreamCause(
+                    upstreamBuild,
+                    entry.getValue(),
+                    evaluation.omittedPipelineTriggersByPipelineFullname.get(downstreamJobFullName));
+            List<MavenDependencyUpstreamCause> triggerCauses = getTriggerCauses(
+                    downstreamJob,
+                    Collections.singletonList(cause),
+                    evaluation.omittedPipelineTriggersByPipelineFullname,
+                    listener);
+            if (!triggerCauses.isEmpty()) {
+                scheduleBuild(downstreamJob, triggerCauses, listener);
+            }
+        }
+
+        long endTimeInNanos = System.nanoTime();
+        long durationInMillis = TimeUnit.NANOSECONDS.toMillis(endTimeInNanos - startTimeInNanos);
+        if (durationInMillis > TimeUnit.MILLISECONDS.convert(5, TimeUnit.SECONDS) || LOGGER.isLoggable(Level.FINE)) {
+            listener.getLogger()
+                    .println("[withMaven] downstreamPipelineTriggerRunListener - completed in " + durationInMillis
+                            + " ms (listing downstream pipelines: "
+                            + TimeUnit.NANOSECONDS.toMillis(evaluation.listingDurationInNanos)
+                            + " ms, evaluating " + evaluation.candidateCount + " downstream pipelines: "
+                            + TimeUnit.NANOSECONDS.toMillis(evaluation.eligibilityDurationInNanos)
+                            + " ms, triggering " + evaluation.jobsToTrigger.size() + " downstream pipelines: "
+                            + TimeUnit.NANOSECONDS.toMillis(endTimeInNanos - evaluationEndTimeInNanos) + " ms)");
+        }
+    }
+
+    /**
+     * List and evaluate the downstream pipelines of the given upstream build. The pipelines omitted by the upstream
+     * builds of the given build are triggered if the result of the build doesn't meet the trigger criteria.
+     *
+     * @return the downstream pipelines to trigger, {@code null} if the downstream pipelines must not be triggered
+     */
+    @CheckForNull
+    private Evaluation evaluateDownstreamPipelines(
+            @NonNull Run<?, ?> upstreamBuild,
+            @NonNull TaskListener listener,
+            @NonNull DaoHelper daoHelper,
+            @NonNull UpstreamMemory upstreamMemory) {
         long startTimeInNanos = System.nanoTime();
         if (LOGGER.isLoggable(Level.FINER)) {
             listener.getLogger().println("[withMaven] pipelineGraphPublisher - triggerDownstreamPipelines");
@@ -166,7 +469,7 @@ public class DownstreamPipelineTriggerRunListener extends AbstractWorkflowRunLis
                     }
                 }
             }
-            return;
+            return null;
         }
 
         try {
@@ -176,13 +479,31 @@ public class DownstreamPipelineTriggerRunListener extends AbstractWorkflowRunLis
                     .println(
                             "[withMaven] WARNING abort infinite build trigger loop. Please consider opening a Jira issue: "
                                     + e.getMessage());
-            return;
+            return null;
         }
 
         Job<?, ?> upstreamPipeline = upstreamBuild.getParent();
 
         String upstreamPipelineFullName = upstreamPipeline.getFullName();
         int upstreamBuildNumber = upstreamBuild.getNumber();
+
+        // the dependency graph of the build may still be queued for persistence (asynchronous graph persistence)
+        try {
+            if (!globalPipelineMavenConfig.awaitPendingGraphWrites(
+                    upstreamPipelineFullName, upstreamBuildNumber, PENDING_GRAPH_WRITES_TIMEOUT_IN_MILLIS)) {
+                listener.getLogger()
+                        .println("[withMaven] downstreamPipelineTriggerRunListener - WARNING timeout waiting for the "
+                                + "dependency graph of " + upstreamBuild.getFullDisplayName()
+                                + " to be persisted, some downstream pipelines may not be triggered");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            listener.getLogger()
+                    .println("[withMaven] downstreamPipelineTriggerRunListener - Interrupted while waiting for the "
+                            + "dependency graph of " + upstreamBuild.getFullDisplayName() + " to be persisted, skip");
+            return null;
+        }
+
         Map<MavenArtifact, SortedSet<String>> downstreamPipelinesByArtifact = globalPipelineMavenConfig
                 .getDao()
                 .listDownstreamJobsByArtifact(upstreamPipelineFullName, upstreamBuildNumber);
@@ -190,368 +511,588 @@ public class DownstreamPipelineTriggerRunListener extends AbstractWorkflowRunLis
             upstreamPipelineFullName, upstreamBuildNumber, downstreamPipelinesByArtifact
         });
 
-        Map<String, Set<MavenArtifact>> jobsToTrigger = new TreeMap<>();
-        Map<String, Set<String>> omittedPipelineTriggersByPipelineFullname = new HashMap<>();
-        List<String> rejectedPipelines = new ArrayList<>();
-
-        // build the list of pipelines to trigger
+        // group the artifacts by candidate downstream pipeline, in the order of the artifacts, the eligibility of a
+        // pipeline doesn't depend on the other candidates so that the pipelines can be evaluated concurrently
+        Map<String, List<Map.Entry<MavenArtifact, SortedSet<String>>>> candidates = new TreeMap<>();
         for (Map.Entry<MavenArtifact, SortedSet<String>> entry : downstreamPipelinesByArtifact.entrySet()) {
+            for (String downstreamPipelineFullName : entry.getValue()) {
+                if (Objects.equals(downstreamPipelineFullName, upstreamPipelineFullName)) {
+                    // Don't trigger myself
+                    continue;
+                }
+                candidates.computeIfAbsent(downstreamPipelineFullName, p -> new ArrayList<>()).add(entry);
+            }
+        }
 
-            MavenArtifact mavenArtifact = entry.getKey();
-            SortedSet<String> downstreamPipelines = entry.getValue();
+        // load at once the generated artifacts and the downstream pipelines of the candidate downstream pipelines
+        Map<String, Integer> downstreamBuildNumbersByPipelineFullName = new HashMap<>();
+        for (String downstreamPipelineFullName : candidates.keySet()) {
+            Job<?, ?> downstreamPipeline = Jenkins.get().getItemByFullName(downstreamPipelineFullName, Job.class);
+            if (downstreamPipeline != null && downstreamPipeline.getLastBuild() != null) {
+                downstreamBuildNumbersByPipelineFullName.put(
+                        downstreamPipelineFullName, downstreamPipeline.getLastBuild().getNumber());
+            }
+        }
+        if (!downstreamBuildNumbersByPipelineFullName.isEmpty()) {
+            daoHelper.prefetch(downstreamBuildNumbersByPipelineFullName);
+        }
+        long listingEndTimeInNanos = System.nanoTime();
 
-            downstreamPipelinesLoop:
-            for (String downstreamPipelineFullName : downstreamPipelines) {
+        // build the list of pipelines to trigger
+        List<Eligibility> eligibilities;
+        try {
+            eligibilities = evaluateEligibilities(candidates, upstreamBuild, daoHelper, upstreamMemory);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            listener.getLogger()
+                    .println("[withMaven] downstreamPipelineTriggerRunListener - Interrupted while evaluating the "
+                            + "downstream pipelines of " + upstreamBuild.getFullDisplayName() + ", skip");
+            return null;
+        }
+        long eligibilityEndTimeInNanos = System.nanoTime();
 
-                if (jobsToTrigger.containsKey(downstreamPipelineFullName)) {
-                    // downstream pipeline has already been added to the list of pipelines to trigger,
-                    // we have already verified that it's meeting requirements (not an infinite loop, authorized by
-                    // security, not excessive triggering, buildable...)
-                    if (LOGGER.isLoggable(Level.FINEST)) {
-                        listener.getLogger()
-                                .println(
-                                        "[withMaven] downstreamPipelineTriggerRunListener - Skip eligibility check of pipeline "
-                                                + downstreamPipelineFullName + " for artifact "
-                                                + mavenArtifact.getShortDescription()
-                                                + ", eligibility already confirmed");
-                    }
-                    Set<MavenArtifact> mavenArtifacts = jobsToTrigger.get(downstreamPipelineFullName);
-                    if (mavenArtifacts == null) {
-                        listener.getLogger()
-                                .println(
-                                        "[withMaven] downstreamPipelineTriggerRunListener - Invalid state, no artifacts found for pipeline '"
-                                                + downstreamPipelineFullName + "' while evaluating "
-                                                + mavenArtifact.getShortDescription());
-                    } else {
-                        mavenArtifacts.add(mavenArtifact);
-                    }
+        // merge the results in the order of the pipeline names
+        Evaluation evaluation = new Evaluation(upstreamBuild);
+        evaluation.candidateCount = candidates.size();
+        evaluation.listingDurationInNanos = listingEndTimeInNanos - startTimeInNanos;
+        evaluation.eligibilityDurationInNanos = eligibilityEndTimeInNanos - listingEndTimeInNanos;
+        for (Eligibility eligibility : eligibilities) {
+            for (String message : eligibility.messages) {
+                listener.getLogger().println(message);
+            }
+            if (!eligibility.mavenArtifacts.isEmpty()) {
+                evaluation.jobsToTrigger.put(eligibility.downstreamPipelineFullName, eligibility.mavenArtifacts);
+            }
+            for (Map.Entry<String, Set<String>> omittedPipelineTriggers :
+                    eligibility.omittedPipelineTriggersByPipelineFullname.entrySet()) {
+                evaluation
+                        .omittedPipelineTriggersByPipelineFullname
+                        .computeIfAbsent(omittedPipelineTriggers.getKey(), p -> new TreeSet<>())
+                        .addAll(omittedPipelineTriggers.getValue());
+            }
+        }
+        return evaluation;
+    }
 
-                    continue;
-                }
+    /**
+     * Evaluate the candidate downstream pipelines with the {@link #eligibilityExecutor}, or in the current thread if
+     * there is a single candidate.
+     *
+     * @param candidates artifacts of the upstream build and their downstream pipelines, by candidate pipeline
+     * @return the eligibility of each candidate, in the order of the candidates
+     */
+    @NonNull
+    private List<Eligibility> evaluateEligibilities(
+            @NonNull Map<String, List<Map.Entry<MavenArtifact, SortedSet<String>>>> candidates,
+            @NonNull Run<?, ?> upstreamBuild,
+            @NonNull DaoHelper daoHelper,
+            @NonNull UpstreamMemory upstreamMemory)
+            throws InterruptedException {
+        List<Eligibility> eligibilities = new ArrayList<>();
+        if (eligibilityExecutor == null || candidates.size() <= 1) {
+            for (Map.Entry<String, List<Map.Entry<MavenArtifact, SortedSet<String>>>> candidate :
+                    candidates.entrySet()) {
+                eligibilities.add(evaluateEligibility(
+                        candidate.getKey(), candidate.getValue(), upstreamBuild, daoHelper, upstreamMemory));
+            }
+            return eligibilities;
+        }
 
-                if (Objects.equals(downstreamPipelineFullName, upstreamPipelineFullName)) {
-                    // Don't trigger myself
-                    continue;
+        // the lookups of items and the permission checks must be done with the authentication of the upstream build
+        Authentication authentication = Jenkins.getAuthentication2();
+        Map<String, Future<Eligibility>> futures = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Map.Entry<MavenArtifact, SortedSet<String>>>> candidate :
+                candidates.entrySet()) {
+            futures.put(candidate.getKey(), eligibilityExecutor.submit(() -> {
+                try (ACLContext ignored = ACL.as2(authentication)) {
+                    return evaluateEligibility(
+                            candidate.getKey(), candidate.getValue(), upstreamBuild, daoHelper, upstreamMemory);
                 }
+            }));
+        }
+        try {
+            for (Map.Entry<String, Future<Eligibility>> future : futures.entrySet()) {
+                try {
+                    eligibilities.add(future.getValue().get());
+                } catch (ExecutionException e) {
+                    LOGGER.log(
+                            Level.WARNING,
+                            "Exception evaluating the downstream pipeline " + future.getKey() + " of "
+                                    + upstreamBuild.getFullDisplayName(),
+                            e.getCause());
+                    Eligibility eligibility = new Eligibility(future.getKey());
+                    eligibility.println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
+                            + future.getKey() + ", failure to evaluate its eligibility: " + e.getCause());
+                    eligibilities.add(eligibility);
+                }
+            }
+        } finally {
+            for (Future<Eligibility> future : futures.values()) {
+                future.cancel(true);
+            }
+        }
+        return eligibilities;
+    }
 
-                if (rejectedPipelines.contains(downstreamPipelineFullName)) {
-                    LOGGER.log(Level.FINE, "Downstream pipeline {0} already checked", new Object[] {
-                        downstreamPipelineFullName
+    /**
+     * Verify that the given downstream pipeline meets the requirements to be triggered by the upstream build: not an
+     * infinite loop, authorized by security, not excessive triggering, buildable...
+     * <p>
+     * The artifacts are evaluated in the given order, once the pipeline is eligible for an artifact the following
+     * artifacts are added without evaluation.
+     *
+     * @param downstreamPipelineFullName see {@link Item#getFullName()}
+     * @param artifacts                  artifacts of the upstream build the pipeline depends on, with all the
+     *                                   downstream pipelines of each artifact
+     */
+    @NonNull
+    private Eligibility evaluateEligibility(
+            @NonNull String downstreamPipelineFullName,
+            @NonNull List<Map.Entry<MavenArtifact, SortedSet<String>>> artifacts,
+            @NonNull Run<?, ?> upstreamBuild,
+            @NonNull DaoHelper daoHelper,
+            @NonNull UpstreamMemory upstreamMemory) {
+        Eligibility eligibility = new Eligibility(downstreamPipelineFullName);
+        Job<?, ?> upstreamPipeline = upstreamBuild.getParent();
+        String upstreamPipelineFullName = upstreamPipeline.getFullName();
+
+        final Job<?, ?> downstreamPipeline = Jenkins.get().getItemByFullName(downstreamPipelineFullName, Job.class);
+        if (downstreamPipeline == null || downstreamPipeline.getLastBuild() == null) {
+            LOGGER.log(
+                    Level.FINE,
+                    "Downstream pipeline {0} or downstream pipeline last build not found from upstream build {1}. Database synchronization issue or security restriction?",
+                    new Object[] {
+                        downstreamPipelineFullName, upstreamBuild.getFullDisplayName(), Jenkins.getAuthentication()
                     });
-                    continue;
-                }
+            return eligibility;
+        }
 
-                final Job<?, ?> downstreamPipeline =
-                        Jenkins.get().getItemByFullName(downstreamPipelineFullName, Job.class);
-                if (downstreamPipeline == null || downstreamPipeline.getLastBuild() == null) {
-                    LOGGER.log(
-                            Level.FINE,
-                            "Downstream pipeline {0} or downstream pipeline last build not found from upstream build {1}. Database synchronization issue or security restriction?",
-                            new Object[] {
-                                downstreamPipelineFullName,
-                                upstreamBuild.getFullDisplayName(),
-                                Jenkins.getAuthentication()
-                            });
-                    rejectedPipelines.add(downstreamPipelineFullName);
-                    continue;
-                }
+        int downstreamBuildNumber = downstreamPipeline.getLastBuild().getNumber();
+
+        artifactsLoop:
+        for (Map.Entry<MavenArtifact, SortedSet<String>> entry : artifacts) {
 
-                int downstreamBuildNumber = downstreamPipeline.getLastBuild().getNumber();
+            MavenArtifact mavenArtifact = entry.getKey();
+            SortedSet<String> downstreamPipelines = entry.getValue();
 
-                List<MavenArtifact> downstreamPipelineGeneratedArtifacts =
-                        daoHelper.getGeneratedArtifacts(downstreamPipelineFullName, downstreamBuildNumber);
+            if (!eligibility.mavenArtifacts.isEmpty()) {
+                // we have already verified that the downstream pipeline is meeting requirements
                 if (LOGGER.isLoggable(Level.FINEST)) {
-                    listener.getLogger()
-                            .println("[withMaven] downstreamPipelineTriggerRunListener - Pipeline "
-                                    + ModelHyperlinkNote.encodeTo(downstreamPipeline)
-                                    + " evaluated for because it has a dependency on " + mavenArtifact + " generates "
-                                    + downstreamPipelineGeneratedArtifacts);
+                    eligibility.println(
+                            "[withMaven] downstreamPipelineTriggerRunListener - Skip eligibility check of pipeline "
+                                    + downstreamPipelineFullName + " for artifact "
+                                    + mavenArtifact.getShortDescription()
+                                    + ", eligibility already confirmed");
                 }
+                eligibility.mavenArtifacts.add(mavenArtifact);
+                continue;
+            }
 
-                for (MavenArtifact downstreamPipelineGeneratedArtifact : downstreamPipelineGeneratedArtifacts) {
-                    if (Objects.equals(mavenArtifact.getGroupId(), downstreamPipelineGeneratedArtifact.getGroupId())
-                            && Objects.equals(
-                                    mavenArtifact.getArtifactId(),
-                                    downstreamPipelineGeneratedArtifact.getArtifactId())) {
-                        if (LOGGER.isLoggable(Level.FINE)) {
-                            listener.getLogger()
-                                    .println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
-                                            + ModelHyperlinkNote.encodeTo(downstreamPipeline) + " for " + mavenArtifact
-                                            + " because it generates artifact with same groupId:artifactId "
-                                            + downstreamPipelineGeneratedArtifact);
-                        }
-                        continue downstreamPipelinesLoop;
+            List<MavenArtifact> downstreamPipelineGeneratedArtifacts =
+                    daoHelper.getGeneratedArtifacts(downstreamPipelineFullName, downstreamBuildNumber);
+            if (LOGGER.isLoggable(Level.FINEST)) {
+                eligibility.println("[withMaven] downstreamPipelineTriggerRunListener - Pipeline "
+                        + ModelHyperlinkNote.encodeTo(downstreamPipeline)
+                        + " evaluated for because it has a dependency on " + mavenArtifact + " generates "
+                        + downstreamPipelineGeneratedArtifacts);
+            }
+
+            for (MavenArtifact downstreamPipelineGeneratedArtifact : downstreamPipelineGeneratedArtifacts) {
+                if (Objects.equals(mavenArtifact.getGroupId(), downstreamPipelineGeneratedArtifact.getGroupId())
+                        && Objects.equals(
+                                mavenArtifact.getArtifactId(), downstreamPipelineGeneratedArtifact.getArtifactId())) {
+                    if (LOGGER.isLoggable(Level.FINE)) {
+                        eligibility.println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
+                                + ModelHyperlinkNote.encodeTo(downstreamPipeline) + " for " + mavenArtifact
+                                + " because it generates artifact with same groupId:artifactId "
+                                + downstreamPipelineGeneratedArtifact);
                     }
+                    continue artifactsLoop;
                 }
+            }
 
-                Map<MavenArtifact, SortedSet<String>> downstreamDownstreamPipelinesByArtifact =
-                        daoHelper.listDownstreamJobsByArtifact(downstreamPipelineFullName, downstreamBuildNumber);
-                for (Map.Entry<MavenArtifact, SortedSet<String>> entry2 :
-                        downstreamDownstreamPipelinesByArtifact.entrySet()) {
-                    SortedSet<String> downstreamDownstreamPipelines = entry2.getValue();
-                    if (downstreamDownstreamPipelines.contains(upstreamPipelineFullName)) {
-                        listener.getLogger()
-                                .println(
-                                        "[withMaven] downstreamPipelineTriggerRunListener - Infinite loop detected: skip triggering "
-                                                + ModelHyperlinkNote.encodeTo(downstreamPipeline) + " "
-                                                + " (dependency: "
-                                                + mavenArtifact.getShortDescription()
-                                                + ") because it is itself triggering this pipeline "
-                                                + ModelHyperlinkNote.encodeTo(upstreamPipeline)
-                                                + " (dependency: "
-                                                + entry2.getKey().getShortDescription() + ")");
-                        // prevent infinite loop
-                        continue downstreamPipelinesLoop;
-                    }
+            Map<MavenArtifact, SortedSet<String>> downstreamDownstreamPipelinesByArtifact =
+                    daoHelper.listDownstreamJobsByArtifact(downstreamPipelineFullName, downstreamBuildNumber);
+            for (Map.Entry<MavenArtifact, SortedSet<String>> entry2 :
+                    downstreamDownstreamPipelinesByArtifact.entrySet()) {
+                SortedSet<String> downstreamDownstreamPipelines = entry2.getValue();
+                if (downstreamDownstreamPipelines.contains(upstreamPipelineFullName)) {
+                    eligibility.println(
+                            "[withMaven] downstreamPipelineTriggerRunListener - Infinite loop detected: skip triggering "
+                                    + ModelHyperlinkNote.encodeTo(downstreamPipeline) + " "
+                                    + " (dependency: "
+                                    + mavenArtifact.getShortDescription()
+                                    + ") because it is itself triggering this pipeline "
+                                    + ModelHyperlinkNote.encodeTo(upstreamPipeline)
+                                    + " (dependency: "
+                                    + entry2.getKey().getShortDescription() + ")");
+                    // prevent infinite loop
+                    continue artifactsLoop;
                 }
+            }
 
-                // Avoid excessive triggering
-                // See #46313
-                Map<String, Integer> transitiveUpstreamPipelines = globalPipelineMavenConfig
-                        .getDao()
-                        .listTransitiveUpstreamJobs(downstreamPipelineFullName, downstreamBuildNumber, upstreamMemory);
-                if (LOGGER.isLoggable(Level.FINER)) {
-                    listener.getLogger()
-                            .println(
-                                    "[withMaven] downstreamPipelineTriggerRunListener - Found transitive upstream pipelines for "
+            // Avoid excessive triggering
+            // See #46313
+            Map<String, Integer> transitiveUpstreamPipelines = globalPipelineMavenConfig
+                    .getDao()
+                    .listTransitiveUpstreamJobs(downstreamPipelineFullName, downstreamBuildNumber, upstreamMemory);
+            if (LOGGER.isLoggable(Level.FINER)) {
+                eligibility.println(
+                        "[withMaven] downstreamPipelineTriggerRunListener - Found transitive upstream pipelines for "
+                                + ModelHyperlinkNote.encodeTo(downstreamPipeline) + ": "
+                                + transitiveUpstreamPipelines.keySet().stream()
+                                        .collect(Collectors.joining(",")));
+            }
+
+            // If a job is running in this moment we get an empty list. We use the last successful build in this
+            // case
+            if (transitiveUpstreamPipelines != null && transitiveUpstreamPipelines.isEmpty()) {
+                Job<?, ?> job = Jenkins.get().getItemByFullName(downstreamPipelineFullName, Job.class);
+                if (job != null) {
+                    Run lastSuccessfulBuild = job.getLastSuccessfulBuild();
+                    if (lastSuccessfulBuild != null) {
+                        transitiveUpstreamPipelines = globalPipelineMavenConfig
+                                .getDao()
+                                .listTransitiveUpstreamJobs(
+                                        downstreamPipelineFullName, lastSuccessfulBuild.number, upstreamMemory);
+                        if (LOGGER.isLoggable(Level.FINER)) {
+                            eligibility.println(
+                                    "[withMaven] downstreamPipelineTriggerRunListener - Updated transitive upstream pipelines for "
                                             + ModelHyperlinkNote.encodeTo(downstreamPipeline) + ": "
                                             + transitiveUpstreamPipelines.keySet().stream()
                                                     .collect(Collectors.joining(",")));
-                }
-
-                // If a job is running in this moment we get an empty list. We use the last successful build in this
-                // case
-                if (transitiveUpstreamPipelines != null && transitiveUpstreamPipelines.isEmpty()) {
-                    Job<?, ?> job = Jenkins.get().getItemByFullName(downstreamPipelineFullName, Job.class);
-                    if (job != null) {
-                        Run lastSuccessfulBuild = job.getLastSuccessfulBuild();
-                        if (lastSuccessfulBuild != null) {
-                            transitiveUpstreamPipelines = globalPipelineMavenConfig
-                                    .getDao()
-                                    .listTransitiveUpstreamJobs(
-                                            downstreamPipelineFullName, lastSuccessfulBuild.number, upstreamMemory);
-                            if (LOGGER.isLoggable(Level.FINER)) {
-                                listener.getLogger()
-                                        .println(
-                                                "[withMaven] downstreamPipelineTriggerRunListener - Updated transitive upstream pipelines for "
-                                                        + ModelHyperlinkNote.encodeTo(downstreamPipeline) + ": "
-                                                        + transitiveUpstreamPipelines.keySet().stream()
-                                                                .collect(Collectors.joining(",")));
-                            }
                         }
                     }
                 }
+            }
 
-                for (String transitiveUpstreamPipelineName : transitiveUpstreamPipelines.keySet()) {
-                    // Skip if one of the downstream's upstream is already building or in queue
-                    // Then it will get triggered anyway by that upstream, we don't need to trigger it again
-                    Job<?, ?> transitiveUpstreamPipeline =
-                            Jenkins.get().getItemByFullName(transitiveUpstreamPipelineName, Job.class);
+            for (String transitiveUpstreamPipelineName : transitiveUpstreamPipelines.keySet()) {
+                // Skip if one of the downstream's upstream is already building or in queue
+                // Then it will get triggered anyway by that upstream, we don't need to trigger it again
+                Job<?, ?> transitiveUpstreamPipeline =
+                        Jenkins.get().getItemByFullName(transitiveUpstreamPipelineName, Job.class);
 
-                    if (transitiveUpstreamPipeline == null) {
-                        // security: not allowed to view this transitive upstream pipeline, continue to loop
-                        if (LOGGER.isLoggable(Level.FINER)) {
-                            listener.getLogger()
-                                    .println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
-                                            + ModelHyperlinkNote.encodeTo(downstreamPipeline)
-                                            + " because transitive pipeline " + transitiveUpstreamPipelineName
-                                            + " is unaccessible");
-                        }
-                        continue;
-                    } else if (transitiveUpstreamPipeline.getFullName().equals(upstreamPipeline.getFullName())) {
-                        // this upstream pipeline of  the current downstreamPipeline is the upstream pipeline itself,
-                        // continue to loop
-                        if (LOGGER.isLoggable(Level.FINER)) {
-                            listener.getLogger()
-                                    .println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
-                                            + ModelHyperlinkNote.encodeTo(downstreamPipeline)
-                                            + " because transitive pipeline " + transitiveUpstreamPipelineName
-                                            + " is the current one");
-                        }
-                        continue;
-                    } else if (transitiveUpstreamPipeline.isBuilding()) {
-                        listener.getLogger()
-                                .println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
-                                        + ModelHyperlinkNote.encodeTo(downstreamPipeline)
-                                        + " because it has a dependency already building: "
-                                        + ModelHyperlinkNote.encodeTo(transitiveUpstreamPipeline));
-                        continue downstreamPipelinesLoop;
-                    } else if (isInQueue(transitiveUpstreamPipeline)) {
-                        listener.getLogger()
-                                .println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
-                                        + ModelHyperlinkNote.encodeTo(downstreamPipeline)
-                                        + " because it has a dependency already building or in queue: "
-                                        + ModelHyperlinkNote.encodeTo(transitiveUpstreamPipeline));
-                        continue downstreamPipelinesLoop;
-                    } else if (downstreamPipelines.contains(transitiveUpstreamPipelineName)) {
-                        // Skip if this downstream pipeline will be triggered by another one of our downstream pipelines
-                        // That's the case when one of the downstream's transitive upstream is our own downstream
-                        listener.getLogger()
-                                .println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
-                                        + ModelHyperlinkNote.encodeTo(downstreamPipeline)
-                                        + " because it has a dependency on a pipeline that will be triggered by this build: "
-                                        + ModelHyperlinkNote.encodeTo(transitiveUpstreamPipeline));
-                        omittedPipelineTriggersByPipelineFullname
-                                .computeIfAbsent(transitiveUpstreamPipelineName, p -> new TreeSet<>())
-                                .add(downstreamPipelineFullName);
-                        continue downstreamPipelinesLoop;
+                if (transitiveUpstreamPipeline == null) {
+                    // security: not allowed to view this transitive upstream pipeline, continue to loop
+                    if (LOGGER.isLoggable(Level.FINER)) {
+                        eligibility.println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
+                                + ModelHyperlinkNote.encodeTo(downstreamPipeline)
+                                + " because transitive pipeline " + transitiveUpstreamPipelineName
+                                + " is unaccessible");
                     }
-                }
-
-                listener.getLogger()
-                        .println("[withMaven] downstreamPipelineTriggerRunListener - checked transitive upstreams for: "
-                                + downstreamPipelineFullName + " build: " + downstreamBuildNumber + " result: "
-                                + String.join(",", transitiveUpstreamPipelines.keySet()));
-
-                if (!downstreamPipeline.isBuildable()) {
+                    continue;
+                } else if (transitiveUpstreamPipeline.getFullName().equals(upstreamPipeline.getFullName())) {
+                    // this upstream pipeline of  the current downstreamPipeline is the upstream pipeline itself,
+                    // continue to loop
                     if (LOGGER.isLoggable(Level.FINER)) {
-                        listener.getLogger()
-                                .println(
-                                        "[withMaven] downstreamPipelineTriggerRunListener - Skip triggering of non buildable (disabled: "
-                                                + ((ParameterizedJobMixIn.ParameterizedJob<?, ?>) downstreamPipeline)
-                                                        .isDisabled()
-                                                + ", isHoldOffBuildUntilSave: "
-                                                + downstreamPipeline.isHoldOffBuildUntilSave()
-                                                + ") downstream pipeline " + downstreamPipeline.getFullName()
-                                                + " from upstream build "
-                                                + upstreamBuild.getFullDisplayName());
+                        eligibility.println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
+                                + ModelHyperlinkNote.encodeTo(downstreamPipeline)
+                                + " because transitive pipeline " + transitiveUpstreamPipelineName
+                                + " is the current one");
                     }
-                    rejectedPipelines.add(downstreamPipelineFullName);
                     continue;
+                } else if (transitiveUpstreamPipeline.isBuilding()) {
+                    eligibility.println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
+                            + ModelHyperlinkNote.encodeTo(downstreamPipeline)
+                            + " because it has a dependency already building: "
+                            + ModelHyperlinkNote.encodeTo(transitiveUpstreamPipeline));
+                    continue artifactsLoop;
+                } else if (isInQueue(transitiveUpstreamPipeline)) {
+                    eligibility.println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
+                            + ModelHyperlinkNote.encodeTo(downstreamPipeline)
+                            + " because it has a dependency already building or in queue: "
+                            + ModelHyperlinkNote.encodeTo(transitiveUpstreamPipeline));
+                    continue artifactsLoop;
+                } else if (downstreamPipelines.contains(transitiveUpstreamPipelineName)) {
+                    // Skip if this downstream pipeline will be triggered by another one of our downstream pipelines
+                    // That's the case when one of the downstream's transitive upstream is our own downstream
+                    eligibility.println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
+                            + ModelHyperlinkNote.encodeTo(downstreamPipeline)
+                            + " because it has a dependency on a pipeline that will be triggered by this build: "
+                            + ModelHyperlinkNote.encodeTo(transitiveUpstreamPipeline));
+                    eligibility.omittedPipelineTriggersByPipelineFullname
+                            .computeIfAbsent(transitiveUpstreamPipelineName, p -> new TreeSet<>())
+                            .add(downstreamPipelineFullName);
+                    continue artifactsLoop;
                 }
+            }
 
-                WorkflowJobDependencyTrigger downstreamPipelineTrigger = globalPipelineMavenConfig
-                        .getPipelineTriggerService()
-                        .getWorkflowJobDependencyTrigger(
-                                (ParameterizedJobMixIn.ParameterizedJob<?, ?>) downstreamPipeline);
-                if (downstreamPipelineTrigger == null) {
-                    listener.getLogger()
-                            .println(
-                                    "[withMaven] downstreamPipelineTriggerRunListener - Skip triggering of downstream pipeline "
-                                            + downstreamPipeline.getFullName() + " from upstream build "
-                                            + upstreamBuild.getFullDisplayName()
-                                            + ": dependency trigger not configured");
-                    rejectedPipelines.add(downstreamPipelineFullName);
-                    continue;
+            eligibility.println("[withMaven] downstreamPipelineTriggerRunListener - checked transitive upstreams for: "
+                    + downstreamPipelineFullName + " build: " + downstreamBuildNumber + " result: "
+                    + String.join(",", transitiveUpstreamPipelines.keySet()));
+
+            if (!downstreamPipeline.isBuildable()) {
+                if (LOGGER.isLoggable(Level.FINER)) {
+                    eligibility.println(
+                            "[withMaven] downstreamPipelineTriggerRunListener - Skip triggering of non buildable (disabled: "
+                                    + ((ParameterizedJobMixIn.ParameterizedJob<?, ?>) downstreamPipeline).isDisabled()
+                                    + ", isHoldOffBuildUntilSave: "
+                                    + downstreamPipeline.isHoldOffBuildUntilSave()
+                                    + ") downstream pipeline " + downstreamPipeline.getFullName()
+                                    + " from upstream build "
+                                    + upstreamBuild.getFullDisplayName());
                 }
+                return eligibility;
+            }
+
+            WorkflowJobDependencyTrigger downstreamPipelineTrigger = globalPipelineMavenConfig
+                    .getPipelineTriggerService()
+                    .getWorkflowJobDependencyTrigger((ParameterizedJobMixIn.ParameterizedJob<?, ?>) downstreamPipeline);
+            if (downstreamPipelineTrigger == null) {
+                eligibility.println(
+                        "[withMaven] downstreamPipelineTriggerRunListener - Skip triggering of downstream pipeline "
+                                + downstreamPipeline.getFullName() + " from upstream build "
+                                + upstreamBuild.getFullDisplayName()
+                                + ": dependency trigger not configured");
+                return eligibility;
+            }
 
-                boolean downstreamVisibleByUpstreamBuildAuth = globalPipelineMavenConfig
-                        .getPipelineTriggerService()
-                        .isDownstreamVisibleByUpstreamBuildAuth(downstreamPipeline);
-                boolean upstreamVisibleByDownstreamBuildAuth = globalPipelineMavenConfig
-                        .getPipelineTriggerService()
-                        .isUpstreamBuildVisibleByDownstreamBuildAuth(upstreamPipeline, downstreamPipeline);
+            boolean downstreamVisibleByUpstreamBuildAuth = globalPipelineMavenConfig
+                    .getPipelineTriggerService()
+                    .isDownstreamVisibleByUpstreamBuildAuth(downstreamPipeline);
+            boolean upstreamVisibleByDownstreamBuildAuth = globalPipelineMavenConfig
+                    .getPipelineTriggerService()
+                    .isUpstreamBuildVisibleByDownstreamBuildAuth(upstreamPipeline, downstreamPipeline);
 
+            if (LOGGER.isLoggable(Level.FINER)) {
+                LOGGER.log(
+                        Level.FINER,
+                        "upstreamPipeline (" + upstreamPipelineFullName + ", visibleByDownstreamBuildAuth: "
+                                + upstreamVisibleByDownstreamBuildAuth + "), " + " downstreamPipeline ("
+                                + downstreamPipeline.getFullName() + ", visibleByUpstreamBuildAuth: "
+                                + downstreamVisibleByUpstreamBuildAuth + "), " + "upstreamBuildAuth: "
+                                + Jenkins.getAuthentication());
+            }
+            if (downstreamVisibleByUpstreamBuildAuth && upstreamVisibleByDownstreamBuildAuth) {
+                eligibility.mavenArtifacts.add(mavenArtifact);
+            } else {
                 if (LOGGER.isLoggable(Level.FINER)) {
-                    LOGGER.log(
-                            Level.FINER,
-                            "upstreamPipeline (" + upstreamPipelineFullName + ", visibleByDownstreamBuildAuth: "
-                                    + upstreamVisibleByDownstreamBuildAuth + "), " + " downstreamPipeline ("
-                                    + downstreamPipeline.getFullName() + ", visibleByUpstreamBuildAuth: "
-                                    + downstreamVisibleByUpstreamBuildAuth + "), " + "upstreamBuildAuth: "
-                                    + Jenkins.getAuthentication());
-                }
-                if (downstreamVisibleByUpstreamBuildAuth && upstreamVisibleByDownstreamBuildAuth) {
-                    Set<MavenArtifact> mavenArtifactsCausingTheTrigger =
-                            jobsToTrigger.computeIfAbsent(downstreamPipelineFullName, k -> new TreeSet<>());
-                    if (mavenArtifactsCausingTheTrigger.contains(mavenArtifact)) {
-                        // TODO display warning
-                    } else {
-                        mavenArtifactsCausingTheTrigger.add(mavenArtifact);
-                    }
-                } else {
-                    if (LOGGER.isLoggable(Level.FINER)) {
-                        listener.getLogger()
-                                .println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering of "
-                                        + downstreamPipeline.getFullName() + " by " + upstreamBuild.getFullDisplayName()
-                                        + ": downstreamVisibleByUpstreamBuildAuth: "
-                                        + downstreamVisibleByUpstreamBuildAuth
-                                        + ", upstreamVisibleByDownstreamBuildAuth: "
-                                        + upstreamVisibleByDownstreamBuildAuth);
-                    }
+                    eligibility.println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering of "
+                            + downstreamPipeline.getFullName() + " by " + upstreamBuild.getFullDisplayName()
+                            + ": downstreamVisibleByUpstreamBuildAuth: "
+                            + downstreamVisibleByUpstreamBuildAuth
+                            + ", upstreamVisibleByDownstreamBuildAuth: "
+                            + upstreamVisibleByDownstreamBuildAuth);
                 }
             }
         }
+        return eligibility;
+    }
 
-        // note: we could verify that the upstreamBuild.getCauses().getOmittedPipelineFullNames are listed in
-        // jobsToTrigger
+    @CheckForNull
+    private static ExecutorService createEligibilityExecutor() {
+        if (ELIGIBILITY_THREADS <= 1) {
+            return null;
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                ELIGIBILITY_THREADS,
+                ELIGIBILITY_THREADS,
+                60,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new NamingThreadFactory(
+                        new DaemonThreadFactory(), DownstreamPipelineTriggerRunListener.class.getSimpleName()));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 
-        // trigger the pipelines
-        triggerPipelinesLoop:
-        for (Map.Entry<String, Set<MavenArtifact>> entry : jobsToTrigger.entrySet()) {
+    /**
+     * Trigger once each downstream pipeline of the given upstream builds, with a cause per upstream build. The
+     * downstream pipelines that will be triggered by another downstream pipeline of the upstream builds are omitted,
+     * the upstream builds may not have seen each other building when they were evaluated.
+     *
+     * @return the number of downstream pipelines to trigger
+     */
+    private int triggerCoalescedDownstreamPipelines(
+            @NonNull List<Evaluation> evaluations,
+            @NonNull UpstreamMemory upstreamMemory,
+            @NonNull TaskListener listener) {
+        Map<String, List<Evaluation>> evaluationsByPipelineFullName = new TreeMap<>();
+        Map<String, Set<String>> omittedPipelineTriggersByPipelineFullname = new HashMap<>();
+        for (Evaluation evaluation : evaluations) {
+            for (String downstreamPipelineFullName : evaluation.jobsToTrigger.keySet()) {
+                evaluationsByPipelineFullName
+                        .computeIfAbsent(downstreamPipelineFullName, p -> new ArrayList<>())
+                        .add(evaluation);
+            }
+            for (Map.Entry<String, Set<String>> omittedPipelineTriggers :
+                    evaluation.omittedPipelineTriggersByPipelineFullname.entrySet()) {
+                omittedPipelineTriggersByPipelineFullname
+                        .computeIfAbsent(omittedPipelineTriggers.getKey(), p -> new TreeSet<>())
+                        .addAll(omittedPipelineTriggers.getValue());
+            }
+        }
+
+        // the downstream pipelines are resolved and triggered with the authentication of their first upstream build,
+        // they have been verified to be visible by each of their upstream builds
+        Map<String, Job<?, ?>> downstreamJobs = new TreeMap<>();
+        Map<String, List<MavenDependencyUpstreamCause>> triggerCausesByPipelineFullName = new HashMap<>();
+        for (Map.Entry<String, List<Evaluation>> entry : evaluationsByPipelineFullName.entrySet()) {
             String downstreamJobFullName = entry.getKey();
-            Job downstreamJob = Jenkins.get().getItemByFullName(downstreamJobFullName, Job.class);
-            if (downstreamJob == null) {
-                listener.getLogger()
-                        .println("[withMaven] downstreamPipelineTriggerRunListener - Illegal state: "
-                                + downstreamJobFullName + " not resolved");
-                continue;
+            try (ACLContext ignored = ACL.as2(entry.getValue().get(0).authentication)) {
+                Job<?, ?> downstreamJob = Jenkins.get().getItemByFullName(downstreamJobFullName, Job.class);
+                if (downstreamJob == null) {
+                    listener.getLogger()
+                            .println("[withMaven] downstreamPipelineTriggerRunListener - Illegal state: "
+                                    + downstreamJobFullName + " not resolved");
+                    continue;
+                }
+                List<MavenDependencyUpstreamCause> causes = new ArrayList<>();
+                for (Evaluation evaluation : entry.getValue()) {
+                    causes.add(new MavenDependencyUpstreamCause(
+                            evaluation.upstreamBuild,
+                            evaluation.jobsToTrigger.get(downstreamJobFullName),
+                            omittedPipelineTriggersByPipelineFullname.get(downstreamJobFullName)));
+                }
+                List<MavenDependencyUpstreamCause> triggerCauses =
+                        getTriggerCauses(downstreamJob, causes, omittedPipelineTriggersByPipelineFullname, listener);
+                if (!triggerCauses.isEmpty()) {
+                    downstreamJobs.put(downstreamJobFullName, downstreamJob);
+                    triggerCausesByPipelineFullName.put(downstreamJobFullName, triggerCauses);
+                }
             }
-            Set<MavenArtifact> mavenArtifacts = entry.getValue();
+        }
 
-            // See jenkins.triggers.ReverseBuildTrigger.RunListenerImpl.onCompleted(Run, TaskListener)
-            MavenDependencyUpstreamCause cause = new MavenDependencyUpstreamCause(
-                    upstreamBuild,
-                    mavenArtifacts,
-                    omittedPipelineTriggersByPipelineFullname.get(downstreamJobFullName));
+        // skip the downstream pipelines having a transitive upstream pipeline triggered by this batch, ignoring the
+        // cycles between the triggered pipelines
+        Map<String, Set<String>> transitiveUpstreamPipelinesByPipelineFullName = new HashMap<>();
+        for (Map.Entry<String, Job<?, ?>> entry : downstreamJobs.entrySet()) {
+            Run<?, ?> lastBuild = entry.getValue().getLastBuild();
+            Set<String> transitiveUpstreamPipelines = new TreeSet<>();
+            if (lastBuild != null) {
+                transitiveUpstreamPipelines.addAll(globalPipelineMavenConfig
+                        .getDao()
+                        .listTransitiveUpstreamJobs(entry.getKey(), lastBuild.getNumber(), upstreamMemory)
+                        .keySet());
+            }
+            transitiveUpstreamPipelines.retainAll(downstreamJobs.keySet());
+            transitiveUpstreamPipelines.remove(entry.getKey());
+            transitiveUpstreamPipelinesByPipelineFullName.put(entry.getKey(), transitiveUpstreamPipelines);
+        }
+        Set<String> omittedPipelineFullNames = new TreeSet<>();
+        for (Map.Entry<String, Set<String>> entry : transitiveUpstreamPipelinesByPipelineFullName.entrySet()) {
+            for (String transitiveUpstreamPipelineFullName : entry.getValue()) {
+                if (!transitiveUpstreamPipelinesByPipelineFullName
+                        .get(transitiveUpstreamPipelineFullName)
+                        .contains(entry.getKey())) {
+                    omittedPipelineFullNames.add(entry.getKey());
+                    break;
+                }
+            }
+        }
 
-            Run downstreamJobLastBuild = downstreamJob.getLastBuild();
-            if (downstreamJobLastBuild == null) {
-                // should never happen, we need at least one build to know the dependencies
-                // trigger downstream pipeline anyway
-            } else {
-                List<MavenArtifact> matchingMavenDependencies =
-                        MavenDependencyCauseHelper.isSameCause(cause, downstreamJobLastBuild.getCauses());
-                if (matchingMavenDependencies.isEmpty()) {
-                    for (Map.Entry<String, Set<String>> omittedPipeline :
-                            omittedPipelineTriggersByPipelineFullname.entrySet()) {
-                        if (omittedPipeline.getValue().contains(downstreamJobFullName)) {
-                            Job transitiveDownstreamJob = Jenkins.get().getItemByFullName(entry.getKey(), Job.class);
-                            listener.getLogger()
-                                    .println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
-                                            + "downstream pipeline " + ModelHyperlinkNote.encodeTo(downstreamJob)
-                                            + "because it will be triggered by transitive downstream "
-                                            + ModelHyperlinkNote.encodeTo(transitiveDownstreamJob));
-                            continue triggerPipelinesLoop; // don't trigger downstream pipeline
+        int triggeredCount = 0;
+        for (Map.Entry<String, Job<?, ?>> entry : downstreamJobs.entrySet()) {
+            String downstreamJobFullName = entry.getKey();
+            Job<?, ?> downstreamJob = entry.getValue();
+            if (omittedPipelineFullNames.contains(downstreamJobFullName)) {
+                // record the omitted pipeline on a transitive upstream pipeline that is triggered, it always exists
+                // as the transitive upstream pipelines of a pipeline include their own transitive upstream pipelines
+                String triggeredUpstreamPipelineFullName =
+                        transitiveUpstreamPipelinesByPipelineFullName.get(downstreamJobFullName).stream()
+                                .filter(p -> !omittedPipelineFullNames.contains(p))
+                                .findFirst()
+                                .orElse(null);
+                if (triggeredUpstreamPipelineFullName != null) {
+                    Job<?, ?> triggeredUpstreamJob = downstreamJobs.get(triggeredUpstreamPipelineFullName);
+                    for (MavenDependencyUpstreamCause cause :
+                            triggerCausesByPipelineFullName.get(triggeredUpstreamPipelineFullName)) {
+                        // the list of the cause may be immutable
+                        List<String> causeOmittedPipelineFullNames =
+                                new ArrayList<>(cause.getOmittedPipelineFullNames());
+                        if (!causeOmittedPipelineFullNames.contains(downstreamJobFullName)) {
+                            causeOmittedPipelineFullNames.add(downstreamJobFullName);
                         }
+                        cause.setOmittedPipelineFullNames(causeOmittedPipelineFullNames);
                     }
-                    // trigger downstream pipeline
-                } else {
-                    downstreamJobLastBuild.addAction(new CauseAction(cause));
                     listener.getLogger()
-                            .println(
-                                    "[withMaven] downstreamPipelineTriggerRunListener - Skip triggering downstream pipeline "
-                                            + ModelHyperlinkNote.encodeTo(downstreamJob)
-                                            + " as it was already triggered for Maven dependencies: "
-                                            + matchingMavenDependencies.stream()
-                                                    .map(mavenDependency -> mavenDependency == null
-                                                            ? null
-                                                            : mavenDependency.getShortDescription())
-                                                    .collect(Collectors.joining(", ")));
-                    try {
-                        downstreamJobLastBuild.save();
-                    } catch (IOException e) {
-                        listener.getLogger()
-                                .println("[withMaven] downstreamPipelineTriggerRunListener - Failure to update build "
-                                        + downstreamJobLastBuild.getFullDisplayName() + ": " + e.toString());
-                    }
-                    continue; // don't trigger downstream pipeline
+                            .println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
+                                    + ModelHyperlinkNote.encodeTo(downstreamJob)
+                                    + " because it has a dependency on a pipeline that will be triggered by these "
+                                    + "builds: " + ModelHyperlinkNote.encodeTo(triggeredUpstreamJob));
+                    continue;
                 }
             }
+            Authentication authentication =
+                    evaluationsByPipelineFullName.get(downstreamJobFullName).get(0).authentication;
+            try (ACLContext ignored = ACL.as2(authentication)) {
+                scheduleBuild(downstreamJob, triggerCausesByPipelineFullName.get(downstreamJobFullName), listener);
+            }
+            triggeredCount++;
+        }
+        return triggeredCount;
+    }
 
-            scheduleBuild(downstreamJob, cause, listener);
+    /**
+     * Add the causes for which the last build of the downstream pipeline has already been triggered to this last
+     * build, and omit the downstream pipeline if it will be triggered by a transitive downstream pipeline.
+     *
+     * @return the causes to trigger the downstream pipeline with, empty to not trigger it
+     */
+    @NonNull
+    private List<MavenDependencyUpstreamCause> getTriggerCauses(
+            @NonNull Job<?, ?> downstreamJob,
+            @NonNull List<MavenDependencyUpstreamCause> causes,
+            @NonNull Map<String, Set<String>> omittedPipelineTriggersByPipelineFullname,
+            @NonNull TaskListener listener) {
+        Run<?, ?> downstreamJobLastBuild = downstreamJob.getLastBuild();
+        if (downstreamJobLastBuild == null) {
+            // should never happen, we need at least one build to know the dependencies
+            // trigger downstream pipeline anyway
+            return causes;
         }
 
-        long durationInMillis =
-                TimeUnit.MILLISECONDS.convert(System.nanoTime() - startTimeInNanos, TimeUnit.NANOSECONDS);
-        if (durationInMillis > TimeUnit.MILLISECONDS.convert(5, TimeUnit.SECONDS) || LOGGER.isLoggable(Level.FINE)) {
+        List<MavenDependencyUpstreamCause> triggerCauses = new ArrayList<>();
+        boolean lastBuildUpdated = false;
+        for (MavenDependencyUpstreamCause cause : causes) {
+            List<MavenArtifact> matchingMavenDependencies =
+                    MavenDependencyCauseHelper.isSameCause(cause, downstreamJobLastBuild.getCauses());
+            if (matchingMavenDependencies.isEmpty()) {
+                triggerCauses.add(cause);
+                continue;
+            }
+            downstreamJobLastBuild.addAction(new CauseAction(cause));
+            lastBuildUpdated = true;
             listener.getLogger()
-                    .println("[withMaven] downstreamPipelineTriggerRunListener - completed in " + durationInMillis
-                            + " ms");
+                    .println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering downstream pipeline "
+                            + ModelHyperlinkNote.encodeTo(downstreamJob)
+                            + " as it was already triggered for Maven dependencies: "
+                            + matchingMavenDependencies.stream()
+                                    .map(mavenDependency ->
+                                            mavenDependency == null ? null : mavenDependency.getShortDescription())
+                                    .collect(Collectors.joining(", ")));
         }
+        if (lastBuildUpdated) {
+            try {
+                downstreamJobLastBuild.save();
+            } catch (IOException e) {
+                listener.getLogger()
+                        .println("[withMaven] downstreamPipelineTriggerRunListener - Failure to update build "
+                                + downstreamJobLastBuild.getFullDisplayName() + ": " + e.toString());
+            }
+        }
+        if (triggerCauses.isEmpty()) {
+            return triggerCauses;
+        }
+
+        for (Map.Entry<String, Set<String>> omittedPipeline : omittedPipelineTriggersByPipelineFullname.entrySet()) {
+            if (omittedPipeline.getValue().contains(downstreamJob.getFullName())) {
+                Job<?, ?> transitiveDownstreamJob =
+                        Jenkins.get().getItemByFullName(omittedPipeline.getKey(), Job.class);
+                listener.getLogger()
+                        .println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering downstream "
+                                + "pipeline " + ModelHyperlinkNote.encodeTo(downstreamJob)
+                                + " because it will be triggered by transitive downstream "
+                                + (transitiveDownstreamJob == null
+                                        ? omittedPipeline.getKey()
+                                        : ModelHyperlinkNote.encodeTo(transitiveDownstreamJob)));
+                return Collections.emptyList(); // don't trigger downstream pipeline
+            }
+        }
+        return triggerCauses;
     }
 
-    private void scheduleBuild(Job downstreamJob, MavenDependencyUpstreamCause cause, TaskListener listener) {
+    private void scheduleBuild(Job downstreamJob, List<MavenDependencyUpstreamCause> causes, TaskListener listener) {
         // double check if Job is already in the queue. This avoids performance problems caused
         // by locking in hudson.model.Queue.schedule2()
 
@@ -560,8 +1101,10 @@ public class DownstreamPipelineTriggerRunListener extends AbstractWorkflowRunLis
                     .println("[withMaven] downstreamPipelineTriggerRunListener - Skip triggering "
                             + ModelHyperlinkNote.encodeTo(downstreamJob) + " because it is already in the queue");
         } else {
-            Queue.Item queuedItem = ParameterizedJobMixIn.scheduleBuild2(downstreamJob, -1, new CauseAction(cause));
-            String dependenciesMessage = cause.getMavenArtifactsDescription();
+            Queue.Item queuedItem = ParameterizedJobMixIn.scheduleBuild2(downstreamJob, -1, new CauseAction(causes));
+            String dependenciesMessage = causes.stream()
+                    .map(MavenDependencyUpstreamCause::getMavenArtifactsDescription)
+                    .collect(Collectors.joining(", "));
             if (queuedItem == null) {
                 listener.getLogger()
                         .println(
@@ -581,4 +1124,58 @@ public class DownstreamPipelineTriggerRunListener extends AbstractWorkflowRunLis
         // isInQueue returns always false in WorkflowJob !
         return job instanceof Task && Jenkins.get().getQueue().contains((Task) job);
     }
+
+    /**
+     * Result of {@link #evaluateDownstreamPipelines(Run, TaskListener, DaoHelper, UpstreamMemory)}
+     */
+    private static class Evaluation {
+
+        private final Run<?, ?> upstreamBuild;
+
+        /**
+         * Artifacts causing the trigger by downstream pipeline, in the order of the pipeline names
+         */
+        private final Map<String, Set<MavenArtifact>> jobsToTrigger = new TreeMap<>();
+
+        private final Map<String, Set<String>> omittedPipelineTriggersByPipelineFullname = new HashMap<>();
+
+        /**
+         * Authentication of the upstream build when the trigger requests are coalesced
+         */
+        private Authentication authentication;
+
+        private int candidateCount;
+        private long listingDurationInNanos;
+        private long eligibilityDurationInNanos;
+
+        private Evaluation(@NonNull Run<?, ?> upstreamBuild) {
+            this.upstreamBuild = upstreamBuild;
+        }
+    }
+
+    /**
+     * Result of {@link #evaluateEligibility(String, List, Run, DaoHelper, UpstreamMemory)}, the messages for the
+     * build log are kept to be printed in the order of the pipelines rather than in the order of the evaluations
+     */
+    private static class Eligibility {
+
+        private final String downstreamPipelineFullName;
+
+        /**
+         * Artifacts causing the trigger, empty if the pipeline must not be triggered
+         */
+        private final Set<MavenArtifact> mavenArtifacts = new TreeSet<>();
+
+        private final Map<String, Set<String>> omittedPipelineTriggersByPipelineFullname = new HashMap<>();
+
+        private final List<String> messages = new ArrayList<>();
+
+        private Eligibility(@NonNull String downstreamPipelineFullName) {
+            this.downstreamPipelineFullName = downstreamPipelineFullName;
+        }
+
+        private void println(@NonNull String message) {
+            messages.add(message);
+        }
+    }
 }
@@ -0,0 +1,71 @@
+package org.jenkinsci.plugins.pipeline.maven.listeners;
+
+import edu.umd.cs.findbugs.annotations.CheckForNull;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.console.AnnotatedLargeText;
+import hudson.model.Run;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import jenkins.model.RunAction2;
+import org.jenkinsci.plugins.pipeline.maven.Messages;
+
+/**
+ * Decisions of the downstream pipelines triggering of a build, recorded after the completion of the build when the
+ * downstream pipelines are triggered asynchronously.
+ * <p>
+ * See {@code hudson.triggers.SCMTrigger.BuildAction} for the polling log.
+ */
+public class DownstreamPipelineTriggersAction implements RunAction2 {
+
+    public static final String LOG_FILE_NAME = "pipeline-maven-downstream-triggers.log";
+
+    public static final String URL_NAME = "downstreamPipelineTriggers";
+
+    private transient Run<?, ?> run;
+
+    @Override
+    public void onAttached(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> run) {
+        this.run = run;
+    }
+
+    public Run<?, ?> getRun() {
+        return run;
+    }
+
+    @NonNull
+    public static File getLogFile(@NonNull Run<?, ?> run) {
+        return new File(run.getRootDir(), LOG_FILE_NAME);
+    }
+
+    /**
+     * Used from {@code index.jelly} to write the annotated log of the decisions
+     */
+    public void writeLogTo(long offset, @NonNull Writer out) throws IOException {
+        new AnnotatedLargeText<>(getLogFile(run), StandardCharsets.UTF_8, true, this).writeHtmlTo(offset, out);
+    }
+
+    @CheckForNull
+    @Override
+    public String getIconFileName() {
+        return "symbol-terminal";
+    }
+
+    @CheckForNull
+    @Override
+    public String getDisplayName() {
+        return Messages.report_downstream_triggers_description();
+    }
+
+    @CheckForNull
+    @Override
+    public String getUrlName() {
+        return URL_NAME;
+    }
+}
@@ -9,6 +9,8 @@ import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.util.ListBoxModel;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
@@ -21,6 +23,7 @@ import org.jenkinsci.plugins.pipeline.maven.MavenDependency;
 import org.jenkinsci.plugins.pipeline.maven.MavenPublisher;
 import org.jenkinsci.plugins.pipeline.maven.Messages;
 import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginDao;
+import org.jenkinsci.plugins.pipeline.maven.service.DependencyGraphWriteBehindQueue;
 import org.jenkinsci.plugins.pipeline.maven.util.XmlUtils;
 import org.jenkinsci.plugins.workflow.steps.StepContext;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -37,6 +40,9 @@ public class PipelineGraphPublisher extends MavenPublisher {
 
     private static final Logger LOGGER = Logger.getLogger(PipelineGraphPublisher.class.getName());
 
+    private static final long DAO_WARM_UP_TIMEOUT_IN_MILLIS =
+            Long.getLong(PipelineGraphPublisher.class.getName() + ".DAO_WARM_UP_TIMEOUT_IN_MILLIS", 60_000);
+
     private boolean includeSnapshotVersions = true;
 
     private boolean includeReleaseVersions;
@@ -79,23 +85,46 @@ public class PipelineGraphPublisher extends MavenPublisher {
         Run run = context.get(Run.class);
         TaskListener listener = context.get(TaskListener.class);
 
-        PipelineMavenPluginDao dao = GlobalPipelineMavenConfig.get().getDao();
-
         List<MavenArtifact> parentProjects = listParentProjects(mavenSpyLogsElt, LOGGER);
         List<MavenDependency> dependencies = listDependencies(mavenSpyLogsElt, LOGGER);
         List<MavenArtifact> generatedArtifacts = XmlUtils.listGeneratedArtifacts(mavenSpyLogsElt, true);
         List<String> executedLifecyclePhases = XmlUtils.getExecutedLifecyclePhases(mavenSpyLogsElt);
 
-        recordParentProject(parentProjects, run, listener, dao);
-        recordDependencies(dependencies, generatedArtifacts, run, listener, dao);
-        recordGeneratedArtifacts(generatedArtifacts, executedLifecyclePhases, run, listener, dao);
+        GlobalPipelineMavenConfig config = GlobalPipelineMavenConfig.get();
+        if (config.isAsynchronousGraphPersistence()) {
+            // the write-behind queue waits for the database, the build doesn't have to wait for the DAO warm up
+            enqueueBuildGraph(
+                    filterParentProjects(parentProjects, listener),
+                    filterDependencies(dependencies, listener),
+                    generatedArtifacts,
+                    executedLifecyclePhases,
+                    run,
+                    listener,
+                    config.getDependencyGraphWriteBehindQueue());
+            return;
+        }
+
+        PipelineMavenPluginDao dao = config.awaitDao(DAO_WARM_UP_TIMEOUT_IN_MILLIS);
+        if (dao == null) {
+            listener.getLogger()
+                    .println("[withMaven] pipelineGraphPublisher - WARNING the Pipeline Maven database is still "
+                            + "warming up after " + DAO_WARM_UP_TIMEOUT_IN_MILLIS + "ms, skip recording the "
+                            + "dependencies, parent projects and generated artifacts of the build");
+            return;
+        }
+
+        recordBuildGraph(
+                filterParentProjects(parentProjects, listener),
+                filterDependencies(dependencies, listener),
+                generatedArtifacts,
+                executedLifecyclePhases,
+                run,
+                listener,
+                dao);
     }
 
-    protected void recordParentProject(
-            List<MavenArtifact> parentProjects,
-            @NonNull Run run,
-            @NonNull TaskListener listener,
-            @NonNull PipelineMavenPluginDao dao) {
+    protected List<MavenArtifact> filterParentProjects(
+            List<MavenArtifact> parentProjects, @NonNull TaskListener listener) {
         if (LOGGER.isLoggable(Level.FINE)) {
             listener.getLogger()
                     .println("[withMaven] pipelineGraphPublisher - recordParentProject - filter: "
@@ -103,6 +132,7 @@ public class PipelineGraphPublisher extends MavenPublisher {
                             + isIncludeReleaseVersions() + "]");
         }
 
+        List<MavenArtifact> result = new ArrayList<>();
         for (MavenArtifact parentProject : parentProjects) {
             if (parentProject.isSnapshot()) {
                 if (!includeSnapshotVersions) {
@@ -124,36 +154,18 @@ public class PipelineGraphPublisher extends MavenPublisher {
                 }
             }
 
-            try {
-                if (LOGGER.isLoggable(Level.FINE)) {
-                    listener.getLogger()
-                            .println("[withMaven] pipelineGraphPublisher - Record parent project: "
-                                    + parentProject.getId() + ", ignoreUpstreamTriggers: " + ignoreUpstreamTriggers);
-                }
-
-                dao.recordParentProject(
-                        run.getParent().getFullName(),
-                        run.getNumber(),
-                        parentProject.getGroupId(),
-                        parentProject.getArtifactId(),
-                        parentProject.getVersion(),
-                        this.ignoreUpstreamTriggers);
-
-            } catch (RuntimeException e) {
-                listener.error("[withMaven] pipelineGraphPublisher - WARNING: Exception recording parent project "
-                        + parentProject.getId() + " on build, skip");
-                e.printStackTrace(listener.getLogger());
-                listener.getLogger().flush();
+            if (LOGGER.isLoggable(Level.FINE)) {
+                listener.getLogger()
+                        .println("[withMaven] pipelineGraphPublisher - Record parent project: " + parentProject.getId()
+                                + ", ignoreUpstreamTriggers: " + ignoreUpstreamTriggers);
             }
+            result.add(parentProject);
         }
+        return result;
     }
 
-    protected void recordDependencies(
-            List<MavenDependency> dependencies,
-            List<MavenArtifact> generatedArtifacts,
-            @NonNull Run run,
-            @NonNull TaskListener listener,
-            @NonNull PipelineMavenPluginDao dao) {
+    protected List<MavenDependency> filterDependencies(
+            List<MavenDependency> dependencies, @NonNull TaskListener listener) {
         if (LOGGER.isLoggable(Level.FINE)) {
             listener.getLogger()
                     .println(
@@ -163,6 +175,8 @@ public class PipelineGraphPublisher extends MavenPublisher {
                                     + getIncludedScopes());
         }
 
+        Set<String> includedScopes = getIncludedScopes();
+        List<MavenDependency> result = new ArrayList<>();
         for (MavenDependency dependency : dependencies) {
             if (dependency.isSnapshot()) {
                 if (!includeSnapshotVersions) {
@@ -183,7 +197,7 @@ public class PipelineGraphPublisher extends MavenPublisher {
                     continue;
                 }
             }
-            if (!getIncludedScopes().contains(dependency.getScope())) {
+            if (!includedScopes.contains(dependency.getScope())) {
                 if (LOGGER.isLoggable(Level.FINER)) {
                     listener.getLogger()
                             .println(
@@ -193,54 +207,94 @@ public class PipelineGraphPublisher extends MavenPublisher {
                 continue;
             }
 
-            try {
-                if (LOGGER.isLoggable(Level.FINE)) {
-                    listener.getLogger()
-                            .println("[withMaven] pipelineGraphPublisher - Record dependency: " + dependency.getId()
-                                    + ", ignoreUpstreamTriggers: " + ignoreUpstreamTriggers);
-                }
-
-                dao.recordDependency(
-                        run.getParent().getFullName(),
-                        run.getNumber(),
-                        dependency.getGroupId(),
-                        dependency.getArtifactId(),
-                        dependency.getBaseVersion(),
-                        dependency.getType(),
-                        dependency.getScope(),
-                        this.ignoreUpstreamTriggers,
-                        dependency.getClassifier());
-
-            } catch (RuntimeException e) {
-                listener.error("[withMaven] pipelineGraphPublisher - WARNING: Exception recording " + dependency.getId()
-                        + " on build, skip");
-                e.printStackTrace(listener.getLogger());
-                listener.getLogger().flush();
+            if (LOGGER.isLoggable(Level.FINE)) {
+                listener.getLogger()
+                        .println("[withMaven] pipelineGraphPublisher - Record dependency: " + dependency.getId()
+                                + ", ignoreUpstreamTriggers: " + ignoreUpstreamTriggers);
             }
+            result.add(dependency);
         }
+        return result;
     }
 
     /**
-     * @param generatedArtifacts           deployed artifacts
+     * Record the parent projects, the dependencies and the generated artifacts of the build in a single call to the
+     * {@link PipelineMavenPluginDao}. If the graph can't be recorded at once, the rows are recorded one by one: the
+     * parent projects and the dependencies that fail are skipped, a failure recording the generated artifacts is
+     * propagated.
+     *
+     * @param parentProjects          filtered parent projects
+     * @param dependencies            filtered dependencies
+     * @param generatedArtifacts      deployed artifacts
      * @param executedLifecyclePhases Maven lifecycle phases that have been gone through during the Maven execution (e.g. "..., compile, test, package..." )
      * @param run
      * @param listener
      * @param dao
      */
-    protected void recordGeneratedArtifacts(
+    protected void recordBuildGraph(
+            List<MavenArtifact> parentProjects,
+            List<MavenDependency> dependencies,
             List<MavenArtifact> generatedArtifacts,
             List<String> executedLifecyclePhases,
             @NonNull Run run,
             @NonNull TaskListener listener,
             @NonNull PipelineMavenPluginDao dao) {
-        if (LOGGER.isLoggable(Level.FINE)) {
-            listener.getLogger().println("[withMaven] pipelineGraphPublisher - recordGeneratedArtifacts...");
+        boolean skipDownstreamPipelines =
+                isSkipDownstreamPipelines(generatedArtifacts, executedLifecyclePhases, run, listener);
+        try {
+            dao.recordBuildGraph(
+                    run.getParent().getFullName(),
+                    run.getNumber(),
+                    dependencies,
+                    parentProjects,
+                    generatedArtifacts,
+                    this.ignoreUpstreamTriggers,
+                    skipDownstreamPipelines);
+        } catch (RuntimeException e) {
+            // don't lose the whole graph because of a single row, record the rows one by one and skip the bad ones
+            listener.error("[withMaven] pipelineGraphPublisher - WARNING: Exception recording the dependencies, "
+                    + "parent projects and generated artifacts of the build at once, record them one by one");
+            e.printStackTrace(listener.getLogger());
+            listener.getLogger().flush();
+            recordParentProjectRows(parentProjects, run, listener, dao);
+            recordDependencyRows(dependencies, run, listener, dao);
+            recordGeneratedArtifactRows(generatedArtifacts, skipDownstreamPipelines, run, dao);
         }
-        for (MavenArtifact artifact : generatedArtifacts) {
-            boolean skipDownstreamPipelines =
-                    this.skipDownstreamTriggers || (!executedLifecyclePhases.contains(this.lifecycleThreshold));
+    }
 
-            if (LOGGER.isLoggable(Level.FINE)) {
+    /**
+     * Queue the parent projects, the dependencies and the generated artifacts of the build in the write-behind queue
+     * of the asynchronous graph persistence, see {@link GlobalPipelineMavenConfig#isAsynchronousGraphPersistence()}.
+     */
+    protected void enqueueBuildGraph(
+            List<MavenArtifact> parentProjects,
+            List<MavenDependency> dependencies,
+            List<MavenArtifact> generatedArtifacts,
+            List<String> executedLifecyclePhases,
+            @NonNull Run run,
+            @NonNull TaskListener listener,
+            @NonNull DependencyGraphWriteBehindQueue queue) {
+        queue.enqueue(
+                run.getParent().getFullName(),
+                run.getNumber(),
+                dependencies,
+                parentProjects,
+                generatedArtifacts,
+                this.ignoreUpstreamTriggers,
+                isSkipDownstreamPipelines(generatedArtifacts, executedLifecyclePhases, run, listener));
+    }
+
+    private boolean isSkipDownstreamPipelines(
+            List<MavenArtifact> generatedArtifacts,
+            List<String> executedLifecyclePhases,
+            @NonNull Run run,
+            @NonNull TaskListener listener) {
+        boolean skipDownstreamPipelines =
+                this.skipDownstreamTriggers || (!executedLifecyclePhases.contains(this.lifecycleThreshold));
+
+        if (LOGGER.isLoggable(Level.FINE)) {
+            listener.getLogger().println("[withMaven] pipelineGraphPublisher - recordGeneratedArtifacts...");
+            for (MavenArtifact artifact : generatedArtifacts) {
                 LOGGER.log(
                         Level.FINE,
                         "Build {0}#{1} - record generated {2}:{3}, version:{4}, " + "executedLifecyclePhases: {5}, "
@@ -262,6 +316,128 @@ public class PipelineGraphPublisher extends MavenPublisher {
                                 + skipDownstreamTriggers + ", lifecycleThreshold:" + lifecycleThreshold + ", file: "
                                 + artifact.getFile());
             }
+        }
+        return skipDownstreamPipelines;
+    }
+
+    /**
+     * @deprecated use {@link #recordBuildGraph(List, List, List, List, Run, TaskListener, PipelineMavenPluginDao)}
+     */
+    @Deprecated
+    protected void recordParentProject(
+            List<MavenArtifact> parentProjects,
+            @NonNull Run run,
+            @NonNull TaskListener listener,
+            @NonNull PipelineMavenPluginDao dao) {
+        recordParentProjectRows(filterParentProjects(parentProjects, listener), run, listener, dao);
+    }
+
+    /**
+     * @deprecated use {@link #recordBuildGraph(List, List, List, List, Run, TaskListener, PipelineMavenPluginDao)}
+     */
+    @Deprecated
+    protected void recordDependencies(
+            List<MavenDependency> dependencies,
+            List<MavenArtifact> generatedArtifacts,
+            @NonNull Run run,
+            @NonNull TaskListener listener,
+            @NonNull PipelineMavenPluginDao dao) {
+        recordDependencyRows(filterDependencies(dependencies, listener), run, listener, dao);
+    }
+
+    /**
+     * @deprecated use {@link #recordBuildGraph(List, List, List, List, Run, TaskListener, PipelineMavenPluginDao)}
+     */
+    @Deprecated
+    protected void recordGeneratedArtifacts(
+            List<MavenArtifact> generatedArtifacts,
+            List<String> executedLifecyclePhases,
+            @NonNull Run run,
+            @NonNull TaskListener listener,
+            @NonNull PipelineMavenPluginDao dao) {
+        boolean skipDownstreamPipelines =
+                this.skipDownstreamTriggers || (!executedLifecyclePhases.contains(this.lifecycleThreshold));
+        recordGeneratedArtifactRows(generatedArtifacts, skipDownstreamPipelines, run, dao);
+    }
+
+    private void recordParentProjectRows(
+            List<MavenArtifact> parentProjects,
+            @NonNull Run run,
+            @NonNull TaskListener listener,
+            @NonNull PipelineMavenPluginDao dao) {
+        for (MavenArtifact parentProject : parentProjects) {
+            try {
+                dao.recordParentProject(
+                        run.getParent().getFullName(),
+                        run.getNumber(),
+                        parentProject.getGroupId(),
+                        parentProject.getArtifactId(),
+                        parentProject.getVersion(),
+                        this.ignoreUpstreamTriggers);
+            } catch (RuntimeException e) {
+                listener.error("[withMaven] pipelineGraphPublisher - WARNING: Exception recording parent project "
+                        + parentProject.getId() + " on build, skip");
+                e.printStackTrace(listener.getLogger());
+                listener.getLogger().flush();
+            }
+        }
+    }
+
+    private void recordDependencyRows(
+            List<MavenDependency> dependencies,
+            @NonNull Run run,
+            @NonNull TaskListener listener,
+            @NonNull PipelineMavenPluginDao dao) {
+        if (dependencies.size() > 1) {
+            // record the dependencies at once rather than rewriting the dependency set of the build for each row,
+            // halve the list until the bad rows are isolated
+            try {
+                dao.recordBuildGraph(
+                        run.getParent().getFullName(),
+                        run.getNumber(),
+                        dependencies,
+                        Collections.emptyList(),
+                        Collections.emptyList(),
+                        this.ignoreUpstreamTriggers,
+                        false);
+            } catch (RuntimeException e) {
+                LOGGER.log(
+                        Level.FINE,
+                        "Exception recording " + dependencies.size() + " dependencies of " + run + ", split them",
+                        e);
+                int middle = dependencies.size() / 2;
+                recordDependencyRows(dependencies.subList(0, middle), run, listener, dao);
+                recordDependencyRows(dependencies.subList(middle, dependencies.size()), run, listener, dao);
+            }
+            return;
+        }
+        for (MavenDependency dependency : dependencies) {
+            try {
+                dao.recordDependency(
+                        run.getParent().getFullName(),
+                        run.getNumber(),
+                        dependency.getGroupId(),
+                        dependency.getArtifactId(),
+                        dependency.getBaseVersion(),
+                        dependency.getType(),
+                        dependency.getScope(),
+                        this.ignoreUpstreamTriggers,
+                        dependency.getClassifier());
+            } catch (RuntimeException e) {
+                listener.error("[withMaven] pipelineGraphPublisher - WARNING: Exception recording " + dependency.getId()
+                        + " on build, skip");
+                e.printStackTrace(listener.getLogger());
+                listener.getLogger().flush();
+            }
+        }
+    }
+
+    private void recordGeneratedArtifactRows(
+            List<MavenArtifact> generatedArtifacts,
+            boolean skipDownstreamPipelines,
+            @NonNull Run run,
+            @NonNull PipelineMavenPluginDao dao) {
+        for (MavenArtifact artifact : generatedArtifacts) {
             dao.recordGeneratedArtifact(
                     run.getParent().getFullName(),
                     run.getNumber(),
@@ -0,0 +1,81 @@
+package org.jenkinsci.plugins.pipeline.maven.service;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jenkinsci.plugins.pipeline.maven.GlobalPipelineMavenConfig;
+import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginDao;
+
+/**
+ * Periodically prune the dependency graph of the builds that are no longer used to trigger pipelines, according to
+ * {@link GlobalPipelineMavenConfig#getGraphRetentionBuildCount()}.
+ * <p>
+ * Builds are deleted by batches of {@link #BATCH_SIZE} in distinct transactions, within a time budget of
+ * {@link #TIME_BUDGET_IN_MILLIS} per execution, so that pruning never holds long locks on the database. Remaining
+ * builds are pruned by the next executions.
+ */
+@Extension
+public class BuildGraphRetentionPeriodicWork extends AsyncPeriodicWork {
+
+    private static final Logger LOGGER = Logger.getLogger(BuildGraphRetentionPeriodicWork.class.getName());
+
+    private static final long RECURRENCE_PERIOD_IN_MILLIS = Long.getLong(
+            BuildGraphRetentionPeriodicWork.class.getName() + ".RECURRENCE_PERIOD_IN_MILLIS",
+            TimeUnit.HOURS.toMillis(1));
+
+    private static final int BATCH_SIZE =
+            Integer.getInteger(BuildGraphRetentionPeriodicWork.class.getName() + ".BATCH_SIZE", 100);
+
+    private static final long TIME_BUDGET_IN_MILLIS = Long.getLong(
+            BuildGraphRetentionPeriodicWork.class.getName() + ".TIME_BUDGET_IN_MILLIS", TimeUnit.MINUTES.toMillis(1));
+
+    public BuildGraphRetentionPeriodicWork() {
+        super("Pipeline Maven build graph retention");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return RECURRENCE_PERIOD_IN_MILLIS;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        GlobalPipelineMavenConfig config = GlobalPipelineMavenConfig.get();
+        if (config == null || config.getGraphRetentionBuildCount() <= 0) {
+            return;
+        }
+        int retainedBuildCount = config.getGraphRetentionBuildCount();
+        long startTimeInNanos = System.nanoTime();
+        int count = prune(config.getDao(), retainedBuildCount, BATCH_SIZE, TIME_BUDGET_IN_MILLIS);
+        long durationInMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeInNanos);
+        listener.getLogger()
+                .println("Pruned " + count + " builds retaining the last " + retainedBuildCount
+                        + " and last successful builds of each job in " + durationInMillis + "ms");
+        LOGGER.log(Level.FINE, "Pruned {0} builds in {1}ms", new Object[] {count, durationInMillis});
+    }
+
+    /**
+     * Prune builds by batches of {@code batchSize} until there is nothing left to prune or the time budget is spent,
+     * then {@link PipelineMavenPluginDao#cleanup() cleanup} the artifacts that are no longer referenced.
+     *
+     * @return number of pruned builds
+     */
+    static int prune(
+            @NonNull PipelineMavenPluginDao dao, int retainedBuildCount, int batchSize, long timeBudgetInMillis) {
+        long deadlineInNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudgetInMillis);
+        int total = 0;
+        int count;
+        do {
+            count = dao.pruneBuilds(retainedBuildCount, batchSize);
+            total += count;
+        } while (count >= batchSize && System.nanoTime() < deadlineInNanos);
+        if (total > 0) {
+            dao.cleanup();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,407 @@
+package org.jenkinsci.plugins.pipeline.maven.service;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.pipeline.maven.GlobalPipelineMavenConfig;
+import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
+import org.jenkinsci.plugins.pipeline.maven.MavenDependency;
+import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginDao;
+
+/**
+ * Write-behind queue for the dependency graph of the builds.
+ * <p>
+ * The graph of a build is first written to a spool file under {@code JENKINS_HOME} so that it survives a restart,
+ * then queued in a bounded in-memory queue drained by a single background worker which calls
+ * {@link PipelineMavenPluginDao#recordBuildGraph(String, int, List, List, List, boolean, boolean)}. When the queue is
+ * full, the graph is written synchronously by the caller. A graph whose write fails is written again after a delay
+ * doubled at each failure, up to {@link #MAX_RETRY_DELAY_IN_MILLIS}, until it succeeds.
+ * <p>
+ * Readers that need an up to date graph for a given build (e.g. the downstream pipelines trigger) must call
+ * {@link #awaitPendingWrites(String, int, long)} before querying the database.
+ */
+public class DependencyGraphWriteBehindQueue {
+
+    private static final Logger LOGGER = Logger.getLogger(DependencyGraphWriteBehindQueue.class.getName());
+
+    public static final String SPOOL_DIRECTORY_NAME = "pipeline-maven-graph-spool";
+
+    private static final int QUEUE_CAPACITY =
+            Integer.getInteger(DependencyGraphWriteBehindQueue.class.getName() + ".QUEUE_CAPACITY", 1000);
+
+    private static final long RETRY_DELAY_IN_MILLIS =
+            Long.getLong(DependencyGraphWriteBehindQueue.class.getName() + ".RETRY_DELAY_IN_MILLIS", 1_000);
+
+    private static final long MAX_RETRY_DELAY_IN_MILLIS =
+            Long.getLong(DependencyGraphWriteBehindQueue.class.getName() + ".MAX_RETRY_DELAY_IN_MILLIS", 60_000);
+
+    private final Supplier<PipelineMavenPluginDao> daoSupplier;
+
+    private final File spoolDirectory;
+
+    private final BlockingQueue<PendingBuildGraph> queue;
+
+    /**
+     * Graphs whose write failed, by time of the next attempt, only polled by the worker
+     */
+    private final BlockingQueue<PendingBuildGraph> retries =
+            new PriorityBlockingQueue<>(11, Comparator.comparingLong(graph -> graph.retryAtInNanos));
+
+    private final long retryDelayInMillis;
+
+    /**
+     * Number of graphs waiting to be written, the key is jobFullName#buildNumber. Guarded by itself.
+     */
+    private final Map<String, Integer> pendingWritesByBuild = new HashMap<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicInteger drainedCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final AtomicInteger synchronousWriteCount = new AtomicInteger();
+    private final AtomicLong drainLatencyInNanos = new AtomicLong();
+    private final AtomicLong maxDrainLatencyInNanos = new AtomicLong();
+
+    private final List<File> spoolFilesToRecover;
+
+    private volatile Thread worker;
+
+    public DependencyGraphWriteBehindQueue(
+            @NonNull Supplier<PipelineMavenPluginDao> daoSupplier, @NonNull File spoolDirectory) {
+        this(daoSupplier, spoolDirectory, QUEUE_CAPACITY);
+    }
+
+    public DependencyGraphWriteBehindQueue(
+            @NonNull Supplier<PipelineMavenPluginDao> daoSupplier, @NonNull File spoolDirectory, int capacity) {
+        this(daoSupplier, spoolDirectory, capacity, RETRY_DELAY_IN_MILLIS);
+    }
+
+    DependencyGraphWriteBehindQueue(
+            @NonNull Supplier<PipelineMavenPluginDao> daoSupplier,
+            @NonNull File spoolDirectory,
+            int capacity,
+            long retryDelayInMillis) {
+        this.daoSupplier = daoSupplier;
+        this.spoolDirectory = spoolDirectory;
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, capacity));
+        this.retryDelayInMillis = Math.max(1, retryDelayInMillis);
+        this.spoolFilesToRecover = listSpoolFiles();
+        if (!spoolFilesToRecover.isEmpty()) {
+            LOGGER.log(Level.INFO, "Recover {0} dependency graph(s) spooled in {1}", new Object[] {
+                spoolFilesToRecover.size(), spoolDirectory
+            });
+            // the sequence must not collide with the spool files to recover
+            String lastSpoolFileName = spoolFilesToRecover.get(spoolFilesToRecover.size() - 1).getName();
+            try {
+                sequence.set(Long.parseLong(lastSpoolFileName.substring(0, lastSpoolFileName.length() - 4)));
+            } catch (NumberFormatException e) {
+                sequence.set(System.currentTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * Make sure that the dependency graphs spooled before a restart are written to the database even if the
+     * write-behind mode has been disabled in the meantime.
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void recoverSpooledBuildGraphs() {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        GlobalPipelineMavenConfig config = GlobalPipelineMavenConfig.get();
+        if (jenkins == null || config == null) {
+            return;
+        }
+        String[] spoolFiles = new File(jenkins.getRootDir(), SPOOL_DIRECTORY_NAME).list();
+        if (spoolFiles != null && spoolFiles.length > 0) {
+            config.getDependencyGraphWriteBehindQueue().start();
+        }
+    }
+
+    /**
+     * Queue the dependency graph of the given build.
+     */
+    public void enqueue(
+            @NonNull String jobFullName,
+            int buildNumber,
+            @NonNull List<MavenDependency> dependencies,
+            @NonNull List<MavenArtifact> parentProjects,
+            @NonNull List<MavenArtifact> generatedArtifacts,
+            boolean ignoreUpstreamTriggers,
+            boolean skipDownstreamTriggers) {
+        start();
+        PendingBuildGraph graph = new PendingBuildGraph(
+                jobFullName,
+                buildNumber,
+                dependencies,
+                parentProjects,
+                generatedArtifacts,
+                ignoreUpstreamTriggers,
+                skipDownstreamTriggers);
+        File spoolFile = new File(spoolDirectory, String.format("%020d.xml", sequence.incrementAndGet()));
+        try {
+            new XmlFile(spoolFile).write(graph);
+        } catch (IOException e) {
+            LOGGER.log(
+                    Level.WARNING,
+                    "Failure to spool the dependency graph of " + jobFullName + "#" + buildNumber
+                            + ", write it synchronously",
+                    e);
+            spoolFile = null;
+        }
+        graph.spoolFile = spoolFile;
+
+        incrementPendingWrites(graph.getKey());
+        if (!queue.offer(graph)) {
+            LOGGER.log(Level.FINE, "Write-behind queue is full, write the dependency graph of {0} synchronously", graph);
+            synchronousWriteCount.incrementAndGet();
+            write(graph);
+        }
+    }
+
+    /**
+     * Wait until the dependency graphs queued for the given build have been written to the database. A graph whose
+     * write failed remains pending until it is successfully written again.
+     *
+     * @return {@code true} if there are no more pending writes for the given build, {@code false} if the timeout
+     * elapsed
+     */
+    public boolean awaitPendingWrites(@NonNull String jobFullName, int buildNumber, long timeoutInMillis)
+            throws InterruptedException {
+        String key = jobFullName + '#' + buildNumber;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutInMillis);
+        synchronized (pendingWritesByBuild) {
+            while (pendingWritesByBuild.containsKey(key)) {
+                long remainingInMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingInMillis <= 0) {
+                    return false;
+                }
+                pendingWritesByBuild.wait(remainingInMillis);
+            }
+        }
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getRetryCount() {
+        return retries.size();
+    }
+
+    public int getDrainedCount() {
+        return drainedCount.get();
+    }
+
+    public int getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getAverageDrainLatencyInMillis() {
+        int count = drainedCount.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(drainLatencyInNanos.get() / count);
+    }
+
+    public long getMaxDrainLatencyInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxDrainLatencyInNanos.get());
+    }
+
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        if (!spoolDirectory.isDirectory() && !spoolDirectory.mkdirs()) {
+            LOGGER.log(Level.WARNING, "Failure to create the spool directory {0}", spoolDirectory);
+        }
+        Thread thread = new Thread(this::drain, "Pipeline Maven dependency graph write-behind");
+        thread.setDaemon(true);
+        thread.start();
+        worker = thread;
+    }
+
+    /**
+     * Stop the background worker. The dependency graphs that have not been written yet, including the ones waiting to
+     * be written again after a failure, remain in the spool directory and are recovered at the next start.
+     */
+    public synchronized void stop() {
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    public String toPrettyString() {
+        return "Write-behind queue: depth=" + getQueueDepth() + ", retries=" + getRetryCount() + ", drained="
+                + getDrainedCount() + ", failed=" + getFailedCount() + ", synchronousWrites="
+                + synchronousWriteCount.get() + ", averageDrainLatencyInMs=" + getAverageDrainLatencyInMillis()
+                + ", maxDrainLatencyInMs=" + getMaxDrainLatencyInMillis();
+    }
+
+    private void drain() {
+        for (File spoolFile : spoolFilesToRecover) {
+            if (Thread.currentThread() != worker) {
+                return;
+            }
+            try {
+                PendingBuildGraph graph = (PendingBuildGraph) new XmlFile(spoolFile).read();
+                graph.spoolFile = spoolFile;
+                incrementPendingWrites(graph.getKey());
+                write(graph);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failure to recover the spooled dependency graph " + spoolFile, e);
+                failedCount.incrementAndGet();
+            }
+        }
+        spoolFilesToRecover.clear();
+
+        while (Thread.currentThread() == worker) {
+            PendingBuildGraph graph = null;
+            PendingBuildGraph nextRetry = retries.peek();
+            long nextRetryDelayInNanos =
+                    nextRetry == null ? Long.MAX_VALUE : nextRetry.retryAtInNanos - System.nanoTime();
+            if (nextRetryDelayInNanos <= 0) {
+                graph = retries.poll();
+            } else {
+                // graphs failing to be written synchronously are added to the retries without waking up the worker
+                long timeoutInMillis =
+                        Math.min(TimeUnit.NANOSECONDS.toMillis(nextRetryDelayInNanos), MAX_RETRY_DELAY_IN_MILLIS);
+                try {
+                    graph = queue.poll(Math.max(1, timeoutInMillis), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (graph != null) {
+                write(graph);
+            }
+        }
+    }
+
+    private void write(PendingBuildGraph graph) {
+        try {
+            daoSupplier
+                    .get()
+                    .recordBuildGraph(
+                            graph.jobFullName,
+                            graph.buildNumber,
+                            graph.dependencies,
+                            graph.parentProjects,
+                            graph.generatedArtifacts,
+                            graph.ignoreUpstreamTriggers,
+                            graph.skipDownstreamTriggers);
+            if (graph.spoolFile != null && !graph.spoolFile.delete()) {
+                LOGGER.log(Level.WARNING, "Failure to delete the spool file {0}", graph.spoolFile);
+            }
+            long latencyInNanos = System.nanoTime() - graph.enqueuedAtInNanos;
+            drainedCount.incrementAndGet();
+            drainLatencyInNanos.addAndGet(latencyInNanos);
+            maxDrainLatencyInNanos.accumulateAndGet(latencyInNanos, Math::max);
+        } catch (RuntimeException e) {
+            // the write remains pending and the spool file is kept in case of restart
+            failedCount.incrementAndGet();
+            long delayInMillis = Math.min(
+                    retryDelayInMillis << Math.min(graph.failedAttempts, 20), MAX_RETRY_DELAY_IN_MILLIS);
+            graph.failedAttempts++;
+            graph.retryAtInNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayInMillis);
+            LOGGER.log(
+                    graph.failedAttempts == 1 ? Level.WARNING : Level.FINE,
+                    "Failure to record the dependency graph of " + graph + " (attempt " + graph.failedAttempts
+                            + "), retry in " + delayInMillis + " ms",
+                    e);
+            retries.add(graph);
+            return;
+        }
+        decrementPendingWrites(graph.getKey());
+    }
+
+    private void incrementPendingWrites(String key) {
+        synchronized (pendingWritesByBuild) {
+            pendingWritesByBuild.merge(key, 1, Integer::sum);
+        }
+    }
+
+    private void decrementPendingWrites(String key) {
+        synchronized (pendingWritesByBuild) {
+            pendingWritesByBuild.computeIfPresent(key, (k, count) -> count <= 1 ? null : count - 1);
+            pendingWritesByBuild.notifyAll();
+        }
+    }
+
+    private List<File> listSpoolFiles() {
+        File[] files = spoolDirectory.listFiles((dir, name) -> name.endsWith(".xml"));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        // spool file names are zero padded sequence numbers
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    static class PendingBuildGraph {
+        private final String jobFullName;
+        private final int buildNumber;
+        private final List<MavenDependency> dependencies;
+        private final List<MavenArtifact> parentProjects;
+        private final List<MavenArtifact> generatedArtifacts;
+        private final boolean ignoreUpstreamTriggers;
+        private final boolean skipDownstreamTriggers;
+
+        private transient long enqueuedAtInNanos;
+        private transient File spoolFile;
+        private transient int failedAttempts;
+        private transient long retryAtInNanos;
+
+        PendingBuildGraph(
+                String jobFullName,
+                int buildNumber,
+                List<MavenDependency> dependencies,
+                List<MavenArtifact> parentProjects,
+                List<MavenArtifact> generatedArtifacts,
+                boolean ignoreUpstreamTriggers,
+                boolean skipDownstreamTriggers) {
+            this.jobFullName = jobFullName;
+            this.buildNumber = buildNumber;
+            this.dependencies = new ArrayList<>(dependencies);
+            this.parentProjects = new ArrayList<>(parentProjects);
+            this.generatedArtifacts = new ArrayList<>(generatedArtifacts);
+            this.ignoreUpstreamTriggers = ignoreUpstreamTriggers;
+            this.skipDownstreamTriggers = skipDownstreamTriggers;
+            this.enqueuedAtInNanos = System.nanoTime();
+        }
+
+        private Object readResolve() {
+            this.enqueuedAtInNanos = System.nanoTime();
+            return this;
+        }
+
+        String getKey() {
+            return jobFullName + '#' + buildNumber;
+        }
+
+        @Override
+        public String toString() {
+            return jobFullName + "#" + buildNumber;
+        }
+    }
+}
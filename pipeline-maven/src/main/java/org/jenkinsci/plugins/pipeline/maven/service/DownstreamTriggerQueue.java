@@ -0,0 +1,396 @@
+package org.jenkinsci.plugins.pipeline.maven.service;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.XmlFile;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.model.Jenkins;
+import org.jenkinsci.plugins.pipeline.maven.GlobalPipelineMavenConfig;
+
+/**
+ * Asynchronous queue of the downstream pipelines triggering of the completed builds, to not delay the completion of
+ * the upstream builds with the evaluation of the dependency graph.
+ * <p>
+ * A trigger request is first written to a journal file under {@code JENKINS_HOME} so that it survives a restart, then
+ * processed by one of the {@link #THREADS} lanes of the queue. The lane is chosen by upstream job so that the
+ * requests of an upstream job are processed in FIFO order. When {@link #QUEUE_CAPACITY} requests are pending,
+ * {@link #enqueue(TriggerRequest)} rejects the request and the caller must process it synchronously.
+ * <p>
+ * When a coalescing window is configured, the requests received during the window are processed together as a
+ * single batch, so that the downstream pipelines of a burst of upstream builds are evaluated and triggered once. The
+ * batches are processed one after the other, in the order of the requests.
+ */
+public class DownstreamTriggerQueue {
+
+    private static final Logger LOGGER = Logger.getLogger(DownstreamTriggerQueue.class.getName());
+
+    public static final String JOURNAL_DIRECTORY_NAME = "pipeline-maven-trigger-queue";
+
+    private static final int THREADS = Integer.getInteger(DownstreamTriggerQueue.class.getName() + ".THREADS", 2);
+
+    private static final int QUEUE_CAPACITY =
+            Integer.getInteger(DownstreamTriggerQueue.class.getName() + ".QUEUE_CAPACITY", 1000);
+
+    private final Consumer<List<TriggerRequest>> handler;
+
+    private final File journalDirectory;
+
+    private final LongSupplier coalescingWindowInMillis;
+
+    private final int threads;
+
+    private final int capacity;
+
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicInteger processedCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final AtomicInteger rejectedCount = new AtomicInteger();
+    private final AtomicInteger coalescedCount = new AtomicInteger();
+    private final AtomicLong latencyInNanos = new AtomicLong();
+    private final AtomicLong maxLatencyInNanos = new AtomicLong();
+
+    private final List<File> journalFilesToRecover;
+
+    /**
+     * Single thread executors, {@code null} until started. Guarded by {@code this}.
+     */
+    private ExecutorService[] lanes;
+
+    /**
+     * Single thread processing the batches of coalesced requests, {@code null} until started. Guarded by {@code this}.
+     */
+    private ScheduledExecutorService coalescer;
+
+    /**
+     * Requests received during the current coalescing window, {@code null} if no window is open. Guarded by
+     * {@code this}.
+     */
+    private List<TriggerRequest> batch;
+
+    /**
+     * @param handler                  processes a batch of requests, a single request if there is no coalescing
+     *                                 window
+     * @param coalescingWindowInMillis {@code 0} to process each request on its own
+     */
+    public DownstreamTriggerQueue(
+            @NonNull Consumer<List<TriggerRequest>> handler,
+            @NonNull File journalDirectory,
+            @NonNull LongSupplier coalescingWindowInMillis) {
+        this(handler, journalDirectory, coalescingWindowInMillis, THREADS, QUEUE_CAPACITY);
+    }
+
+    public DownstreamTriggerQueue(
+            @NonNull Consumer<List<TriggerRequest>> handler,
+            @NonNull File journalDirectory,
+            @NonNull LongSupplier coalescingWindowInMillis,
+            int threads,
+            int capacity) {
+        this.handler = handler;
+        this.journalDirectory = journalDirectory;
+        this.coalescingWindowInMillis = coalescingWindowInMillis;
+        this.threads = Math.max(1, threads);
+        this.capacity = Math.max(1, capacity);
+        this.journalFilesToRecover = listJournalFiles();
+        if (!journalFilesToRecover.isEmpty()) {
+            LOGGER.log(Level.INFO, "Recover {0} downstream trigger request(s) journaled in {1}", new Object[] {
+                journalFilesToRecover.size(), journalDirectory
+            });
+            // the sequence must not collide with the journal files to recover
+            String lastJournalFileName = journalFilesToRecover.get(journalFilesToRecover.size() - 1).getName();
+            try {
+                sequence.set(Long.parseLong(lastJournalFileName.substring(0, lastJournalFileName.length() - 4)));
+            } catch (NumberFormatException e) {
+                sequence.set(System.currentTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * Make sure that the trigger requests journaled before a restart are processed even if the asynchronous
+     * triggering has been disabled in the meantime.
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void recoverJournaledTriggerRequests() {
+        Jenkins jenkins = Jenkins.getInstanceOrNull();
+        GlobalPipelineMavenConfig config = GlobalPipelineMavenConfig.get();
+        if (jenkins == null || config == null) {
+            return;
+        }
+        String[] journalFiles = new File(jenkins.getRootDir(), JOURNAL_DIRECTORY_NAME).list();
+        if (journalFiles != null && journalFiles.length > 0) {
+            config.getDownstreamTriggerQueue().start();
+        }
+    }
+
+    /**
+     * Queue the given trigger request.
+     *
+     * @return {@code false} if the queue is full, the caller must then process the request synchronously
+     */
+    public boolean enqueue(@NonNull TriggerRequest request) {
+        if (pendingCount.incrementAndGet() > capacity) {
+            pendingCount.decrementAndGet();
+            rejectedCount.incrementAndGet();
+            LOGGER.log(Level.FINE, "Trigger queue is full, reject {0}", request);
+            return false;
+        }
+        start();
+        File journalFile = new File(journalDirectory, String.format("%020d.xml", sequence.incrementAndGet()));
+        try {
+            new XmlFile(journalFile).write(request);
+            request.journalFile = journalFile;
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failure to journal " + request + ", it will be lost in case of restart", e);
+        }
+        submit(request);
+        return true;
+    }
+
+    public int getQueueDepth() {
+        return pendingCount.get();
+    }
+
+    public int getProcessedCount() {
+        return processedCount.get();
+    }
+
+    public int getFailedCount() {
+        return failedCount.get();
+    }
+
+    public int getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Number of requests processed in a batch with other requests
+     */
+    public int getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    public long getAverageLatencyInMillis() {
+        int count = processedCount.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(latencyInNanos.get() / count);
+    }
+
+    public long getMaxLatencyInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxLatencyInNanos.get());
+    }
+
+    public synchronized void start() {
+        if (lanes != null) {
+            return;
+        }
+        if (!journalDirectory.isDirectory() && !journalDirectory.mkdirs()) {
+            LOGGER.log(Level.WARNING, "Failure to create the journal directory {0}", journalDirectory);
+        }
+        lanes = new ExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(
+                    new NamingThreadFactory(new DaemonThreadFactory(), "Pipeline Maven downstream trigger queue " + i));
+        }
+        coalescer = Executors.newSingleThreadScheduledExecutor(
+                new NamingThreadFactory(new DaemonThreadFactory(), "Pipeline Maven downstream trigger coalescer"));
+        for (File journalFile : journalFilesToRecover) {
+            try {
+                TriggerRequest request = (TriggerRequest) new XmlFile(journalFile).read();
+                request.journalFile = journalFile;
+                pendingCount.incrementAndGet();
+                submit(request);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failure to recover the journaled trigger request " + journalFile, e);
+                failedCount.incrementAndGet();
+            }
+        }
+        journalFilesToRecover.clear();
+    }
+
+    /**
+     * Stop the lanes. The trigger requests that have not been processed yet remain in the journal directory and are
+     * recovered at the next start.
+     */
+    public synchronized void stop() {
+        if (lanes != null) {
+            for (ExecutorService lane : lanes) {
+                // each task not started is a single request
+                pendingCount.addAndGet(-lane.shutdownNow().size());
+            }
+            lanes = null;
+        }
+        if (coalescer != null) {
+            coalescer.shutdownNow();
+            coalescer = null;
+        }
+        if (batch != null) {
+            pendingCount.addAndGet(-batch.size());
+            batch = null;
+        }
+    }
+
+    public String toPrettyString() {
+        return "Downstream trigger queue: depth=" + getQueueDepth() + ", processed=" + getProcessedCount()
+                + ", failed=" + getFailedCount() + ", rejected=" + getRejectedCount() + ", coalesced="
+                + getCoalescedCount() + ", averageLatencyInMs=" + getAverageLatencyInMillis() + ", maxLatencyInMs="
+                + getMaxLatencyInMillis();
+    }
+
+    private synchronized void submit(@NonNull TriggerRequest request) {
+        if (lanes == null) {
+            // stopped, the journal file is processed at the next start
+            pendingCount.decrementAndGet();
+            return;
+        }
+        long windowInMillis = coalescingWindowInMillis.getAsLong();
+        if (windowInMillis <= 0) {
+            lanes[Math.floorMod(request.getUpstreamJobFullName().hashCode(), lanes.length)].execute(
+                    () -> process(Collections.singletonList(request)));
+        } else if (batch == null) {
+            // open a new window, processed after the batch being processed if any
+            batch = new ArrayList<>();
+            batch.add(request);
+            coalescer.schedule(this::processBatch, windowInMillis, TimeUnit.MILLISECONDS);
+        } else {
+            batch.add(request);
+        }
+    }
+
+    private void processBatch() {
+        List<TriggerRequest> requests;
+        synchronized (this) {
+            requests = batch;
+            batch = null;
+        }
+        if (requests != null) {
+            LOGGER.log(Level.FINE, "Process {0} coalesced trigger request(s)", requests.size());
+            process(requests);
+        }
+    }
+
+    private void process(@NonNull List<TriggerRequest> requests) {
+        try {
+            handler.accept(requests);
+            long now = System.nanoTime();
+            for (TriggerRequest request : requests) {
+                long latency = now - request.enqueuedAtInNanos;
+                latencyInNanos.addAndGet(latency);
+                maxLatencyInNanos.accumulateAndGet(latency, Math::max);
+            }
+            processedCount.addAndGet(requests.size());
+            if (requests.size() > 1) {
+                coalescedCount.addAndGet(requests.size());
+            }
+        } catch (RuntimeException e) {
+            // don't retry at the next start, the downstream pipelines may already have been triggered
+            LOGGER.log(Level.WARNING, "Failure to process " + requests, e);
+            failedCount.addAndGet(requests.size());
+        } finally {
+            if (Thread.currentThread().isInterrupted()) {
+                // stopped while processing the requests, keep the journal files to process them again at the next
+                // start
+                LOGGER.log(Level.FINE, "Interrupted while processing {0}", requests);
+            } else {
+                for (TriggerRequest request : requests) {
+                    if (request.journalFile != null && !request.journalFile.delete()) {
+                        LOGGER.log(Level.WARNING, "Failure to delete the journal file {0}", request.journalFile);
+                    }
+                }
+            }
+            pendingCount.addAndGet(-requests.size());
+        }
+    }
+
+    private List<File> listJournalFiles() {
+        File[] files = journalDirectory.listFiles((dir, name) -> name.endsWith(".xml"));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        // journal file names are zero padded sequence numbers
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    /**
+     * Request to trigger the downstream pipelines of a completed build
+     */
+    public static class TriggerRequest {
+        private final String upstreamJobFullName;
+        private final int upstreamBuildNumber;
+        private final String upstreamBuildResult;
+
+        /**
+         * Name of the authentication of the upstream build when it completed
+         */
+        private final String authenticationName;
+
+        private transient long enqueuedAtInNanos;
+        private transient File journalFile;
+
+        public TriggerRequest(
+                @NonNull String upstreamJobFullName,
+                int upstreamBuildNumber,
+                @NonNull String upstreamBuildResult,
+                @NonNull String authenticationName) {
+            this.upstreamJobFullName = upstreamJobFullName;
+            this.upstreamBuildNumber = upstreamBuildNumber;
+            this.upstreamBuildResult = upstreamBuildResult;
+            this.authenticationName = authenticationName;
+            this.enqueuedAtInNanos = System.nanoTime();
+        }
+
+        private Object readResolve() {
+            this.enqueuedAtInNanos = System.nanoTime();
+            return this;
+        }
+
+        @NonNull
+        public String getUpstreamJobFullName() {
+            return upstreamJobFullName;
+        }
+
+        public int getUpstreamBuildNumber() {
+            return upstreamBuildNumber;
+        }
+
+        @NonNull
+        public String getUpstreamBuildResult() {
+            return upstreamBuildResult;
+        }
+
+        @NonNull
+        public String getAuthenticationName() {
+            return authenticationName;
+        }
+
+        public long getEnqueuedAtInNanos() {
+            return enqueuedAtInNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "TriggerRequest[" + upstreamJobFullName + "#" + upstreamBuildNumber + ", result: "
+                    + upstreamBuildResult + ", authentication: " + authenticationName + "]";
+        }
+    }
+}
@@ -65,12 +65,25 @@ public class PipelineTriggerService {
             @NonNull String type,
             @NonNull MavenDependencyCause cause,
             @NonNull ServiceLogger logger) {
+        return triggerDownstreamPipelines(groupId, artifactId, baseVersion, version, type, null, cause, logger);
+    }
+
+    public Collection<String> triggerDownstreamPipelines(
+            @NonNull String groupId,
+            @NonNull String artifactId,
+            @Nullable String baseVersion,
+            @NonNull String version,
+            @NonNull String type,
+            @Nullable String classifier,
+            @NonNull MavenDependencyCause cause,
+            @NonNull ServiceLogger logger) {
         MavenArtifact mavenArtifact = new MavenArtifact();
         mavenArtifact.setGroupId(groupId);
         mavenArtifact.setArtifactId(artifactId);
         mavenArtifact.setBaseVersion(baseVersion);
         mavenArtifact.setVersion(version);
         mavenArtifact.setType(type);
+        mavenArtifact.setClassifier(classifier);
 
         return triggerDownstreamPipelines(Collections.singleton(mavenArtifact), cause, logger);
     }
@@ -90,18 +103,9 @@ public class PipelineTriggerService {
 
         long startTimeInNanos = System.nanoTime();
 
-        Map<MavenArtifact, SortedSet<String>> downstreamPipelinesByArtifact = new HashMap<>();
-        for (MavenArtifact mavenArtifact : upstreamArtifacts) {
-            PipelineMavenPluginDao dao = globalPipelineMavenConfig.getDao();
-            // FIXME use classifier in search query
-            SortedSet<String> downstreamPipelines = dao.listDownstreamJobs(
-                    mavenArtifact.getGroupId(),
-                    mavenArtifact.getArtifactId(),
-                    mavenArtifact.getVersion(),
-                    mavenArtifact.getBaseVersion(),
-                    mavenArtifact.getType());
-            downstreamPipelinesByArtifact.put(mavenArtifact, downstreamPipelines);
-        }
+        PipelineMavenPluginDao dao = globalPipelineMavenConfig.getDao();
+        Map<MavenArtifact, SortedSet<String>> downstreamPipelinesByArtifact =
+                dao.listDownstreamJobsByArtifacts(upstreamArtifacts);
 
         Map<String, Set<MavenArtifact>> jobsToTrigger = new TreeMap<>();
         Map<String, Set<String>> omittedPipelineTriggersByPipelineFullname = new HashMap<>();
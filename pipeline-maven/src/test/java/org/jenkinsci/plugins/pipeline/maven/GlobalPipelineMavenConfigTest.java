@@ -0,0 +1,111 @@
+package org.jenkinsci.plugins.pipeline.maven;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginDao;
+import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginNullDao;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.TestExtension;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+public class GlobalPipelineMavenConfigTest {
+
+    private GlobalPipelineMavenConfig config;
+
+    @BeforeEach
+    public void configureSlowDao(JenkinsRule r) throws Exception {
+        config = GlobalPipelineMavenConfig.get();
+        // wait for the warm up of the default DAO at startup
+        assertThat(config.awaitDao(TimeUnit.SECONDS.toMillis(30))).isNotNull();
+        SlowPipelineMavenPluginDao.migration = new CountDownLatch(1);
+        SlowPipelineMavenPluginDao.builds.set(0);
+        config.closeDatasource();
+        config.setDaoClass(SlowPipelineMavenPluginDao.class.getName());
+    }
+
+    @Test
+    public void awaitDao_times_out_while_the_dao_is_warming_up() throws Exception {
+        try {
+            CompletableFuture<PipelineMavenPluginDao> warmUp = config.warmUpDao();
+
+            assertThat(config.awaitDao(100)).isNull();
+            assertThat(config.isDaoWarmingUp()).isTrue();
+            assertThat(warmUp).isNotDone();
+            assertThat(config.getDaoPrettyString()).startsWith("Dao warming up");
+        } finally {
+            SlowPipelineMavenPluginDao.migration.countDown();
+        }
+
+        PipelineMavenPluginDao dao = config.awaitDao(TimeUnit.SECONDS.toMillis(30));
+        assertThat(dao).isInstanceOf(SlowPipelineMavenPluginDao.class);
+        assertThat(config.isDaoWarmingUp()).isFalse();
+        assertThat(config.getDao()).isSameAs(dao);
+        assertThat(config.warmUpDao()).isCompletedWithValue(dao);
+        assertThat(SlowPipelineMavenPluginDao.builds).hasValue(1);
+    }
+
+    @Test
+    public void synchronized_accessors_dont_wait_for_the_dao_warm_up() throws Exception {
+        try {
+            config.warmUpDao();
+            assertThat(config.awaitDao(100)).isNull();
+
+            CompletableFuture<Object> accessors = CompletableFuture.supplyAsync(() -> {
+                config.getJdbcUrl();
+                config.getPipelineTriggerService();
+                return config.getDependencyGraphWriteBehindQueue();
+            });
+            assertThat(accessors.get(30, TimeUnit.SECONDS)).isNotNull();
+            assertThat(config.isDaoWarmingUp()).isTrue();
+        } finally {
+            SlowPipelineMavenPluginDao.migration.countDown();
+        }
+    }
+
+    @Test
+    public void dao_created_with_a_stale_configuration_is_created_again() throws Exception {
+        try {
+            config.warmUpDao();
+            assertThat(config.awaitDao(100)).isNull();
+
+            CompletableFuture.runAsync(() -> config.setJdbcUrl("jdbc:h2:mem:another-database"))
+                    .get(30, TimeUnit.SECONDS);
+        } finally {
+            SlowPipelineMavenPluginDao.migration.countDown();
+        }
+
+        assertThat(config.awaitDao(TimeUnit.SECONDS.toMillis(30))).isInstanceOf(SlowPipelineMavenPluginDao.class);
+        assertThat(SlowPipelineMavenPluginDao.builds).hasValue(2);
+    }
+
+    /**
+     * DAO whose creation waits for {@link #migration}, like a long database migration
+     */
+    @TestExtension
+    public static class SlowPipelineMavenPluginDao extends PipelineMavenPluginNullDao {
+
+        static volatile CountDownLatch migration = new CountDownLatch(0);
+
+        static final AtomicInteger builds = new AtomicInteger();
+
+        @Override
+        public PipelineMavenPluginDao.Builder getBuilder() {
+            return config -> {
+                builds.incrementAndGet();
+                try {
+                    migration.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new SlowPipelineMavenPluginDao();
+            };
+        }
+    }
+}
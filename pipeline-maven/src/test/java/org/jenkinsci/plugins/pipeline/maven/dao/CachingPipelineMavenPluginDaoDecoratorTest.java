@@ -0,0 +1,146 @@
+package org.jenkinsci.plugins.pipeline.maven.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import hudson.model.Result;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CachingPipelineMavenPluginDaoDecoratorTest {
+
+    private PipelineMavenPluginDao delegate = mock(PipelineMavenPluginDao.class);
+
+    private CachingPipelineMavenPluginDaoDecorator decorator =
+            new CachingPipelineMavenPluginDaoDecorator(delegate, 100, 60_000);
+
+    private MavenArtifact artifact = new MavenArtifact("com.example:core:jar:1.0-SNAPSHOT");
+
+    @BeforeEach
+    public void before() {
+        when(delegate.getGeneratedArtifacts("upstream", 1)).thenReturn(List.of(artifact));
+        when(delegate.listDownstreamJobsByArtifact("upstream", 1))
+                .thenReturn(Map.of(artifact, new TreeSet<>(List.of("downstream"))));
+        when(delegate.listUpstreamJobs("downstream", 2)).thenReturn(Map.of("upstream", 1));
+    }
+
+    @Test
+    public void should_cache_reads() {
+        assertThat(decorator.getGeneratedArtifacts("upstream", 1)).containsExactly(artifact);
+        assertThat(decorator.getGeneratedArtifacts("upstream", 1)).containsExactly(artifact);
+        assertThat(decorator.listDownstreamJobsByArtifact("upstream", 1)).containsOnlyKeys(artifact);
+        assertThat(decorator.listDownstreamJobsByArtifact("upstream", 1)).containsOnlyKeys(artifact);
+        assertThat(decorator.listUpstreamJobs("downstream", 2)).containsEntry("upstream", 1);
+        assertThat(decorator.listUpstreamJobs("downstream", 2)).containsEntry("upstream", 1);
+
+        verify(delegate).getGeneratedArtifacts("upstream", 1);
+        verify(delegate).listDownstreamJobsByArtifact("upstream", 1);
+        verify(delegate).listUpstreamJobs("downstream", 2);
+    }
+
+    @Test
+    public void should_only_load_the_missing_builds_in_bulk_reads() {
+        when(delegate.getGeneratedArtifacts(Map.of("other", 3))).thenReturn(Map.of("other", List.of()));
+
+        decorator.getGeneratedArtifacts("upstream", 1);
+        Map<String, List<MavenArtifact>> generatedArtifacts =
+                decorator.getGeneratedArtifacts(Map.of("upstream", 1, "other", 3));
+        decorator.getGeneratedArtifacts("other", 3);
+
+        assertThat(generatedArtifacts).containsEntry("upstream", List.of(artifact)).containsEntry("other", List.of());
+        verify(delegate).getGeneratedArtifacts("upstream", 1);
+        verify(delegate).getGeneratedArtifacts(Map.of("other", 3));
+        verify(delegate, never()).getGeneratedArtifacts("other", 3);
+    }
+
+    @Test
+    public void should_expire_entries() {
+        CachingPipelineMavenPluginDaoDecorator expiringDecorator =
+                new CachingPipelineMavenPluginDaoDecorator(delegate, 100, 0);
+
+        expiringDecorator.getGeneratedArtifacts("upstream", 1);
+        expiringDecorator.getGeneratedArtifacts("upstream", 1);
+
+        verify(delegate, times(2)).getGeneratedArtifacts("upstream", 1);
+    }
+
+    @Test
+    public void should_invalidate_generated_artifacts_of_the_recorded_build() {
+        decorator.updateBuildOnCompletion("upstream", 1, Result.SUCCESS.ordinal, 0, 10);
+        decorator.getGeneratedArtifacts("upstream", 1);
+        decorator.listDownstreamJobsByArtifact("upstream", 1);
+        decorator.listUpstreamJobs("downstream", 2);
+
+        // build #2 of upstream is running, the graph of the last successful build is unchanged
+        decorator.recordGeneratedArtifact(
+                "upstream", 2, "com.example", "core", "1.1-SNAPSHOT", "jar", "1.1-SNAPSHOT", null, false, "jar", null);
+        decorator.getGeneratedArtifacts("upstream", 1);
+        decorator.listUpstreamJobs("downstream", 2);
+        verify(delegate).getGeneratedArtifacts("upstream", 1);
+        verify(delegate).listUpstreamJobs("downstream", 2);
+
+        decorator.recordGeneratedArtifact(
+                "upstream", 1, "com.example", "api", "1.0-SNAPSHOT", "jar", "1.0-SNAPSHOT", null, false, "jar", null);
+        decorator.getGeneratedArtifacts("upstream", 1);
+        decorator.listDownstreamJobsByArtifact("upstream", 1);
+        decorator.listUpstreamJobs("downstream", 2);
+        verify(delegate, times(2)).getGeneratedArtifacts("upstream", 1);
+        verify(delegate, times(2)).listDownstreamJobsByArtifact("upstream", 1);
+        verify(delegate, times(2)).listUpstreamJobs("downstream", 2);
+    }
+
+    @Test
+    public void should_invalidate_downstream_jobs_when_a_build_succeeds() {
+        decorator.listDownstreamJobsByArtifact("upstream", 1);
+        decorator.getGeneratedArtifacts("upstream", 1);
+
+        decorator.updateBuildOnCompletion("other", 5, Result.FAILURE.ordinal, 0, 10);
+        decorator.listDownstreamJobsByArtifact("upstream", 1);
+        verify(delegate).listDownstreamJobsByArtifact("upstream", 1);
+
+        decorator.updateBuildOnCompletion("other", 6, Result.SUCCESS.ordinal, 0, 10);
+        decorator.listDownstreamJobsByArtifact("upstream", 1);
+        decorator.getGeneratedArtifacts("upstream", 1);
+        verify(delegate, times(2)).listDownstreamJobsByArtifact("upstream", 1);
+        verify(delegate).getGeneratedArtifacts("upstream", 1);
+    }
+
+    @Test
+    public void should_invalidate_all_on_delete() {
+        decorator.getGeneratedArtifacts("upstream", 1);
+        decorator.listUpstreamJobs("downstream", 2);
+
+        decorator.deleteBuild("other", 3);
+        decorator.getGeneratedArtifacts("upstream", 1);
+        decorator.listUpstreamJobs("downstream", 2);
+
+        verify(delegate, times(2)).getGeneratedArtifacts("upstream", 1);
+        verify(delegate, times(2)).listUpstreamJobs("downstream", 2);
+    }
+
+    @Test
+    public void cached_values_are_unmodifiable() {
+        Map<MavenArtifact, SortedSet<String>> downstreamJobs = decorator.listDownstreamJobsByArtifact("upstream", 1);
+
+        assertThrows(UnsupportedOperationException.class, downstreamJobs::clear);
+        assertThrows(
+                UnsupportedOperationException.class, () -> downstreamJobs.get(artifact).add("other-downstream"));
+        assertThrows(UnsupportedOperationException.class, () -> decorator
+                .listDownstreamJobsByArtifact(Map.of("upstream", 1))
+                .get("upstream")
+                .get(artifact)
+                .clear());
+        assertThat(decorator.listDownstreamJobsByArtifact("upstream", 1).get(artifact))
+                .containsExactly("downstream");
+    }
+}
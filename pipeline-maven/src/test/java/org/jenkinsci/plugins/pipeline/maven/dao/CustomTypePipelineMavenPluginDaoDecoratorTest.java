@@ -1,14 +1,21 @@
 package org.jenkinsci.plugins.pipeline.maven.dao;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 public class CustomTypePipelineMavenPluginDaoDecoratorTest {
@@ -46,6 +53,52 @@ public class CustomTypePipelineMavenPluginDaoDecoratorTest {
         verifyNoMoreInteractions(mockDelegate);
     }
 
+    @ParameterizedTest
+    @MethodSource("testHandlingOfCustomJarTypes")
+    public void testHandlingOfCustomJarTypesInBuildGraph(
+            String type, String extension, List<String> additionalExpectedReportedTypes) {
+        MavenArtifact artifact = new MavenArtifact();
+        artifact.setGroupId(GROUP_ID);
+        artifact.setArtifactId(ARTIFACT_ID);
+        artifact.setVersion(VERSION);
+        artifact.setBaseVersion(BASE_VERSION);
+        artifact.setType(type);
+        artifact.setExtension(extension);
+        artifact.setClassifier(CLASSIFIER);
+        artifact.setRepositoryUrl(REPOSITORY_URL);
+
+        decorator.recordBuildGraph(
+                JOB_FULL_NAME,
+                BUILD_NUMBER,
+                Collections.emptyList(),
+                Collections.emptyList(),
+                List.of(artifact),
+                false,
+                SKIP_DOWNSTREAM_TRIGGERS);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<MavenArtifact>> generatedArtifacts = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(mockDelegate)
+                .recordBuildGraph(
+                        eq(JOB_FULL_NAME),
+                        eq(BUILD_NUMBER),
+                        anyList(),
+                        anyList(),
+                        generatedArtifacts.capture(),
+                        eq(false),
+                        eq(SKIP_DOWNSTREAM_TRIGGERS));
+        verifyNoMoreInteractions(mockDelegate);
+
+        List<String> expectedTypes = Stream.concat(Stream.of(type), additionalExpectedReportedTypes.stream())
+                .collect(Collectors.toList());
+        assertThat(generatedArtifacts.getValue())
+                .extracting(MavenArtifact::getType)
+                .containsExactlyElementsOf(expectedTypes);
+        assertThat(generatedArtifacts.getValue())
+                .allSatisfy(a -> assertThat(a.getExtension()).isEqualTo(extension))
+                .allSatisfy(a -> assertThat(a.getBaseVersion()).isEqualTo(BASE_VERSION));
+    }
+
     static Stream<Arguments> testHandlingOfCustomJarTypes() {
         return Stream.of(
                 // simple cases
@@ -0,0 +1,48 @@
+package org.jenkinsci.plugins.pipeline.maven.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    private LatencyHistogram histogram = new LatencyHistogram();
+
+    @Test
+    public void should_report_zero_when_empty() {
+        assertThat(histogram.getCount()).isZero();
+        assertThat(histogram.getMaxInNanos()).isZero();
+        assertThat(histogram.getValueAtPercentileInNanos(99)).isZero();
+    }
+
+    @Test
+    public void should_map_each_value_into_a_bucket_containing_it() {
+        long[] values = {0, 1, 7, 8, 15, 16, 17, 1_000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        int previousIndex = -1;
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertThat(index).isGreaterThanOrEqualTo(previousIndex);
+            assertThat(LatencyHistogram.bucketUpperBound(index)).isGreaterThanOrEqualTo(value);
+            if (index > 0) {
+                assertThat(LatencyHistogram.bucketUpperBound(index - 1)).isLessThan(value);
+            }
+            previousIndex = index;
+        }
+    }
+
+    @Test
+    public void should_report_percentiles_within_the_bucket_precision() {
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000_000);
+        }
+
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.getTotalInNanos()).isEqualTo(500_500_000_000L);
+        assertThat(histogram.getMaxInNanos()).isEqualTo(1_000_000_000L);
+        assertThat(histogram.getValueAtPercentileInNanos(50)).isCloseTo(500_000_000L, within(62_500_000L));
+        assertThat(histogram.getValueAtPercentileInNanos(90)).isCloseTo(900_000_000L, within(112_500_000L));
+        assertThat(histogram.getValueAtPercentileInNanos(99)).isCloseTo(990_000_000L, within(123_750_000L));
+        assertThat(histogram.getValueAtPercentileInNanos(100)).isEqualTo(1_000_000_000L);
+    }
+}
@@ -3,10 +3,15 @@ package org.jenkinsci.plugins.pipeline.maven.dao;
 import static java.util.regex.Pattern.DOTALL;
 import static java.util.regex.Pattern.compile;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
+import java.util.List;
+import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
+import org.jenkinsci.plugins.pipeline.maven.MavenDependency;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
@@ -50,6 +55,18 @@ public class MonitoringPipelineMavenPluginDaoDecoratorTest {
         verify(delegate).recordGeneratedArtifact("j", 42, "g", "a", "v", "t", "bv", "r", false, "e", "c");
     }
 
+    @Test
+    public void shoudIncrementWriteWhenRecordBuildGraph() {
+        List<MavenDependency> dependencies = List.of(new MavenDependency());
+        List<MavenArtifact> parentProjects = List.of(new MavenArtifact());
+        List<MavenArtifact> generatedArtifacts = List.of(new MavenArtifact());
+        decorator.recordBuildGraph("j", 42, dependencies, parentProjects, generatedArtifacts, false, true);
+
+        assertThat(decorator.toPrettyString()).matches(compile(".*find:.*count=0.*write:.*count=1.*Cache.*", DOTALL));
+
+        verify(delegate).recordBuildGraph("j", 42, dependencies, parentProjects, generatedArtifacts, false, true);
+    }
+
     @Test
     public void shoudIncrementWriteWhenRecordBuildUpstreamCause() {
         decorator.recordBuildUpstreamCause("j", 42, "d", 4242);
@@ -131,6 +148,16 @@ public class MonitoringPipelineMavenPluginDaoDecoratorTest {
         verify(delegate).listDownstreamJobs("g", "a", "v", "bv", "t", "c");
     }
 
+    @Test
+    public void shoudIncrementReadWhenGetListDownstreamJobsByArtifacts() {
+        List<MavenArtifact> artifacts = List.of(new MavenArtifact("g:a:t:v"), new MavenArtifact("g:b:t:v"));
+        decorator.listDownstreamJobsByArtifacts(artifacts);
+
+        assertThat(decorator.toPrettyString()).matches(compile(".*find:.*count=1.*write:.*count=0.*Cache.*", DOTALL));
+
+        verify(delegate).listDownstreamJobsByArtifacts(artifacts);
+    }
+
     @Test
     public void shoudIncrementReadWhenGetListUpstreamJobs() {
         decorator.listUpstreamJobs("j", 42);
@@ -149,6 +176,26 @@ public class MonitoringPipelineMavenPluginDaoDecoratorTest {
         verify(delegate).listTransitiveUpstreamJobs("j", 42);
     }
 
+    @Test
+    public void shoudIncrementReadWhenGetListTransitiveUpstreamJobsWithMemory() {
+        UpstreamMemory upstreamMemory = new UpstreamMemory();
+        decorator.listTransitiveUpstreamJobs("j", 42, upstreamMemory);
+
+        assertThat(decorator.toPrettyString()).matches(compile(".*find:.*count=1.*write:.*count=0.*Cache.*", DOTALL));
+        assertThat(decorator.getMethodStats()).containsKey("listTransitiveUpstreamJobs(memory)");
+
+        verify(delegate).listTransitiveUpstreamJobs("j", 42, upstreamMemory);
+    }
+
+    @Test
+    public void shoudIncrementWriteWhenPruneBuilds() {
+        decorator.pruneBuilds(10, 100);
+
+        assertThat(decorator.toPrettyString()).matches(compile(".*find:.*count=0.*write:.*count=1.*Cache.*", DOTALL));
+
+        verify(delegate).pruneBuilds(10, 100);
+    }
+
     @Test
     public void shoudIncrementWriteWhenCleanup() {
         decorator.cleanup();
@@ -157,4 +204,30 @@ public class MonitoringPipelineMavenPluginDaoDecoratorTest {
 
         verify(delegate).cleanup();
     }
+
+    @Test
+    public void shouldRecordLatenciesAndErrorsPerMethod() {
+        when(delegate.listDependencies("j", 42)).thenThrow(new IllegalStateException("boom"));
+
+        decorator.listDownstreamJobsByArtifact("j", 42);
+        decorator.listDownstreamJobsByArtifact("j", 43);
+        decorator.recordDependency("j", 42, "g", "a", "v", "t", "s", false, "c");
+        assertThatThrownBy(() -> decorator.listDependencies("j", 42)).isInstanceOf(IllegalStateException.class);
+
+        assertThat(decorator.getMethodStats())
+                .containsOnlyKeys("listDownstreamJobsByArtifact", "recordDependency", "listDependencies");
+        assertThat(decorator.getMethodStats().get("listDownstreamJobsByArtifact"))
+                .extracting(DaoMethodStats::getCount, DaoMethodStats::getErrorCount)
+                .containsExactly(2L, 0L);
+        assertThat(decorator.getMethodStats().get("listDependencies"))
+                .extracting(DaoMethodStats::getCount, DaoMethodStats::getErrorCount)
+                .containsExactly(1L, 1L);
+        assertThat(decorator.toPrettyString())
+                .matches(compile(".*listDependencies: count=1, errors=1, p50InMs=.*p99InMs=.*Cache.*", DOTALL));
+
+        verify(delegate).listDownstreamJobsByArtifact("j", 42);
+        verify(delegate).listDownstreamJobsByArtifact("j", 43);
+        verify(delegate).recordDependency("j", 42, "g", "a", "v", "t", "s", false, "c");
+        verify(delegate).listDependencies("j", 42);
+    }
 }
@@ -98,4 +98,23 @@ public class DaoHelperTest {
         assertThat(result).containsEntry(artifact, values);
         verify(dao).listDownstreamJobsByArtifact("a job", 42);
     }
+
+    @Test
+    public void should_prefetch_generated_artifacts_and_downstream_jobs_from_dao() {
+        MavenArtifact artifact = new MavenArtifact("groupId:artifactId:version");
+        Map<MavenArtifact, SortedSet<String>> answer = singletonMap(artifact, new TreeSet<String>());
+        answer.get(artifact).add("upstream");
+        when(dao.getGeneratedArtifacts(singletonMap("a job", 42)))
+                .thenReturn(singletonMap("a job", Collections.singletonList(artifact)));
+        when(dao.listDownstreamJobsByArtifact(singletonMap("a job", 42))).thenReturn(singletonMap("a job", answer));
+
+        helper.prefetch(singletonMap("a job", 42));
+        List<MavenArtifact> generatedArtifacts = helper.getGeneratedArtifacts("a job", 42);
+        Map<MavenArtifact, SortedSet<String>> downstreamJobs = helper.listDownstreamJobsByArtifact("a job", 42);
+
+        assertThat(generatedArtifacts).containsExactly(artifact);
+        assertThat(downstreamJobs).isEqualTo(answer);
+        verify(dao).getGeneratedArtifacts(singletonMap("a job", 42));
+        verify(dao).listDownstreamJobsByArtifact(singletonMap("a job", 42));
+    }
 }
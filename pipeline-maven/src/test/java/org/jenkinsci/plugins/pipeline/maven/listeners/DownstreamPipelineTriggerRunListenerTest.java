@@ -1,17 +1,23 @@
 package org.jenkinsci.plugins.pipeline.maven.listeners;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import hudson.model.Action;
 import hudson.model.Cause;
+import hudson.model.CauseAction;
 import hudson.model.Job;
 import hudson.model.Queue;
 import hudson.model.Queue.Item;
@@ -19,13 +25,25 @@ import hudson.model.Queue.Task;
 import hudson.model.Result;
 import hudson.model.TaskListener;
 import hudson.model.queue.ScheduleResult;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import jenkins.model.Jenkins;
 import org.jenkinsci.plugins.pipeline.maven.GlobalPipelineMavenConfig;
 import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
@@ -33,6 +51,7 @@ import org.jenkinsci.plugins.pipeline.maven.WithMavenStep;
 import org.jenkinsci.plugins.pipeline.maven.cause.MavenDependencyUpstreamCause;
 import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginDao;
 import org.jenkinsci.plugins.pipeline.maven.dao.UpstreamMemory;
+import org.jenkinsci.plugins.pipeline.maven.service.DownstreamTriggerQueue;
 import org.jenkinsci.plugins.pipeline.maven.service.PipelineTriggerService;
 import org.jenkinsci.plugins.pipeline.maven.trigger.WorkflowJobDependencyTrigger;
 import org.jenkinsci.plugins.workflow.flow.FlowExecution;
@@ -43,11 +62,15 @@ import org.jenkinsci.plugins.workflow.job.WorkflowRun;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 
 @ExtendWith(MockitoExtension.class)
 @MockitoSettings(strictness = Strictness.LENIENT)
@@ -103,6 +126,7 @@ public class DownstreamPipelineTriggerRunListenerTest {
         when(config.getTriggerDownstreamBuildsResultsCriteria()).thenReturn(Collections.singleton(Result.SUCCESS));
         when(config.getPipelineTriggerService()).thenReturn(service);
         when(config.getDao()).thenReturn(dao);
+        when(config.awaitPendingGraphWrites(any(), anyInt(), anyLong())).thenReturn(true);
         when(service.getWorkflowJobDependencyTrigger(any())).thenReturn(trigger);
         when(taskListener.getLogger()).thenReturn(stream);
         when(build.asFlowExecutionOwner()).thenReturn(flowExecutionOwner);
@@ -237,6 +261,48 @@ public class DownstreamPipelineTriggerRunListenerTest {
         }
     }
 
+    @Test
+    public void test_wanted_result_waits_for_pending_graph_writes() throws Exception {
+        try (MockedStatic<Jenkins> j = mockStatic(Jenkins.class)) {
+            j.when(Jenkins::get).thenReturn(jenkins);
+
+            WorkflowJob job = mock(WorkflowJob.class);
+            when(job.getFullName()).thenReturn("pipeline");
+            when(build.getResult()).thenReturn(Result.SUCCESS);
+            when(build.getParent()).thenReturn(job);
+            when(build.getNumber()).thenReturn(42);
+            when(dao.listDownstreamJobsByArtifact("pipeline", 42)).thenReturn(Collections.emptyMap());
+
+            listener.onCompleted(build, taskListener);
+
+            InOrder inOrder = inOrder(config, dao);
+            inOrder.verify(config).awaitPendingGraphWrites(eq("pipeline"), eq(42), anyLong());
+            inOrder.verify(dao).listDownstreamJobsByArtifact("pipeline", 42);
+        }
+    }
+
+    @Test
+    public void test_wanted_result_interrupted_while_waiting_for_pending_graph_writes() throws Exception {
+        try (MockedStatic<Jenkins> j = mockStatic(Jenkins.class)) {
+            j.when(Jenkins::get).thenReturn(jenkins);
+
+            WorkflowJob job = mock(WorkflowJob.class);
+            when(job.getFullName()).thenReturn("pipeline");
+            when(build.getResult()).thenReturn(Result.SUCCESS);
+            when(build.getParent()).thenReturn(job);
+            when(build.getNumber()).thenReturn(42);
+            when(config.awaitPendingGraphWrites(eq("pipeline"), eq(42), anyLong()))
+                    .thenThrow(new InterruptedException());
+
+            listener.onCompleted(build, taskListener);
+
+            // clear the interrupted flag
+            Thread.interrupted();
+            verify(service).checkNoInfiniteLoopOfUpstreamCause(build);
+            verifyNoMoreInteractions(dao, service, trigger);
+        }
+    }
+
     @Test
     public void test_wanted_result_with_downstream_without_job() {
         try (MockedStatic<Jenkins> j = mockStatic(Jenkins.class)) {
@@ -286,6 +352,8 @@ public class DownstreamPipelineTriggerRunListenerTest {
 
             verify(service).checkNoInfiniteLoopOfUpstreamCause(build);
             verify(dao).listDownstreamJobsByArtifact("pipeline", 42);
+            verify(dao).getGeneratedArtifacts(Collections.singletonMap("downstream", 4242));
+            verify(dao).listDownstreamJobsByArtifact(Collections.singletonMap("downstream", 4242));
             verify(dao).getGeneratedArtifacts("downstream", 4242);
             verify(dao).listDownstreamJobsByArtifact("downstream", 4242);
             verify(dao).listTransitiveUpstreamJobs(eq("downstream"), eq(4242), any(UpstreamMemory.class));
@@ -318,12 +386,15 @@ public class DownstreamPipelineTriggerRunListenerTest {
                             new MavenArtifact("groupId:upstreamArtifactId:jar:version"),
                             new TreeSet<>(Collections.singleton("downstream"))));
             when(jenkins.getItemByFullName("downstream", Job.class)).thenReturn(downstream);
-            when(dao.getGeneratedArtifacts("downstream", 4242))
-                    .thenReturn(
-                            Collections.singletonList(new MavenArtifact("groupId:downstreamArtifactId:jar:version")));
-            when(dao.listDownstreamJobsByArtifact("downstream", 4242))
+            when(dao.getGeneratedArtifacts(Collections.singletonMap("downstream", 4242)))
                     .thenReturn(Collections.singletonMap(
-                            new MavenArtifact("groupId:downstreamArtifactId:jar:version"), new TreeSet<>()));
+                            "downstream",
+                            Collections.singletonList(new MavenArtifact("groupId:downstreamArtifactId:jar:version"))));
+            when(dao.listDownstreamJobsByArtifact(Collections.singletonMap("downstream", 4242)))
+                    .thenReturn(Collections.singletonMap(
+                            "downstream",
+                            Collections.singletonMap(
+                                    new MavenArtifact("groupId:downstreamArtifactId:jar:version"), new TreeSet<>())));
             when(service.isDownstreamVisibleByUpstreamBuildAuth(downstream)).thenReturn(true);
             when(service.isUpstreamBuildVisibleByDownstreamBuildAuth(job, downstream))
                     .thenReturn(true);
@@ -332,8 +403,8 @@ public class DownstreamPipelineTriggerRunListenerTest {
 
             verify(service).checkNoInfiniteLoopOfUpstreamCause(build);
             verify(dao).listDownstreamJobsByArtifact("pipeline", 42);
-            verify(dao).getGeneratedArtifacts("downstream", 4242);
-            verify(dao).listDownstreamJobsByArtifact("downstream", 4242);
+            verify(dao).getGeneratedArtifacts(Collections.singletonMap("downstream", 4242));
+            verify(dao).listDownstreamJobsByArtifact(Collections.singletonMap("downstream", 4242));
             verify(dao).listTransitiveUpstreamJobs(eq("downstream"), eq(4242), any(UpstreamMemory.class));
             verify(service).getWorkflowJobDependencyTrigger(downstream);
             verify(service).isDownstreamVisibleByUpstreamBuildAuth(downstream);
@@ -373,12 +444,15 @@ public class DownstreamPipelineTriggerRunListenerTest {
             when(build.getNumber()).thenReturn(42);
             when(dao.listDownstreamJobsByArtifact("pipeline", 42)).thenReturn(downstreamJobs);
             when(jenkins.getItemByFullName("downstream", Job.class)).thenReturn(downstream);
-            when(dao.getGeneratedArtifacts("downstream", 4242))
-                    .thenReturn(
-                            Collections.singletonList(new MavenArtifact("groupId:downstreamArtifactId:jar:version")));
-            when(dao.listDownstreamJobsByArtifact("downstream", 4242))
+            when(dao.getGeneratedArtifacts(Collections.singletonMap("downstream", 4242)))
+                    .thenReturn(Collections.singletonMap(
+                            "downstream",
+                            Collections.singletonList(new MavenArtifact("groupId:downstreamArtifactId:jar:version"))));
+            when(dao.listDownstreamJobsByArtifact(Collections.singletonMap("downstream", 4242)))
                     .thenReturn(Collections.singletonMap(
-                            new MavenArtifact("groupId:downstreamArtifactId:jar:version"), new TreeSet<>()));
+                            "downstream",
+                            Collections.singletonMap(
+                                    new MavenArtifact("groupId:downstreamArtifactId:jar:version"), new TreeSet<>())));
             when(service.isDownstreamVisibleByUpstreamBuildAuth(downstream)).thenReturn(true);
             when(service.isUpstreamBuildVisibleByDownstreamBuildAuth(job, downstream))
                     .thenReturn(true);
@@ -387,8 +461,8 @@ public class DownstreamPipelineTriggerRunListenerTest {
 
             verify(service).checkNoInfiniteLoopOfUpstreamCause(build);
             verify(dao).listDownstreamJobsByArtifact("pipeline", 42);
-            verify(dao).getGeneratedArtifacts("downstream", 4242);
-            verify(dao).listDownstreamJobsByArtifact("downstream", 4242);
+            verify(dao).getGeneratedArtifacts(Collections.singletonMap("downstream", 4242));
+            verify(dao).listDownstreamJobsByArtifact(Collections.singletonMap("downstream", 4242));
             verify(dao).listTransitiveUpstreamJobs(eq("downstream"), eq(4242), any(UpstreamMemory.class));
             verify(service).getWorkflowJobDependencyTrigger(downstream);
             verify(service).isDownstreamVisibleByUpstreamBuildAuth(downstream);
@@ -398,4 +472,213 @@ public class DownstreamPipelineTriggerRunListenerTest {
             verifyNoMoreInteractions(dao, service, trigger, queue);
         }
     }
+
+    @Test
+    public void test_wanted_result_with_downstreams_evaluated_concurrently() throws Exception {
+        WorkflowJob job = mock(WorkflowJob.class);
+        when(job.getFullName()).thenReturn("pipeline");
+        when(build.getResult()).thenReturn(Result.SUCCESS);
+        when(build.getParent()).thenReturn(job);
+        when(build.getNumber()).thenReturn(42);
+        when(build.getFullDisplayName()).thenReturn("pipeline #42");
+        SortedSet<String> downstreamJobs = new TreeSet<>(Arrays.asList("downstream-c", "downstream-a", "downstream-b"));
+        when(dao.listDownstreamJobsByArtifact("pipeline", 42))
+                .thenReturn(Collections.singletonMap(
+                        new MavenArtifact("groupId:upstreamArtifactId:jar:version"), downstreamJobs));
+        mockDownstreamJob("downstream-a", 1);
+        WorkflowJob downstreamB = mockDownstreamJob("downstream-b", 2);
+        mockDownstreamJob("downstream-c", 3);
+        // downstream-b is not eligible
+        when(service.getWorkflowJobDependencyTrigger(downstreamB)).thenReturn(null);
+        when(service.isUpstreamBuildVisibleByDownstreamBuildAuth(any(), any())).thenReturn(true);
+        when(jenkins.getQueue()).thenReturn(queue);
+        when(queueResult.getItem()).thenReturn(queuedItem);
+        List<String> scheduledJobs = Collections.synchronizedList(new ArrayList<>());
+        when(queue.schedule2(any(), anyInt(), anyList())).thenAnswer(invocation -> {
+            scheduledJobs.add(((Job<?, ?>) invocation.getArgument(0)).getFullName());
+            return queueResult;
+        });
+        Map<String, String> authenticationsByJob = new ConcurrentHashMap<>();
+        Set<Thread> evaluationThreads = ConcurrentHashMap.newKeySet();
+        when(service.isDownstreamVisibleByUpstreamBuildAuth(any())).thenAnswer(invocation -> {
+            authenticationsByJob.put(
+                    ((Job<?, ?>) invocation.getArgument(0)).getFullName(),
+                    Jenkins.getAuthentication2().getName());
+            evaluationThreads.add(Thread.currentThread());
+            return true;
+        });
+
+        DownstreamPipelineTriggerRunListener sequentialListener =
+                new DownstreamPipelineTriggerRunListener(config, null);
+        String sequentialLog = triggerDownstreamPipelinesAs("alice", sequentialListener);
+        assertThat(scheduledJobs).containsExactly("downstream-a", "downstream-c");
+        assertThat(evaluationThreads).containsExactly(Thread.currentThread());
+        assertThat(sequentialLog)
+                .containsSubsequence(
+                        "checked transitive upstreams for: downstream-a",
+                        "downstream-b from upstream build pipeline #42: dependency trigger not configured",
+                        "checked transitive upstreams for: downstream-c");
+
+        JenkinsMockingExecutor executor = new JenkinsMockingExecutor(2, jenkins);
+        try {
+            DownstreamPipelineTriggerRunListener concurrentListener =
+                    new DownstreamPipelineTriggerRunListener(config, executor);
+            for (int i = 0; i < 5; i++) {
+                scheduledJobs.clear();
+                authenticationsByJob.clear();
+                evaluationThreads.clear();
+
+                String concurrentLog = triggerDownstreamPipelinesAs("alice", concurrentListener);
+
+                assertThat(concurrentLog).isEqualTo(sequentialLog);
+                assertThat(scheduledJobs).containsExactly("downstream-a", "downstream-c");
+                assertThat(evaluationThreads).isNotEmpty().doesNotContain(Thread.currentThread());
+                assertThat(authenticationsByJob)
+                        .isEqualTo(Map.of("downstream-a", "alice", "downstream-c", "alice"));
+            }
+            executor.shutdown();
+            assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+            assertThat(executor.getCompletedTaskCount()).isEqualTo(15);
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(service, never()).isDownstreamVisibleByUpstreamBuildAuth(downstreamB);
+        verify(queue, never()).schedule2(eq(downstreamB), anyInt(), anyList());
+    }
+
+    @Test
+    public void test_coalesced_upstream_builds_trigger_shared_downstream_once(@TempDir File rootDir) throws Exception {
+        try (MockedStatic<Jenkins> j = mockStatic(Jenkins.class)) {
+            j.when(Jenkins::get).thenReturn(jenkins);
+            when(jenkins.getQueue()).thenReturn(queue);
+            when(queue.schedule2(any(), anyInt(), anyList())).thenReturn(queueResult);
+            when(queueResult.getItem()).thenReturn(queuedItem);
+            when(service.isDownstreamVisibleByUpstreamBuildAuth(any())).thenReturn(true);
+            when(service.isUpstreamBuildVisibleByDownstreamBuildAuth(any(), any())).thenReturn(true);
+
+            WorkflowRun upstreamBuildA = mockUpstreamBuild("upstream-a", new File(rootDir, "a"));
+            WorkflowRun upstreamBuildB = mockUpstreamBuild("upstream-b", new File(rootDir, "b"));
+            WorkflowRun upstreamBuildC = mockUpstreamBuild("upstream-c", new File(rootDir, "c"));
+            WorkflowJob downstream = mockDownstreamJob("downstream", 4242);
+            WorkflowJob transitiveDownstream = mockDownstreamJob("transitive-downstream", 4343);
+            when(dao.listDownstreamJobsByArtifact("upstream-a", 1))
+                    .thenReturn(Collections.singletonMap(
+                            new MavenArtifact("groupId:artifactIdA:jar:version"),
+                            new TreeSet<>(Collections.singleton("downstream"))));
+            when(dao.listDownstreamJobsByArtifact("upstream-b", 1))
+                    .thenReturn(Collections.singletonMap(
+                            new MavenArtifact("groupId:artifactIdB:jar:version"),
+                            new TreeSet<>(Collections.singleton("downstream"))));
+            when(dao.listDownstreamJobsByArtifact("upstream-c", 1))
+                    .thenReturn(Collections.singletonMap(
+                            new MavenArtifact("groupId:artifactIdC:jar:version"),
+                            new TreeSet<>(Collections.singleton("transitive-downstream"))));
+            // transitive-downstream will be triggered by downstream
+            when(dao.listTransitiveUpstreamJobs(eq("transitive-downstream"), eq(4343), any(UpstreamMemory.class)))
+                    .thenReturn(Collections.singletonMap("downstream", 4242));
+
+            listener.processTriggerRequests(Arrays.asList(
+                    new DownstreamTriggerQueue.TriggerRequest("upstream-a", 1, "SUCCESS", "SYSTEM"),
+                    new DownstreamTriggerQueue.TriggerRequest("upstream-b", 1, "SUCCESS", "SYSTEM"),
+                    new DownstreamTriggerQueue.TriggerRequest("upstream-c", 1, "SUCCESS", "SYSTEM")));
+
+            ArgumentCaptor<List<Action>> actions = ArgumentCaptor.forClass(List.class);
+            verify(queue).schedule2(eq(downstream), anyInt(), actions.capture());
+            verify(queue, never()).schedule2(eq(transitiveDownstream), anyInt(), anyList());
+            List<Cause> causes = actions.getValue().stream()
+                    .filter(CauseAction.class::isInstance)
+                    .map(CauseAction.class::cast)
+                    .findFirst()
+                    .orElseThrow()
+                    .getCauses();
+            assertThat(causes)
+                    .extracting(cause -> ((MavenDependencyUpstreamCause) cause).getUpstreamProject())
+                    .containsExactly("upstream-a", "upstream-b");
+            for (Cause cause : causes) {
+                assertThat(((MavenDependencyUpstreamCause) cause).getOmittedPipelineFullNames())
+                        .containsExactly("transitive-downstream");
+            }
+
+            for (WorkflowRun upstreamBuild : Arrays.asList(upstreamBuildA, upstreamBuildB, upstreamBuildC)) {
+                verify(upstreamBuild).addOrReplaceAction(any(DownstreamPipelineTriggersAction.class));
+                assertThat(DownstreamPipelineTriggersAction.getLogFile(upstreamBuild))
+                        .content(StandardCharsets.UTF_8)
+                        .contains("3 coalesced upstream builds completed");
+            }
+        }
+    }
+
+    /**
+     * @return the log of the evaluation and triggering of the downstream pipelines of {@link #build}
+     */
+    private String triggerDownstreamPipelinesAs(String userName, DownstreamPipelineTriggerRunListener listener) {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        when(taskListener.getLogger()).thenReturn(new PrintStream(log, true, StandardCharsets.UTF_8));
+        try (MockedStatic<Jenkins> j = mockJenkins(jenkins);
+                ACLContext ignored =
+                        ACL.as2(new UsernamePasswordAuthenticationToken(userName, null, Collections.emptyList()))) {
+            listener.onCompleted(build, taskListener);
+        }
+        return log.toString(StandardCharsets.UTF_8);
+    }
+
+    private static MockedStatic<Jenkins> mockJenkins(Jenkins jenkins) {
+        MockedStatic<Jenkins> j = mockStatic(Jenkins.class);
+        j.when(Jenkins::get).thenReturn(jenkins);
+        j.when(Jenkins::getAuthentication).thenCallRealMethod();
+        j.when(Jenkins::getAuthentication2).thenCallRealMethod();
+        return j;
+    }
+
+    private WorkflowRun mockUpstreamBuild(String jobFullName, File rootDir) {
+        assertThat(rootDir.mkdirs()).isTrue();
+        WorkflowJob upstreamJob = mock(WorkflowJob.class);
+        when(upstreamJob.getFullName()).thenReturn(jobFullName);
+        WorkflowRun upstreamBuild = mock(WorkflowRun.class);
+        when(upstreamBuild.getParent()).thenReturn(upstreamJob);
+        when(upstreamBuild.getNumber()).thenReturn(1);
+        when(upstreamBuild.getResult()).thenReturn(Result.SUCCESS);
+        when(upstreamBuild.getRootDir()).thenReturn(rootDir);
+        when(upstreamJob.getBuildByNumber(1)).thenReturn(upstreamBuild);
+        when(jenkins.getItemByFullName(jobFullName, Job.class)).thenReturn(upstreamJob);
+        return upstreamBuild;
+    }
+
+    private WorkflowJob mockDownstreamJob(String jobFullName, int lastBuildNumber) {
+        WorkflowRun lastBuild = mock(WorkflowRun.class);
+        when(lastBuild.getNumber()).thenReturn(lastBuildNumber);
+        WorkflowJob downstreamJob = mock(WorkflowJob.class);
+        when(downstreamJob.getFullName()).thenReturn(jobFullName);
+        when(downstreamJob.getFullDisplayName()).thenReturn(jobFullName);
+        when(downstreamJob.getLastBuild()).thenReturn(lastBuild);
+        when(downstreamJob.isBuildable()).thenReturn(true);
+        when(jenkins.getItemByFullName(jobFullName, Job.class)).thenReturn(downstreamJob);
+        return downstreamJob;
+    }
+
+    /**
+     * Mocks {@link Jenkins#get()} in its threads, static mocks are only active in the thread creating them
+     */
+    private static class JenkinsMockingExecutor extends ThreadPoolExecutor {
+
+        private final Jenkins jenkins;
+
+        private final ThreadLocal<MockedStatic<Jenkins>> mockedJenkins = new ThreadLocal<>();
+
+        JenkinsMockingExecutor(int threads, Jenkins jenkins) {
+            super(threads, threads, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+            this.jenkins = jenkins;
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable task) {
+            mockedJenkins.set(mockJenkins(jenkins));
+        }
+
+        @Override
+        protected void afterExecute(Runnable task, Throwable throwable) {
+            mockedJenkins.get().close();
+            mockedJenkins.remove();
+        }
+    }
 }
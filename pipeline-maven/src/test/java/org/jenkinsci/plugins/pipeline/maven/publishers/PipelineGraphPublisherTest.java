@@ -0,0 +1,229 @@
+package org.jenkinsci.plugins.pipeline.maven.publishers;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.jenkinsci.plugins.pipeline.maven.GlobalPipelineMavenConfig;
+import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
+import org.jenkinsci.plugins.pipeline.maven.MavenDependency;
+import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginDao;
+import org.jenkinsci.plugins.pipeline.maven.service.DependencyGraphWriteBehindQueue;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.MockedStatic;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.w3c.dom.Element;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+public class PipelineGraphPublisherTest {
+
+    private final PipelineGraphPublisher publisher = new PipelineGraphPublisher();
+
+    @Mock
+    private PipelineMavenPluginDao dao;
+
+    @Mock
+    private Run run;
+
+    @Mock
+    private Job job;
+
+    @Mock
+    private TaskListener listener;
+
+    @Mock
+    private PrintStream logger;
+
+    @Mock
+    private StepContext context;
+
+    @Mock
+    private GlobalPipelineMavenConfig config;
+
+    @Mock
+    private DependencyGraphWriteBehindQueue queue;
+
+    @BeforeEach
+    public void configureMocks() throws Exception {
+        when(context.get(Run.class)).thenReturn(run);
+        when(context.get(TaskListener.class)).thenReturn(listener);
+        when(config.getDependencyGraphWriteBehindQueue()).thenReturn(queue);
+        when(run.getParent()).thenReturn(job);
+        when(run.getNumber()).thenReturn(42);
+        when(job.getFullName()).thenReturn("my-pipeline");
+        when(listener.getLogger()).thenReturn(logger);
+        when(listener.error(any())).thenReturn(logger);
+        doThrow(new IllegalStateException("expected"))
+                .when(dao)
+                .recordBuildGraph(any(), anyInt(), anyList(), anyList(), anyList(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    public void bad_rows_are_skipped_when_the_graph_cannot_be_recorded_at_once() {
+        MavenArtifact parent = new MavenArtifact("com.example:parent:pom:1.0-SNAPSHOT");
+        MavenDependency bad = dependency("com.example:bad:jar:1.0-SNAPSHOT");
+        MavenDependency good = dependency("com.example:good:jar:1.0-SNAPSHOT");
+        MavenArtifact war = new MavenArtifact("com.example:war:war:1.0-SNAPSHOT");
+        doThrow(new IllegalStateException("bad row"))
+                .when(dao)
+                .recordDependency(
+                        eq("my-pipeline"),
+                        eq(42),
+                        eq("com.example"),
+                        eq("bad"),
+                        any(),
+                        any(),
+                        any(),
+                        anyBoolean(),
+                        any());
+
+        publisher.recordBuildGraph(
+                List.of(parent), List.of(bad, good), List.of(war), List.of("deploy"), run, listener, dao);
+
+        verify(dao).recordParentProject("my-pipeline", 42, "com.example", "parent", "1.0-SNAPSHOT", false);
+        verify(dao)
+                .recordDependency(
+                        "my-pipeline", 42, "com.example", "good", "1.0-SNAPSHOT", "jar", "compile", false, null);
+        verify(dao)
+                .recordGeneratedArtifact(
+                        "my-pipeline", 42, "com.example", "war", "1.0-SNAPSHOT", "war", null, null, false, null, null);
+        verify(listener)
+                .error("[withMaven] pipelineGraphPublisher - WARNING: Exception recording "
+                        + "com.example:bad:jar:1.0-SNAPSHOT on build, skip");
+    }
+
+    @Test
+    public void dependencies_are_recorded_by_halves_when_the_graph_cannot_be_recorded_at_once() {
+        MavenDependency bad = dependency("com.example:bad:jar:1.0-SNAPSHOT");
+        MavenDependency first = dependency("com.example:first:jar:1.0-SNAPSHOT");
+        MavenDependency second = dependency("com.example:second:jar:1.0-SNAPSHOT");
+        MavenDependency third = dependency("com.example:third:jar:1.0-SNAPSHOT");
+        doNothing()
+                .when(dao)
+                .recordBuildGraph(
+                        any(), anyInt(), eq(List.of(first, second)), anyList(), anyList(), anyBoolean(), eq(false));
+
+        publisher.recordBuildGraph(
+                List.of(), List.of(first, second, bad, third), List.of(), List.of(), run, listener, dao);
+
+        verify(dao)
+                .recordBuildGraph("my-pipeline", 42, List.of(first, second), List.of(), List.of(), false, false);
+        verify(dao, never())
+                .recordDependency(any(), anyInt(), any(), eq("first"), any(), any(), any(), anyBoolean(), any());
+        verify(dao, never())
+                .recordDependency(any(), anyInt(), any(), eq("second"), any(), any(), any(), anyBoolean(), any());
+        verify(dao)
+                .recordDependency(
+                        "my-pipeline", 42, "com.example", "bad", "1.0-SNAPSHOT", "jar", "compile", false, null);
+        verify(dao)
+                .recordDependency(
+                        "my-pipeline", 42, "com.example", "third", "1.0-SNAPSHOT", "jar", "compile", false, null);
+    }
+
+    @Test
+    public void generated_artifact_failures_are_propagated() {
+        MavenArtifact war = new MavenArtifact("com.example:war:war:1.0-SNAPSHOT");
+        doThrow(new IllegalStateException("bad artifact"))
+                .when(dao)
+                .recordGeneratedArtifact(
+                        any(), anyInt(), any(), any(), any(), any(), any(), any(), anyBoolean(), any(), any());
+
+        assertThatThrownBy(() -> publisher.recordBuildGraph(
+                        List.of(), List.of(), List.of(war), List.of("deploy"), run, listener, dao))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("bad artifact");
+    }
+
+    @Test
+    public void write_behind_mode_does_not_wait_for_the_dao_warm_up() throws Exception {
+        when(config.isAsynchronousGraphPersistence()).thenReturn(true);
+
+        try (MockedStatic<GlobalPipelineMavenConfig> c = mockStatic(GlobalPipelineMavenConfig.class)) {
+            c.when(GlobalPipelineMavenConfig::get).thenReturn(config);
+            publisher.process(context, mavenSpyLogs());
+        }
+
+        verify(config, never()).awaitDao(anyLong());
+        verify(config, never()).getDao();
+        verify(queue).enqueue(eq("my-pipeline"), eq(42), anyList(), anyList(), anyList(), eq(false), anyBoolean());
+    }
+
+    @Test
+    public void build_graph_is_not_recorded_while_the_dao_is_warming_up() throws Exception {
+        when(config.awaitDao(anyLong())).thenReturn(null);
+
+        try (MockedStatic<GlobalPipelineMavenConfig> c = mockStatic(GlobalPipelineMavenConfig.class)) {
+            c.when(GlobalPipelineMavenConfig::get).thenReturn(config);
+            publisher.process(context, mavenSpyLogs());
+        }
+
+        verify(logger).println(contains("still warming up"));
+        verifyNoInteractions(dao, queue);
+    }
+
+    @Test
+    public void build_graph_is_recorded_once_the_dao_is_warmed_up() throws Exception {
+        doNothing()
+                .when(dao)
+                .recordBuildGraph(any(), anyInt(), anyList(), anyList(), anyList(), anyBoolean(), anyBoolean());
+        when(config.awaitDao(anyLong())).thenReturn(dao);
+
+        try (MockedStatic<GlobalPipelineMavenConfig> c = mockStatic(GlobalPipelineMavenConfig.class)) {
+            c.when(GlobalPipelineMavenConfig::get).thenReturn(config);
+            publisher.process(context, mavenSpyLogs());
+        }
+
+        verify(dao)
+                .recordBuildGraph(
+                        eq("my-pipeline"), eq(42), anyList(), anyList(), anyList(), eq(false), anyBoolean());
+        verifyNoInteractions(queue);
+    }
+
+    private static Element mavenSpyLogs() throws Exception {
+        String mavenSpyLogs = "org/jenkinsci/plugins/pipeline/maven/maven-spy.xml";
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(mavenSpyLogs)) {
+            return DocumentBuilderFactory.newInstance()
+                    .newDocumentBuilder()
+                    .parse(in)
+                    .getDocumentElement();
+        }
+    }
+
+    private static MavenDependency dependency(String identifier) {
+        MavenArtifact artifact = new MavenArtifact(identifier);
+        MavenDependency dependency = new MavenDependency();
+        dependency.setGroupId(artifact.getGroupId());
+        dependency.setArtifactId(artifact.getArtifactId());
+        dependency.setType(artifact.getType());
+        dependency.setVersion(artifact.getVersion());
+        dependency.setBaseVersion(artifact.getVersion());
+        dependency.setSnapshot(artifact.isSnapshot());
+        return dependency;
+    }
+}
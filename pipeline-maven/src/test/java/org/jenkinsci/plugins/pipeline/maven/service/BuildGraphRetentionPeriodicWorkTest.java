@@ -0,0 +1,42 @@
+package org.jenkinsci.plugins.pipeline.maven.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginDao;
+import org.junit.jupiter.api.Test;
+
+public class BuildGraphRetentionPeriodicWorkTest {
+
+    @Test
+    public void prune_by_batches_until_nothing_is_left() {
+        PipelineMavenPluginDao dao = mock(PipelineMavenPluginDao.class);
+        when(dao.pruneBuilds(3, 10)).thenReturn(10, 10, 4);
+
+        assertThat(BuildGraphRetentionPeriodicWork.prune(dao, 3, 10, 60_000)).isEqualTo(24);
+        verify(dao, times(3)).pruneBuilds(3, 10);
+        verify(dao).cleanup();
+    }
+
+    @Test
+    public void prune_stops_when_time_budget_is_spent() {
+        PipelineMavenPluginDao dao = mock(PipelineMavenPluginDao.class);
+        when(dao.pruneBuilds(3, 10)).thenReturn(10);
+
+        assertThat(BuildGraphRetentionPeriodicWork.prune(dao, 3, 10, 0)).isEqualTo(10);
+        verify(dao, times(1)).pruneBuilds(3, 10);
+        verify(dao).cleanup();
+    }
+
+    @Test
+    public void no_cleanup_when_nothing_is_pruned() {
+        PipelineMavenPluginDao dao = mock(PipelineMavenPluginDao.class);
+
+        assertThat(BuildGraphRetentionPeriodicWork.prune(dao, 3, 10, 60_000)).isZero();
+        verify(dao, never()).cleanup();
+    }
+}
@@ -0,0 +1,158 @@
+package org.jenkinsci.plugins.pipeline.maven.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import org.jenkinsci.plugins.pipeline.maven.MavenArtifact;
+import org.jenkinsci.plugins.pipeline.maven.MavenDependency;
+import org.jenkinsci.plugins.pipeline.maven.dao.PipelineMavenPluginDao;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DependencyGraphWriteBehindQueueTest {
+
+    @TempDir
+    private File spoolDirectory;
+
+    @Test
+    public void enqueue_writes_graph_and_deletes_spool_file() throws Exception {
+        PipelineMavenPluginDao dao = mock(PipelineMavenPluginDao.class);
+        DependencyGraphWriteBehindQueue queue = new DependencyGraphWriteBehindQueue(() -> dao, spoolDirectory);
+        try {
+            MavenDependency dependency = new MavenDependency();
+            dependency.setGroupId("com.example");
+            dependency.setArtifactId("dependency");
+            dependency.setBaseVersion("1.0-SNAPSHOT");
+            dependency.setType("jar");
+            dependency.setScope("compile");
+            List<MavenArtifact> generatedArtifacts =
+                    Collections.singletonList(new MavenArtifact("com.example:core:jar:1.0-SNAPSHOT"));
+
+            queue.enqueue(
+                    "my-pipeline",
+                    1,
+                    Collections.singletonList(dependency),
+                    Collections.emptyList(),
+                    generatedArtifacts,
+                    false,
+                    false);
+
+            assertThat(queue.awaitPendingWrites("my-pipeline", 1, 10_000)).isTrue();
+            verify(dao)
+                    .recordBuildGraph(
+                            eq("my-pipeline"),
+                            eq(1),
+                            eq(Collections.singletonList(dependency)),
+                            eq(Collections.emptyList()),
+                            eq(generatedArtifacts),
+                            eq(false),
+                            eq(false));
+            assertThat(queue.getDrainedCount()).isEqualTo(1);
+            assertThat(queue.getQueueDepth()).isZero();
+            assertThat(spoolDirectory.list()).isEmpty();
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    public void await_without_pending_writes_returns_immediately() throws Exception {
+        DependencyGraphWriteBehindQueue queue =
+                new DependencyGraphWriteBehindQueue(() -> mock(PipelineMavenPluginDao.class), spoolDirectory);
+
+        assertThat(queue.awaitPendingWrites("my-pipeline", 1, 0)).isTrue();
+    }
+
+    @Test
+    public void failed_writes_are_retried() throws Exception {
+        PipelineMavenPluginDao dao = mock(PipelineMavenPluginDao.class);
+        doThrow(new IllegalStateException("database unavailable"))
+                .doThrow(new IllegalStateException("database unavailable"))
+                .doNothing()
+                .when(dao)
+                .recordBuildGraph(any(), anyInt(), anyList(), anyList(), anyList(), anyBoolean(), anyBoolean());
+        DependencyGraphWriteBehindQueue queue = new DependencyGraphWriteBehindQueue(() -> dao, spoolDirectory, 10, 10);
+        try {
+            queue.enqueue(
+                    "my-pipeline",
+                    3,
+                    Collections.emptyList(),
+                    Collections.emptyList(),
+                    Collections.singletonList(new MavenArtifact("com.example:core:jar:1.0-SNAPSHOT")),
+                    false,
+                    false);
+
+            assertThat(queue.awaitPendingWrites("my-pipeline", 3, 10_000)).isTrue();
+            verify(dao, times(3))
+                    .recordBuildGraph(
+                            eq("my-pipeline"), eq(3), anyList(), anyList(), anyList(), eq(false), eq(false));
+            assertThat(queue.getFailedCount()).isEqualTo(2);
+            assertThat(queue.getDrainedCount()).isEqualTo(1);
+            assertThat(queue.getRetryCount()).isZero();
+            assertThat(spoolDirectory.list()).isEmpty();
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    public void failed_writes_are_recovered_from_spool() throws Exception {
+        PipelineMavenPluginDao failingDao = mock(PipelineMavenPluginDao.class);
+        doThrow(new IllegalStateException("database unavailable"))
+                .when(failingDao)
+                .recordBuildGraph(any(), anyInt(), anyList(), anyList(), anyList(), anyBoolean(), anyBoolean());
+        DependencyGraphWriteBehindQueue failingQueue =
+                new DependencyGraphWriteBehindQueue(() -> failingDao, spoolDirectory);
+        try {
+            failingQueue.enqueue(
+                    "my-pipeline",
+                    2,
+                    Collections.emptyList(),
+                    Collections.emptyList(),
+                    Collections.singletonList(new MavenArtifact("com.example:core:jar:1.0-SNAPSHOT")),
+                    false,
+                    true);
+            // the waiters are not released while the graph is not written
+            assertThat(failingQueue.awaitPendingWrites("my-pipeline", 2, 500)).isFalse();
+            assertThat(failingQueue.getFailedCount()).isGreaterThanOrEqualTo(1);
+        } finally {
+            failingQueue.stop();
+        }
+        assertThat(spoolDirectory.list()).hasSize(1);
+
+        PipelineMavenPluginDao dao = mock(PipelineMavenPluginDao.class);
+        DependencyGraphWriteBehindQueue queue = new DependencyGraphWriteBehindQueue(() -> dao, spoolDirectory);
+        try {
+            queue.start();
+            assertThat(queue.awaitPendingWrites("my-pipeline", 2, 10_000)).isTrue();
+            // recovery is asynchronous, wait for the spool file to be consumed
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (queue.getDrainedCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            verify(dao)
+                    .recordBuildGraph(
+                            eq("my-pipeline"),
+                            eq(2),
+                            eq(Collections.emptyList()),
+                            eq(Collections.emptyList()),
+                            anyList(),
+                            eq(false),
+                            eq(true));
+            assertThat(spoolDirectory.list()).isEmpty();
+        } finally {
+            queue.stop();
+        }
+    }
+}
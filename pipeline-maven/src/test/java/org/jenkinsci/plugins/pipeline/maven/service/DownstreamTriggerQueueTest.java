@@ -0,0 +1,142 @@
+package org.jenkinsci.plugins.pipeline.maven.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.jenkinsci.plugins.pipeline.maven.service.DownstreamTriggerQueue.TriggerRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DownstreamTriggerQueueTest {
+
+    @TempDir
+    private File journalDirectory;
+
+    @Test
+    public void requests_of_an_upstream_job_are_processed_in_order() throws Exception {
+        List<String> processed = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(5);
+        DownstreamTriggerQueue queue = new DownstreamTriggerQueue(
+                requests -> requests.forEach(request -> {
+                    processed.add(request.getUpstreamJobFullName() + "#" + request.getUpstreamBuildNumber());
+                    latch.countDown();
+                }),
+                journalDirectory,
+                () -> 0,
+                4,
+                100);
+        try {
+            for (int buildNumber = 1; buildNumber <= 5; buildNumber++) {
+                assertThat(queue.enqueue(new TriggerRequest("my-pipeline", buildNumber, "SUCCESS", "SYSTEM")))
+                        .isTrue();
+            }
+
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(processed)
+                    .containsExactly(
+                            "my-pipeline#1", "my-pipeline#2", "my-pipeline#3", "my-pipeline#4", "my-pipeline#5");
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    public void requests_received_during_the_coalescing_window_are_processed_together() throws Exception {
+        List<List<String>> batches = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        DownstreamTriggerQueue queue = new DownstreamTriggerQueue(
+                requests -> {
+                    batches.add(requests.stream()
+                            .map(request -> request.getUpstreamJobFullName() + "#" + request.getUpstreamBuildNumber())
+                            .collect(Collectors.toList()));
+                    latch.countDown();
+                },
+                journalDirectory,
+                () -> 1000,
+                4,
+                100);
+        try {
+            assertThat(queue.enqueue(new TriggerRequest("pipeline-a", 1, "SUCCESS", "SYSTEM"))).isTrue();
+            assertThat(queue.enqueue(new TriggerRequest("pipeline-b", 1, "SUCCESS", "SYSTEM"))).isTrue();
+            assertThat(queue.enqueue(new TriggerRequest("pipeline-a", 2, "SUCCESS", "SYSTEM"))).isTrue();
+
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(batches).containsExactly(Arrays.asList("pipeline-a#1", "pipeline-b#1", "pipeline-a#2"));
+        } finally {
+            queue.stop();
+        }
+    }
+
+    @Test
+    public void full_queue_rejects_requests() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        DownstreamTriggerQueue queue = new DownstreamTriggerQueue(
+                requests -> {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                },
+                journalDirectory,
+                () -> 0,
+                1,
+                1);
+        try {
+            assertThat(queue.enqueue(new TriggerRequest("my-pipeline", 1, "SUCCESS", "SYSTEM"))).isTrue();
+            assertThat(queue.enqueue(new TriggerRequest("my-pipeline", 2, "SUCCESS", "SYSTEM"))).isFalse();
+            assertThat(queue.getRejectedCount()).isEqualTo(1);
+        } finally {
+            blocked.countDown();
+            queue.stop();
+        }
+    }
+
+    @Test
+    public void journaled_requests_are_recovered_after_restart() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        DownstreamTriggerQueue stoppedQueue = new DownstreamTriggerQueue(
+                requests -> {
+                    try {
+                        blocked.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                },
+                journalDirectory,
+                () -> 0,
+                1,
+                100);
+        stoppedQueue.enqueue(new TriggerRequest("my-pipeline", 1, "SUCCESS", "SYSTEM"));
+        stoppedQueue.enqueue(new TriggerRequest("my-pipeline", 2, "SUCCESS", "SYSTEM"));
+        // restart before the requests are processed
+        stoppedQueue.stop();
+        assertThat(journalDirectory.list()).hasSize(2);
+
+        List<String> processed = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2);
+        DownstreamTriggerQueue queue = new DownstreamTriggerQueue(
+                requests -> requests.forEach(request -> {
+                    processed.add(request.getUpstreamJobFullName() + "#" + request.getUpstreamBuildNumber());
+                    latch.countDown();
+                }),
+                journalDirectory,
+                () -> 0,
+                1,
+                100);
+        try {
+            queue.start();
+
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(processed).containsExactly("my-pipeline#1", "my-pipeline#2");
+        } finally {
+            queue.stop();
+        }
+    }
+}